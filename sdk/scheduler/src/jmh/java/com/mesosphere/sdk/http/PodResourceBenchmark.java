@@ -0,0 +1,121 @@
+package com.mesosphere.sdk.http;
+
+import com.mesosphere.sdk.offer.CommonIdUtils;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
+import com.mesosphere.sdk.scheduler.recovery.TaskFailureListener;
+import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.storage.MemPersister;
+import com.mesosphere.sdk.testutils.TaskTestUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+import org.apache.mesos.Protos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the throughput of concurrent polling of {@code /v1/pod/status}, in requests per second, for a service with
+ * many tasks. Pollers either fetch the full response or revalidate the response they already have via
+ * {@code If-None-Match}, optionally while the scheduler concurrently stores task statuses.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PodResourceBenchmark {
+
+    private static final int POLLER_THREADS = 8;
+
+    @Param({"100", "1000"})
+    public int taskCount;
+
+    private StateStore stateStore;
+    private PodResource podResource;
+    private List<Protos.TaskInfo> tasks;
+    private String entityTag;
+    private int writeIndex;
+
+    @Setup
+    public void setup() {
+        stateStore = new StateStore(new MemPersister());
+        podResource = new PodResource(stateStore, TestConstants.SERVICE_NAME, mock(TaskFailureListener.class));
+
+        tasks = new ArrayList<>();
+        for (int i = 0; i < taskCount; ++i) {
+            // Three tasks per pod:
+            Protos.TaskInfo.Builder taskBuilder = Protos.TaskInfo.newBuilder()
+                    .setName(String.format("pod-%d-task-%d", i / 3, i % 3))
+                    .setSlaveId(TestConstants.AGENT_ID);
+            taskBuilder.setTaskId(CommonIdUtils.toTaskId(taskBuilder.getName()));
+            taskBuilder.setLabels(new TaskLabelWriter(taskBuilder).setType("pod").setIndex(i / 3).toProto());
+            tasks.add(taskBuilder.build());
+        }
+        stateStore.storeTasks(tasks);
+        for (Protos.TaskInfo task : tasks) {
+            stateStore.storeStatus(
+                    task.getName(), TaskTestUtils.generateStatus(task.getTaskId(), Protos.TaskState.TASK_RUNNING));
+        }
+
+        entityTag = String.format("\"%s\"", podResource.getPodStatuses(null).getEntityTag().getValue());
+    }
+
+    /**
+     * Pollers which fetch the full response each time, with no writes to the state.
+     */
+    @Benchmark
+    @Threads(POLLER_THREADS)
+    public Response poll() {
+        return podResource.getPodStatuses(null);
+    }
+
+    /**
+     * Pollers which already have the current response, with no writes to the state.
+     */
+    @Benchmark
+    @Threads(POLLER_THREADS)
+    public Response pollNotModified() {
+        return podResource.getPodStatuses(entityTag);
+    }
+
+    /**
+     * Pollers which fetch the full response each time, while task statuses are being stored.
+     */
+    @Benchmark
+    @Group("pollWhileWriting")
+    @GroupThreads(POLLER_THREADS)
+    public Response pollWhileWriting() {
+        return podResource.getPodStatuses(null);
+    }
+
+    /**
+     * Stores task statuses as fast as possible, alongside {@link #pollWhileWriting()}.
+     */
+    @Benchmark
+    @Group("pollWhileWriting")
+    @GroupThreads(1)
+    public void write() {
+        // Only this thread writes, so the index doesn't need to be synchronized:
+        Protos.TaskInfo task = tasks.get(writeIndex++ % tasks.size());
+        stateStore.storeStatus(
+                task.getName(), TaskTestUtils.generateStatus(task.getTaskId(), Protos.TaskState.TASK_RUNNING));
+    }
+}
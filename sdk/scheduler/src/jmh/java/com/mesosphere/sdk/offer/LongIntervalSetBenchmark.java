@@ -0,0 +1,108 @@
+package com.mesosphere.sdk.offer;
+
+import org.apache.mesos.Protos.Value.Range;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks claiming values from a fragmented {@link LongIntervalSet}, such as the ports of an agent which has many
+ * tasks running. Each benchmark returns the claimed values to the set afterwards, so that the set stays equally
+ * fragmented across invocations.
+ * <p>
+ * For comparison, {@link #claimFirstViaRanges()} claims a value by subtracting it from the set's
+ * {@link Range}s, which rebuilds the whole set for each change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LongIntervalSetBenchmark {
+
+    // Each interval holds this many values, followed by a gap of the same size:
+    private static final int INTERVAL_LENGTH = 5;
+    private static final int BULK_CLAIM_COUNT = 100;
+
+    @Param({"100", "10000"})
+    public int intervalCount;
+
+    private final Random random = new Random(1234);
+    private LongIntervalSet set;
+    private List<Range> ranges;
+
+    @Setup
+    public void setup() {
+        set = new LongIntervalSet();
+        for (int i = 0; i < intervalCount; ++i) {
+            long begin = 2L * i * INTERVAL_LENGTH;
+            set.add(begin, begin + INTERVAL_LENGTH - 1);
+        }
+        ranges = set.toRanges();
+    }
+
+    /**
+     * Claims and then releases the lowest value.
+     */
+    @Benchmark
+    public long claimFirst() {
+        long value = set.claimFirst().getAsLong();
+        set.add(value, value);
+        return value;
+    }
+
+    /**
+     * Claims and then releases a value which is uniformly selected from all values.
+     */
+    @Benchmark
+    public long claimRandom() {
+        long value = set.claim(LongIntervalSet.AllocationPolicy.RANDOM_FIT, random).getAsLong();
+        set.add(value, value);
+        return value;
+    }
+
+    /**
+     * Claims and then releases the lowest {@value #BULK_CLAIM_COUNT} values, which span several intervals.
+     */
+    @Benchmark
+    public LongIntervalSet claimFirstBulk() {
+        LongIntervalSet claimed = set.claimFirst(BULK_CLAIM_COUNT).get();
+        set.addAll(claimed);
+        return claimed;
+    }
+
+    /**
+     * Claims and then releases {@value #BULK_CLAIM_COUNT} values which are uniformly selected from all values.
+     */
+    @Benchmark
+    public LongIntervalSet claimRandomBulk() {
+        LongIntervalSet claimed =
+                set.claim(BULK_CLAIM_COUNT, LongIntervalSet.AllocationPolicy.RANDOM_FIT, random).get();
+        set.addAll(claimed);
+        return claimed;
+    }
+
+    /**
+     * Claims the lowest value by subtracting it from the set's ranges, which produces a new list of ranges.
+     */
+    @Benchmark
+    public List<Range> claimFirstViaRanges() {
+        long value = ranges.get(0).getBegin();
+        return RangeUtils.subtractRanges(
+                ranges, Collections.singletonList(Range.newBuilder().setBegin(value).setEnd(value).build()));
+    }
+}
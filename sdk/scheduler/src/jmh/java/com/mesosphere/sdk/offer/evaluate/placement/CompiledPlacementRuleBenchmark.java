@@ -0,0 +1,163 @@
+package com.mesosphere.sdk.offer.evaluate.placement;
+
+import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
+import com.mesosphere.sdk.specification.PodInstance;
+import com.mesosphere.sdk.testutils.OfferTestUtils;
+import com.mesosphere.sdk.testutils.PodTestUtils;
+import com.mesosphere.sdk.testutils.TaskTestUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+import org.apache.mesos.Protos.Attribute;
+import org.apache.mesos.Protos.DomainInfo;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.SlaveID;
+import org.apache.mesos.Protos.TaskInfo;
+import org.apache.mesos.Protos.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks evaluating a deep placement constraint for every pod against every offer in an offer cycle, using the
+ * {@link PlacementRule} tree directly versus its {@link CompiledPlacementRule}.
+ * <p>
+ * The constraint nests {@link AndRule}s, {@link OrRule}s and {@link NotRule}s over regex attribute and hostname rules
+ * and exact zone rules, together with a constraint parsed by {@link MarathonConstraintParser} and a
+ * {@link MaxPerHostnameRule} which depends on the deployed tasks. Each invocation copies the offers, as each cycle
+ * receives new {@link Offer} objects.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CompiledPlacementRuleBenchmark {
+
+    private static final int OFFER_COUNT = 20;
+    private static final int POD_COUNT = 10;
+
+    @Param({"2", "4", "6"})
+    public int depth;
+
+    private PlacementRule rule;
+    private CompiledPlacementRule compiledRule;
+    private final List<Offer> offers = new ArrayList<>();
+    private final List<PodInstance> podInstances = new ArrayList<>();
+    private final List<TaskInfo> tasks = new ArrayList<>();
+
+    @Setup
+    public void setup() throws Exception {
+        rule = new AndRule(
+                getRule(depth, 0),
+                MarathonConstraintParser.parse(TestConstants.POD_TYPE,
+                        "[[\"rack\", \"LIKE\", \"rack-[0-9]+\"], [\"hostname\", \"UNLIKE\", \"host-1[0-9]\"]]"),
+                new MaxPerHostnameRule(2, AnyMatcher.create()));
+        compiledRule = CompiledPlacementRule.compile(rule);
+
+        for (int i = 0; i < OFFER_COUNT; ++i) {
+            offers.add(getOffer(i));
+        }
+        for (int i = 0; i < POD_COUNT; ++i) {
+            podInstances.add(PodTestUtils.getPodInstance(i));
+            // Half of the pods are already deployed:
+            if (i % 2 == 0) {
+                tasks.add(getTask(i, offers.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Evaluates the rule tree for each pod against each offer.
+     */
+    @Benchmark
+    public void uncompiled(Blackhole blackhole) {
+        for (Offer offer : copyOffers()) {
+            for (PodInstance podInstance : podInstances) {
+                blackhole.consume(rule.filter(offer, podInstance, tasks));
+            }
+        }
+    }
+
+    /**
+     * Evaluates the compiled rule for each pod against each offer, reusing offer-only outcomes across pods.
+     */
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        for (Offer offer : copyOffers()) {
+            for (PodInstance podInstance : podInstances) {
+                blackhole.consume(compiledRule.filter(offer, podInstance, tasks));
+            }
+        }
+    }
+
+    private List<Offer> copyOffers() {
+        List<Offer> copies = new ArrayList<>(offers.size());
+        for (Offer offer : offers) {
+            copies.add(offer.toBuilder().build());
+        }
+        return copies;
+    }
+
+    /**
+     * Returns a balanced rule tree of the provided depth, alternating between the types of combining rules and leaf
+     * rules so that both branches of each {@link OrRule} are evaluated for some offers.
+     */
+    private static PlacementRule getRule(int depth, int index) {
+        if (depth == 0) {
+            switch (index % 3) {
+            case 0:
+                return new AttributeRule(RegexMatcher.createAttribute("rack", "rack-[0-" + (index % 4) + "]"));
+            case 1:
+                return new HostnameRule(RegexMatcher.create("host-[0-9]*" + (index % 10)));
+            default:
+                return new ZoneRule(ExactMatcher.create("zone-" + (index % 3)));
+            }
+        }
+        PlacementRule left = getRule(depth - 1, 2 * index);
+        PlacementRule right = getRule(depth - 1, 2 * index + 1);
+        return depth % 2 == 0 ? new AndRule(left, new NotRule(right)) : new OrRule(left, right);
+    }
+
+    private static TaskInfo getTask(int podIndex, Offer offer) {
+        TaskInfo.Builder taskBuilder = TaskTestUtils.getTaskInfo(Collections.emptyList()).toBuilder()
+                .setName(String.format("%s-%d-task", TestConstants.POD_TYPE, podIndex))
+                .setSlaveId(offer.getSlaveId());
+        taskBuilder.setLabels(new TaskLabelWriter(taskBuilder)
+                .setType(TestConstants.POD_TYPE)
+                .setIndex(podIndex)
+                .setHostname(offer)
+                .setZone(offer.getDomain().getFaultDomain().getZone())
+                .toProto());
+        return taskBuilder.build();
+    }
+
+    private static Offer getOffer(int agentIndex) {
+        Attribute.Builder attribute = Attribute.newBuilder()
+                .setName("rack")
+                .setType(Value.Type.TEXT);
+        attribute.getTextBuilder().setValue("rack-" + (agentIndex % 4));
+        DomainInfo.Builder domain = DomainInfo.newBuilder();
+        domain.getFaultDomainBuilder().getRegionBuilder().setName("region-" + (agentIndex % 2));
+        domain.getFaultDomainBuilder().getZoneBuilder().setName("zone-" + (agentIndex % 3));
+        return OfferTestUtils.getEmptyOfferBuilder()
+                .setSlaveId(SlaveID.newBuilder().setValue("agent-" + agentIndex))
+                .setHostname("host-" + agentIndex)
+                .addAttributes(attribute)
+                .setDomain(domain)
+                .build();
+    }
+}
@@ -0,0 +1,176 @@
+package com.mesosphere.sdk.offer.evaluate.security;
+
+import com.mesosphere.sdk.dcos.clients.CertificateAuthorityClient;
+import com.mesosphere.sdk.specification.PodInstance;
+import com.mesosphere.sdk.specification.ResourceSet;
+import com.mesosphere.sdk.specification.TaskSpec;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmarks generating the TLS artifacts for every task of a pod, as is done when a TLS-enabled pod is first
+ * deployed. The CA is simulated in-process, with a fixed delay standing in for the round trip of each signing request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TLSArtifactsGeneratorBenchmark {
+
+    @Param({"1", "8"})
+    public int taskCount;
+
+    @Param({"0", "50"})
+    public int signLatencyMillis;
+
+    private List<CertificateNamesGenerator> certificateNamesGenerators;
+    private TLSArtifactsGenerator inlineGenerator;
+    // Uses a key pair pool and prefetching, as in the scheduler:
+    private TLSArtifactsGenerator prefetchingGenerator;
+
+    @Setup
+    public void setup() throws Exception {
+        CertificateAuthorityClient caClient = new SimulatedCertificateAuthorityClient(signLatencyMillis);
+        inlineGenerator = new TLSArtifactsGenerator(caClient, new KeyPairPool(KeyPairGenerator.getInstance("RSA"), 0));
+        prefetchingGenerator =
+                new TLSArtifactsGenerator(caClient, new KeyPairPool(KeyPairGenerator.getInstance("RSA"), 8));
+
+        PodInstance podInstance = mock(PodInstance.class);
+        when(podInstance.getName()).thenReturn("pod-0");
+        when(podInstance.getIndex()).thenReturn(0);
+        ResourceSet resourceSet = mock(ResourceSet.class);
+        when(resourceSet.getResources()).thenReturn(Collections.emptyList());
+
+        certificateNamesGenerators = new ArrayList<>();
+        for (int i = 0; i < taskCount; ++i) {
+            TaskSpec taskSpec = mock(TaskSpec.class);
+            when(taskSpec.getName()).thenReturn("task-" + i);
+            when(taskSpec.getDiscovery()).thenReturn(Optional.empty());
+            when(taskSpec.getResourceSet()).thenReturn(resourceSet);
+            certificateNamesGenerators.add(new CertificateNamesGenerator("service", taskSpec, podInstance));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        inlineGenerator.close();
+        prefetchingGenerator.close();
+    }
+
+    /**
+     * Generates the artifacts for each task in turn, on the calling thread.
+     */
+    @Benchmark
+    public void generateInline(Blackhole blackhole) throws Exception {
+        for (CertificateNamesGenerator certificateNamesGenerator : certificateNamesGenerators) {
+            blackhole.consume(inlineGenerator.generate(certificateNamesGenerator));
+        }
+    }
+
+    /**
+     * Prefetches the artifacts for all of the pod's tasks before generating them, as is done by the
+     * {@link com.mesosphere.sdk.offer.evaluate.TLSEvaluationStage}s of a pod.
+     */
+    @Benchmark
+    public void generatePrefetched(Blackhole blackhole) throws Exception {
+        for (CertificateNamesGenerator certificateNamesGenerator : certificateNamesGenerators) {
+            prefetchingGenerator.prefetch(certificateNamesGenerator, 1);
+        }
+        for (CertificateNamesGenerator certificateNamesGenerator : certificateNamesGenerators) {
+            blackhole.consume(prefetchingGenerator.generate(certificateNamesGenerator));
+        }
+    }
+
+    /**
+     * A CA which signs requests with its own self-signed certificate after a fixed delay.
+     */
+    private static class SimulatedCertificateAuthorityClient extends CertificateAuthorityClient {
+        private final int signLatencyMillis;
+        private final X500Name issuer = new X500NameBuilder().addRDN(BCStyle.CN, "benchmark-ca").build();
+        private final ContentSigner signer;
+        private final X509Certificate rootCertificate;
+        private final AtomicLong serial = new AtomicLong();
+
+        private SimulatedCertificateAuthorityClient(int signLatencyMillis) throws Exception {
+            super(null);
+            this.signLatencyMillis = signLatencyMillis;
+            KeyPair keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+            this.signer = new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate());
+            this.rootCertificate = issue(issuer, SubjectPublicKeyInfo.getInstance(keyPair.getPublic().getEncoded()));
+        }
+
+        @Override
+        public X509Certificate sign(byte[] csr) throws Exception {
+            if (signLatencyMillis > 0) {
+                Thread.sleep(signLatencyMillis);
+            }
+            PKCS10CertificationRequest request;
+            try (PEMParser parser = new PEMParser(new StringReader(new String(csr, StandardCharsets.UTF_8)))) {
+                request = (PKCS10CertificationRequest) parser.readObject();
+            }
+            return issue(request.getSubject(), request.getSubjectPublicKeyInfo());
+        }
+
+        @Override
+        public Collection<X509Certificate> chainWithRootCert(X509Certificate certificate) {
+            return Collections.singletonList(rootCertificate);
+        }
+
+        private X509Certificate issue(X500Name subject, SubjectPublicKeyInfo publicKeyInfo) throws Exception {
+            byte[] encoded = new X509v3CertificateBuilder(
+                    issuer,
+                    BigInteger.valueOf(serial.incrementAndGet()),
+                    Date.from(Instant.now()),
+                    Date.from(Instant.now().plusSeconds(100000)),
+                    subject,
+                    publicKeyInfo)
+                    .build(signer)
+                    .getEncoded();
+            return (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(encoded));
+        }
+    }
+}
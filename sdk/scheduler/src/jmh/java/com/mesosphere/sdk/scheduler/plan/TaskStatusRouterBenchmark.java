@@ -0,0 +1,134 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import com.mesosphere.sdk.offer.CommonIdUtils;
+import com.mesosphere.sdk.offer.LaunchOfferRecommendation;
+import com.mesosphere.sdk.offer.TaskUtils;
+import com.mesosphere.sdk.scheduler.plan.strategy.SerialStrategy;
+import com.mesosphere.sdk.specification.PodInstance;
+import com.mesosphere.sdk.specification.PodSpec;
+import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.storage.MemPersister;
+import com.mesosphere.sdk.testutils.OfferTestUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+import com.mesosphere.sdk.testutils.TestPodFactory;
+import org.apache.mesos.Protos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks delivering a {@link Protos.TaskStatus} update to a plan of launched {@link DeploymentStep}s, via the
+ * {@link TaskStatusRouter} of a {@link DefaultPlan} versus passing the update to every step in the plan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskStatusRouterBenchmark {
+
+    private static final int STEPS_PER_PHASE = 500;
+
+    @Param({"500", "5000"})
+    public int stepCount;
+
+    private Plan plan;
+    private List<Step> steps;
+    private List<Protos.TaskStatus> statuses;
+    private int statusIndex;
+
+    @Setup
+    public void setup() {
+        StateStore stateStore = new StateStore(new MemPersister());
+        PodSpec podSpec = TestPodFactory.getPodSpec(
+                TestConstants.POD_TYPE,
+                TestConstants.RESOURCE_SET_ID,
+                TestConstants.TASK_NAME,
+                TestPodFactory.CMD.getValue(),
+                TestConstants.SERVICE_USER,
+                stepCount,
+                TestPodFactory.CPU,
+                TestPodFactory.MEM,
+                TestPodFactory.DISK);
+
+        steps = new ArrayList<>();
+        statuses = new ArrayList<>();
+        List<Phase> phases = new ArrayList<>();
+        List<Step> phaseSteps = new ArrayList<>();
+        for (int i = 0; i < stepCount; ++i) {
+            PodInstance podInstance = new DefaultPodInstance(podSpec, i);
+            String taskName = TaskUtils.getTaskNames(podInstance).get(0);
+            DeploymentStep step = new DeploymentStep(
+                    podInstance.getName(),
+                    PodInstanceRequirement.newBuilder(podInstance, TaskUtils.getTaskNames(podInstance)).build(),
+                    stateStore);
+
+            // Launch the step's task, so that the step is waiting for updates for it:
+            Protos.TaskID taskId = CommonIdUtils.toTaskId(taskName);
+            step.updateOfferStatus(Collections.singletonList(new LaunchOfferRecommendation(
+                    OfferTestUtils.getEmptyOfferBuilder().build(),
+                    Protos.TaskInfo.newBuilder()
+                            .setTaskId(taskId)
+                            .setName(taskName)
+                            .setSlaveId(TestConstants.AGENT_ID)
+                            .build(),
+                    Protos.ExecutorInfo.newBuilder()
+                            .setExecutorId(Protos.ExecutorID.newBuilder().setValue("executor"))
+                            .build(),
+                    true,
+                    true)));
+            // An update which leaves the step as-is, so that it may be repeated:
+            statuses.add(Protos.TaskStatus.newBuilder()
+                    .setTaskId(taskId)
+                    .setState(Protos.TaskState.TASK_STARTING)
+                    .build());
+
+            steps.add(step);
+            phaseSteps.add(step);
+            if (phaseSteps.size() == STEPS_PER_PHASE || i == stepCount - 1) {
+                phases.add(new DefaultPhase(
+                        "phase-" + phases.size(), phaseSteps, new SerialStrategy<>(), Collections.emptyList()));
+                phaseSteps = new ArrayList<>();
+            }
+        }
+        plan = new DefaultPlan("deploy", phases);
+    }
+
+    /**
+     * Delivers the next update via the plan, which only passes it to the step that launched the task.
+     */
+    @Benchmark
+    public void routed() {
+        plan.update(nextStatus());
+    }
+
+    /**
+     * Delivers the next update to every step in the plan, as was done before updates were routed.
+     */
+    @Benchmark
+    public void broadcast() {
+        Protos.TaskStatus status = nextStatus();
+        for (Step step : steps) {
+            step.update(status);
+        }
+    }
+
+    private Protos.TaskStatus nextStatus() {
+        // Benchmark state is shared, but each benchmark method is only run by a single thread:
+        return statuses.get(statusIndex++ % statuses.size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.mesosphere.sdk.specification.yaml;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks rendering the service spec and config templates of the Kafka, Cassandra and HDFS frameworks, using the
+ * cache of compiled templates in {@link TemplateUtils} versus compiling each template for every render.
+ * <p>
+ * The templates are read from {@code frameworks/<framework>/src/main/dist}, relative to the scheduler project
+ * directory which the {@code jmh} task runs in. Every parameter in a template is given a value, so that the full
+ * template is rendered.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TemplateUtilsBenchmark {
+
+    private static final File FRAMEWORKS_DIR = new File("../../frameworks");
+    private static final Pattern PARAM_PATTERN = Pattern.compile("\\{\\{[#^/&]?\\s*([^{}\\s]+)\\s*\\}\\}");
+
+    @Param({"kafka", "cassandra", "hdfs"})
+    public String framework;
+
+    private final List<String> templateNames = new ArrayList<>();
+    private final List<String> templateContents = new ArrayList<>();
+    private final Map<String, String> env = new HashMap<>();
+
+    @Setup
+    public void setup() throws IOException {
+        File distDir = new File(FRAMEWORKS_DIR, framework + "/src/main/dist");
+        File[] files = distDir.listFiles(File::isFile);
+        if (files == null || files.length == 0) {
+            throw new IllegalStateException("No templates found in " + distDir.getAbsolutePath());
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            templateNames.add(file.getName());
+            templateContents.add(content);
+            Matcher matcher = PARAM_PATTERN.matcher(content);
+            while (matcher.find()) {
+                env.put(matcher.group(1), "value-" + env.size());
+            }
+        }
+    }
+
+    /**
+     * Renders each template via {@link TemplateUtils}, which only compiles each template once.
+     */
+    @Benchmark
+    public void renderCached(Blackhole blackhole) {
+        for (int i = 0; i < templateNames.size(); ++i) {
+            List<TemplateUtils.MissingValue> missingValues = new ArrayList<>();
+            blackhole.consume(
+                    TemplateUtils.renderMustache(templateNames.get(i), templateContents.get(i), env, missingValues));
+            blackhole.consume(missingValues);
+        }
+    }
+
+    /**
+     * Compiles and renders each template with a new factory, as was done for every render before templates were
+     * cached.
+     */
+    @Benchmark
+    public void renderUncached(Blackhole blackhole) {
+        for (int i = 0; i < templateNames.size(); ++i) {
+            StringWriter writer = new StringWriter();
+            new DefaultMustacheFactory()
+                    .compile(new StringReader(templateContents.get(i)), templateNames.get(i))
+                    .execute(writer, env);
+            blackhole.consume(writer.toString());
+        }
+    }
+}
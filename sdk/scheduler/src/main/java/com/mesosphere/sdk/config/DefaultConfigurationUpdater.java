@@ -25,6 +25,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Handles the validation and update of a new configuration against a prior configuration, if any.
@@ -34,6 +38,11 @@ public class DefaultConfigurationUpdater implements ConfigurationUpdater<Service
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultConfigurationUpdater.class);
 
+    /**
+     * The maximum number of stored configs to fetch and parse at once during cleanup.
+     */
+    private static final int MAX_FETCH_THREADS = 4;
+
     private final StateStore stateStore;
     private final ConfigStore<ServiceSpec> configStore;
     private final ConfigurationComparator<ServiceSpec> configComparator;
@@ -174,14 +183,30 @@ public class DefaultConfigurationUpdater implements ConfigurationUpdater<Service
      * Searches for any task configurations which are already identical to the target configuration
      * and updates the embedded config version label in those tasks to point to the current target
      * configuration.
+     * <p>
+     * Stored configs whose digest matches the target are known to be identical to the target without being parsed.
+     * The remaining configs are parsed in parallel, and each is only compared against the target once, regardless of
+     * how many tasks refer to it.
      */
     private void cleanupDuplicateAndUnusedConfigs(
             ServiceSpec targetConfig,
             UUID targetConfigId)
             throws ConfigStoreException {
-        List<Protos.TaskInfo> taskInfosToUpdate = new ArrayList<>();
+        Collection<UUID> configIds = configStore.list();
+        Set<UUID> duplicateConfigIds = getDuplicateConfigIds(targetConfig, configIds);
+        LOGGER.info("Found {} stored configurations identical to target {}: {}",
+                duplicateConfigIds.size(), targetConfigId, duplicateConfigIds);
+
         Set<UUID> neededConfigs = new HashSet<>();
         neededConfigs.add(targetConfigId);
+        // Test deserialization of the other configs, so that any which can't be read aren't deleted below.
+        Set<UUID> configIdsToParse = new HashSet<>(configIds);
+        configIdsToParse.remove(targetConfigId);
+        configIdsToParse.removeAll(duplicateConfigIds);
+        neededConfigs.addAll(fetchConfigs(configIdsToParse));
+
+        List<Protos.TaskInfo> taskInfosToUpdate = new ArrayList<>();
+        ConfigComparisons comparisons = new ConfigComparisons(targetConfig);
         // Search task labels for configs which need to be cleaned up.
         for (Protos.TaskInfo taskInfo : stateStore.fetchTasks()) {
             final UUID taskConfigId;
@@ -198,19 +223,21 @@ public class DefaultConfigurationUpdater implements ConfigurationUpdater<Service
                         taskInfo.getName(), taskConfigId);
             } else {
                 try {
-                    final ServiceSpec taskConfig = configStore.fetch(taskConfigId);
-                    if (!needsConfigUpdate(taskInfo, targetConfig, taskConfig)) {
-                        // Task is effectively already on the target config. Update task's config ID to match target,
-                        // and allow the duplicate config to be dropped from configStore.
-                        TaskInfo.Builder taskBuilder = taskInfo.toBuilder();
-                        taskBuilder.setLabels(new TaskLabelWriter(taskInfo)
-                                .setTargetConfiguration(targetConfigId)
-                                .toProto());
-                        taskInfosToUpdate.add(taskBuilder.build());
-                    } else {
+                    if (duplicateConfigIds.contains(taskConfigId)) {
+                        LOGGER.info("Task '{}' is up to date: Task's target ServiceSpec has the same digest " +
+                                "as the current ServiceSpec", taskInfo.getName());
+                    } else if (comparisons.needsConfigUpdate(taskInfo, taskConfigId)) {
                         // Config isn't the same as the target. Refrain from updating task, mark config as 'needed'.
                         neededConfigs.add(taskConfigId);
+                        continue;
                     }
+                    // Task is effectively already on the target config. Update task's config ID to match target,
+                    // and allow the duplicate config to be dropped from configStore.
+                    TaskInfo.Builder taskBuilder = taskInfo.toBuilder();
+                    taskBuilder.setLabels(new TaskLabelWriter(taskInfo)
+                            .setTargetConfiguration(targetConfigId)
+                            .toProto());
+                    taskInfosToUpdate.add(taskBuilder.build());
                 } catch (Exception e) {
                     LOGGER.error(String.format("Failed to fetch configuration %s for task %s",
                             taskConfigId, taskInfo.getName()), e);
@@ -226,19 +253,65 @@ public class DefaultConfigurationUpdater implements ConfigurationUpdater<Service
             stateStore.storeTasks(taskInfosToUpdate);
         }
 
-        Collection<UUID> configIds = configStore.list();
-        LOGGER.info("Testing deserialization of {} listed configurations before cleanup:", configIds.size());
-        for (UUID configId : configIds) {
-            try {
-                configStore.fetch(configId);
-                LOGGER.info("- {}: OK", configId);
-            } catch (Exception e) {
-                LOGGER.info("- {}: FAILED, leaving as-is: {}", configId, e.getMessage());
-                neededConfigs.add(configId);
+        clearConfigsNotListed(neededConfigs);
+    }
+
+    /**
+     * Returns the IDs of stored configs whose serialized content is identical to the target config, according to
+     * their stored digests.
+     */
+    private Set<UUID> getDuplicateConfigIds(ServiceSpec targetConfig, Collection<UUID> configIds) {
+        final String targetDigest;
+        final Map<UUID, String> digests;
+        try {
+            targetDigest = ConfigStore.getDigest(targetConfig.getBytes());
+            digests = configStore.fetchDigests(configIds);
+        } catch (Exception e) {
+            LOGGER.warn("Unable to compare configuration digests, falling back to full comparisons", e);
+            return Collections.emptySet();
+        }
+        Set<UUID> duplicateConfigIds = new HashSet<>();
+        for (Map.Entry<UUID, String> entry : digests.entrySet()) {
+            if (targetDigest.equals(entry.getValue())) {
+                duplicateConfigIds.add(entry.getKey());
             }
         }
+        return duplicateConfigIds;
+    }
 
-        clearConfigsNotListed(neededConfigs);
+    /**
+     * Fetches the provided configs in parallel, returning the IDs of any configs which failed to be fetched. Fetched
+     * configs are retained by the {@link ConfigStore}, so later fetches of the same configs don't parse them again.
+     */
+    private Set<UUID> fetchConfigs(Collection<UUID> configIds) {
+        LOGGER.info("Testing deserialization of {} listed configurations before cleanup:", configIds.size());
+        if (configIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Map<UUID, Future<?>> fetches = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(configIds.size(), MAX_FETCH_THREADS));
+        try {
+            for (UUID configId : configIds) {
+                fetches.put(configId, executor.submit(() -> configStore.fetch(configId)));
+            }
+            Set<UUID> failedConfigIds = new HashSet<>();
+            for (Map.Entry<UUID, Future<?>> entry : fetches.entrySet()) {
+                try {
+                    entry.getValue().get();
+                    LOGGER.info("- {}: OK", entry.getKey());
+                } catch (ExecutionException e) {
+                    LOGGER.info("- {}: FAILED, leaving as-is: {}", entry.getKey(), e.getCause().getMessage());
+                    failedConfigIds.add(entry.getKey());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.info("- {}: INTERRUPTED, leaving as-is", entry.getKey());
+                    failedConfigIds.add(entry.getKey());
+                }
+            }
+            return failedConfigIds;
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     private static void printConfigDiff(ServiceSpec oldConfig, UUID oldConfigId, String newConfigJson) {
@@ -262,53 +335,84 @@ public class DefaultConfigurationUpdater implements ConfigurationUpdater<Service
         }
     }
 
-    private static boolean needsConfigUpdate(
-            Protos.TaskInfo taskInfo, ServiceSpec targetConfig, ServiceSpec taskConfig) {
-        if (targetConfig.equals(taskConfig)) {
-            LOGGER.info("Task '{}' is up to date: Task's target ServiceSpec matches the current ServiceSpec",
-                    taskInfo.getName());
-            return false;
-        }
+    /**
+     * Compares task configs against the target config, where each config and each of its pods is only compared
+     * against the target once.
+     */
+    private class ConfigComparisons {
+        private final ServiceSpec targetConfig;
+        private final Map<UUID, Boolean> configMatches = new HashMap<>();
+        private final Map<UUID, Map<String, Boolean>> podMatches = new HashMap<>();
 
-        final String podType;
-        final boolean isPermanentlyFailed;
-        try {
-            TaskLabelReader reader = new TaskLabelReader(taskInfo);
-            podType = reader.getType();
-            isPermanentlyFailed = reader.isPermanentlyFailed();
-        } catch (TaskException e) {
-            LOGGER.error(String.format(
-                    "Unable to extract pod type from task '%s'. Will assume the task needs a configuration update",
-                    taskInfo.getName()), e);
-            return true;
+        private ConfigComparisons(ServiceSpec targetConfig) {
+            this.targetConfig = targetConfig;
         }
 
-        // Permanently failed tasks should be placed on the target configuration immediately.  They do not need
-        // to transition from their former config to the new target.
-        if (isPermanentlyFailed) {
-            return false;
-        }
+        private boolean needsConfigUpdate(Protos.TaskInfo taskInfo, UUID taskConfigId) throws ConfigStoreException {
+            Boolean configMatches = this.configMatches.get(taskConfigId);
+            if (configMatches == null) {
+                ServiceSpec taskConfig = configStore.fetch(taskConfigId);
+                configMatches = haveSameFingerprint(targetConfig, taskConfig) || targetConfig.equals(taskConfig);
+                this.configMatches.put(taskConfigId, configMatches);
+            }
+            if (configMatches) {
+                LOGGER.info("Task '{}' is up to date: Task's target ServiceSpec matches the current ServiceSpec",
+                        taskInfo.getName());
+                return false;
+            }
 
-        Optional<PodSpec> targetSpecOptional = getPodSpec(targetConfig, podType);
-        Optional<PodSpec> taskSpecOptional = getPodSpec(taskConfig, podType);
-        if (!targetSpecOptional.isPresent() || !taskSpecOptional.isPresent()) {
-            LOGGER.info("Task '{}' needs a configuration update: " +
-                    "PodSpec '{}' was {} in task's config, but is {} in current target config",
-                    taskInfo.getName(),
-                    podType,
-                    taskSpecOptional.isPresent() ? "present" : "missing",
-                    targetSpecOptional.isPresent() ? "present" : "missing");
-            return true;
-        }
+            final String podType;
+            final boolean isPermanentlyFailed;
+            try {
+                TaskLabelReader reader = new TaskLabelReader(taskInfo);
+                podType = reader.getType();
+                isPermanentlyFailed = reader.isPermanentlyFailed();
+            } catch (TaskException e) {
+                LOGGER.error(String.format(
+                        "Unable to extract pod type from task '%s'. Will assume the task needs a configuration update",
+                        taskInfo.getName()), e);
+                return true;
+            }
 
-        boolean updateNeeded = !areMatching(targetSpecOptional.get(), taskSpecOptional.get());
-        if (updateNeeded) {
-            LOGGER.info("Task '{}' needs a configuration update: PodSpec '{}' has changed",
-                    taskInfo.getName(), podType);
-        } else {
-            LOGGER.info("Task '{}' is up to date: PodSpec '{}' is the same", taskInfo.getName(), podType);
+            // Permanently failed tasks should be placed on the target configuration immediately.  They do not need
+            // to transition from their former config to the new target.
+            if (isPermanentlyFailed) {
+                return false;
+            }
+
+            Map<String, Boolean> podMatchesForConfig =
+                    podMatches.computeIfAbsent(taskConfigId, id -> new HashMap<>());
+            Boolean podMatches = podMatchesForConfig.get(podType);
+            if (podMatches == null) {
+                Optional<PodSpec> targetSpecOptional = getPodSpec(targetConfig, podType);
+                Optional<PodSpec> taskSpecOptional = getPodSpec(configStore.fetch(taskConfigId), podType);
+                if (!targetSpecOptional.isPresent() || !taskSpecOptional.isPresent()) {
+                    LOGGER.info("Task '{}' needs a configuration update: " +
+                            "PodSpec '{}' was {} in task's config, but is {} in current target config",
+                            taskInfo.getName(),
+                            podType,
+                            taskSpecOptional.isPresent() ? "present" : "missing",
+                            targetSpecOptional.isPresent() ? "present" : "missing");
+                    podMatchesForConfig.put(podType, false);
+                    return true;
+                }
+                podMatches = areMatching(targetSpecOptional.get(), taskSpecOptional.get());
+                podMatchesForConfig.put(podType, podMatches);
+            }
+
+            if (!podMatches) {
+                LOGGER.info("Task '{}' needs a configuration update: PodSpec '{}' has changed",
+                        taskInfo.getName(), podType);
+            } else {
+                LOGGER.info("Task '{}' is up to date: PodSpec '{}' is the same", taskInfo.getName(), podType);
+            }
+            return !podMatches;
         }
-        return updateNeeded;
+    }
+
+    private static boolean haveSameFingerprint(ServiceSpec first, ServiceSpec second) {
+        String firstFingerprint = first.getFingerprint();
+        return firstFingerprint != null && firstFingerprint.equals(second.getFingerprint());
     }
 
     private static Optional<PodSpec> getPodSpec(ServiceSpec serviceSpecification, String podType) {
@@ -318,6 +422,11 @@ public class DefaultConfigurationUpdater implements ConfigurationUpdater<Service
     }
 
     private static boolean areMatching(PodSpec podSpec1, PodSpec podSpec2) {
+        String fingerprint1 = podSpec1.getFingerprint();
+        if (fingerprint1 != null && fingerprint1.equals(podSpec2.getFingerprint())) {
+            // Shortcut: Pods with the same content are equal
+            return true;
+        }
         if (podSpec1.equals(podSpec2)) {
             // Shortcut: Below modification was not needed to check for equality
             return true;
@@ -15,14 +15,25 @@
  */
 package com.mesosphere.sdk.config;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.hash.Hashing;
 import com.hubspot.jackson.datatype.protobuf.ProtobufModule;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Contains static object serialization utilities for JSON and YAML.
@@ -45,6 +56,17 @@ public class SerializationUtils {
      */
     private static final ObjectMapper DEFAULT_JSON_MAPPER = registerDefaultModules(new ObjectMapper());
 
+    /**
+     * An Object mapper which produces a canonical JSON representation of Objects, for use in fingerprints. Object
+     * properties and map entries are sorted by name, and set elements are sorted by their own canonical representation,
+     * so that the output doesn't depend on field declaration order or on map and set iteration order. No whitespace is
+     * produced.
+     */
+    private static final ObjectMapper CANONICAL_JSON_MAPPER = registerDefaultModules(new ObjectMapper())
+            .registerModule(new SimpleModule().addSerializer(Set.class, new SortedSetSerializer()))
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
     /**
      * Returns a new {@link ObjectMapper} with default modules against the provided factory.
      *
@@ -123,6 +145,19 @@ public class SerializationUtils {
         }
     }
 
+    /**
+     * Returns a hex SHA-256 fingerprint of the canonical JSON representation of the provided value. Values with the
+     * same serialized content have the same fingerprint, including across JVMs.
+     *
+     * @param value The value to be fingerprinted
+     * @param <T> The type of the {@code value}
+     * @return A 64 character hex string
+     * @throws IOException if conversion fails
+     */
+    public static <T> String toFingerprint(T value) throws IOException {
+        return Hashing.sha256().hashBytes(CANONICAL_JSON_MAPPER.writeValueAsBytes(value)).toString();
+    }
+
     /**
      * Returns the object represented by the provided JSON string created via
      * {@link #toJsonString(Object)}.
@@ -144,4 +179,30 @@ public class SerializationUtils {
     public static <T> T fromString(String str, Class<T> clazz, ObjectMapper mapper) throws IOException {
         return mapper.readValue(str, clazz);
     }
+
+    /**
+     * Serializes {@link Set}s as arrays whose elements are sorted by their canonical JSON representation. Set iteration
+     * order may otherwise differ between JVMs, e.g. for elements which use identity hash codes.
+     */
+    @SuppressWarnings("rawtypes")
+    private static class SortedSetSerializer extends StdSerializer<Set> {
+
+        private SortedSetSerializer() {
+            super(Set.class);
+        }
+
+        @Override
+        public void serialize(Set value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            List<String> elements = new ArrayList<>(value.size());
+            for (Object element : value) {
+                elements.add(CANONICAL_JSON_MAPPER.writeValueAsString(element));
+            }
+            Collections.sort(elements);
+            generator.writeStartArray();
+            for (String element : elements) {
+                generator.writeRawValue(element);
+            }
+            generator.writeEndArray();
+        }
+    }
 }
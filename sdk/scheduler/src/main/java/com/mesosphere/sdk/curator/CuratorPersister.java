@@ -1,33 +1,46 @@
 package com.mesosphere.sdk.curator;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.mesosphere.sdk.scheduler.Metrics;
 import com.mesosphere.sdk.specification.ServiceSpec;
 import com.mesosphere.sdk.storage.Persister;
 import com.mesosphere.sdk.storage.PersisterException;
 import com.mesosphere.sdk.storage.PersisterUtils;
 import com.mesosphere.sdk.storage.StorageError.Reason;
+import com.mesosphere.sdk.storage.WatchablePersister;
 
 import org.apache.curator.RetryPolicy;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
 import org.apache.curator.framework.api.ACLProvider;
+import org.apache.curator.framework.api.BackgroundCallback;
+import org.apache.curator.framework.api.CuratorEvent;
 import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
+import org.apache.curator.framework.recipes.cache.TreeCache;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * The Curator implementation of the {@link Persister} interface provides for persistence and retrieval of data from
  * Zookeeper. All paths passed to this instance are automatically namespaced within a framework-specific znode to avoid
  * conflicts with other users of the same ZK instance.
+ *
+ * <p>Changes to the service's znode may be followed via {@link #watch(Listener)}, which is backed by a Curator
+ * {@link TreeCache}.
  */
-public class CuratorPersister implements Persister {
+public class CuratorPersister implements WatchablePersister {
 
     private static final Logger logger = LoggerFactory.getLogger(CuratorPersister.class);
 
@@ -37,8 +50,23 @@ public class CuratorPersister implements Persister {
      */
     private static final int ATOMIC_WRITE_ATTEMPTS = 3;
 
+    /**
+     * Default maximum number of reads to have outstanding at once in getMany().
+     */
+    private static final int DEFAULT_MAX_READS_IN_FLIGHT = 100;
+
+    /**
+     * Maximum amount of time to wait for all of the reads in a getMany() or getChildrenMany() call to complete. Reads
+     * against a lost connection are normally failed by Curator well before this, so this only guards against a reply
+     * never arriving.
+     */
+    private static final long BATCH_READ_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+
     private final String serviceRootPath;
     private final CuratorFramework client;
+    private final int maxReadsInFlight;
+    // Index of paths which are known to exist, or null if transactions should always check paths against ZK directly
+    private final KnownPaths knownPaths;
 
     /**
      * Builder for constructing {@link CuratorPersister} instances.
@@ -49,6 +77,7 @@ public class CuratorPersister implements Persister {
         private RetryPolicy retryPolicy;
         private String username;
         private String password;
+        private int maxReadsInFlight;
 
         /**
          * Creates a new {@link Builder} instance which has been initialized with reasonable default values.
@@ -60,6 +89,7 @@ public class CuratorPersister implements Persister {
             this.retryPolicy = CuratorUtils.getDefaultRetry();
             this.username = "";
             this.password = "";
+            this.maxReadsInFlight = DEFAULT_MAX_READS_IN_FLIGHT;
         }
 
         /**
@@ -84,6 +114,21 @@ public class CuratorPersister implements Persister {
             return this;
         }
 
+        /**
+         * Assigns the maximum number of reads which may be outstanding against ZK at once when retrieving many values
+         * via {@link CuratorPersister#getMany(Collection)}.
+         *
+         * @param maxReadsInFlight The maximum number of concurrent reads, which must be positive
+         */
+        public Builder setMaxReadsInFlight(int maxReadsInFlight) {
+            if (maxReadsInFlight <= 0) {
+                throw new IllegalArgumentException(String.format(
+                        "Max reads in flight must be positive, got: %d", maxReadsInFlight));
+            }
+            this.maxReadsInFlight = maxReadsInFlight;
+            return this;
+        }
+
         /**
          * Returns a new {@link CuratorPersister} instance using the provided settings, using reasonable defaults where
          * custom values were not specified.
@@ -120,7 +165,7 @@ public class CuratorPersister implements Persister {
                         "username and password must both be provided, or both must be empty.");
             }
 
-            CuratorPersister persister = new CuratorPersister(serviceName, client);
+            CuratorPersister persister = new CuratorPersister(serviceName, client, maxReadsInFlight, true);
             CuratorUtils.initServiceName(persister, serviceName);
             return persister;
         }
@@ -135,10 +180,21 @@ public class CuratorPersister implements Persister {
         return new Builder(serviceSpec.getName(), serviceSpec.getZookeeperConnection());
     }
 
+    /**
+     * Creates a persister which checks paths against the provided client directly when building each transaction,
+     * rather than consulting an index of known paths.
+     */
     @VisibleForTesting
     CuratorPersister(String serviceName, CuratorFramework client) {
+        this(serviceName, client, DEFAULT_MAX_READS_IN_FLIGHT, false);
+    }
+
+    private CuratorPersister(
+            String serviceName, CuratorFramework client, int maxReadsInFlight, boolean indexKnownPaths) {
         this.serviceRootPath = CuratorUtils.getServiceRootPath(serviceName);
         this.client = client;
+        this.maxReadsInFlight = maxReadsInFlight;
+        this.knownPaths = indexKnownPaths ? new KnownPaths() : null;
         this.client.start();
     }
 
@@ -203,6 +259,7 @@ public class CuratorPersister implements Persister {
             logger.debug("Deleting children of root {}", path);
             try {
                 CuratorTransactionFinal transaction = client.inTransaction().check().forPath(serviceRootPath).and();
+                PathLookup lookup = new DirectPathLookup();
                 Set<String> pendingDeletePaths = new HashSet<>();
                 for (String child : client.getChildren().forPath(serviceRootPath)) {
                     // Custom logic for root-level children: don't delete the lock node
@@ -210,13 +267,16 @@ public class CuratorPersister implements Persister {
                         continue;
                     }
                     String childPath = PersisterUtils.join(serviceRootPath, child);
-                    transaction = deleteChildrenOf(client, childPath, transaction, pendingDeletePaths)
+                    transaction = deleteChildrenOf(lookup, childPath, transaction, pendingDeletePaths)
                             .delete().forPath(childPath).and();
                 }
                 transaction.commit();
             } catch (Exception e) {
                 throw new PersisterException(Reason.STORAGE_ERROR,
                         String.format("Unable to delete children of root %s: %s", path, e.getMessage()), e);
+            } finally {
+                // The preserved lock node isn't tracked by the index. Just start over with a fresh listing.
+                invalidateKnownPaths();
             }
             // Need to explicitly set null or else curator will return a zero-bytes value later:
             set(unprefixedPath, null);
@@ -225,6 +285,9 @@ public class CuratorPersister implements Persister {
             logger.debug("Deleting {} (and any children)", path);
             try {
                 client.delete().deletingChildrenIfNeeded().forPath(path);
+                if (knownPaths != null) {
+                    knownPaths.removed(Collections.singleton(path));
+                }
             } catch (KeeperException.NoNodeException e) {
                 throw new PersisterException(
                         Reason.NOT_FOUND, String.format("Path to delete does not exist: %s", path), e);
@@ -241,6 +304,11 @@ public class CuratorPersister implements Persister {
         try {
             try {
                 client.create().creatingParentsIfNeeded().forPath(path, bytes);
+                if (knownPaths != null) {
+                    List<String> createdPaths = new ArrayList<>(PersisterUtils.getParentPaths(path));
+                    createdPaths.add(path);
+                    knownPaths.added(createdPaths);
+                }
             } catch (KeeperException.NodeExistsException e) {
                 client.setData().forPath(path, bytes);
             }
@@ -276,30 +344,120 @@ public class CuratorPersister implements Persister {
         runTransactionWithRetries(new ClearTransactionFactory(paths));
     }
 
+    /**
+     * Builds and commits the transaction produced by the provided factory, retrying if the commit fails. The first
+     * attempt is built using the index of known paths (if enabled), while any retries check each path against ZK
+     * directly, in case the failure was due to the index being stale. The number of ZK round trips needed to complete
+     * the transaction is recorded via {@link Metrics#recordTransactionRoundTrips(int)}.
+     */
     private void runTransactionWithRetries(TransactionFactory factory) throws PersisterException {
+        DirectPathLookup directLookup = new DirectPathLookup();
+        int commitAttempts = 0;
         try {
             for (int i = 0; i < ATOMIC_WRITE_ATTEMPTS; ++i) {
-                CuratorTransactionFinal transaction = factory.build(client, serviceRootPath);
+                PathLookup lookup = (i == 0 && knownPaths != null) ?
+                        getKnownPaths(directLookup) :
+                        directLookup;
+                CuratorTransactionFinal transaction = factory.build(client, serviceRootPath, lookup);
 
                 // Attempt to run the transaction, retrying if applicable:
+                ++commitAttempts;
                 if (i + 1 < ATOMIC_WRITE_ATTEMPTS) {
                     try {
                         transaction.commit();
+                        updateKnownPaths(factory);
                         break; // Success!
                     } catch (Exception e) {
                         // Transaction failed! Bad connection? Existence check rendered invalid?
                         // Swallow exception and try again
-                        logger.error(String.format("Failed to complete transaction attempt %d/%d: %s",
-                                i + 1, ATOMIC_WRITE_ATTEMPTS, transaction), e);
+                        if (lookup != directLookup && isExistenceConflict(e)) {
+                            // Expected if the index is stale, e.g. after another scheduler wrote to ZK:
+                            logger.info("Transaction attempt {}/{} conflicted with the index of known paths, " +
+                                    "retrying with direct lookups: {}", i + 1, ATOMIC_WRITE_ATTEMPTS, e.getMessage());
+                        } else {
+                            logger.warn(String.format("Failed to complete transaction attempt %d/%d, retrying: %s",
+                                    i + 1, ATOMIC_WRITE_ATTEMPTS, transaction), e);
+                        }
+                        invalidateKnownPaths();
                     }
                 } else {
                     // Last try: Any exception should be forwarded upstream
-                    transaction.commit();
+                    try {
+                        transaction.commit();
+                    } catch (Exception e) {
+                        logger.error(String.format("Failed to complete final transaction attempt %d/%d: %s",
+                                i + 1, ATOMIC_WRITE_ATTEMPTS, transaction), e);
+                        throw e;
+                    }
+                    updateKnownPaths(factory);
                 }
             }
         } catch (Exception e) {
+            invalidateKnownPaths();
             throw new PersisterException(Reason.STORAGE_ERROR, e);
+        } finally {
+            Metrics.recordTransactionRoundTrips(directLookup.roundTrips + commitAttempts);
+        }
+    }
+
+    /**
+     * Returns whether the provided transaction failure was due to a path existing or not existing contrary to what
+     * the transaction was built to expect.
+     */
+    private static boolean isExistenceConflict(Exception e) {
+        return e instanceof KeeperException.NodeExistsException || e instanceof KeeperException.NoNodeException;
+    }
+
+    /**
+     * Returns the index of known paths, first seeding it with a listing of the tree if it isn't currently valid. Any
+     * round trips made by the listing are counted against the provided {@code directLookup}.
+     */
+    private PathLookup getKnownPaths(DirectPathLookup directLookup) throws Exception {
+        synchronized (knownPaths) {
+            if (!knownPaths.isValid()) {
+                Collection<String> existingPaths = listAllPaths(directLookup);
+                logger.info("Indexed {} existing paths under {}", existingPaths.size(), serviceRootPath);
+                knownPaths.reset(existingPaths);
+            }
+        }
+        return knownPaths;
+    }
+
+    private void updateKnownPaths(TransactionFactory factory) {
+        if (knownPaths != null && knownPaths.isValid()) {
+            factory.updateIndex(knownPaths);
+        }
+    }
+
+    private void invalidateKnownPaths() {
+        if (knownPaths != null) {
+            knownPaths.invalidate();
+        }
+    }
+
+    /**
+     * Returns all (prefixed) paths which currently exist in the service's tree, including the service root itself.
+     */
+    private Collection<String> listAllPaths(PathLookup lookup) throws Exception {
+        List<String> allPaths = new ArrayList<>();
+        if (!lookup.exists(serviceRootPath)) {
+            return allPaths;
+        }
+        Deque<String> pendingPaths = new ArrayDeque<>();
+        pendingPaths.add(serviceRootPath);
+        while (!pendingPaths.isEmpty()) {
+            String path = pendingPaths.remove();
+            allPaths.add(path);
+            try {
+                for (String child : lookup.getChildren(path)) {
+                    pendingPaths.add(PersisterUtils.join(path, child));
+                }
+            } catch (KeeperException.NoNodeException e) {
+                // Deleted since its parent was listed. Any transaction built against this will fail and be retried.
+                allPaths.remove(path);
+            }
         }
+        return allPaths;
     }
 
     @Override
@@ -309,33 +467,282 @@ public class CuratorPersister implements Persister {
         }
         logger.debug("Getting {} entries: {}", unprefixedPaths.size(), unprefixedPaths);
 
-        Map<String, byte[]> result = new TreeMap<>();
         // Unlike with writes, there is not an atomic read operation. Therefore we wing it with a series of plain reads.
         // We could conceivably add some form of locking here to avoid e.g. a race with another thread doing writes at
         // the same time, but assuming the PersisterCache is enabled, this function wouldn't be getting called anyway,
         // as the PersisterCache would have fetched all the data up-front to be served from memory. If this assumption
         // changes, then it may make sense to look into some form of proper read locking here.
-        for (String unprefixedPath : unprefixedPaths) {
-            String path = withFrameworkPrefix(unprefixedPath);
-            try {
-                result.put(unprefixedPath, client.getData().forPath(path));
-            } catch (KeeperException.NoNodeException e) {
-                result.put(unprefixedPath, null);
-            } catch (Exception e) {
+        List<String> paths = new ArrayList<>(unprefixedPaths);
+        CuratorEvent[] events = readInBackground(paths, (path, callback) ->
+                client.getData().inBackground(callback).forPath(path));
+
+        Map<String, byte[]> result = new TreeMap<>();
+        for (int i = 0; i < paths.size(); ++i) {
+            KeeperException.Code code = KeeperException.Code.get(events[i].getResultCode());
+            if (code == KeeperException.Code.OK) {
+                result.put(paths.get(i), events[i].getData());
+            } else if (code == KeeperException.Code.NONODE) {
+                result.put(paths.get(i), null);
+            } else {
+                String path = withFrameworkPrefix(paths.get(i));
+                throw new PersisterException(Reason.STORAGE_ERROR,
+                        String.format("Unable to retrieve data from %s", path), KeeperException.create(code, path));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Collection<String>> getChildrenMany(Collection<String> unprefixedPaths)
+            throws PersisterException {
+        if (unprefixedPaths.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        logger.debug("Getting children of {} entries: {}", unprefixedPaths.size(), unprefixedPaths);
+        List<String> paths = new ArrayList<>(unprefixedPaths);
+        CuratorEvent[] events = readInBackground(paths, (path, callback) ->
+                client.getChildren().inBackground(callback).forPath(path));
+
+        Map<String, Collection<String>> result = new TreeMap<>();
+        for (int i = 0; i < paths.size(); ++i) {
+            KeeperException.Code code = KeeperException.Code.get(events[i].getResultCode());
+            if (code == KeeperException.Code.OK) {
+                result.put(paths.get(i), new TreeSet<>(events[i].getChildren()));
+            } else if (code == KeeperException.Code.NONODE) {
+                result.put(paths.get(i), Collections.emptySet());
+            } else {
+                String path = withFrameworkPrefix(paths.get(i));
                 throw new PersisterException(Reason.STORAGE_ERROR,
-                        String.format("Unable to retrieve data from %s", path), e);
+                        String.format("Unable to get children of %s", path), KeeperException.create(code, path));
             }
         }
         return result;
     }
 
+    /**
+     * Issues a background read for each of the provided paths, and returns the resulting events in the same order as
+     * the paths. The reads are pipelined over the ZK connection rather than each waiting for a full round trip, with
+     * the number of outstanding reads limited by {@link #maxReadsInFlight}.
+     *
+     * @throws PersisterException if a read couldn't be issued, or if the reads didn't all complete within
+     *     {@link #BATCH_READ_TIMEOUT_MS}
+     */
+    private CuratorEvent[] readInBackground(List<String> unprefixedPaths, BackgroundRead read)
+            throws PersisterException {
+        // Each callback writes to its own index, and the latch ensures those writes are visible once we're done
+        // waiting.
+        CuratorEvent[] events = new CuratorEvent[unprefixedPaths.size()];
+        Semaphore window = new Semaphore(maxReadsInFlight);
+        CountDownLatch remaining = new CountDownLatch(unprefixedPaths.size());
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_READ_TIMEOUT_MS);
+        boolean completed;
+        try {
+            for (int i = 0; i < unprefixedPaths.size(); ++i) {
+                final int index = i;
+                if (!window.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                read.start(withFrameworkPrefix(unprefixedPaths.get(i)), (curatorClient, event) -> {
+                    events[index] = event;
+                    window.release();
+                    remaining.countDown();
+                });
+            }
+            completed = remaining.await(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersisterException(Reason.STORAGE_ERROR,
+                    String.format("Interrupted while retrieving %d entries", unprefixedPaths.size()), e);
+        } catch (Exception e) {
+            throw new PersisterException(Reason.STORAGE_ERROR,
+                    String.format("Unable to retrieve %d entries", unprefixedPaths.size()), e);
+        }
+        if (!completed) {
+            throw new PersisterException(Reason.STORAGE_ERROR, String.format(
+                    "Timed out after %dms retrieving %d entries, %d reads were incomplete",
+                    BATCH_READ_TIMEOUT_MS, unprefixedPaths.size(), remaining.getCount()));
+        }
+        return events;
+    }
+
+    /**
+     * Starts a {@link TreeCache} against the service's root node. The initial load is performed using pipelined
+     * background requests, rather than the serial requests used by a walk of the tree via {@link #getChildren(String)}
+     * and {@link #get(String)}. After the initial load, only the nodes which changed are forwarded to the listener.
+     */
+    @Override
+    public Watch watch(Listener listener) throws PersisterException {
+        // The listener is given the data in each event. Avoid keeping a second copy of the data in the TreeCache:
+        TreeCache treeCache = TreeCache.newBuilder(client, serviceRootPath).setCacheData(false).build();
+        treeCache.getListenable().addListener((curatorClient, event) -> {
+            switch (event.getType()) {
+            case NODE_ADDED:
+            case NODE_UPDATED: {
+                String path = withoutFrameworkPrefix(event.getData().getPath());
+                if (path != null) {
+                    listener.onSet(path, event.getData().getData(), event.getData().getStat().getMzxid());
+                }
+                break;
+            }
+            case NODE_REMOVED: {
+                String path = withoutFrameworkPrefix(event.getData().getPath());
+                if (path != null) {
+                    listener.onDelete(path, event.getData().getStat().getMzxid());
+                }
+                break;
+            }
+            case INITIALIZED:
+                logger.info("Finished initial load of {}", serviceRootPath);
+                listener.onInitialized();
+                break;
+            default:
+                // Connection state changes. The TreeCache automatically resyncs itself following a reconnect.
+                logger.info("Got {} event while watching {}", event.getType(), serviceRootPath);
+                break;
+            }
+        });
+        logger.info("Starting watch of {}", serviceRootPath);
+        try {
+            treeCache.start();
+        } catch (Exception e) {
+            treeCache.close();
+            throw new PersisterException(Reason.STORAGE_ERROR,
+                    String.format("Unable to start watch of %s", serviceRootPath), e);
+        }
+        return treeCache::close;
+    }
+
+    /**
+     * Returns the current data at the provided path, along with the ZXID of the transaction which last modified it.
+     */
+    @Override
+    public VersionedData getVersioned(String unprefixedPath) throws PersisterException {
+        final String path = withFrameworkPrefix(unprefixedPath);
+        Stat stat = new Stat();
+        try {
+            byte[] bytes = client.getData().storingStatIn(stat).forPath(path);
+            return new VersionedData(bytes, stat.getMzxid());
+        } catch (KeeperException.NoNodeException e) {
+            throw new PersisterException(Reason.NOT_FOUND, String.format("Path to get does not exist: %s", path), e);
+        } catch (Exception e) {
+            throw new PersisterException(Reason.STORAGE_ERROR,
+                    String.format("Unable to retrieve data from %s", path), e);
+        }
+    }
+
     @Override
     public void close() {
         client.close();
     }
 
+    /**
+     * Issues a single background read against a ZK path.
+     */
+    private interface BackgroundRead {
+        public void start(String path, BackgroundCallback callback) throws Exception;
+    }
+
+    /**
+     * Answers questions about the current structure of the tree while a transaction is being built.
+     */
+    private interface PathLookup {
+        public boolean exists(String path) throws Exception;
+
+        public Collection<String> getChildren(String path) throws Exception;
+    }
+
+    /**
+     * Looks up each path directly against ZK, keeping count of the round trips which were made.
+     */
+    private class DirectPathLookup implements PathLookup {
+        private int roundTrips = 0;
+
+        @Override
+        public boolean exists(String path) throws Exception {
+            ++roundTrips;
+            return client.checkExists().forPath(path) != null;
+        }
+
+        @Override
+        public Collection<String> getChildren(String path) throws Exception {
+            ++roundTrips;
+            return client.getChildren().forPath(path);
+        }
+    }
+
+    /**
+     * Index of the (prefixed) paths which are known to exist in ZK. This allows transactions to be built without a
+     * {@code checkExists()} round trip for every node being written.
+     *
+     * <p>The index is seeded with a one-time listing of the tree, and is then updated as this persister commits
+     * changes. Changes made by other parties are not reflected, but in that case the stale transaction will fail its
+     * commit, at which point the index is invalidated and the retry falls back to checking each node directly.
+     */
+    private static class KnownPaths implements PathLookup {
+        private final NavigableSet<String> paths = new ConcurrentSkipListSet<>();
+        private volatile boolean valid = false;
+
+        private boolean isValid() {
+            return valid;
+        }
+
+        private void reset(Collection<String> existingPaths) {
+            paths.clear();
+            paths.addAll(existingPaths);
+            valid = true;
+        }
+
+        private void invalidate() {
+            valid = false;
+            paths.clear();
+        }
+
+        private void added(Collection<String> createdPaths) {
+            paths.addAll(createdPaths);
+        }
+
+        private void removed(Collection<String> deletedPaths) {
+            for (String path : deletedPaths) {
+                getDescendants(path).clear();
+                paths.remove(path);
+            }
+        }
+
+        @Override
+        public boolean exists(String path) {
+            return paths.contains(path);
+        }
+
+        @Override
+        public Collection<String> getChildren(String path) {
+            String childPrefix = path + PersisterUtils.PATH_DELIM_STR;
+            List<String> children = new ArrayList<>();
+            for (String descendant : getDescendants(path)) {
+                String relativePath = descendant.substring(childPrefix.length());
+                if (!relativePath.contains(PersisterUtils.PATH_DELIM_STR)) {
+                    children.add(relativePath);
+                }
+            }
+            return children;
+        }
+
+        /**
+         * Returns a live view of all paths which are located beneath the provided path. This relies on '0' being the
+         * character which immediately follows the '/' delimiter.
+         */
+        private NavigableSet<String> getDescendants(String path) {
+            return paths.subSet(path + PersisterUtils.PATH_DELIM, true, path + '0', false);
+        }
+    }
+
     private interface TransactionFactory {
-        public CuratorTransactionFinal build(CuratorFramework client, String serviceRootPath) throws Exception;
+        public CuratorTransactionFinal build(CuratorFramework client, String serviceRootPath, PathLookup lookup)
+                throws Exception;
+
+        /**
+         * Updates the provided index to reflect the most recently built transaction, after it has been committed.
+         */
+        public void updateIndex(KnownPaths knownPaths);
     }
 
     /**
@@ -344,12 +751,15 @@ public class CuratorPersister implements Persister {
      */
     private static class SetTransactionFactory implements TransactionFactory {
         private final Map<String, byte[]> pathBytesMap;
+        private final List<String> pendingCreatePaths = new ArrayList<>();
 
         private SetTransactionFactory(Map<String, byte[]> pathBytesMap) {
             this.pathBytesMap = pathBytesMap;
         }
 
-        public CuratorTransactionFinal build(CuratorFramework client, String serviceRootPath) throws Exception {
+        public CuratorTransactionFinal build(CuratorFramework client, String serviceRootPath, PathLookup lookup)
+                throws Exception {
+            pendingCreatePaths.clear();
             // List of paths that are known to exist, or which are about to be created by the transaction
             // Includes "known to exist" in order to avoid repeated lookups for the same path
             Set<String> existingAndPendingCreatePaths = new HashSet<>();
@@ -357,12 +767,13 @@ public class CuratorPersister implements Persister {
             CuratorTransactionFinal transaction = client.inTransaction().check().forPath(serviceRootPath).and();
             for (Map.Entry<String, byte[]> entry : pathBytesMap.entrySet()) {
                 String path = entry.getKey();
-                if (!existingAndPendingCreatePaths.contains(path)
-                        && client.checkExists().forPath(path) == null) {
+                if (!existingAndPendingCreatePaths.contains(path) && !lookup.exists(path)) {
                     // Path does not exist and is not being created: Create value (and any parents as needed).
-                    transaction = createParentsOf(client, path, transaction, existingAndPendingCreatePaths)
+                    transaction = createParentsOf(
+                            lookup, path, transaction, existingAndPendingCreatePaths, pendingCreatePaths)
                             .create().forPath(path, entry.getValue()).and();
                     existingAndPendingCreatePaths.add(path);
+                    pendingCreatePaths.add(path);
                 } else {
                     // Path exists (or will exist): Update existing value.
                     transaction = transaction.setData().forPath(path, entry.getValue()).and();
@@ -370,6 +781,10 @@ public class CuratorPersister implements Persister {
             }
             return transaction;
         }
+
+        public void updateIndex(KnownPaths knownPaths) {
+            knownPaths.added(pendingCreatePaths);
+        }
     }
 
     /**
@@ -377,41 +792,47 @@ public class CuratorPersister implements Persister {
      */
     private static class ClearTransactionFactory implements TransactionFactory {
         private final Collection<String> pathsToClear;
+        // List of paths which are about to be deleted by the transaction
+        private final Set<String> pendingDeletePaths = new HashSet<>();
 
         private ClearTransactionFactory(Collection<String> pathsToClear) {
             this.pathsToClear = pathsToClear;
         }
 
-        public CuratorTransactionFinal build(CuratorFramework client, String serviceRootPath) throws Exception {
-            // List of paths which are about to be deleted by the transaction
-            Set<String> pendingDeletePaths = new HashSet<>();
+        public CuratorTransactionFinal build(CuratorFramework client, String serviceRootPath, PathLookup lookup)
+                throws Exception {
+            pendingDeletePaths.clear();
 
             CuratorTransactionFinal transaction = client.inTransaction().check().forPath(serviceRootPath).and();
             for (String path : pathsToClear) {
                 // if present, delete path and any children (unless already being deleted)
-                if (!pendingDeletePaths.contains(path)
-                        && client.checkExists().forPath(path) != null) {
-                    transaction = deleteChildrenOf(client, path, transaction, pendingDeletePaths)
+                if (!pendingDeletePaths.contains(path) && lookup.exists(path)) {
+                    transaction = deleteChildrenOf(lookup, path, transaction, pendingDeletePaths)
                             .delete().forPath(path).and();
                     pendingDeletePaths.add(path);
                 }
             }
             return transaction;
         }
+
+        public void updateIndex(KnownPaths knownPaths) {
+            knownPaths.removed(pendingDeletePaths);
+        }
     }
 
     /**
      * Updates and returns a transaction which can be used to create missing parents of the provided path, if any.
      */
     private static CuratorTransactionFinal createParentsOf(
-            CuratorFramework client,
+            PathLookup lookup,
             String path,
             CuratorTransactionFinal curatorTransactionFinal,
-            Set<String> existingAndPendingCreatePaths) throws Exception {
+            Set<String> existingAndPendingCreatePaths,
+            List<String> pendingCreatePaths) throws Exception {
         for (String parentPath : PersisterUtils.getParentPaths(path)) {
-            if (!existingAndPendingCreatePaths.contains(parentPath)
-                    && client.checkExists().forPath(parentPath) == null) {
+            if (!existingAndPendingCreatePaths.contains(parentPath) && !lookup.exists(parentPath)) {
                 curatorTransactionFinal = curatorTransactionFinal.create().forPath(parentPath).and();
+                pendingCreatePaths.add(parentPath);
             }
             existingAndPendingCreatePaths.add(parentPath);
         }
@@ -422,7 +843,7 @@ public class CuratorPersister implements Persister {
      * Updates and returns a transaction which can be used to delete the children of the provided path, if any.
      */
     private static CuratorTransactionFinal deleteChildrenOf(
-            CuratorFramework client,
+            PathLookup lookup,
             String path,
             CuratorTransactionFinal curatorTransactionFinal,
             Set<String> pendingDeletePaths) throws Exception {
@@ -431,10 +852,10 @@ public class CuratorPersister implements Persister {
             return curatorTransactionFinal;
         }
         // For each child: recurse into child (to delete any grandchildren, etc..), THEN delete child itself
-        for (String child : client.getChildren().forPath(path)) {
+        for (String child : lookup.getChildren(path)) {
             String childPath = PersisterUtils.join(path, child);
             curatorTransactionFinal =
-                    deleteChildrenOf(client, childPath, curatorTransactionFinal, pendingDeletePaths); // RECURSE
+                    deleteChildrenOf(lookup, childPath, curatorTransactionFinal, pendingDeletePaths); // RECURSE
             if (!pendingDeletePaths.contains(childPath)) {
                 // Avoid attempting to delete a path twice in the same transaction, just in case we're told to delete
                 // two nodes where one is the child of the other (or something to that effect)
@@ -463,6 +884,21 @@ public class CuratorPersister implements Persister {
         return path;
     }
 
+    /**
+     * Maps the provided framework-namespaced path back into an external path, or returns {@code null} if the path is
+     * the service root itself. This is the inverse of {@link #withFrameworkPrefix(String)}.
+     *
+     * <p>Examples:
+     * <ul><li>"/dcos-service-svcname/foo" => "/foo"</li>
+     * <li>"/dcos-service-svcname" => {@code null}</li></ul>
+     */
+    private String withoutFrameworkPrefix(String path) {
+        if (path.length() <= serviceRootPath.length()) {
+            return null;
+        }
+        return path.substring(serviceRootPath.length());
+    }
+
     private static String getInfo(byte[] bytes) {
         return bytes == null ? "NULL" : String.format("%d bytes", bytes.length);
     }
@@ -1,9 +1,11 @@
 package com.mesosphere.sdk.http;
 
-import com.mesosphere.sdk.specification.ConfigFileSpec;
-import com.mesosphere.sdk.specification.PodSpec;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.mesosphere.sdk.http.types.ArtifactIndex;
 import com.mesosphere.sdk.specification.ServiceSpec;
-import com.mesosphere.sdk.specification.TaskSpec;
 import com.mesosphere.sdk.state.ConfigStore;
 import com.mesosphere.sdk.state.ConfigStoreException;
 import com.mesosphere.sdk.storage.StorageError.Reason;
@@ -12,16 +14,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
-import static com.mesosphere.sdk.http.ResponseUtils.plainOkResponse;
-
-import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
 
 /**
  * A read-only API for accessing file artifacts (e.g. config templates) for retrieval by executors.
@@ -30,13 +30,24 @@ import java.util.stream.Collectors;
 public class ArtifactResource {
     private static final String ARTIFACT_URI_FORMAT = "http://%s/v1/artifacts/template/%s/%s/%s/%s";
 
+    /**
+     * The maximum number of configurations to retain indexes for. Tasks normally only retrieve templates from the
+     * current target configuration, with older configurations only being retrieved while a deployment is in progress.
+     */
+    private static final int MAX_CACHED_CONFIGS = 10;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final ConfigStore<ServiceSpec> configStore;
+    /**
+     * Artifact indexes, keyed by configuration ID. Stored configurations are never modified, so cached indexes don't
+     * need to be invalidated. When many tasks request templates from a configuration at once, only one of them
+     * fetches the configuration while the others wait for the resulting index.
+     */
+    private final LoadingCache<UUID, ArtifactIndex> artifactIndexes;
 
     /**
      * Returns a valid URL for accessing a config template artifact from a service task.
-     * Must be kept in sync with {@link #getTemplate(String, String, String, String)}.
+     * Must be kept in sync with {@link #getTemplate(String, String, String, String, String, String)}.
      */
     public static String getTemplateUrl(
             String serviceName, UUID configId, String podType, String taskName, String configName) {
@@ -45,7 +56,14 @@ public class ArtifactResource {
     }
 
     public ArtifactResource(ConfigStore<ServiceSpec> configStore) {
-        this.configStore = configStore;
+        this.artifactIndexes = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_CONFIGS)
+                .build(new CacheLoader<UUID, ArtifactIndex>() {
+                    @Override
+                    public ArtifactIndex load(UUID configId) throws ConfigStoreException {
+                        return ArtifactIndex.create(configStore.fetch(configId));
+                    }
+                });
     }
 
     /**
@@ -54,11 +72,17 @@ public class ArtifactResource {
      * similar naming) are not directly related. See also {@link ConfigResource} for more information on configuration
      * IDs.
      *
+     * Templates are served from an index of the configuration which is built on first access. Responses carry an
+     * entity tag, so that clients which provide the tag of a template they already have receive a "304 Not Modified"
+     * response, and are gzip-compressed for clients which accept it.
+     *
      * @param configurationId the id of the configuration set to be retrieved from -- this should match the
      *     configuration the task is on. this allows old tasks to continue retrieving old configurations
      * @param podType the name/type of the pod, eg 'index' or 'data'
      * @param taskName the name of the task
      * @param configurationName the name of the configuration to be retrieved
+     * @param ifNoneMatch the entity tag of a previous response, or {@code null} if none was provided
+     * @param acceptEncoding the content encodings accepted by the client, or {@code null} if none were provided
      * @return an HTTP response containing the content of the requested configuration, or an HTTP error
      * @see ConfigResource
      */
@@ -68,7 +92,9 @@ public class ArtifactResource {
             @PathParam("configurationId") String configurationId,
             @PathParam("podType") String podType,
             @PathParam("taskName") String taskName,
-            @PathParam("configurationName") String configurationName) {
+            @PathParam("configurationName") String configurationName,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
         logger.info("Attempting to fetch template '{}' from config '{}' with pod '{}', task '{}'",
                 configurationName, configurationId, podType, taskName);
         UUID uuid;
@@ -79,63 +105,26 @@ public class ArtifactResource {
                     "Failed to parse requested configuration id as a UUID: '%s'", configurationId), ex);
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
-        ServiceSpec serviceSpec;
+        ArtifactIndex artifactIndex;
         try {
-            serviceSpec = configStore.fetch(uuid);
-        } catch (ConfigStoreException ex) {
-            if (ex.getReason() == Reason.NOT_FOUND) {
-                logger.warn(String.format("Requested configuration '%s' doesn't exist", configurationId), ex);
+            artifactIndex = artifactIndexes.get(uuid);
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof ConfigStoreException
+                    && ((ConfigStoreException) ex.getCause()).getReason() == Reason.NOT_FOUND) {
+                logger.warn(String.format(
+                        "Requested configuration '%s' doesn't exist", configurationId), ex.getCause());
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
             logger.error(String.format(
-                    "Failed to fetch requested configuration with id '%s'", configurationId), ex);
+                    "Failed to fetch requested configuration with id '%s'", configurationId), ex.getCause());
             return Response.serverError().build();
         }
         try {
-            ConfigFileSpec config = getConfigFile(getTask(getPod(serviceSpec, podType), taskName), configurationName);
-            return plainOkResponse(config.getTemplateContent());
-        } catch (Exception ex) {
+            return artifactIndex.get(podType, taskName, configurationName).toResponse(ifNoneMatch, acceptEncoding);
+        } catch (IllegalArgumentException ex) {
             logger.warn(String.format(
                     "Couldn't find requested template in config '%s'", configurationId), ex);
             return Response.status(Response.Status.NOT_FOUND).build();
         }
     }
-
-    private static PodSpec getPod(ServiceSpec serviceSpec, String podType) throws Exception {
-        Optional<PodSpec> podOptional =
-                serviceSpec.getPods().stream().filter(pod -> podType.equals(pod.getType())).findFirst();
-        if (!podOptional.isPresent()) {
-            List<String> availablePodTypes =
-                    serviceSpec.getPods().stream().map(podSpec -> podSpec.getType()).collect(Collectors.toList());
-            throw new Exception(String.format(
-                    "Couldn't find pod of type '%s'. Known pod types are: %s", podType, availablePodTypes));
-        }
-        return podOptional.get();
-    }
-
-    private static TaskSpec getTask(PodSpec podSpec, String taskName) throws Exception {
-        Optional<TaskSpec> taskOptional =
-                podSpec.getTasks().stream().filter(task -> taskName.equals(task.getName())).findFirst();
-        if (!taskOptional.isPresent()) {
-            List<String> availableTaskNames =
-                    podSpec.getTasks().stream().map(taskSpec -> taskSpec.getName()).collect(Collectors.toList());
-            throw new Exception(String.format(
-                    "Couldn't find task named '%s' within pod '%s'. Known task names are: %s",
-                    taskName, podSpec.getType(), availableTaskNames));
-        }
-        return taskOptional.get();
-    }
-
-    private static ConfigFileSpec getConfigFile(TaskSpec taskSpec, String configName) throws Exception {
-        Optional<ConfigFileSpec> configOptional =
-                taskSpec.getConfigFiles().stream().filter(config -> configName.equals(config.getName())).findFirst();
-        if (!configOptional.isPresent()) {
-            List<String> availableConfigNames =
-                    taskSpec.getConfigFiles().stream().map(config -> config.getName()).collect(Collectors.toList());
-            throw new Exception(String.format(
-                    "Couldn't find config named '%s' within task '%s'. Known config names are: %s",
-                    configName, taskSpec.getName(), availableConfigNames));
-        }
-        return configOptional.get();
-    }
 }
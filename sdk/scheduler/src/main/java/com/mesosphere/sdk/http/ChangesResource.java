@@ -0,0 +1,99 @@
+package com.mesosphere.sdk.http;
+
+import com.mesosphere.sdk.state.ChangeFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long-polling API for following changes to the service's deployment steps, task statuses, and endpoints. Clients
+ * pass the opaque {@code version} from their previous response as {@code since}, and the request is held open until a
+ * change follows that version or the timeout expires. Requests without {@code since} return immediately with the
+ * current version, which clients should use as their starting point after fetching the full state.
+ *
+ * <p>A response with {@code truncated: true} indicates that some changes were missed, e.g. because the client fell
+ * too far behind or the scheduler was restarted, and that the client should fetch the full state again.
+ */
+@Path("/v1/changes")
+public class ChangesResource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangesResource.class);
+
+    private static final int MAX_TIMEOUT_SECS = 60;
+
+    private final ChangeFeed changeFeed;
+    private final Executor responseExecutor;
+
+    public ChangesResource(ChangeFeed changeFeed) {
+        this(changeFeed, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-responses");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Creates a new instance which sends responses to waiting clients using the provided executor, so that the
+     * thread which published a change isn't held up by writing responses.
+     */
+    ChangesResource(ChangeFeed changeFeed, Executor responseExecutor) {
+        this.changeFeed = changeFeed;
+        this.responseExecutor = responseExecutor;
+    }
+
+    /**
+     * Produces the changes following the provided version, waiting for up to {@code timeout} seconds for a change if
+     * there aren't any yet.
+     *
+     * @param sinceVersion the version returned by the client's previous request, or {@code null} to get the current
+     *     version
+     * @param timeoutSecs the number of seconds to wait for a change, up to a maximum of 60
+     */
+    @GET
+    public void getChanges(
+            @QueryParam("since") String sinceVersion,
+            @QueryParam("timeout") @DefaultValue("30") int timeoutSecs,
+            @Suspended AsyncResponse asyncResponse) {
+        if (sinceVersion == null) {
+            asyncResponse.resume(toResponse(changeFeed.getChangesSince(changeFeed.getLatestSequence())));
+            return;
+        }
+        // Versions from before a scheduler restart map to -1, which is reported as truncated:
+        long since = changeFeed.getSequence(sinceVersion);
+        if (timeoutSecs <= 0) {
+            asyncResponse.resume(toResponse(changeFeed.getChangesSince(since)));
+            return;
+        }
+
+        ChangeFeed.Watcher watcher =
+                changes -> responseExecutor.execute(() -> asyncResponse.resume(toResponse(changes)));
+        // Register the timeout before watching, so that it's in place if the client is notified immediately:
+        asyncResponse.setTimeoutHandler(response -> {
+            changeFeed.unwatch(watcher);
+            response.resume(toResponse(changeFeed.getChangesSince(since)));
+        });
+        asyncResponse.setTimeout(Math.min(timeoutSecs, MAX_TIMEOUT_SECS), TimeUnit.SECONDS);
+
+        Optional<ChangeFeed.Changes> changes = changeFeed.watch(since, watcher);
+        if (changes.isPresent()) {
+            asyncResponse.resume(toResponse(changes.get()));
+        } else {
+            LOGGER.debug("Waiting for changes following version {}", since);
+        }
+    }
+
+    private static Response toResponse(ChangeFeed.Changes changes) {
+        return Response.ok(changes.toJson(), MediaType.APPLICATION_JSON_TYPE).build();
+    }
+}
@@ -1,18 +1,24 @@
 package com.mesosphere.sdk.http;
 
-import static com.mesosphere.sdk.http.ResponseUtils.jsonOkResponse;
 import static com.mesosphere.sdk.http.ResponseUtils.plainOkResponse;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import com.google.protobuf.TextFormat;
 import com.mesosphere.sdk.http.types.EndpointProducer;
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
+import com.mesosphere.sdk.http.types.RenderedResponse;
+import com.mesosphere.sdk.http.types.StateSnapshotCache;
 import com.mesosphere.sdk.offer.Constants;
 import com.mesosphere.sdk.offer.TaskException;
 import com.mesosphere.sdk.offer.taskdata.AuxLabelAccess;
@@ -45,14 +51,27 @@ public class EndpointsResource {
     private final StateStore stateStore;
     private final String serviceName;
     private final Map<String, EndpointProducer> customEndpoints = new HashMap<>();
+    private final StateSnapshotCache<Map<String, RenderedResponse>, TaskException> discoveryEndpoints;
+    private final ReadRequestExecutor readExecutor;
 
     /**
      * Creates a new instance which retrieves task/pod state from the provided {@link StateStore},
      * using the provided {@code serviceName} for endpoint paths.
      */
     public EndpointsResource(StateStore stateStore, String serviceName) {
+        this(stateStore, serviceName, ReadRequestExecutor.direct());
+    }
+
+    /**
+     * Creates a new instance which retrieves task/pod state from the provided {@link StateStore},
+     * using the provided {@code serviceName} for endpoint paths, and producing responses using the
+     * provided {@link ReadRequestExecutor}.
+     */
+    public EndpointsResource(StateStore stateStore, String serviceName, ReadRequestExecutor readExecutor) {
         this.stateStore = stateStore;
         this.serviceName = serviceName;
+        this.discoveryEndpoints = new StateSnapshotCache<>(stateStore, this::renderDiscoveryEndpoints);
+        this.readExecutor = readExecutor;
     }
 
     /**
@@ -80,14 +99,22 @@ public class EndpointsResource {
 
     /**
      * Produces a listing of all endpoint names.
+     *
+     * @param ifNoneMatch the entity tag of a previous response, or {@code null} if none was provided
      */
     @GET
-    public Response getEndpoints() {
+    public void getEndpoints(
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getEndpoints(ifNoneMatch));
+    }
+
+    public Response getEndpoints(String ifNoneMatch) {
         try {
             Set<String> endpoints = new TreeSet<>();
             endpoints.addAll(customEndpoints.keySet());
-            endpoints.addAll(getDiscoveryEndpoints().keySet());
-            return jsonOkResponse(new JSONArray(endpoints));
+            endpoints.addAll(discoveryEndpoints.get().keySet());
+            return RenderedResponse.json(new JSONArray(endpoints)).toResponse(ifNoneMatch);
         } catch (Exception ex) {
             LOGGER.error("Failed to fetch list of endpoints", ex);
             return Response.serverError().build();
@@ -95,13 +122,22 @@ public class EndpointsResource {
     }
 
     /**
-     * Produces the content of the specified endpoint.
+     * Produces the content of the specified endpoint. Default endpoints are only rebuilt after the state has changed,
+     * and clients which provide the entity tag of the current content receive a "304 Not Modified" response.
      *
      * @param name the name of the endpoint whose content should be included
+     * @param ifNoneMatch the entity tag of a previous response, or {@code null} if none was provided
      */
     @Path("/{name}")
     @GET
-    public Response getEndpoint(@PathParam("name") String name) {
+    public void getEndpoint(
+            @PathParam("name") String name,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getEndpoint(name, ifNoneMatch));
+    }
+
+    public Response getEndpoint(String name, String ifNoneMatch) {
         try {
             // Check for custom value before emitting any default values:
             EndpointProducer customValue = customEndpoints.get(name);
@@ -111,9 +147,9 @@ public class EndpointsResource {
             }
 
             // Fall back to checking default values:
-            JSONObject endpoint = getDiscoveryEndpoints().get(name);
+            RenderedResponse endpoint = discoveryEndpoints.get().get(name);
             if (endpoint != null) {
-                return jsonOkResponse(endpoint);
+                return endpoint.toResponse(ifNoneMatch);
             }
 
             return Response.status(Response.Status.NOT_FOUND).build();
@@ -123,12 +159,23 @@ public class EndpointsResource {
         }
     }
 
+    /**
+     * Returns a mapping of endpoint type to the rendered host:port (or ip:port) endpoints of that type.
+     */
+    private Map<String, RenderedResponse> renderDiscoveryEndpoints() throws TaskException {
+        Map<String, RenderedResponse> renderedEndpointsByName = new TreeMap<>();
+        for (Map.Entry<String, JSONObject> entry : getDiscoveryEndpoints().entrySet()) {
+            renderedEndpointsByName.put(entry.getKey(), RenderedResponse.json(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(renderedEndpointsByName);
+    }
+
     /**
      * Returns a mapping of endpoint type to host:port (or ip:port) endpoints, endpoint type.
      */
     private Map<String, JSONObject> getDiscoveryEndpoints() throws TaskException {
         Map<String, JSONObject> endpointsByName = new TreeMap<>();
-        for (TaskInfo taskInfo : stateStore.fetchTasks()) {
+        for (TaskInfo taskInfo : stateStore.getTaskStateIndex().getTasks()) {
             if (!taskInfo.hasDiscovery()) {
                 LOGGER.debug("Task lacks any discovery information, no endpoints to report: {}",
                         taskInfo.getName());
@@ -192,7 +239,7 @@ public class EndpointsResource {
         // get the IP addresses from the latest TaskStatus (currentTaskStatus), if that TaskStatus doesn't have an
         // IP address (it's a TASK_KILLED, LOST, etc.) than use the last IP address recorded in the stateStore
         // (this is better than nothing).
-        TaskStatus currentTaskStatus = stateStore.fetchStatus(taskName).orElse(null);
+        TaskStatus currentTaskStatus = stateStore.getTaskStateIndex().getStatus(taskName).orElse(null);
         TaskStatus savedTaskStatus = StateStoreUtils.getTaskStatusFromProperty(stateStore, taskName)
                 .orElse(null);
         List<String> currentIpAddresses = getIpAddresses(currentTaskStatus);
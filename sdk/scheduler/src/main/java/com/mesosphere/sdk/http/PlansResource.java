@@ -2,6 +2,7 @@ package com.mesosphere.sdk.http;
 
 import com.mesosphere.sdk.http.types.PlanInfo;
 import com.mesosphere.sdk.http.types.PrettyJsonResource;
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
 import com.mesosphere.sdk.offer.evaluate.placement.RegexMatcher;
 import com.mesosphere.sdk.offer.evaluate.placement.StringMatcher;
 import com.mesosphere.sdk.scheduler.plan.ParentElement;
@@ -20,6 +21,8 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -46,6 +49,18 @@ public class PlansResource extends PrettyJsonResource {
 
     private final Collection<PlanManager> planManagers = new ArrayList<>();
     private final Object planManagersLock = new Object();
+    private final ReadRequestExecutor readExecutor;
+
+    public PlansResource() {
+        this(ReadRequestExecutor.direct());
+    }
+
+    /**
+     * Creates a new instance which produces responses to reads using the provided {@link ReadRequestExecutor}.
+     */
+    public PlansResource(ReadRequestExecutor readExecutor) {
+        this.readExecutor = readExecutor;
+    }
 
     /**
      * Assigns the list of plans to be managed via this endpoint.
@@ -65,6 +80,10 @@ public class PlansResource extends PrettyJsonResource {
      */
     @GET
     @Path("/plans")
+    public void listPlans(@Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, this::listPlans);
+    }
+
     public Response listPlans() {
         return jsonOkResponse(new JSONArray(getPlanNames()));
     }
@@ -74,7 +93,11 @@ public class PlansResource extends PrettyJsonResource {
      */
     @GET
     @Path("/plans/{planName}")
-    public Response getPlanInfo(@PathParam("planName") String planName) {
+    public void getPlanInfo(@PathParam("planName") String planName, @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getPlanInfo(planName));
+    }
+
+    public Response getPlanInfo(String planName) {
         final Optional<PlanManager> planManagerOptional = getPlanManager(planName);
         if (!planManagerOptional.isPresent()) {
             return elementNotFoundResponse();
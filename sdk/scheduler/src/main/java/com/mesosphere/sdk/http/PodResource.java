@@ -2,6 +2,9 @@ package com.mesosphere.sdk.http;
 
 import com.mesosphere.sdk.http.types.GroupedTasks;
 import com.mesosphere.sdk.http.types.PrettyJsonResource;
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
+import com.mesosphere.sdk.http.types.RenderedResponse;
+import com.mesosphere.sdk.http.types.StateSnapshotCache;
 import com.mesosphere.sdk.http.types.TaskInfoAndStatus;
 import com.mesosphere.sdk.offer.taskdata.TaskLabelReader;
 import com.mesosphere.sdk.scheduler.TaskKiller;
@@ -18,9 +21,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import static com.mesosphere.sdk.http.ResponseUtils.jsonOkResponse;
@@ -44,6 +51,8 @@ public class PodResource extends PrettyJsonResource {
     private final StateStore stateStore;
     private final String serviceName;
     private final TaskFailureListener taskFailureListener;
+    private final StateSnapshotCache<RenderedResponse, RuntimeException> podStatuses;
+    private final ReadRequestExecutor readExecutor;
 
     private TaskKiller taskKiller;
 
@@ -54,20 +63,41 @@ public class PodResource extends PrettyJsonResource {
             StateStore stateStore,
             String serviceName,
             TaskFailureListener taskFailureListener) {
+        this(stateStore, serviceName, taskFailureListener, ReadRequestExecutor.direct());
+    }
+
+    /**
+     * Creates a new instance which retrieves task/pod state from the provided {@link StateStore}, producing responses
+     * to reads using the provided {@link ReadRequestExecutor}.
+     */
+    public PodResource(
+            StateStore stateStore,
+            String serviceName,
+            TaskFailureListener taskFailureListener,
+            ReadRequestExecutor readExecutor) {
         this.stateStore = stateStore;
         this.serviceName = serviceName;
         this.taskFailureListener = taskFailureListener;
+        this.podStatuses = new StateSnapshotCache<>(stateStore, this::renderPodStatuses);
+        this.readExecutor = readExecutor;
     }
 
     /**
-     * Produces a listing of all pod instance names.
+     * Produces a listing of all pod instance names, without holding a request thread while the state is read.
      */
     @GET
+    public void getPods(@Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, this::getPods);
+    }
+
+    /**
+     * Produces a listing of all pod instance names.
+     */
     public Response getPods() {
         try {
             Set<String> podNames = new TreeSet<>();
             List<String> unknownTaskNames = new ArrayList<>();
-            for (Protos.TaskInfo taskInfo : stateStore.fetchTasks()) {
+            for (Protos.TaskInfo taskInfo : stateStore.getTaskStateIndex().getTasks()) {
                 TaskLabelReader labels = new TaskLabelReader(taskInfo);
                 try {
                     podNames.add(PodInstance.getName(labels.getType(), labels.getIndex()));
@@ -93,55 +123,79 @@ public class PodResource extends PrettyJsonResource {
     }
 
     /**
-     * Produces the summary statuses of all pod instances.
+     * Produces the summary statuses of all pod instances. The response is only rebuilt after the state has changed,
+     * and clients which provide the entity tag of the current response receive a "304 Not Modified" response.
+     *
+     * @param ifNoneMatch the entity tag of a previous response, or {@code null} if none was provided
      */
     @Path("/status")
     @GET
-    public Response getPodStatuses() {
+    public void getPodStatuses(
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getPodStatuses(ifNoneMatch));
+    }
+
+    /**
+     * Produces the summary statuses of all pod instances, as described in
+     * {@link #getPodStatuses(String, AsyncResponse)}.
+     */
+    public Response getPodStatuses(String ifNoneMatch) {
         try {
-            // Group the tasks by pod:
-            GroupedTasks groupedTasks = GroupedTasks.create(stateStore);
-
-            // Output statuses for all tasks in each pod:
-            JSONObject responseJson = new JSONObject();
-            responseJson.put("service", serviceName);
-            for (Map.Entry<String, Map<Integer, List<TaskInfoAndStatus>>> podType
-                    : groupedTasks.byPodTypeAndIndex.entrySet()) {
-                JSONObject podJson = new JSONObject();
-                podJson.put("name", podType.getKey());
-                for (Map.Entry<Integer, List<TaskInfoAndStatus>> podInstance : podType.getValue().entrySet()) {
-                    podJson.append("instances", getPodInstanceStatusJson(
-                            stateStore,
-                            PodInstance.getName(podType.getKey(), podInstance.getKey()),
-                            podInstance.getValue()));
-                }
-                responseJson.append("pods", podJson);
-            }
+            return podStatuses.get().toResponse(ifNoneMatch);
+        } catch (Exception e) {
+            LOGGER.error("Failed to fetch collated list of task statuses by pod", e);
+            return Response.serverError().build();
+        }
+    }
 
-            // Output an 'unknown pod' instance for any tasks which didn't have a resolvable pod:
-            if (!groupedTasks.unknownPod.isEmpty()) {
-                JSONObject podTypeJson = new JSONObject();
-                podTypeJson.put("name", UNKNOWN_POD_LABEL);
-                podTypeJson.append("instances", getPodInstanceStatusJson(
+    private RenderedResponse renderPodStatuses() {
+        // Group the tasks by pod:
+        GroupedTasks groupedTasks = GroupedTasks.create(stateStore);
+
+        // Output statuses for all tasks in each pod:
+        JSONObject responseJson = new JSONObject();
+        responseJson.put("service", serviceName);
+        for (Map.Entry<String, Map<Integer, List<TaskInfoAndStatus>>> podType
+                : groupedTasks.byPodTypeAndIndex.entrySet()) {
+            JSONObject podJson = new JSONObject();
+            podJson.put("name", podType.getKey());
+            for (Map.Entry<Integer, List<TaskInfoAndStatus>> podInstance : podType.getValue().entrySet()) {
+                podJson.append("instances", getPodInstanceStatusJson(
                         stateStore,
-                        PodInstance.getName(UNKNOWN_POD_LABEL, 0),
-                        groupedTasks.unknownPod));
-                responseJson.append("pods", podTypeJson);
+                        PodInstance.getName(podType.getKey(), podInstance.getKey()),
+                        podInstance.getValue()));
             }
+            responseJson.append("pods", podJson);
+        }
 
-            return jsonOkResponse(responseJson);
-        } catch (Exception e) {
-            LOGGER.error("Failed to fetch collated list of task statuses by pod", e);
-            return Response.serverError().build();
+        // Output an 'unknown pod' instance for any tasks which didn't have a resolvable pod:
+        if (!groupedTasks.unknownPod.isEmpty()) {
+            JSONObject podTypeJson = new JSONObject();
+            podTypeJson.put("name", UNKNOWN_POD_LABEL);
+            podTypeJson.append("instances", getPodInstanceStatusJson(
+                    stateStore,
+                    PodInstance.getName(UNKNOWN_POD_LABEL, 0),
+                    groupedTasks.unknownPod));
+            responseJson.append("pods", podTypeJson);
         }
+
+        return RenderedResponse.json(responseJson);
     }
 
     /**
-     * Produces the summary status of a single pod instance.
+     * Produces the summary status of a single pod instance, without holding a request thread while the state is read.
      */
     @Path("/{name}/status")
     @GET
-    public Response getPodStatus(@PathParam("name") String podInstanceName) {
+    public void getPodStatus(@PathParam("name") String podInstanceName, @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getPodStatus(podInstanceName));
+    }
+
+    /**
+     * Produces the summary status of a single pod instance.
+     */
+    public Response getPodStatus(String podInstanceName) {
         try {
             Optional<Collection<TaskInfoAndStatus>> podTasks =
                     GroupedTasks.create(stateStore).getPodInstanceTasks(podInstanceName);
@@ -156,11 +210,19 @@ public class PodResource extends PrettyJsonResource {
     }
 
     /**
-     * Produces the full information for a single pod instance.
+     * Produces the full information for a single pod instance, without holding a request thread while the state is
+     * read.
      */
     @Path("/{name}/info")
     @GET
-    public Response getPodInfo(@PathParam("name") String podInstanceName) {
+    public void getPodInfo(@PathParam("name") String podInstanceName, @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getPodInfo(podInstanceName));
+    }
+
+    /**
+     * Produces the full information for a single pod instance.
+     */
+    public Response getPodInfo(String podInstanceName) {
         try {
             Optional<Collection<TaskInfoAndStatus>> podTasks =
                     GroupedTasks.create(stateStore).getPodInstanceTasks(podInstanceName);
@@ -365,7 +427,7 @@ public class PodResource extends PrettyJsonResource {
 
     private static Optional<String> getTaskStateString(
             StateStore stateStore, String taskName, Optional<Protos.TaskStatus> mesosStatus) {
-        GoalStateOverride.Status overrideStatus = stateStore.fetchGoalOverrideStatus(taskName);
+        GoalStateOverride.Status overrideStatus = stateStore.getTaskStateIndex().getGoalOverrideStatus(taskName);
         if (!GoalStateOverride.Status.INACTIVE.equals(overrideStatus)) {
             // This task is affected by an override. Use the override status as applicable.
             switch (overrideStatus.progress) {
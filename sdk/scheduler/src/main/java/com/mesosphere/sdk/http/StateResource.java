@@ -1,6 +1,9 @@
 package com.mesosphere.sdk.http;
 
 import com.mesosphere.sdk.http.types.PropertyDeserializer;
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
+import com.mesosphere.sdk.http.types.RenderedResponse;
+import com.mesosphere.sdk.http.types.StateSnapshotCache;
 import com.mesosphere.sdk.offer.TaskUtils;
 import com.mesosphere.sdk.state.StateStore;
 import com.mesosphere.sdk.state.StateStoreException;
@@ -19,6 +22,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.*;
@@ -44,6 +50,8 @@ public class StateResource {
 
     private final StateStore stateStore;
     private final PropertyDeserializer propertyDeserializer;
+    private final StateSnapshotCache<TaskZones, StateStoreException> taskZones;
+    private final ReadRequestExecutor readExecutor;
 
     /**
      * Creates a new StateResource which cannot deserialize Properties. Callers will receive a
@@ -64,8 +72,24 @@ public class StateResource {
      *                             {@code stateStore} to valid JSON
      */
     public StateResource(StateStore stateStore, PropertyDeserializer propertyDeserializer) {
+        this(stateStore, propertyDeserializer, ReadRequestExecutor.direct());
+    }
+
+    /**
+     * Creates a new StateResource which can deserialize Properties, and which produces responses to reads using the
+     * provided {@link ReadRequestExecutor}.
+     *
+     * @param stateStore           the source of data to be returned to callers
+     * @param propertyDeserializer a deserializer which can turn any Property in the provided
+     *                             {@code stateStore} to valid JSON
+     * @param readExecutor         the executor which produces responses to reads of the {@code stateStore}
+     */
+    public StateResource(
+            StateStore stateStore, PropertyDeserializer propertyDeserializer, ReadRequestExecutor readExecutor) {
         this.stateStore = stateStore;
         this.propertyDeserializer = propertyDeserializer;
+        this.taskZones = new StateSnapshotCache<>(stateStore, () -> new TaskZones(stateStore));
+        this.readExecutor = readExecutor;
     }
 
     /**
@@ -73,6 +97,10 @@ public class StateResource {
      */
     @Path("/frameworkId")
     @GET
+    public void getFrameworkId(@Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, this::getFrameworkId);
+    }
+
     public Response getFrameworkId() {
         try {
             Optional<Protos.FrameworkID> frameworkIDOptional = stateStore.fetchFrameworkId();
@@ -92,6 +120,10 @@ public class StateResource {
 
     @Path("/properties")
     @GET
+    public void getPropertyKeys(@Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, this::getPropertyKeys);
+    }
+
     public Response getPropertyKeys() {
         try {
             JSONArray keyArray = new JSONArray(stateStore.fetchPropertyKeys());
@@ -170,12 +202,20 @@ public class StateResource {
 
     /**
      * Returns the Zone information for all of the tasks of the service.
+     *
+     * @param ifNoneMatch the entity tag of a previous response, or {@code null} if none was provided
      */
     @Path("/zone/tasks")
     @GET
-    public Response getTaskNamesToZones() {
+    public void getTaskNamesToZones(
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getTaskNamesToZones(ifNoneMatch));
+    }
+
+    public Response getTaskNamesToZones(String ifNoneMatch) {
         try {
-            return ResponseUtils.jsonOkResponse(new JSONObject(getTasksZones(stateStore)));
+            return taskZones.get().tasksZonesResponse.toResponse(ifNoneMatch);
         } catch (StateStoreException ex) {
             logger.error("Failed to fetch the zone information for the service's tasks: ", ex);
             return Response.serverError().build();
@@ -187,11 +227,18 @@ public class StateResource {
      */
     @Path("/zone/tasks/{taskName}")
     @GET
-    public Response getTaskNameToZone(@PathParam("taskName") String taskName) {
+    public void getTaskNameToZone(
+            @PathParam("taskName") String taskName,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getTaskNameToZone(taskName, ifNoneMatch));
+    }
+
+    public Response getTaskNameToZone(String taskName, String ifNoneMatch) {
         try {
-            Map<String, String> tasksZones = getTasksZones(stateStore);
+            Map<String, String> tasksZones = taskZones.get().tasksZones;
             if (tasksZones.containsKey(taskName)) {
-                return ResponseUtils.plainOkResponse(tasksZones.get(taskName));
+                return RenderedResponse.plain(tasksZones.get(taskName)).toResponse(ifNoneMatch);
             } else {
                 logger.error("No zone exists for the specified task");
                 return Response.status(Response.Status.NOT_FOUND).build();
@@ -207,14 +254,22 @@ public class StateResource {
      */
     @Path("/zone/{podType}/{ip}")
     @GET
-    public Response getTaskIPsToZones(@PathParam("podType") String podType, @PathParam("ip") String ip) {
+    public void getTaskIPsToZones(
+            @PathParam("podType") String podType,
+            @PathParam("ip") String ip,
+            @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+            @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getTaskIPsToZones(podType, ip, ifNoneMatch));
+    }
+
+    public Response getTaskIPsToZones(String podType, String ip, String ifNoneMatch) {
         try {
-            String zone = getZoneFromTaskNameAndIP(stateStore, podType, ip);
+            String zone = taskZones.get().getZoneFromTaskNameAndIP(podType, ip);
             if (zone.isEmpty()) {
                 logger.error("Failed to find a zone for pod type = %s, ip address = %s", podType, ip);
                 return Response.status(Response.Status.NOT_FOUND).build();
             }
-            return ResponseUtils.plainOkResponse(zone);
+            return RenderedResponse.plain(zone).toResponse(ifNoneMatch);
         } catch (StateStoreException ex) {
             logger.error("Failed to fetch the zone information for the service's task: ", ex);
             return Response.serverError().build();
@@ -227,7 +282,11 @@ public class StateResource {
      */
     @Path("/properties/{key}")
     @GET
-    public Response getProperty(@PathParam("key") String key) {
+    public void getProperty(@PathParam("key") String key, @Suspended AsyncResponse asyncResponse) {
+        readExecutor.resume(asyncResponse, () -> getProperty(key));
+    }
+
+    public Response getProperty(String key) {
         try {
             if (propertyDeserializer == null) {
                 logger.warn("Cannot deserialize requested Property '{}': " +
@@ -266,6 +325,7 @@ public class StateResource {
                     stateStore.fetchTaskNames(), stateStore.fetchPropertyKeys());
 
             cache.refresh();
+            stateStore.invalidateCachedState();
 
             logger.info("After:\n- tasks: {}\n- properties: {}",
                     stateStore.fetchTaskNames(), stateStore.fetchPropertyKeys());
@@ -337,45 +397,68 @@ public class StateResource {
     }
 
     /**
-     * Constructs a map of task names to zones indicating in what zone the respective task name is in.
-     * @param stateStore The state store to get task infos from.
-     * @return Returns the map of task names to zones.
+     * The zones of the service's tasks, which are retained until the state store is next written to.
      */
-    private static Map<String, String> getTasksZones(StateStore stateStore) {
-        Collection<String> taskNames = stateStore.fetchTaskNames();
-        Map<String, String> tasksZones = new HashMap<>();
-        for (String taskName : taskNames) {
-            Optional<Protos.TaskInfo> taskInfoOptional = stateStore.fetchTask(taskName);
-            if (taskInfoOptional.isPresent() && TaskUtils.taskHasZone(taskInfoOptional.get())) {
-                tasksZones.put(taskName, TaskUtils.getTaskZone(taskInfoOptional.get()));
+    private static class TaskZones {
+        /**
+         * The zone and latest status of a task, or {@code null} values if the task lacks them.
+         */
+        private static class TaskZone {
+            private final String taskName;
+            private final String zone;
+            private final Protos.TaskStatus taskStatus;
+            private final boolean hasTaskInfo;
+
+            private TaskZone(
+                    String taskName, Optional<Protos.TaskInfo> taskInfo, Optional<Protos.TaskStatus> taskStatus) {
+                this.taskName = taskName;
+                this.zone = taskInfo.isPresent() && TaskUtils.taskHasZone(taskInfo.get())
+                        ? TaskUtils.getTaskZone(taskInfo.get())
+                        : null;
+                this.taskStatus = taskStatus.orElse(null);
+                this.hasTaskInfo = taskInfo.isPresent();
             }
         }
-        return tasksZones;
-    }
 
-    /**
-     * Gets the zone of a pod given its pod type and the IP address of the pod.
-     * @param stateStore The {@link StateStore} from which to get task info and task status from.
-     * @param podType The type of the pod to get zone information for.
-     * @param ipAddress The IP address of the pod to get zone information for.
-     * @return A string indicating the zone of the pod.
-     */
-    private static String getZoneFromTaskNameAndIP(StateStore stateStore, String podType, String ipAddress) {
-        Collection<String> taskNames = stateStore.fetchTaskNames();
-        for (String taskName : taskNames) {
-            if (!taskName.startsWith(podType)) {
-                continue;
-            }
-            Optional<Protos.TaskStatus> taskStatusOptional = stateStore.fetchStatus(taskName);
-            Optional<Protos.TaskInfo> taskInfoOptional = stateStore.fetchTask(taskName);
-            if (!taskStatusOptional.isPresent() || !taskInfoOptional.isPresent()) {
-                return "";
+        /**
+         * Tasks in the order they were listed by the state store.
+         */
+        private final List<TaskZone> tasks = new ArrayList<>();
+        private final Map<String, String> tasksZones = new HashMap<>();
+        private final RenderedResponse tasksZonesResponse;
+
+        private TaskZones(StateStore stateStore) {
+            for (String taskName : stateStore.fetchTaskNames()) {
+                TaskZone task =
+                        new TaskZone(taskName, stateStore.fetchTask(taskName), stateStore.fetchStatus(taskName));
+                tasks.add(task);
+                if (task.zone != null) {
+                    tasksZones.put(taskName, task.zone);
+                }
             }
-            String taskIPAddress = TaskUtils.getTaskIPAddress(taskStatusOptional.get());
-            if (TaskUtils.taskHasZone(taskInfoOptional.get()) && taskIPAddress.equals(ipAddress)) {
-                return TaskUtils.getTaskZone(taskInfoOptional.get());
+            tasksZonesResponse = RenderedResponse.json(new JSONObject(tasksZones));
+        }
+
+        /**
+         * Gets the zone of a pod given its pod type and the IP address of the pod.
+         * @param podType The type of the pod to get zone information for.
+         * @param ipAddress The IP address of the pod to get zone information for.
+         * @return A string indicating the zone of the pod.
+         */
+        private String getZoneFromTaskNameAndIP(String podType, String ipAddress) {
+            for (TaskZone task : tasks) {
+                if (!task.taskName.startsWith(podType)) {
+                    continue;
+                }
+                if (task.taskStatus == null || !task.hasTaskInfo) {
+                    return "";
+                }
+                String taskIPAddress = TaskUtils.getTaskIPAddress(task.taskStatus);
+                if (task.zone != null && taskIPAddress.equals(ipAddress)) {
+                    return task.zone;
+                }
             }
+            return "";
         }
-        return "";
     }
 }
@@ -0,0 +1,196 @@
+package com.mesosphere.sdk.http.types;
+
+import com.google.common.hash.Hashing;
+import com.mesosphere.sdk.specification.ConfigFileSpec;
+import com.mesosphere.sdk.specification.PodSpec;
+import com.mesosphere.sdk.specification.ServiceSpec;
+import com.mesosphere.sdk.specification.TaskSpec;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An index of the config template artifacts within a single stored {@link ServiceSpec}, keyed by pod type, task name,
+ * and config name. Each template is encoded, compressed, and tagged once when the index is built, so that the many
+ * tasks which fetch their templates at launch can be served without walking the spec or re-encoding the content.
+ *
+ * Stored configurations never change, so instances are immutable and may be reused across requests for as long as
+ * the configuration is being retrieved.
+ */
+public class ArtifactIndex {
+
+    /**
+     * The rendered content of a single config template, along with its compressed form and entity tags.
+     */
+    public static class Artifact {
+        private static final String GZIP_ENCODING = "gzip";
+
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final EntityTag entityTag;
+        private final EntityTag gzipEntityTag;
+
+        private Artifact(String templateContent) {
+            this.content = templateContent.getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = gzip(content);
+            // Small templates may grow when compressed, in which case they're always sent as-is:
+            this.gzipContent = compressed.length < content.length ? compressed : null;
+            String hash = Hashing.sha256().hashBytes(content).toString();
+            this.entityTag = new EntityTag(hash);
+            // Each representation gets its own strong tag, per RFC 7232:
+            this.gzipEntityTag = new EntityTag(hash + "-" + GZIP_ENCODING);
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public EntityTag getEntityTag() {
+            return entityTag;
+        }
+
+        /**
+         * Returns a 200 OK response containing the content, or a 304 Not Modified response if the provided
+         * {@code If-None-Match} header value lists a tag for this content. The content is gzip-compressed if the
+         * provided {@code Accept-Encoding} header value allows it and compression reduces its size.
+         *
+         * @param ifNoneMatch the value of the request's {@code If-None-Match} header, or {@code null} if none was
+         *     provided
+         * @param acceptEncoding the value of the request's {@code Accept-Encoding} header, or {@code null} if none was
+         *     provided
+         */
+        public Response toResponse(String ifNoneMatch, String acceptEncoding) {
+            boolean compress = gzipContent != null && acceptsGzip(acceptEncoding);
+            EntityTag tag = compress ? gzipEntityTag : entityTag;
+            if (RenderedResponse.matches(entityTag, ifNoneMatch)
+                    || RenderedResponse.matches(gzipEntityTag, ifNoneMatch)) {
+                return Response.notModified(tag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+            }
+            Response.ResponseBuilder builder = Response.ok(compress ? gzipContent : content, MediaType.TEXT_PLAIN_TYPE)
+                    .tag(tag);
+            if (gzipContent != null) {
+                builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (compress) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+            }
+            return builder.build();
+        }
+
+        /**
+         * Returns whether the provided {@code Accept-Encoding} header value allows gzip, i.e. lists either
+         * {@code gzip} or {@code *} without a quality value of zero.
+         */
+        private static boolean acceptsGzip(String acceptEncoding) {
+            if (acceptEncoding == null) {
+                return false;
+            }
+            for (String coding : acceptEncoding.split(",")) {
+                String[] params = coding.split(";");
+                String name = params[0].trim();
+                if (!name.equalsIgnoreCase(GZIP_ENCODING) && !name.equals("*")) {
+                    continue;
+                }
+                boolean rejected = false;
+                for (int i = 1; i < params.length; ++i) {
+                    String param = params[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            rejected = Double.parseDouble(param.substring(2)) <= 0;
+                        } catch (NumberFormatException e) {
+                            rejected = true;
+                        }
+                    }
+                }
+                if (!rejected) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static byte[] gzip(byte[] content) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+                gzipOut.write(content);
+            } catch (IOException e) {
+                // Not expected when writing to memory
+                throw new IllegalStateException("Failed to compress artifact content", e);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Pod type => task name => config name => artifact, each in the order that they appear in the spec.
+     */
+    private final Map<String, Map<String, Map<String, Artifact>>> artifacts;
+
+    private ArtifactIndex(Map<String, Map<String, Map<String, Artifact>>> artifacts) {
+        this.artifacts = artifacts;
+    }
+
+    /**
+     * Returns an index of all config templates in the provided {@link ServiceSpec}. Where names are duplicated, the
+     * first matching pod, task, or config in the spec is used.
+     */
+    public static ArtifactIndex create(ServiceSpec serviceSpec) {
+        Map<String, Map<String, Map<String, Artifact>>> pods = new LinkedHashMap<>();
+        for (PodSpec podSpec : serviceSpec.getPods()) {
+            if (pods.containsKey(podSpec.getType())) {
+                continue;
+            }
+            Map<String, Map<String, Artifact>> tasks = new LinkedHashMap<>();
+            for (TaskSpec taskSpec : podSpec.getTasks()) {
+                if (tasks.containsKey(taskSpec.getName())) {
+                    continue;
+                }
+                Map<String, Artifact> configs = new LinkedHashMap<>();
+                for (ConfigFileSpec configFileSpec : taskSpec.getConfigFiles()) {
+                    if (!configs.containsKey(configFileSpec.getName())) {
+                        configs.put(configFileSpec.getName(), new Artifact(configFileSpec.getTemplateContent()));
+                    }
+                }
+                tasks.put(taskSpec.getName(), Collections.unmodifiableMap(configs));
+            }
+            pods.put(podSpec.getType(), Collections.unmodifiableMap(tasks));
+        }
+        return new ArtifactIndex(Collections.unmodifiableMap(pods));
+    }
+
+    /**
+     * Returns the requested config template, or throws an exception describing which part of the request couldn't be
+     * found.
+     *
+     * @throws IllegalArgumentException if the pod type, task name, or config name is unknown
+     */
+    public Artifact get(String podType, String taskName, String configName) {
+        Map<String, Map<String, Artifact>> tasks = artifacts.get(podType);
+        if (tasks == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Couldn't find pod of type '%s'. Known pod types are: %s", podType, artifacts.keySet()));
+        }
+        Map<String, Artifact> configs = tasks.get(taskName);
+        if (configs == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Couldn't find task named '%s' within pod '%s'. Known task names are: %s",
+                    taskName, podType, tasks.keySet()));
+        }
+        Artifact artifact = configs.get(configName);
+        if (artifact == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Couldn't find config named '%s' within task '%s'. Known config names are: %s",
+                    configName, taskName, configs.keySet()));
+        }
+        return artifact;
+    }
+}
@@ -0,0 +1,126 @@
+package com.mesosphere.sdk.http.types;
+
+import com.mesosphere.sdk.scheduler.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Produces the responses to read requests which may need to access the state store, so that the API server's request
+ * threads aren't held while that access is in progress. Requests are run on a fixed pool of threads, with a bounded
+ * number of requests waiting for a thread. Requests which arrive while the queue is full are immediately rejected with
+ * a "503 Service Unavailable" response, rather than waiting behind the backlog and tying up a request thread.
+ */
+public class ReadRequestExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadRequestExecutor.class);
+
+    /**
+     * The number of seconds that rejected clients are advised to wait before retrying.
+     */
+    private static final int RETRY_AFTER_SECS = 1;
+
+    private static final ReadRequestExecutor DIRECT = new ReadRequestExecutor(Runnable::run);
+
+    private final Executor executor;
+    // The pool which was created by create(), or null if the executor was provided by the caller:
+    private final ExecutorService pool;
+
+    /**
+     * Returns an instance which produces responses on the calling thread.
+     */
+    public static ReadRequestExecutor direct() {
+        return DIRECT;
+    }
+
+    /**
+     * Returns an instance which produces responses on a pool of the provided number of threads, or on the calling
+     * thread if the number of threads is zero.
+     *
+     * @param threads the number of threads to produce responses on, or zero to produce them on the calling thread
+     * @param queueCapacity the number of requests which may wait for a thread before further requests are rejected,
+     *     or zero for no limit
+     */
+    public static ReadRequestExecutor create(int threads, int queueCapacity) {
+        if (threads <= 0) {
+            return direct();
+        }
+        BlockingQueue<Runnable> queue = queueCapacity <= 0
+                ? new LinkedBlockingQueue<>()
+                : new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "api-reads-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        return new ReadRequestExecutor(pool, pool);
+    }
+
+    /**
+     * Creates a new instance which produces responses using the provided executor. Requests which are rejected by the
+     * executor receive a "503 Service Unavailable" response.
+     */
+    public ReadRequestExecutor(Executor executor) {
+        this(executor, null);
+    }
+
+    private ReadRequestExecutor(Executor executor, ExecutorService pool) {
+        this.executor = executor;
+        this.pool = pool;
+    }
+
+    /**
+     * Stops the pool of threads which was created by {@link #create(int, int)}, if any. Requests which are already
+     * queued are still completed, while any further requests receive a "503 Service Unavailable" response.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Resumes the provided suspended request with the response produced by the provided handler. Any exception thrown
+     * by the handler results in a "500 Internal Server Error" response.
+     */
+    public void resume(AsyncResponse asyncResponse, Supplier<Response> handler) {
+        try {
+            executor.execute(() -> {
+                Response response;
+                try {
+                    response = handler.get();
+                } catch (Exception e) {
+                    LOGGER.error("Failed to produce response", e);
+                    response = Response.serverError().build();
+                }
+                asyncResponse.resume(response);
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Rejecting request: too many requests are already waiting");
+            Metrics.incrementApiRequestsRejected();
+            asyncResponse.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECS)
+                    .entity("Too many requests, try again later")
+                    .type(MediaType.TEXT_PLAIN_TYPE)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.mesosphere.sdk.http.types;
+
+import com.google.common.hash.Hashing;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The rendered content of a response, along with an entity tag which is derived from that content. Clients which
+ * send the tag back in an {@code If-None-Match} header receive a "304 Not Modified" response for as long as the
+ * content is unchanged, rather than the content itself.
+ *
+ * Instances are immutable, and may be reused across requests.
+ */
+public class RenderedResponse {
+
+    private final String content;
+    private final MediaType mediaType;
+    private final EntityTag entityTag;
+
+    private RenderedResponse(String content, MediaType mediaType) {
+        this.content = content;
+        this.mediaType = mediaType;
+        this.entityTag = new EntityTag(Hashing.murmur3_128().hashString(content, StandardCharsets.UTF_8).toString());
+    }
+
+    /**
+     * Returns a rendering of the provided {@link JSONObject}, matching
+     * {@link com.mesosphere.sdk.http.ResponseUtils#jsonOkResponse(JSONObject)}.
+     */
+    public static RenderedResponse json(JSONObject jsonObject) {
+        return new RenderedResponse(jsonObject.toString(2), MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    /**
+     * Returns a rendering of the provided {@link JSONArray}, matching
+     * {@link com.mesosphere.sdk.http.ResponseUtils#jsonOkResponse(JSONArray)}.
+     */
+    public static RenderedResponse json(JSONArray jsonArray) {
+        return new RenderedResponse(jsonArray.toString(2), MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    /**
+     * Returns a rendering of the provided plaintext.
+     */
+    public static RenderedResponse plain(String plaintext) {
+        return new RenderedResponse(plaintext, MediaType.TEXT_PLAIN_TYPE);
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public EntityTag getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * Returns a 200 OK response containing the content, or a 304 Not Modified response if the provided
+     * {@code If-None-Match} header value lists this content's entity tag.
+     *
+     * @param ifNoneMatch the value of the request's {@code If-None-Match} header, or {@code null} if none was provided
+     */
+    public Response toResponse(String ifNoneMatch) {
+        if (matches(entityTag, ifNoneMatch)) {
+            return Response.notModified(entityTag).build();
+        }
+        return Response.ok(content, mediaType).tag(entityTag).build();
+    }
+
+    /**
+     * Returns whether the provided {@code If-None-Match} header value lists the provided entity tag. Per RFC 7232,
+     * tags are compared without regard to whether they are weak, and {@code *} matches any tag.
+     */
+    static boolean matches(EntityTag entityTag, String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")
+                    && tag.substring(1, tag.length() - 1).equals(entityTag.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
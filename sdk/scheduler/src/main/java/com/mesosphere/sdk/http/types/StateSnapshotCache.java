@@ -0,0 +1,73 @@
+package com.mesosphere.sdk.http.types;
+
+import com.mesosphere.sdk.state.StateStore;
+
+/**
+ * Holds a value which is derived from the content of a {@link StateStore}, so that the value is only recomputed once
+ * the store has been written to. This allows frequently polled endpoints to be served without repeatedly scanning the
+ * store. When the value is out of date, concurrent callers wait for a single recomputation rather than each performing
+ * their own.
+ *
+ * @param <T> the type of the derived value, which must not be modified after it has been returned by the loader
+ * @param <E> the type of exception thrown by the loader
+ * @see StateStore#getVersion()
+ */
+public class StateSnapshotCache<T, E extends Exception> {
+
+    /**
+     * Computes the value from the current content of the {@link StateStore}.
+     */
+    @FunctionalInterface
+    public interface Loader<T, E extends Exception> {
+        T load() throws E;
+    }
+
+    /**
+     * A computed value, along with the state version which was current when it started being computed.
+     */
+    private static class Snapshot<T> {
+        private final long version;
+        private final T value;
+
+        private Snapshot(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private final StateStore stateStore;
+    private final Loader<T, E> loader;
+    private volatile Snapshot<T> snapshot;
+
+    public StateSnapshotCache(StateStore stateStore, Loader<T, E> loader) {
+        this.stateStore = stateStore;
+        this.loader = loader;
+    }
+
+    /**
+     * Returns a value which reflects every write made to the {@link StateStore} before this call, computing the value
+     * if needed. Values which fail to be computed are not cached.
+     *
+     * @throws E if the value needed to be computed, and computing it failed
+     */
+    public T get() throws E {
+        long version = stateStore.getVersion();
+        Snapshot<T> current = snapshot;
+        if (current != null && current.version >= version) {
+            return current.value;
+        }
+        synchronized (this) {
+            // Another caller may have computed the value while we were waiting:
+            current = snapshot;
+            version = stateStore.getVersion();
+            if (current != null && current.version >= version) {
+                return current.value;
+            }
+            // The version is read before the state, so any write which races with the load results in a newer
+            // version, and the value is recomputed by the next caller.
+            T value = loader.load();
+            snapshot = new Snapshot<>(version, value);
+            return value;
+        }
+    }
+}
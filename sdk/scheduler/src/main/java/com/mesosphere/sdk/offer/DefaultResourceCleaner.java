@@ -5,6 +5,7 @@ import com.mesosphere.sdk.scheduler.decommission.DecommissionPlanFactory;
 import com.mesosphere.sdk.scheduler.recovery.FailureUtils;
 import com.mesosphere.sdk.state.StateStore;
 import com.mesosphere.sdk.state.StateStoreException;
+import com.mesosphere.sdk.state.TaskStateIndex;
 
 import org.apache.mesos.Protos.Offer;
 import org.apache.mesos.Protos.Resource;
@@ -78,13 +79,14 @@ public class DefaultResourceCleaner implements ResourceCleaner {
      * produced by the provided {@link StateStore}.
      */
     private static Collection<Resource> getExpectedResources(StateStore stateStore) throws StateStoreException {
-        return stateStore.fetchTasks().stream()
+        TaskStateIndex taskStateIndex = stateStore.getTaskStateIndex();
+        return taskStateIndex.getTasks().stream()
                 // The task's resources should be unreserved if:
                 // - the task is marked as permanently failed, or
                 // - the task is in the process of being decommissioned
                 .filter(taskInfo ->
                         !FailureUtils.isPermanentlyFailed(taskInfo) &&
-                        !stateStore.fetchGoalOverrideStatus(taskInfo.getName())
+                        !taskStateIndex.getGoalOverrideStatus(taskInfo.getName())
                                 .equals(DecommissionPlanFactory.DECOMMISSIONING_STATUS))
                 .map(ResourceUtils::getAllResources)
                 .flatMap(Collection::stream)
@@ -0,0 +1,594 @@
+package com.mesosphere.sdk.offer;
+
+import org.apache.mesos.Protos.Value.Range;
+
+import java.util.*;
+
+/**
+ * A set of {@code long} values which is stored as a sorted collection of disjoint, non-adjacent closed intervals, such
+ * as the port ranges in an offer.
+ * <p>
+ * The intervals are held in a treap: a binary search tree ordered by the first value of each interval, which is kept
+ * balanced by giving each interval a pseudo-random priority. Each node also tracks the number of values beneath it, so
+ * that the values may be indexed by position. Looking up, adding, removing, or claiming a single interval or value
+ * takes logarithmic expected time in the number of intervals, regardless of the number of values which the intervals
+ * contain. Intervals which are merged or removed by a change add constant time each. The nodes are held in primitive
+ * arrays, so the set doesn't box its values, and it doesn't allocate when modified unless it needs more room for
+ * intervals.
+ * <p>
+ * Unlike {@link org.apache.mesos.Protos.Value.Ranges}, the set is modified in place rather than being rebuilt for each
+ * change. This class is not thread-safe.
+ */
+public final class LongIntervalSet {
+
+    /**
+     * The policy used to select which values are claimed from the set.
+     */
+    public enum AllocationPolicy {
+        /**
+         * Claims the lowest available values.
+         */
+        FIRST_FIT,
+
+        /**
+         * Claims values which are uniformly selected from all available values.
+         */
+        RANDOM_FIT
+    }
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int NIL = -1;
+
+    /**
+     * The nodes of the treap, indexed by node. Each node holds the first and last values of an interval, inclusive,
+     * its children, its priority, and the number of values in its subtree. Only the first {@link #nodeCapacityUsed}
+     * nodes have ever been used. Nodes which were since released are chained via {@link #lefts}, starting at
+     * {@link #freeNode}.
+     */
+    private long[] begins;
+    private long[] ends;
+    private long[] subtreeSizes;
+    private int[] lefts;
+    private int[] rights;
+    private int[] priorities;
+    private int nodeCapacityUsed;
+    private int freeNode;
+    private int root;
+    private int intervalCount;
+
+    // The results of the last call to split(). This avoids allocating a pair for each level of the recursion.
+    private int splitLower;
+    private int splitUpper;
+
+    /**
+     * Creates a new empty set.
+     */
+    public LongIntervalSet() {
+        this.begins = new long[INITIAL_CAPACITY];
+        this.ends = new long[INITIAL_CAPACITY];
+        this.subtreeSizes = new long[INITIAL_CAPACITY];
+        this.lefts = new int[INITIAL_CAPACITY];
+        this.rights = new int[INITIAL_CAPACITY];
+        this.priorities = new int[INITIAL_CAPACITY];
+        this.nodeCapacityUsed = 0;
+        this.freeNode = NIL;
+        this.root = NIL;
+        this.intervalCount = 0;
+    }
+
+    /**
+     * Creates a new copy of the provided set.
+     */
+    public LongIntervalSet(LongIntervalSet set) {
+        int capacity = Math.max(INITIAL_CAPACITY, set.nodeCapacityUsed);
+        this.begins = Arrays.copyOf(set.begins, capacity);
+        this.ends = Arrays.copyOf(set.ends, capacity);
+        this.subtreeSizes = Arrays.copyOf(set.subtreeSizes, capacity);
+        this.lefts = Arrays.copyOf(set.lefts, capacity);
+        this.rights = Arrays.copyOf(set.rights, capacity);
+        this.priorities = Arrays.copyOf(set.priorities, capacity);
+        this.nodeCapacityUsed = set.nodeCapacityUsed;
+        this.freeNode = set.freeNode;
+        this.root = set.root;
+        this.intervalCount = set.intervalCount;
+    }
+
+    /**
+     * Returns a new set containing the values in the provided ranges, which may overlap.
+     */
+    public static LongIntervalSet fromRanges(Collection<Range> ranges) {
+        LongIntervalSet set = new LongIntervalSet();
+        for (Range range : ranges) {
+            set.add(range.getBegin(), range.getEnd());
+        }
+        return set;
+    }
+
+    /**
+     * Returns the values in this set as a sorted list of disjoint ranges.
+     */
+    public List<Range> toRanges() {
+        long[] intervals = toArray();
+        List<Range> ranges = new ArrayList<>(intervalCount);
+        for (int i = 0; i < intervals.length; i += 2) {
+            ranges.add(Range.newBuilder().setBegin(intervals[i]).setEnd(intervals[i + 1]).build());
+        }
+        return ranges;
+    }
+
+    /**
+     * Adds the values from {@code begin} to {@code end} inclusive. Nothing is added if {@code end} is less than
+     * {@code begin}.
+     */
+    public LongIntervalSet add(long begin, long end) {
+        if (end < begin) {
+            return this;
+        }
+
+        split(root, begin, false);
+        int lower = splitLower;
+        int upper = splitUpper;
+
+        // Merge with the interval before the added values, if it overlaps or is adjacent to them:
+        long newBegin = begin;
+        long newEnd = end;
+        int last = getLast(lower);
+        if (last != NIL && (ends[last] >= begin || ends[last] + 1 == begin)) {
+            newBegin = begins[last];
+            newEnd = Math.max(end, ends[last]);
+            split(lower, begins[last], false);
+            lower = splitLower;
+            release(splitUpper);
+        }
+
+        // Merge with any intervals which begin within or just after the added values:
+        if (newEnd == Long.MAX_VALUE) {
+            release(upper);
+            upper = NIL;
+        } else {
+            split(upper, newEnd + 1, true);
+            upper = splitUpper;
+            if (splitLower != NIL) {
+                newEnd = Math.max(newEnd, ends[getLast(splitLower)]);
+                release(splitLower);
+            }
+        }
+
+        root = merge(merge(lower, allocate(newBegin, newEnd)), upper);
+        return this;
+    }
+
+    /**
+     * Adds all values in the provided set.
+     */
+    public LongIntervalSet addAll(LongIntervalSet set) {
+        long[] intervals = set.toArray();
+        for (int i = 0; i < intervals.length; i += 2) {
+            add(intervals[i], intervals[i + 1]);
+        }
+        return this;
+    }
+
+    /**
+     * Removes the values from {@code begin} to {@code end} inclusive, if present. Nothing is removed if {@code end} is
+     * less than {@code begin}.
+     */
+    public LongIntervalSet remove(long begin, long end) {
+        if (end < begin) {
+            return this;
+        }
+
+        split(root, begin, false);
+        int lower = splitLower;
+        int upper = splitUpper;
+
+        // Only the intervals at either end of the removed values may extend beyond them, and those parts are kept:
+        boolean keepHead = false;
+        long headBegin = 0;
+        boolean keepTail = false;
+        long tailEnd = 0;
+        int last = getLast(lower);
+        if (last != NIL && ends[last] >= begin) {
+            keepHead = true;
+            headBegin = begins[last];
+            if (ends[last] > end) {
+                keepTail = true;
+                tailEnd = ends[last];
+            }
+            split(lower, begins[last], false);
+            lower = splitLower;
+            release(splitUpper);
+        }
+
+        split(upper, end, true);
+        upper = splitUpper;
+        if (splitLower != NIL) {
+            last = getLast(splitLower);
+            if (ends[last] > end) {
+                keepTail = true;
+                tailEnd = ends[last];
+            }
+            release(splitLower);
+        }
+
+        if (keepHead) {
+            lower = merge(lower, allocate(headBegin, begin - 1));
+        }
+        if (keepTail) {
+            lower = merge(lower, allocate(end + 1, tailEnd));
+        }
+        root = merge(lower, upper);
+        return this;
+    }
+
+    /**
+     * Removes all values in the provided set.
+     */
+    public LongIntervalSet removeAll(LongIntervalSet set) {
+        long[] intervals = set.toArray();
+        for (int i = 0; i < intervals.length; i += 2) {
+            remove(intervals[i], intervals[i + 1]);
+        }
+        return this;
+    }
+
+    /**
+     * Returns whether the provided value is in this set.
+     */
+    public boolean contains(long value) {
+        return containsAll(value, value);
+    }
+
+    /**
+     * Returns whether all values from {@code begin} to {@code end} inclusive are in this set.
+     */
+    public boolean containsAll(long begin, long end) {
+        if (end < begin) {
+            return true;
+        }
+        int floor = getFloor(begin);
+        return floor != NIL && ends[floor] >= end;
+    }
+
+    /**
+     * Returns whether all values in the provided set are in this set.
+     */
+    public boolean containsAll(LongIntervalSet set) {
+        long[] intervals = set.toArray();
+        for (int i = 0; i < intervals.length; i += 2) {
+            if (!containsAll(intervals[i], intervals[i + 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the provided value from this set, returning whether it had been present.
+     */
+    public boolean claim(long value) {
+        if (!contains(value)) {
+            return false;
+        }
+        remove(value, value);
+        return true;
+    }
+
+    /**
+     * Removes and returns a single value selected by the provided policy, or an empty result if the set is empty.
+     *
+     * @param random the source of randomness for {@link AllocationPolicy#RANDOM_FIT}, otherwise unused
+     */
+    public OptionalLong claim(AllocationPolicy policy, Random random) {
+        if (isEmpty()) {
+            return OptionalLong.empty();
+        }
+        long value = policy == AllocationPolicy.FIRST_FIT ? begins[getFirst(root)] : get(nextLong(random, size()));
+        remove(value, value);
+        return OptionalLong.of(value);
+    }
+
+    /**
+     * Removes and returns the requested number of values selected by the provided policy, or returns an empty result
+     * and leaves this set unchanged if fewer values are available. With {@link AllocationPolicy#FIRST_FIT}, whole
+     * intervals are claimed at a time, rather than one value at a time.
+     *
+     * @param random the source of randomness for {@link AllocationPolicy#RANDOM_FIT}, otherwise unused
+     */
+    public Optional<LongIntervalSet> claim(long count, AllocationPolicy policy, Random random) {
+        if (count > size()) {
+            return Optional.empty();
+        }
+
+        LongIntervalSet claimed = new LongIntervalSet();
+        if (policy == AllocationPolicy.FIRST_FIT) {
+            long remaining = count;
+            while (remaining > 0) {
+                int first = getFirst(root);
+                long begin = begins[first];
+                long end = Math.min(ends[first], begin + remaining - 1);
+                claimed.add(begin, end);
+                remove(begin, end);
+                remaining -= getLength(begin, end);
+            }
+        } else {
+            for (long i = 0; i < count; ++i) {
+                long value = claim(policy, random).getAsLong();
+                claimed.add(value, value);
+            }
+        }
+        return Optional.of(claimed);
+    }
+
+    /**
+     * Removes and returns the lowest value in this set, or an empty result if the set is empty.
+     */
+    public OptionalLong claimFirst() {
+        return claim(AllocationPolicy.FIRST_FIT, null);
+    }
+
+    /**
+     * Removes and returns the requested number of lowest values in this set, or returns an empty result and leaves
+     * this set unchanged if fewer values are available.
+     */
+    public Optional<LongIntervalSet> claimFirst(long count) {
+        return claim(count, AllocationPolicy.FIRST_FIT, null);
+    }
+
+    /**
+     * Returns whether this set contains no values.
+     */
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    /**
+     * Returns the number of values in this set.
+     */
+    public long size() {
+        return getSubtreeSize(root);
+    }
+
+    /**
+     * Returns the number of disjoint intervals which make up this set.
+     */
+    public int getIntervalCount() {
+        return intervalCount;
+    }
+
+    /**
+     * Returns the value at the provided position within the sorted values of this set.
+     */
+    private long get(long index) {
+        long remaining = index;
+        int node = root;
+        while (node != NIL) {
+            long lowerSize = getSubtreeSize(lefts[node]);
+            if (remaining < lowerSize) {
+                node = lefts[node];
+                continue;
+            }
+            remaining -= lowerSize;
+            long length = getLength(begins[node], ends[node]);
+            if (remaining < length) {
+                return begins[node] + remaining;
+            }
+            remaining -= length;
+            node = rights[node];
+        }
+        throw new IndexOutOfBoundsException(String.format("Index %d exceeds set size %d", index, size()));
+    }
+
+    /**
+     * Returns the node of the last interval which begins at or before the provided value, or {@link #NIL} if there is
+     * none.
+     */
+    private int getFloor(long value) {
+        int floor = NIL;
+        int node = root;
+        while (node != NIL) {
+            if (begins[node] <= value) {
+                floor = node;
+                node = rights[node];
+            } else {
+                node = lefts[node];
+            }
+        }
+        return floor;
+    }
+
+    private int getFirst(int node) {
+        if (node == NIL) {
+            return NIL;
+        }
+        while (lefts[node] != NIL) {
+            node = lefts[node];
+        }
+        return node;
+    }
+
+    private int getLast(int node) {
+        if (node == NIL) {
+            return NIL;
+        }
+        while (rights[node] != NIL) {
+            node = rights[node];
+        }
+        return node;
+    }
+
+    /**
+     * Splits the provided subtree into the intervals which begin before the provided value (or at it, if
+     * {@code inclusive}), and the intervals which begin after it. The results are stored in {@link #splitLower} and
+     * {@link #splitUpper}.
+     */
+    private void split(int node, long value, boolean inclusive) {
+        if (node == NIL) {
+            splitLower = NIL;
+            splitUpper = NIL;
+            return;
+        }
+        if (begins[node] < value || (inclusive && begins[node] == value)) {
+            split(rights[node], value, inclusive);
+            rights[node] = splitLower;
+            update(node);
+            splitLower = node;
+        } else {
+            split(lefts[node], value, inclusive);
+            lefts[node] = splitUpper;
+            update(node);
+            splitUpper = node;
+        }
+    }
+
+    /**
+     * Joins the provided subtrees, where all intervals in {@code lower} precede all intervals in {@code upper}, and
+     * returns the resulting subtree.
+     */
+    private int merge(int lower, int upper) {
+        if (lower == NIL) {
+            return upper;
+        }
+        if (upper == NIL) {
+            return lower;
+        }
+        if (priorities[lower] > priorities[upper]) {
+            rights[lower] = merge(rights[lower], upper);
+            update(lower);
+            return lower;
+        } else {
+            lefts[upper] = merge(lower, lefts[upper]);
+            update(upper);
+            return upper;
+        }
+    }
+
+    private void update(int node) {
+        subtreeSizes[node] =
+                getSubtreeSize(lefts[node]) + getLength(begins[node], ends[node]) + getSubtreeSize(rights[node]);
+    }
+
+    private long getSubtreeSize(int node) {
+        return node == NIL ? 0 : subtreeSizes[node];
+    }
+
+    /**
+     * Returns a new node for the provided interval, reusing a released node if there is one.
+     */
+    private int allocate(long begin, long end) {
+        int node;
+        if (freeNode != NIL) {
+            node = freeNode;
+            freeNode = lefts[node];
+        } else {
+            if (nodeCapacityUsed == begins.length) {
+                int capacity = begins.length * 2;
+                begins = Arrays.copyOf(begins, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                subtreeSizes = Arrays.copyOf(subtreeSizes, capacity);
+                lefts = Arrays.copyOf(lefts, capacity);
+                rights = Arrays.copyOf(rights, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+            }
+            node = nodeCapacityUsed++;
+        }
+        begins[node] = begin;
+        ends[node] = end;
+        lefts[node] = NIL;
+        rights[node] = NIL;
+        priorities[node] = getPriority(begin);
+        update(node);
+        ++intervalCount;
+        return node;
+    }
+
+    /**
+     * Releases all nodes in the provided subtree, which must already be detached from the tree.
+     */
+    private void release(int node) {
+        if (node == NIL) {
+            return;
+        }
+        release(lefts[node]);
+        release(rights[node]);
+        lefts[node] = freeNode;
+        freeNode = node;
+        --intervalCount;
+    }
+
+    /**
+     * Returns the first and last values of each interval in ascending order, as a flat array of pairs.
+     */
+    private long[] toArray() {
+        long[] intervals = new long[2 * intervalCount];
+        // In-order traversal, using an explicit stack rather than recursion:
+        int[] stack = new int[intervalCount];
+        int depth = 0;
+        int index = 0;
+        int node = root;
+        while (node != NIL || depth > 0) {
+            while (node != NIL) {
+                stack[depth++] = node;
+                node = lefts[node];
+            }
+            node = stack[--depth];
+            intervals[index++] = begins[node];
+            intervals[index++] = ends[node];
+            node = rights[node];
+        }
+        return intervals;
+    }
+
+    private static long getLength(long begin, long end) {
+        return end - begin + 1;
+    }
+
+    /**
+     * Returns a well-mixed priority for the interval beginning at the provided value. The priority only needs to look
+     * random, so it's derived from the value rather than drawn from a shared source of randomness, which also keeps
+     * the shape of the tree reproducible.
+     */
+    private static int getPriority(long begin) {
+        // The finalizer of the SplitMix64 generator:
+        long z = begin + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (z ^ (z >>> 31));
+    }
+
+    private static long nextLong(Random random, long bound) {
+        if (bound <= Integer.MAX_VALUE) {
+            return random.nextInt((int) bound);
+        }
+        return Math.floorMod(random.nextLong(), bound);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LongIntervalSet other = (LongIntervalSet) o;
+        return intervalCount == other.intervalCount && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        long[] intervals = toArray();
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < intervals.length; i += 2) {
+            joiner.add(intervals[i] == intervals[i + 1]
+                    ? String.valueOf(intervals[i])
+                    : String.format("%d-%d", intervals[i], intervals[i + 1]));
+        }
+        return joiner.toString();
+    }
+}
@@ -13,10 +13,17 @@ import java.util.*;
 /**
  * A representation of the pool of resources available in a single {@link Offer}. Tracks the
  * consumption of the {@link Offer}'s resources.
+ * <p>
+ * The classification of an offer's resources is computed once per role, and is then shared via the offer's
+ * {@link OfferFacts} by every pool which is created for that offer. Each pool only copies the parts of the shared
+ * classification which it actually consumes or frees, so creating a pool for an offer which was already seen is cheap,
+ * and consuming resources from one pool is never visible to other pools.
  */
 public class MesosResourcePool {
     private static final Logger logger = LoggerFactory.getLogger(MesosResourcePool.class);
-    private Offer offer;
+
+    private final Offer offer;
+    private final Snapshot snapshot;
 
     /**
      * In practice this is always unreserved MOUNT volumes.
@@ -36,18 +43,27 @@ public class MesosResourcePool {
      *                     mem: 256
      * "slave_public" --> cpus: 1.0
      *                     mem: 128
+     * Any changes to scalar values are tracked separately, in {@link #scalarAdjustmentsByRole}.
      */
     private Map<String, Map<String, Value>> reservableMergedPoolByRole;
 
+    /**
+     * Maps pre-reserved roles to the net amounts of each scalar resource which have been freed (positive) or consumed
+     * (negative) from {@link #reservableMergedPoolByRole}. Scalars are the most commonly consumed resources, so they're
+     * adjusted in place rather than by building a new {@link Value} for each change.
+     */
+    private final Map<String, Map<String, ScalarAdjustment>> scalarAdjustmentsByRole = new HashMap<>();
+
     /**
      * Creates a new pool of resources based on what's available in the provided {@link Offer}.
      */
     public MesosResourcePool(Offer offer, Optional<String> role) {
         this.offer = offer;
-        final Collection<MesosResource> mesosResources = getMesosResources(offer, role);
-        this.unreservedAtomicPool = getUnreservedAtomicPool(mesosResources);
-        this.dynamicallyReservedPoolByResourceId = getDynamicallyReservedPool(mesosResources);
-        this.reservableMergedPoolByRole = getReservableMergedPool(mesosResources);
+        this.snapshot = OfferFacts.of(offer).getSnapshot(role, r -> new Snapshot(getMesosResources(offer, r)));
+        // Until they're modified, the pools are shared with any other pools for the same offer and role:
+        this.unreservedAtomicPool = snapshot.unreservedAtomicPool;
+        this.dynamicallyReservedPoolByResourceId = snapshot.dynamicallyReservedPoolByResourceId;
+        this.reservableMergedPoolByRole = snapshot.reservableMergedPoolByRole;
     }
 
     /**
@@ -62,14 +78,14 @@ public class MesosResourcePool {
      * example, a MOUNT volume cannot be partially consumed, it's all-or-nothing.
      */
     public Map<String, List<MesosResource>> getUnreservedAtomicPool() {
-        return unreservedAtomicPool;
+        return Collections.unmodifiableMap(unreservedAtomicPool);
     }
 
     /**
      * Returns the resources which were dynamically reserved.
      */
     public Map<String, MesosResource> getDynamicallyReservedPoolByResourceId() {
-        return dynamicallyReservedPoolByResourceId;
+        return Collections.unmodifiableMap(dynamicallyReservedPoolByResourceId);
     }
 
     /**
@@ -77,12 +93,19 @@ public class MesosResourcePool {
      * never reserved.
      */
     public Map<String, Map<String, Value>> getReservableMergedPoolByRole() {
-        return reservableMergedPoolByRole;
+        if (scalarAdjustmentsByRole.isEmpty()) {
+            return Collections.unmodifiableMap(reservableMergedPoolByRole);
+        }
+        Map<String, Map<String, Value>> poolByRole = new HashMap<>();
+        for (String role : getReservableRoles()) {
+            poolByRole.put(role, Collections.unmodifiableMap(getMergedPool(role)));
+        }
+        return Collections.unmodifiableMap(poolByRole);
     }
 
     public Map<String, Value> getUnreservedMergedPool() {
-        Map<String, Value> pool = reservableMergedPoolByRole.get(Constants.ANY_ROLE);
-        return pool == null ? Collections.emptyMap() : pool;
+        Map<String, Value> pool = getMergedPool(Constants.ANY_ROLE);
+        return pool.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(pool);
     }
 
     /**
@@ -98,7 +121,7 @@ public class MesosResourcePool {
         if (mesosResource != null) {
             if (mesosResource.isAtomic()) {
                 if (sufficientValue(value, mesosResource.getValue())) {
-                    dynamicallyReservedPoolByResourceId.remove(resourceId);
+                    getWritableDynamicallyReservedPool().remove(resourceId);
                 } else {
                     logger.warn("Reserved atomic quantity of {} is insufficient: desired {}, reserved {}",
                             name,
@@ -113,10 +136,10 @@ public class MesosResourcePool {
                     Resource remaining = ResourceBuilder.fromExistingResource(mesosResource.getResource())
                             .setValue(ValueUtils.subtract(availableValue, value))
                             .build();
-                    dynamicallyReservedPoolByResourceId.put(resourceId, new MesosResource(remaining));
+                    getWritableDynamicallyReservedPool().put(resourceId, new MesosResource(remaining));
                     // Return only the claimed resource amount from this reservation
                 } else {
-                    dynamicallyReservedPoolByResourceId.remove(resourceId);
+                    getWritableDynamicallyReservedPool().remove(resourceId);
                 }
             }
         } else {
@@ -146,9 +169,11 @@ public class MesosResourcePool {
         }
 
         if (filteredResources.isEmpty()) {
-            unreservedAtomicPool.remove(resourceName);
-        } else {
-            unreservedAtomicPool.put(resourceName, filteredResources);
+            if (atomicResources != null) {
+                getWritableAtomicPool().remove(resourceName);
+            }
+        } else if (sufficientResource.isPresent()) {
+            getWritableAtomicPool().put(resourceName, filteredResources);
         }
 
         if (!sufficientResource.isPresent()) {
@@ -167,28 +192,35 @@ public class MesosResourcePool {
 
     public Optional<MesosResource> consumeReservableMerged(String name, Value desiredValue, String preReservedRole) {
         Map<String, Value> pool = reservableMergedPoolByRole.get(preReservedRole);
-        if (pool == null) {
+        Map<String, ScalarAdjustment> adjustments = scalarAdjustmentsByRole.get(preReservedRole);
+        if (pool == null && adjustments == null) {
             logger.info("No unreserved resources available for role '{}'. Reservable roles are: {}",
-                    preReservedRole, reservableMergedPoolByRole.keySet());
+                    preReservedRole, getReservableRoles());
             return Optional.empty();
         }
 
-        Value availableValue = pool.get(name);
-
-        if (sufficientValue(desiredValue, availableValue)) {
-            pool.put(name, ValueUtils.subtract(availableValue, desiredValue));
-            reservableMergedPoolByRole.put(preReservedRole, pool);
-
-            Resource.Builder builder = ResourceBuilder.fromUnreservedValue(name, desiredValue).build().toBuilder();
-            if (Capabilities.getInstance().supportsPreReservedResources() &&
-                    !preReservedRole.equals(Constants.ANY_ROLE)) {
-                builder.addReservations(
-                        Resource.ReservationInfo.newBuilder()
-                                .setRole(preReservedRole)
-                                .setType(Resource.ReservationInfo.Type.STATIC));
+        Value availableValue = pool == null ? null : pool.get(name);
+        if (desiredValue.getType() == Value.Type.SCALAR
+                && (availableValue == null || availableValue.getType() == Value.Type.SCALAR)) {
+            ScalarAdjustment adjustment = adjustments == null ? null : adjustments.get(name);
+            if (availableValue == null && adjustment == null) {
+                logger.info("Offer lacks any unreserved {} resources for role {}", name, preReservedRole);
+                return Optional.empty();
             }
+            double availableAmount = getScalarAmount(availableValue, adjustment);
+            double desiredAmount = desiredValue.getScalar().getValue();
+            if (desiredAmount - availableAmount > 0) {
+                logger.info("Offered quantity of {} for role {} is insufficient: desired {}, offered {}",
+                        name, preReservedRole, desiredAmount, availableAmount);
+                return Optional.empty();
+            }
+            getWritableScalarAdjustment(preReservedRole, name).amount -= desiredAmount;
+            return Optional.of(new MesosResource(getReservableResource(name, desiredValue, preReservedRole)));
+        }
 
-            return Optional.of(new MesosResource(builder.build()));
+        if (sufficientValue(desiredValue, availableValue)) {
+            getWritableMergedPool(preReservedRole).put(name, ValueUtils.subtract(availableValue, desiredValue));
+            return Optional.of(new MesosResource(getReservableResource(name, desiredValue, preReservedRole)));
         } else {
             if (availableValue == null) {
                 logger.info("Offer lacks any unreserved {} resources for role {}", name, preReservedRole);
@@ -216,17 +248,18 @@ public class MesosResourcePool {
 
     private void freeMergedResource(MesosResource mesosResource) {
         if (mesosResource.getResourceId().isPresent()) {
-            dynamicallyReservedPoolByResourceId.remove(mesosResource.getResourceId().get());
+            getWritableDynamicallyReservedPool().remove(mesosResource.getResourceId().get());
             logger.info("Freed resource: {}", !dynamicallyReservedPoolByResourceId
                     .containsKey(mesosResource.getResourceId().get()));
         }
 
-        String previousRole = mesosResource.getPreviousRole();
-        Map<String, Value> pool = reservableMergedPoolByRole.get(previousRole);
-        if (pool == null) {
-            pool = new HashMap<>();
+        if (mesosResource.getType() == Value.Type.SCALAR) {
+            getWritableScalarAdjustment(mesosResource.getPreviousRole(), mesosResource.getName()).amount +=
+                    mesosResource.getValue().getScalar().getValue();
+            return;
         }
 
+        Map<String, Value> pool = getWritableMergedPool(mesosResource.getPreviousRole());
         Value currValue = pool.get(mesosResource.getName());
         if (currValue == null) {
             currValue = ValueUtils.getZero(mesosResource.getType());
@@ -234,7 +267,6 @@ public class MesosResourcePool {
 
         Value updatedValue = ValueUtils.add(currValue, mesosResource.getValue());
         pool.put(mesosResource.getName(), updatedValue);
-        reservableMergedPoolByRole.put(previousRole, pool);
     }
 
     @SuppressWarnings("deprecation")
@@ -252,13 +284,112 @@ public class MesosResourcePool {
 
         Resource releasedResource = resBuilder.build();
 
-        List<MesosResource> resList = unreservedAtomicPool.get(mesosResource.getName());
-        if (resList == null) {
-            resList = new ArrayList<MesosResource>();
+        List<MesosResource> resList = new ArrayList<>();
+        List<MesosResource> currList = unreservedAtomicPool.get(mesosResource.getName());
+        if (currList != null) {
+            // The current list may be shared with other pools, so the update is made to a copy:
+            resList.addAll(currList);
         }
 
         resList.add(new MesosResource(releasedResource));
-        unreservedAtomicPool.put(mesosResource.getName(), resList);
+        getWritableAtomicPool().put(mesosResource.getName(), resList);
+    }
+
+    /**
+     * Returns the atomic pool for modification, first copying it if it's still shared with other pools.
+     */
+    private Map<String, List<MesosResource>> getWritableAtomicPool() {
+        if (unreservedAtomicPool == snapshot.unreservedAtomicPool) {
+            unreservedAtomicPool = new HashMap<>(unreservedAtomicPool);
+        }
+        return unreservedAtomicPool;
+    }
+
+    /**
+     * Returns the dynamically reserved pool for modification, first copying it if it's still shared with other pools.
+     */
+    private Map<String, MesosResource> getWritableDynamicallyReservedPool() {
+        if (dynamicallyReservedPoolByResourceId == snapshot.dynamicallyReservedPoolByResourceId) {
+            dynamicallyReservedPoolByResourceId = new HashMap<>(dynamicallyReservedPoolByResourceId);
+        }
+        return dynamicallyReservedPoolByResourceId;
+    }
+
+    /**
+     * Returns the merged pool for the provided role for modification, creating it if it doesn't exist. The pool and the
+     * map of roles are first copied if they're still shared with other pools. Pools for other roles remain shared.
+     */
+    private Map<String, Value> getWritableMergedPool(String role) {
+        if (reservableMergedPoolByRole == snapshot.reservableMergedPoolByRole) {
+            reservableMergedPoolByRole = new HashMap<>(reservableMergedPoolByRole);
+        }
+        Map<String, Value> pool = reservableMergedPoolByRole.get(role);
+        if (pool == null || pool == snapshot.reservableMergedPoolByRole.get(role)) {
+            pool = pool == null ? new HashMap<>() : new HashMap<>(pool);
+            reservableMergedPoolByRole.put(role, pool);
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the adjustment to the provided scalar resource for the provided role for modification, creating it if it
+     * doesn't exist. Adjustments are never shared with other pools.
+     */
+    private ScalarAdjustment getWritableScalarAdjustment(String role, String name) {
+        Map<String, ScalarAdjustment> adjustments = scalarAdjustmentsByRole.get(role);
+        if (adjustments == null) {
+            adjustments = new HashMap<>();
+            scalarAdjustmentsByRole.put(role, adjustments);
+        }
+        ScalarAdjustment adjustment = adjustments.get(name);
+        if (adjustment == null) {
+            adjustment = new ScalarAdjustment();
+            adjustments.put(name, adjustment);
+        }
+        return adjustment;
+    }
+
+    /**
+     * Returns the merged pool for the provided role with any scalar adjustments applied, or an empty map if the role
+     * has no merged resources. The returned map may be shared, and must not be modified.
+     */
+    private Map<String, Value> getMergedPool(String role) {
+        Map<String, Value> pool = reservableMergedPoolByRole.get(role);
+        Map<String, ScalarAdjustment> adjustments = scalarAdjustmentsByRole.get(role);
+        if (adjustments == null) {
+            return pool == null ? Collections.emptyMap() : pool;
+        }
+        Map<String, Value> adjustedPool = pool == null ? new HashMap<>() : new HashMap<>(pool);
+        for (Map.Entry<String, ScalarAdjustment> entry : adjustments.entrySet()) {
+            double amount = getScalarAmount(adjustedPool.get(entry.getKey()), entry.getValue());
+            adjustedPool.put(entry.getKey(), Value.newBuilder()
+                    .setType(Value.Type.SCALAR)
+                    .setScalar(Value.Scalar.newBuilder().setValue(amount))
+                    .build());
+        }
+        return adjustedPool;
+    }
+
+    private Set<String> getReservableRoles() {
+        Set<String> roles = new TreeSet<>(reservableMergedPoolByRole.keySet());
+        roles.addAll(scalarAdjustmentsByRole.keySet());
+        return roles;
+    }
+
+    private static double getScalarAmount(Value value, ScalarAdjustment adjustment) {
+        return (value == null ? 0 : value.getScalar().getValue()) + (adjustment == null ? 0 : adjustment.amount);
+    }
+
+    private static Resource getReservableResource(String name, Value value, String preReservedRole) {
+        Resource.Builder builder = ResourceBuilder.fromUnreservedValue(name, value).build().toBuilder();
+        if (Capabilities.getInstance().supportsPreReservedResources() &&
+                !preReservedRole.equals(Constants.ANY_ROLE)) {
+            builder.addReservations(
+                    Resource.ReservationInfo.newBuilder()
+                            .setRole(preReservedRole)
+                            .setType(Resource.ReservationInfo.Type.STATIC));
+        }
+        return builder.build();
     }
 
     private static boolean sufficientValue(Value desired, Value available) {
@@ -266,6 +397,12 @@ public class MesosResourcePool {
             return true;
         } else if (available == null) {
             return false;
+        } else if (desired.getType() == Value.Type.SCALAR && available.getType() == Value.Type.SCALAR) {
+            // Equivalent to the comparison below, without creating intermediate values:
+            return desired.getScalar().getValue() - available.getScalar().getValue() <= 0;
+        } else if (desired.getType() == Value.Type.RANGES && available.getType() == Value.Type.RANGES) {
+            return LongIntervalSet.fromRanges(available.getRanges().getRangeList())
+                    .containsAll(LongIntervalSet.fromRanges(desired.getRanges().getRangeList()));
         }
 
         Value difference = ValueUtils.subtract(desired, available);
@@ -326,7 +463,7 @@ public class MesosResourcePool {
         return reservedPool;
     }
 
-    private Map<String, Map<String, Value>> getReservableMergedPool(Collection<MesosResource> mesosResources) {
+    private static Map<String, Map<String, Value>> getReservableMergedPool(Collection<MesosResource> mesosResources) {
         Map<String, List<MesosResource>> rolePool = new HashMap<>();
         for (MesosResource mesosResource : getMergedResources(mesosResources)) {
             if (!mesosResource.hasResourceId()) {
@@ -408,4 +545,37 @@ public class MesosResourcePool {
 
         return mergedResources;
     }
+
+    /**
+     * The net change to a scalar resource within a single pool.
+     */
+    private static final class ScalarAdjustment {
+        private double amount;
+    }
+
+    /**
+     * The classified resources of an offer for a given role, which are shared by all pools for that offer and role.
+     */
+    static final class Snapshot {
+        private final Map<String, List<MesosResource>> unreservedAtomicPool;
+        private final Map<String, MesosResource> dynamicallyReservedPoolByResourceId;
+        private final Map<String, Map<String, Value>> reservableMergedPoolByRole;
+
+        private Snapshot(Collection<MesosResource> mesosResources) {
+            Map<String, List<MesosResource>> atomicPool = new HashMap<>();
+            for (Map.Entry<String, List<MesosResource>> entry : getUnreservedAtomicPool(mesosResources).entrySet()) {
+                atomicPool.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+            this.unreservedAtomicPool = Collections.unmodifiableMap(atomicPool);
+
+            this.dynamicallyReservedPoolByResourceId =
+                    Collections.unmodifiableMap(getDynamicallyReservedPool(mesosResources));
+
+            Map<String, Map<String, Value>> mergedPool = new HashMap<>();
+            for (Map.Entry<String, Map<String, Value>> entry : getReservableMergedPool(mesosResources).entrySet()) {
+                mergedPool.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+            }
+            this.reservableMergedPoolByRole = Collections.unmodifiableMap(mergedPool);
+        }
+    }
 }
@@ -87,10 +87,11 @@ public class OfferAccepter {
     }
 
     private static List<OfferID> getOfferIds(List<OfferRecommendation> recommendations) {
-        Set<OfferID> offerIdSet = new HashSet<>();
+        // An offer which was coalesced from several offers for an agent is accepted under all of the original IDs:
+        Set<OfferID> offerIdSet = new LinkedHashSet<>();
 
         for (OfferRecommendation recommendation : recommendations) {
-            offerIdSet.add(recommendation.getOffer().getId());
+            offerIdSet.addAll(OfferFacts.of(recommendation.getOffer()).getOfferIds());
         }
 
         return new ArrayList<>(offerIdSet);
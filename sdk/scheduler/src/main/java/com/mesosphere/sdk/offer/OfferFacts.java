@@ -0,0 +1,165 @@
+package com.mesosphere.sdk.offer;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.mesosphere.sdk.offer.taskdata.AttributeStringUtils;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.OfferID;
+import org.apache.mesos.Protos.Resource;
+import org.apache.mesos.Protos.Value;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Values derived from an {@link Offer} which are computed once per offer and then shared by every evaluation of that
+ * offer, e.g. for each pod which is evaluated against the offer during an offer cycle.
+ * <p>
+ * Facts are looked up by the identity of the {@link Offer} object rather than by comparing offer contents, and are
+ * retained for as long as the {@link Offer} object itself is reachable. To allow the offer to be released, the facts
+ * must never reference the offer.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class OfferFacts {
+
+    private static final LoadingCache<Offer, OfferFacts> FACTS_BY_OFFER = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<Offer, OfferFacts>() {
+                @Override
+                public OfferFacts load(Offer offer) {
+                    return new OfferFacts(offer);
+                }
+            });
+
+    private final List<String> attributeStrings;
+    private final Map<String, Double> scalarTotals = new HashMap<>();
+    private final int mountVolumeCount;
+    private final long portCount;
+    private final ConcurrentMap<Optional<String>, MesosResourcePool.Snapshot> snapshotsByRole =
+            new ConcurrentHashMap<>();
+    private final Map<Object, Object> valuesByKey = new IdentityHashMap<>();
+    private volatile List<OfferID> offerIds;
+
+    private OfferFacts(Offer offer) {
+        this.offerIds = Collections.singletonList(offer.getId());
+        this.attributeStrings = Collections.unmodifiableList(offer.getAttributesList().stream()
+                .map(AttributeStringUtils::toString)
+                .collect(Collectors.toList()));
+
+        int mountVolumeCount = 0;
+        long portCount = 0;
+        for (Resource resource : offer.getResourcesList()) {
+            switch (resource.getType()) {
+            case SCALAR:
+                scalarTotals.merge(resource.getName(), resource.getScalar().getValue(), Double::sum);
+                if (resource.hasDisk()
+                        && resource.getDisk().hasSource()
+                        && resource.getDisk().getSource().getType() == Resource.DiskInfo.Source.Type.MOUNT) {
+                    mountVolumeCount++;
+                }
+                break;
+            case RANGES:
+                if (resource.getName().equals(Constants.PORTS_RESOURCE_TYPE)) {
+                    for (Value.Range range : resource.getRanges().getRangeList()) {
+                        portCount += range.getEnd() - range.getBegin() + 1;
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        this.mountVolumeCount = mountVolumeCount;
+        this.portCount = portCount;
+    }
+
+    /**
+     * Returns the facts for the provided offer.
+     */
+    public static OfferFacts of(Offer offer) {
+        return FACTS_BY_OFFER.getUnchecked(offer);
+    }
+
+    /**
+     * Returns the string representations of the offer's attributes.
+     *
+     * @see AttributeStringUtils#toString(org.apache.mesos.Protos.Attribute)
+     */
+    public List<String> getAttributeStrings() {
+        return attributeStrings;
+    }
+
+    /**
+     * Returns the total amount of the named scalar resource in the offer, regardless of role or reservation.
+     */
+    public double getScalarTotal(String name) {
+        Double total = scalarTotals.get(name);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * Returns the number of MOUNT volumes in the offer, regardless of role or reservation.
+     */
+    public int getMountVolumeCount() {
+        return mountVolumeCount;
+    }
+
+    /**
+     * Returns the total number of ports in the offer, regardless of role or reservation.
+     */
+    public long getPortCount() {
+        return portCount;
+    }
+
+    /**
+     * Returns the IDs of the offers which must be accepted or declined together in order to use the offer's resources.
+     * This is only the offer's own ID, unless the offer was coalesced from several offers for the same agent.
+     *
+     * @see OfferUtils#coalesceByAgent(List)
+     */
+    public List<OfferID> getOfferIds() {
+        return offerIds;
+    }
+
+    /**
+     * Records the IDs of the offers which the offer was coalesced from.
+     */
+    void setOfferIds(List<OfferID> offerIds) {
+        this.offerIds = Collections.unmodifiableList(new ArrayList<>(offerIds));
+    }
+
+    /**
+     * Returns the value which was computed for the provided key, invoking the provided supplier the first time that the
+     * key is seen. Keys are compared by identity. The value must only depend on the offer and the key.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getValue(Object key, Supplier<T> supplier) {
+        synchronized (valuesByKey) {
+            Object value = valuesByKey.get(key);
+            if (value != null) {
+                return (T) value;
+            }
+        }
+        // Compute without holding the lock. Concurrent computations for the same key produce equivalent values.
+        T value = supplier.get();
+        synchronized (valuesByKey) {
+            valuesByKey.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the classified resources of the offer for the provided role, creating them with the provided function
+     * the first time that the role is seen.
+     */
+    MesosResourcePool.Snapshot getSnapshot(
+            Optional<String> role, Function<Optional<String>, MesosResourcePool.Snapshot> snapshotFunction) {
+        return snapshotsByRole.computeIfAbsent(role, snapshotFunction);
+    }
+}
@@ -6,8 +6,11 @@ import org.apache.mesos.SchedulerDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -46,6 +49,56 @@ public class OfferUtils {
                 .anyMatch(acceptedOfferId -> acceptedOfferId.equals(offer.getId()));
     }
 
+    /**
+     * Coalesces the offers for each agent into a single offer, so that a pod may be placed using resources which Mesos
+     * split across several offers for the same agent. The coalesced offer has the ID and attributes of the agent's
+     * first offer, and the resources of all of the agent's offers. The IDs of the original offers are available via
+     * {@link OfferFacts#getOfferIds()}, and must all be passed to Mesos when the coalesced offer is accepted. Agents
+     * with a single offer keep that offer as-is.
+     *
+     * @param offers The offers to be coalesced, in the order in which they should be evaluated
+     * @return One offer per agent, ordered by each agent's first offer
+     */
+    public static List<Protos.Offer> coalesceByAgent(List<Protos.Offer> offers) {
+        Map<Protos.SlaveID, List<Protos.Offer>> offersByAgent = new LinkedHashMap<>();
+        for (Protos.Offer offer : offers) {
+            offersByAgent.computeIfAbsent(offer.getSlaveId(), agentId -> new ArrayList<>()).add(offer);
+        }
+        if (offersByAgent.size() == offers.size()) {
+            return offers;
+        }
+
+        List<Protos.Offer> coalescedOffers = new ArrayList<>(offersByAgent.size());
+        for (List<Protos.Offer> agentOffers : offersByAgent.values()) {
+            if (agentOffers.size() == 1) {
+                coalescedOffers.add(agentOffers.get(0));
+                continue;
+            }
+            Protos.Offer.Builder builder = agentOffers.get(0).toBuilder();
+            List<Protos.OfferID> offerIds = new ArrayList<>(agentOffers.size());
+            offerIds.add(builder.getId());
+            for (Protos.Offer offer : agentOffers.subList(1, agentOffers.size())) {
+                builder.addAllResources(offer.getResourcesList());
+                offerIds.add(offer.getId());
+            }
+            Protos.Offer coalescedOffer = builder.build();
+            OfferFacts.of(coalescedOffer).setOfferIds(offerIds);
+            coalescedOffers.add(coalescedOffer);
+        }
+        return coalescedOffers;
+    }
+
+    /**
+     * Returns the IDs of the original offers which make up each of the provided offers.
+     *
+     * @see #coalesceByAgent(List)
+     */
+    public static List<Protos.OfferID> getOriginalOfferIds(Collection<Protos.Offer> offers) {
+        return offers.stream()
+                .flatMap(offer -> OfferFacts.of(offer).getOfferIds().stream())
+                .collect(Collectors.toList());
+    }
+
     public static void declineShort(SchedulerDriver driver, Collection<Protos.Offer> unusedOffers) {
         OfferUtils.declineOffers(driver, unusedOffers, Constants.SHORT_DECLINE_SECONDS);
         Metrics.incrementDeclinesShort(unusedOffers.size());
@@ -129,12 +129,12 @@ public class ValueUtils {
     }
 
     private static Integer compare(Value.Ranges ranges1, Value.Ranges ranges2) {
-        List<Range> list1 = ranges1.getRangeList();
-        List<Range> list2 = ranges2.getRangeList();
+        LongIntervalSet set1 = LongIntervalSet.fromRanges(ranges1.getRangeList());
+        LongIntervalSet set2 = LongIntervalSet.fromRanges(ranges2.getRangeList());
 
-        if (RangeUtils.rangesEqual(list1, list2)) {
+        if (set1.equals(set2)) {
             return 0;
-        } else if (RangeUtils.subtractRanges(list1, list2).size() == 0) {
+        } else if (set2.containsAll(set1)) {
             return -1;
         } else {
             return 1;
@@ -0,0 +1,196 @@
+package com.mesosphere.sdk.offer.evaluate;
+
+import com.mesosphere.sdk.offer.Constants;
+import com.mesosphere.sdk.offer.OfferFacts;
+import com.mesosphere.sdk.scheduler.plan.PodInstanceRequirement;
+import com.mesosphere.sdk.specification.PortSpec;
+import com.mesosphere.sdk.specification.ResourceSet;
+import com.mesosphere.sdk.specification.ResourceSpec;
+import com.mesosphere.sdk.specification.TaskSpec;
+import com.mesosphere.sdk.specification.VolumeSpec;
+import org.apache.mesos.Protos;
+
+import java.util.*;
+
+/**
+ * A conservative check of whether an offer could possibly satisfy a pod's resource requirements, which is made before
+ * the offer is evaluated by the full {@link OfferEvaluationStage} pipeline.
+ * <p>
+ * The scalar resources, MOUNT volumes, and host ports required by the tasks being launched are compared against the
+ * totals in the offer, regardless of role or reservation. An offer which is rejected by this check would also be
+ * rejected by the evaluation pipeline, while an offer which passes this check may still be rejected by the pipeline.
+ * <p>
+ * The requirements are computed once per filter, and the totals of each offer are taken from its {@link OfferFacts}, so
+ * checking an offer doesn't need to examine its resources.
+ */
+final class AggregateResourceFilter {
+
+    /**
+     * Mesos scalars have three decimal digits of precision. Sums within this tolerance of the requirement are allowed
+     * through, so that rounding errors in the sums never reject an offer which the pipeline would accept.
+     */
+    private static final double SCALAR_TOLERANCE = 0.001;
+
+    /**
+     * The reason that an offer was rejected by the filter.
+     */
+    static final class Shortfall {
+        private final String resourceName;
+        private final String description;
+
+        private Shortfall(String resourceName, String description) {
+            this.resourceName = resourceName;
+            this.description = description;
+        }
+
+        /**
+         * Returns the name of the insufficient resource, e.g. {@code cpus}, {@code ports}, or {@code mount_volumes}.
+         */
+        String getResourceName() {
+            return resourceName;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private final String[] scalarNames;
+    private final double[] scalarAmounts;
+    private final int mountVolumeCount;
+    private final long portCount;
+
+    private AggregateResourceFilter(Collection<ResourceSet> resourceSets) {
+        Map<String, Double> scalars = new TreeMap<>();
+        int mountVolumeCount = 0;
+        Set<Long> staticPorts = new HashSet<>();
+        long dynamicPortCount = 0;
+        for (ResourceSet resourceSet : resourceSets) {
+            Requirements requirements = new Requirements(resourceSet);
+            for (int i = 0; i < requirements.scalarNames.length; ++i) {
+                scalars.merge(requirements.scalarNames[i], requirements.scalarAmounts[i], Double::sum);
+            }
+            mountVolumeCount += requirements.mountVolumeCount;
+            staticPorts.addAll(requirements.staticPorts);
+            dynamicPortCount += requirements.dynamicPortCount;
+        }
+
+        this.scalarNames = scalars.keySet().toArray(new String[scalars.size()]);
+        this.scalarAmounts = new double[scalarNames.length];
+        for (int i = 0; i < scalarNames.length; ++i) {
+            scalarAmounts[i] = scalars.get(scalarNames[i]);
+        }
+        this.mountVolumeCount = mountVolumeCount;
+        this.portCount = staticPorts.size() + dynamicPortCount;
+    }
+
+    /**
+     * Returns a filter for the resources required by the tasks being launched by the provided requirement. Only the
+     * resource sets of those tasks are counted, as the resources of other tasks in the pod may already be in use.
+     */
+    static AggregateResourceFilter create(PodInstanceRequirement podInstanceRequirement) {
+        Map<String, ResourceSet> resourceSetsById = new HashMap<>();
+        for (TaskSpec taskSpec : podInstanceRequirement.getPodInstance().getPod().getTasks()) {
+            if (podInstanceRequirement.getTasksToLaunch().contains(taskSpec.getName())) {
+                resourceSetsById.put(taskSpec.getResourceSet().getId(), taskSpec.getResourceSet());
+            }
+        }
+        return new AggregateResourceFilter(resourceSetsById.values());
+    }
+
+    /**
+     * Returns the first resource which the offer lacks a sufficient total amount of, or an empty result if the offer
+     * may be sufficient.
+     */
+    Optional<Shortfall> getShortfall(Protos.Offer offer) {
+        OfferFacts offerFacts = OfferFacts.of(offer);
+        double[] offeredScalars = new double[scalarNames.length];
+        for (int i = 0; i < scalarNames.length; ++i) {
+            offeredScalars[i] = offerFacts.getScalarTotal(scalarNames[i]);
+        }
+        int offeredMountVolumes = offerFacts.getMountVolumeCount();
+        long offeredPorts = offerFacts.getPortCount();
+
+        for (int i = 0; i < scalarNames.length; ++i) {
+            if (offeredScalars[i] + SCALAR_TOLERANCE < scalarAmounts[i]) {
+                return Optional.of(new Shortfall(scalarNames[i], String.format(
+                        "Offer has %s total %s, while the pod requires at least %s",
+                        offeredScalars[i], scalarNames[i], scalarAmounts[i])));
+            }
+        }
+        if (offeredMountVolumes < mountVolumeCount) {
+            return Optional.of(new Shortfall("mount_volumes", String.format(
+                    "Offer has %d MOUNT volumes, while the pod requires at least %d",
+                    offeredMountVolumes, mountVolumeCount)));
+        }
+        if (offeredPorts < portCount) {
+            return Optional.of(new Shortfall(Constants.PORTS_RESOURCE_TYPE, String.format(
+                    "Offer has %d total ports, while the pod requires at least %d",
+                    offeredPorts, portCount)));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Double> scalars = new TreeMap<>();
+        for (int i = 0; i < scalarNames.length; ++i) {
+            scalars.put(scalarNames[i], scalarAmounts[i]);
+        }
+        return String.format("AggregateResourceFilter{scalars=%s, mountVolumes=%d, ports=%d}",
+                scalars, mountVolumeCount, portCount);
+    }
+
+    /**
+     * The aggregate requirements of a single {@link ResourceSet}.
+     */
+    private static final class Requirements {
+        private final String[] scalarNames;
+        private final double[] scalarAmounts;
+        private final int mountVolumeCount;
+        private final Collection<Long> staticPorts;
+        private final long dynamicPortCount;
+
+        private Requirements(ResourceSet resourceSet) {
+            Map<String, Double> scalars = new TreeMap<>();
+            Collection<Long> staticPorts = new HashSet<>();
+            long dynamicPortCount = 0;
+            for (ResourceSpec resourceSpec : resourceSet.getResources()) {
+                addScalar(scalars, resourceSpec);
+                if (resourceSpec instanceof PortSpec
+                        && PortEvaluationStage.requireHostPorts(((PortSpec) resourceSpec).getNetworkNames())) {
+                    long port = ((PortSpec) resourceSpec).getPort();
+                    if (port == 0) {
+                        dynamicPortCount++;
+                    } else {
+                        staticPorts.add(port);
+                    }
+                }
+            }
+            int mountVolumeCount = 0;
+            for (VolumeSpec volumeSpec : resourceSet.getVolumes()) {
+                addScalar(scalars, volumeSpec);
+                if (volumeSpec.getType() == VolumeSpec.Type.MOUNT) {
+                    mountVolumeCount++;
+                }
+            }
+
+            this.scalarNames = scalars.keySet().toArray(new String[scalars.size()]);
+            this.scalarAmounts = new double[scalarNames.length];
+            for (int i = 0; i < scalarNames.length; ++i) {
+                scalarAmounts[i] = scalars.get(scalarNames[i]);
+            }
+            this.mountVolumeCount = mountVolumeCount;
+            this.staticPorts = staticPorts;
+            this.dynamicPortCount = dynamicPortCount;
+        }
+
+        private static void addScalar(Map<String, Double> scalars, ResourceSpec resourceSpec) {
+            Protos.Value value = resourceSpec.getValue();
+            if (value.getType() == Protos.Value.Type.SCALAR) {
+                scalars.merge(resourceSpec.getName(), value.getScalar().getValue(), Double::sum);
+            }
+        }
+    }
+}
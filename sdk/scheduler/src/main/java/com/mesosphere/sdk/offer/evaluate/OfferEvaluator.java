@@ -3,9 +3,12 @@ package com.mesosphere.sdk.offer.evaluate;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.TextFormat;
 import com.mesosphere.sdk.offer.*;
+import com.mesosphere.sdk.offer.evaluate.placement.CompiledPlacementRule;
+import com.mesosphere.sdk.offer.evaluate.placement.PlacementRule;
 import com.mesosphere.sdk.offer.history.OfferOutcome;
 import com.mesosphere.sdk.offer.history.OfferOutcomeTracker;
 import com.mesosphere.sdk.offer.taskdata.TaskLabelReader;
+import com.mesosphere.sdk.scheduler.Metrics;
 import com.mesosphere.sdk.scheduler.SchedulerConfig;
 import com.mesosphere.sdk.scheduler.plan.PodInstanceRequirement;
 import com.mesosphere.sdk.scheduler.recovery.FailureUtils;
@@ -13,12 +16,15 @@ import com.mesosphere.sdk.scheduler.recovery.RecoveryType;
 import com.mesosphere.sdk.specification.*;
 import com.mesosphere.sdk.state.GoalStateOverride;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.TaskStateIndex;
 import org.apache.mesos.Protos;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -36,6 +42,13 @@ public class OfferEvaluator {
     private final UUID targetConfigId;
     private final SchedulerConfig schedulerConfig;
     private final boolean useDefaultExecutor;
+    private final OfferSelectionPolicy selectionPolicy;
+
+    // Created on first use, then reused so that its cached secret names are retained across evaluations:
+    private TLSEvaluationStage.Builder tlsStageBuilder;
+    // Compiled placement rules, keyed by the rule which was compiled. Compiled rules are stateless, so they may be
+    // shared across evaluations and threads:
+    private final Map<PlacementRule, CompiledPlacementRule> compiledPlacementRules = new ConcurrentHashMap<>();
 
     public OfferEvaluator(
             StateStore stateStore,
@@ -50,12 +63,48 @@ public class OfferEvaluator {
         this.targetConfigId = targetConfigId;
         this.schedulerConfig = schedulerConfig;
         this.useDefaultExecutor = useDefaultExecutor;
+        this.selectionPolicy = schedulerConfig.getOfferSelectionPolicy();
     }
 
     public List<OfferRecommendation> evaluate(PodInstanceRequirement podInstanceRequirement, List<Protos.Offer> offers)
             throws InvalidRequirementException, IOException {
-        // All tasks in the service (used by some PlacementRules):
-        Map<String, Protos.TaskInfo> allTasks = stateStore.fetchTasks().stream()
+        return evaluate(podInstanceRequirement, offers, Runnable::run);
+    }
+
+    /**
+     * Evaluates the provided offers as {@link #evaluate(PodInstanceRequirement, List)} does, but without recording
+     * anything about the offers: the outcomes, metrics, and per-offer log messages are held by the returned result,
+     * and only take effect if it's passed to {@link #commit(SpeculativeEvaluation)}. This allows a result which was
+     * computed speculatively to be discarded without a trace.
+     */
+    public SpeculativeEvaluation evaluateSpeculatively(
+            PodInstanceRequirement podInstanceRequirement, List<Protos.Offer> offers)
+            throws InvalidRequirementException, IOException {
+        List<Runnable> effects = new ArrayList<>();
+        List<OfferRecommendation> recommendations = evaluate(podInstanceRequirement, offers, effects::add);
+        return new SpeculativeEvaluation(recommendations, effects);
+    }
+
+    /**
+     * Records the outcomes of the provided speculative evaluation, and returns its recommendations.
+     */
+    public List<OfferRecommendation> commit(SpeculativeEvaluation evaluation) {
+        evaluation.effects.forEach(Runnable::run);
+        return evaluation.recommendations;
+    }
+
+    /**
+     * Evaluates the provided offers, passing anything which records the outcome of an offer to {@code recorder}.
+     */
+    private List<OfferRecommendation> evaluate(
+            PodInstanceRequirement podInstanceRequirement,
+            List<Protos.Offer> offers,
+            Consumer<Runnable> recorder) throws InvalidRequirementException, IOException {
+        TaskStateIndex taskStateIndex = stateStore.getTaskStateIndex();
+        // All tasks in the service (used by some PlacementRules, which may consult the index carried by the
+        // collection):
+        Collection<Protos.TaskInfo> indexedTasks = taskStateIndex.getTasksWithPlacementIndex();
+        Map<String, Protos.TaskInfo> allTasks = indexedTasks.stream()
                 .collect(Collectors.toMap(Protos.TaskInfo::getName, Function.identity()));
         // Preexisting tasks for this pod (if any):
         Map<String, Protos.TaskInfo> thisPodTasks =
@@ -66,7 +115,7 @@ public class OfferEvaluator {
 
         boolean noTasksRunning = thisPodTasks.values().stream()
                 .map(taskInfo -> taskInfo.getName())
-                .map(taskName -> stateStore.fetchStatus(taskName))
+                .map(taskName -> taskStateIndex.getStatus(taskName))
                 .filter(Optional::isPresent)
                 .map(taskStatus -> taskStatus.get())
                 .noneMatch(taskStatus -> taskStatus.getState().equals(Protos.TaskState.TASK_RUNNING));
@@ -82,87 +131,319 @@ public class OfferEvaluator {
             executorInfo = Optional.of(execInfoBuilder.build());
         }
 
-        for (int i = 0; i < offers.size(); ++i) {
-            List<OfferEvaluationStage> evaluationStages =
-                    getEvaluationPipeline(podInstanceRequirement, allTasks.values(), thisPodTasks, executorInfo);
+        Map<TaskSpec, GoalStateOverride> overrideMap = new HashMap<>();
+        for (TaskSpec taskSpec : podInstanceRequirement.getPodInstance().getPod().getTasks()) {
+            GoalStateOverride override =
+                    taskStateIndex.getGoalOverrideStatus(
+                            TaskSpec.getInstanceName(podInstanceRequirement.getPodInstance(), taskSpec))
+                            .target;
+
+            overrideMap.put(taskSpec, override);
+        }
 
+        // Compiled once for all offers:
+        Optional<CompiledPlacementRule> placementRule = getCompiledPlacementRule(podInstanceRequirement);
+        AggregateResourceFilter resourceFilter = AggregateResourceFilter.create(podInstanceRequirement);
+        // Counted once for all offers, and only if the policy needs them:
+        Map<Optional<String>, Integer> podTasksByZone = selectionPolicy == OfferSelectionPolicy.SPREAD_BY_ZONE
+                ? OfferSelectionPolicy.getTasksByZone(podInstanceRequirement.getPodInstance(), indexedTasks)
+                : Collections.emptyMap();
+        List<ScoredOffer> passingOffers = new ArrayList<>();
+        for (int i = 0; i < offers.size(); ++i) {
             Protos.Offer offer = offers.get(i);
 
-            MesosResourcePool resourcePool = new MesosResourcePool(
-                    offer,
-                    OfferEvaluationUtils.getRole(podInstanceRequirement.getPodInstance().getPod()));
+            Optional<AggregateResourceFilter.Shortfall> shortfall = resourceFilter.getShortfall(offer);
+            if (shortfall.isPresent()) {
+                int index = i;
+                recorder.accept(() -> {
+                    logger.info("Offer {}, {}: skipped evaluation stages: {}",
+                            index + 1, offer.getId().getValue(), shortfall.get());
+                    Metrics.incrementOfferPrefilterSkips(shortfall.get().getResourceName());
+                    offerOutcomeTracker.track(new OfferOutcome(
+                            podInstanceRequirement.getName(),
+                            false,
+                            offer,
+                            shortfall.get().toString()));
+                });
+                continue;
+            }
+            recorder.accept(Metrics::incrementOfferPrefilterPasses);
 
-            Map<TaskSpec, GoalStateOverride> overrideMap = new HashMap<>();
-            for (TaskSpec taskSpec : podInstanceRequirement.getPodInstance().getPod().getTasks()) {
-                GoalStateOverride override =
-                        stateStore.fetchGoalOverrideStatus(
-                                TaskSpec.getInstanceName(podInstanceRequirement.getPodInstance(), taskSpec))
-                                .target;
+            List<OfferEvaluationStage> evaluationStages =
+                    getEvaluationPipeline(
+                            podInstanceRequirement, indexedTasks, thisPodTasks, executorInfo, placementRule);
+
+            if (selectionPolicy == OfferSelectionPolicy.FIRST_FIT) {
+                StageResults results = evaluateStages(
+                        podInstanceRequirement, offer, evaluationStages, thisPodTasks.values(), overrideMap);
+                if (!results.isPassing()) {
+                    recordFailure(recorder, podInstanceRequirement, i, offer, results, evaluationStages.size(), "");
+                    continue;
+                }
+                int index = i;
+                recorder.accept(() -> {
+                    logger.info("Offer {}: passed all {} evaluation stages, returning {} recommendations:\n{}",
+                            index + 1, evaluationStages.size(), results.recommendations.size(),
+                            results.outcomeDetails);
+                    offerOutcomeTracker.track(new OfferOutcome(
+                            podInstanceRequirement.getName(), true, offer, results.outcomeDetails));
+                });
+                return results.recommendations;
+            }
 
-                overrideMap.put(taskSpec, override);
+            // Offers are scored using only the stages which consume resources or check placement, which have no side
+            // effects. The remaining stages, such as TLS artifact generation, are only run against the selected offer.
+            List<OfferEvaluationStage> scoringStages = evaluationStages.stream()
+                    .filter(OfferEvaluator::isScoringStage)
+                    .collect(Collectors.toList());
+            StageResults results = evaluateStages(
+                    podInstanceRequirement, offer, scoringStages, thisPodTasks.values(), overrideMap);
+            if (!results.isPassing()) {
+                recordFailure(recorder, podInstanceRequirement, i, offer, results, scoringStages.size(), "");
+                continue;
             }
+            double score = selectionPolicy.score(results.resourcePool, podTasksByZone);
+            int index = i;
+            recorder.accept(() -> logger.info("Offer {}: passed all {} scoring stages with {} score {}:\n{}",
+                    index + 1, scoringStages.size(), selectionPolicy, score, results.outcomeDetails));
+            passingOffers.add(new ScoredOffer(i, offer, score, evaluationStages, results.outcomeDetails));
+        }
+
+        return selectOffer(podInstanceRequirement, passingOffers, thisPodTasks.values(), overrideMap, recorder);
+    }
 
-            PodInfoBuilder podInfoBuilder = new PodInfoBuilder(
+    /**
+     * Returns the recommendations for the passing offer with the highest score, preferring earlier offers when scores
+     * are tied, and records the outcomes of all passing offers along with their scores. Offers are evaluated against
+     * the full pipeline in order of their scores, until one of them passes.
+     */
+    private List<OfferRecommendation> selectOffer(
+            PodInstanceRequirement podInstanceRequirement,
+            List<ScoredOffer> passingOffers,
+            Collection<Protos.TaskInfo> thisPodTasks,
+            Map<TaskSpec, GoalStateOverride> overrideMap,
+            Consumer<Runnable> recorder) throws InvalidRequirementException {
+        List<ScoredOffer> sortedOffers = new ArrayList<>(passingOffers);
+        // Stable sort, so tied offers remain in the order they were received:
+        sortedOffers.sort((a, b) -> Double.compare(b.score, a.score));
+
+        ScoredOffer selectedOffer = null;
+        StageResults selectedResults = null;
+        for (ScoredOffer scoredOffer : sortedOffers) {
+            StageResults results = evaluateStages(
                     podInstanceRequirement,
-                    serviceName,
-                    getTargetConfig(podInstanceRequirement, thisPodTasks.values()),
-                    schedulerConfig,
-                    thisPodTasks.values(),
-                    stateStore.fetchFrameworkId().get(),
-                    useDefaultExecutor,
+                    scoredOffer.offer,
+                    scoredOffer.evaluationStages,
+                    thisPodTasks,
                     overrideMap);
-            List<EvaluationOutcome> outcomes = new ArrayList<>();
-            int failedOutcomeCount = 0;
-
-            for (OfferEvaluationStage evaluationStage : evaluationStages) {
-                EvaluationOutcome outcome = evaluationStage.evaluate(resourcePool, podInfoBuilder);
-                outcomes.add(outcome);
-                if (!outcome.isPassing()) {
-                    failedOutcomeCount++;
-                }
+            if (results.isPassing()) {
+                selectedOffer = scoredOffer;
+                selectedResults = results;
+                break;
             }
+            recordFailure(
+                    recorder,
+                    podInstanceRequirement,
+                    scoredOffer.index,
+                    scoredOffer.offer,
+                    results,
+                    scoredOffer.evaluationStages.size(),
+                    getSelection(scoredOffer, "failed evaluation"));
+        }
+        if (selectedOffer == null) {
+            return Collections.emptyList();
+        }
 
-            StringBuilder outcomeDetails = new StringBuilder();
-            for (EvaluationOutcome outcome : outcomes) {
-                logOutcome(outcomeDetails, outcome, "");
-            }
-            if (outcomeDetails.length() != 0) {
-                // trim extra trailing newline:
-                outcomeDetails.deleteCharAt(outcomeDetails.length() - 1);
+        ScoredOffer finalSelectedOffer = selectedOffer;
+        StageResults finalSelectedResults = selectedResults;
+        recorder.accept(() -> recordSelection(
+                podInstanceRequirement, sortedOffers, passingOffers.size(), finalSelectedOffer, finalSelectedResults));
+        return selectedResults.recommendations;
+    }
+
+    private void recordSelection(
+            PodInstanceRequirement podInstanceRequirement,
+            List<ScoredOffer> sortedOffers,
+            int passingOfferCount,
+            ScoredOffer selectedOffer,
+            StageResults selectedResults) {
+        logger.info("Selected offer {} with {} score {} among {} passing offers, returning {} recommendations:\n{}",
+                selectedOffer.offer.getId().getValue(),
+                selectionPolicy,
+                selectedOffer.score,
+                passingOfferCount,
+                selectedResults.recommendations.size(),
+                selectedResults.outcomeDetails);
+        // Offers with higher scores than the selected offer failed evaluation, and have already been recorded:
+        int selectedIndex = sortedOffers.indexOf(selectedOffer);
+        for (ScoredOffer scoredOffer : sortedOffers.subList(selectedIndex + 1, sortedOffers.size())) {
+            offerOutcomeTracker.track(new OfferOutcome(
+                    podInstanceRequirement.getName(),
+                    true,
+                    scoredOffer.offer,
+                    scoredOffer.scoringDetails,
+                    getSelection(scoredOffer, "not selected")));
+        }
+        offerOutcomeTracker.track(new OfferOutcome(
+                podInstanceRequirement.getName(),
+                true,
+                selectedOffer.offer,
+                selectedResults.outcomeDetails,
+                getSelection(selectedOffer, "selected")));
+    }
+
+    private String getSelection(ScoredOffer scoredOffer, String result) {
+        return String.format("%s score %.4f: %s", selectionPolicy, scoredOffer.score, result);
+    }
+
+    /**
+     * Returns whether the provided stage may be used to score an offer. Scoring stages only consume resources from the
+     * pool or check placement, and have no side effects outside of the pool and the pod info builder.
+     */
+    private static boolean isScoringStage(OfferEvaluationStage evaluationStage) {
+        return evaluationStage instanceof ExecutorEvaluationStage
+                || evaluationStage instanceof PlacementRuleEvaluationStage
+                || evaluationStage instanceof ResourceEvaluationStage
+                || evaluationStage instanceof PortEvaluationStage
+                || evaluationStage instanceof VolumeEvaluationStage;
+    }
+
+    /**
+     * Runs the provided stages against a fresh resource pool and pod info builder for the provided offer.
+     */
+    private StageResults evaluateStages(
+            PodInstanceRequirement podInstanceRequirement,
+            Protos.Offer offer,
+            List<OfferEvaluationStage> evaluationStages,
+            Collection<Protos.TaskInfo> thisPodTasks,
+            Map<TaskSpec, GoalStateOverride> overrideMap) throws InvalidRequirementException {
+        MesosResourcePool resourcePool = new MesosResourcePool(
+                offer,
+                OfferEvaluationUtils.getRole(podInstanceRequirement.getPodInstance().getPod()));
+
+        PodInfoBuilder podInfoBuilder = new PodInfoBuilder(
+                podInstanceRequirement,
+                serviceName,
+                getTargetConfig(podInstanceRequirement, thisPodTasks),
+                schedulerConfig,
+                thisPodTasks,
+                stateStore.fetchFrameworkId().get(),
+                useDefaultExecutor,
+                overrideMap);
+        List<EvaluationOutcome> outcomes = new ArrayList<>();
+        int failedOutcomeCount = 0;
+
+        for (OfferEvaluationStage evaluationStage : evaluationStages) {
+            EvaluationOutcome outcome = evaluationStage.evaluate(resourcePool, podInfoBuilder);
+            outcomes.add(outcome);
+            if (!outcome.isPassing()) {
+                failedOutcomeCount++;
             }
+        }
 
-            if (failedOutcomeCount != 0) {
-                logger.info("Offer {}, {}: failed {} of {} evaluation stages:\n{}",
-                        i + 1,
-                        offer.getId().getValue(),
-                        failedOutcomeCount,
-                        evaluationStages.size(),
-                        outcomeDetails.toString());
-
-                offerOutcomeTracker.track(new OfferOutcome(
-                        podInstanceRequirement.getName(),
-                        false,
-                        offer,
-                        outcomeDetails.toString()));
-            } else {
-                List<OfferRecommendation> recommendations = outcomes.stream()
+        StringBuilder outcomeDetails = new StringBuilder();
+        for (EvaluationOutcome outcome : outcomes) {
+            logOutcome(outcomeDetails, outcome, "");
+        }
+        if (outcomeDetails.length() != 0) {
+            // trim extra trailing newline:
+            outcomeDetails.deleteCharAt(outcomeDetails.length() - 1);
+        }
+
+        List<OfferRecommendation> recommendations = failedOutcomeCount != 0
+                ? Collections.emptyList()
+                : outcomes.stream()
                         .map(outcome -> outcome.getOfferRecommendations())
                         .flatMap(xs -> xs.stream())
                         .collect(Collectors.toList());
-                logger.info("Offer {}: passed all {} evaluation stages, returning {} recommendations:\n{}",
-                        i + 1, evaluationStages.size(), recommendations.size(), outcomeDetails.toString());
+        return new StageResults(resourcePool, failedOutcomeCount, outcomeDetails.toString(), recommendations);
+    }
 
-                offerOutcomeTracker.track(new OfferOutcome(
-                        podInstanceRequirement.getName(),
-                        true,
-                        offer,
-                        outcomeDetails.toString()));
+    private void recordFailure(
+            Consumer<Runnable> recorder,
+            PodInstanceRequirement podInstanceRequirement,
+            int index,
+            Protos.Offer offer,
+            StageResults results,
+            int stageCount,
+            String selection) {
+        recorder.accept(() -> {
+            logger.info("Offer {}, {}: failed {} of {} evaluation stages:\n{}",
+                    index + 1,
+                    offer.getId().getValue(),
+                    results.failedOutcomeCount,
+                    stageCount,
+                    results.outcomeDetails);
+            offerOutcomeTracker.track(new OfferOutcome(
+                    podInstanceRequirement.getName(), false, offer, results.outcomeDetails, selection));
+        });
+    }
 
-                return recommendations;
-            }
+    /**
+     * The recommendations produced by {@link #evaluateSpeculatively(PodInstanceRequirement, List)}, along with the
+     * deferred recording of the evaluated offers' outcomes.
+     */
+    public static class SpeculativeEvaluation {
+        private final List<OfferRecommendation> recommendations;
+        private final List<Runnable> effects;
+
+        private SpeculativeEvaluation(List<OfferRecommendation> recommendations, List<Runnable> effects) {
+            this.recommendations = recommendations;
+            this.effects = effects;
         }
 
-        return Collections.emptyList();
+        public List<OfferRecommendation> getRecommendations() {
+            return recommendations;
+        }
+    }
+
+    /**
+     * The result of running evaluation stages against an offer.
+     */
+    private static class StageResults {
+        private final MesosResourcePool resourcePool;
+        private final int failedOutcomeCount;
+        private final String outcomeDetails;
+        private final List<OfferRecommendation> recommendations;
+
+        private StageResults(
+                MesosResourcePool resourcePool,
+                int failedOutcomeCount,
+                String outcomeDetails,
+                List<OfferRecommendation> recommendations) {
+            this.resourcePool = resourcePool;
+            this.failedOutcomeCount = failedOutcomeCount;
+            this.outcomeDetails = outcomeDetails;
+            this.recommendations = recommendations;
+        }
+
+        private boolean isPassing() {
+            return failedOutcomeCount == 0;
+        }
+    }
+
+    /**
+     * An offer which passed every scoring stage, along with its score under the configured selection policy.
+     */
+    private static class ScoredOffer {
+        private final int index;
+        private final Protos.Offer offer;
+        private final double score;
+        private final List<OfferEvaluationStage> evaluationStages;
+        private final String scoringDetails;
+
+        private ScoredOffer(
+                int index,
+                Protos.Offer offer,
+                double score,
+                List<OfferEvaluationStage> evaluationStages,
+                String scoringDetails) {
+            this.index = index;
+            this.offer = offer;
+            this.score = score;
+            this.evaluationStages = evaluationStages;
+            this.scoringDetails = scoringDetails;
+        }
     }
 
     public List<OfferEvaluationStage> getEvaluationPipeline(
@@ -170,6 +451,20 @@ public class OfferEvaluator {
             Collection<Protos.TaskInfo> allTasks,
             Map<String, Protos.TaskInfo> thisPodTasks,
             Optional<Protos.ExecutorInfo> executorInfo) throws IOException {
+        return getEvaluationPipeline(
+                podInstanceRequirement,
+                allTasks,
+                thisPodTasks,
+                executorInfo,
+                getCompiledPlacementRule(podInstanceRequirement));
+    }
+
+    private List<OfferEvaluationStage> getEvaluationPipeline(
+            PodInstanceRequirement podInstanceRequirement,
+            Collection<Protos.TaskInfo> allTasks,
+            Map<String, Protos.TaskInfo> thisPodTasks,
+            Optional<Protos.ExecutorInfo> executorInfo,
+            Optional<CompiledPlacementRule> placementRule) throws IOException {
 
         boolean noLaunchedTasksExist = thisPodTasks.values().stream()
                 .flatMap(taskInfo -> taskInfo.getResourcesList().stream())
@@ -204,22 +499,83 @@ public class OfferEvaluator {
         boolean anyTasksWithTLS = podInstanceRequirement.getPodInstance().getPod().getTasks().stream()
                 .anyMatch(taskSpec -> !taskSpec.getTransportEncryption().isEmpty());
         Optional<TLSEvaluationStage.Builder> tlsStageBuilder = anyTasksWithTLS
-                ? Optional.of(new TLSEvaluationStage.Builder(serviceName, schedulerConfig))
+                ? Optional.of(getTLSStageBuilder())
                 : Optional.empty();
 
         List<OfferEvaluationStage> evaluationPipeline = new ArrayList<>();
         if (shouldGetNewRequirement) {
             evaluationPipeline.add(new ExecutorEvaluationStage(Optional.empty()));
-            evaluationPipeline.addAll(getNewEvaluationPipeline(podInstanceRequirement, allTasks, tlsStageBuilder));
+            evaluationPipeline.addAll(getNewEvaluationPipeline(
+                    podInstanceRequirement, allTasks, tlsStageBuilder, placementRule));
         } else {
             evaluationPipeline.add(new ExecutorEvaluationStage(getExecutorInfo(thisPodTasks.values())));
             evaluationPipeline.addAll(getExistingEvaluationPipeline(
-                    podInstanceRequirement, thisPodTasks, allTasks, executorInfo.get(), tlsStageBuilder));
+                    podInstanceRequirement,
+                    thisPodTasks,
+                    allTasks,
+                    executorInfo.get(),
+                    tlsStageBuilder,
+                    placementRule));
         }
 
         return evaluationPipeline;
     }
 
+    /**
+     * Returns the compiled form of the pod's placement rule, if it has one. Each distinct rule is only compiled once.
+     */
+    private Optional<CompiledPlacementRule> getCompiledPlacementRule(PodInstanceRequirement podInstanceRequirement) {
+        return podInstanceRequirement.getPodInstance().getPod().getPlacementRule()
+                .map(rule -> compiledPlacementRules.computeIfAbsent(rule, CompiledPlacementRule::compile));
+    }
+
+    /**
+     * Loads the names of any existing TLS secrets ahead of the first evaluation of a task which uses TLS. This should
+     * only be invoked for services which have tasks that use TLS.
+     */
+    public void prewarmTLSSecrets() {
+        try {
+            getTLSStageBuilder().prewarm();
+        } catch (IOException e) {
+            logger.warn("Failed to prewarm TLS secrets", e);
+        }
+    }
+
+    /**
+     * Starts generating any missing TLS artifacts for the provided requirement in the background, so that they're ready
+     * (or nearly so) by the time the requirement is evaluated against an offer. This should only be invoked for the
+     * requirements of pending steps, rather than on every evaluation.
+     */
+    public void prefetchTLSArtifacts(PodInstanceRequirement podInstanceRequirement) {
+        List<TaskSpec> tlsTaskSpecs = podInstanceRequirement.getPodInstance().getPod().getTasks().stream()
+                .filter(taskSpec -> !taskSpec.getTransportEncryption().isEmpty())
+                .collect(Collectors.toList());
+        if (tlsTaskSpecs.isEmpty()) {
+            return;
+        }
+        try {
+            getTLSStageBuilder().prefetch(podInstanceRequirement.getPodInstance(), tlsTaskSpecs);
+        } catch (IOException e) {
+            logger.warn("Failed to prefetch TLS artifacts", e);
+        }
+    }
+
+    /**
+     * Stops any work which this instance is performing in the background, such as prefetching TLS artifacts.
+     */
+    public synchronized void close() {
+        if (tlsStageBuilder != null) {
+            tlsStageBuilder.close();
+        }
+    }
+
+    private synchronized TLSEvaluationStage.Builder getTLSStageBuilder() throws IOException {
+        if (tlsStageBuilder == null) {
+            tlsStageBuilder = new TLSEvaluationStage.Builder(serviceName, schedulerConfig);
+        }
+        return tlsStageBuilder;
+    }
+
     private Optional<Protos.ExecutorInfo> getExecutorInfo(Collection<Protos.TaskInfo> taskInfos) {
         for (Protos.TaskInfo taskInfo : taskInfos) {
             if (taskHasReusableExecutor(taskInfo)) {
@@ -232,7 +588,7 @@ public class OfferEvaluator {
     }
 
     private boolean taskHasReusableExecutor(Protos.TaskInfo taskInfo) {
-        Optional<Protos.TaskStatus> taskStatus = stateStore.fetchStatus(taskInfo.getName());
+        Optional<Protos.TaskStatus> taskStatus = stateStore.getTaskStateIndex().getStatus(taskInfo.getName());
         if (!taskStatus.isPresent() || FailureUtils.isPermanentlyFailed(taskInfo)) {
             return false;
         }
@@ -306,11 +662,11 @@ public class OfferEvaluator {
     private List<OfferEvaluationStage> getNewEvaluationPipeline(
             PodInstanceRequirement podInstanceRequirement,
             Collection<Protos.TaskInfo> allTasks,
-            Optional<TLSEvaluationStage.Builder> tlsStageBuilder) {
+            Optional<TLSEvaluationStage.Builder> tlsStageBuilder,
+            Optional<CompiledPlacementRule> placementRule) {
         List<OfferEvaluationStage> evaluationStages = new ArrayList<>();
-        if (podInstanceRequirement.getPodInstance().getPod().getPlacementRule().isPresent()) {
-            evaluationStages.add(new PlacementRuleEvaluationStage(
-                    allTasks, podInstanceRequirement.getPodInstance().getPod().getPlacementRule().get()));
+        if (placementRule.isPresent()) {
+            evaluationStages.add(new PlacementRuleEvaluationStage(allTasks, placementRule.get()));
         }
 
         for (VolumeSpec volumeSpec : podInstanceRequirement.getPodInstance().getPod().getVolumes()) {
@@ -417,7 +773,8 @@ public class OfferEvaluator {
             Map<String, Protos.TaskInfo> podTasks,
             Collection<Protos.TaskInfo> allTasks,
             Protos.ExecutorInfo executorInfo,
-            Optional<TLSEvaluationStage.Builder> tlsStageBuilder) {
+            Optional<TLSEvaluationStage.Builder> tlsStageBuilder,
+            Optional<CompiledPlacementRule> placementRule) {
         List<TaskSpec> taskSpecs = podInstanceRequirement.getPodInstance().getPod().getTasks().stream()
                 .filter(taskSpec -> podInstanceRequirement.getTasksToLaunch().contains(taskSpec.getName()))
                 .collect(Collectors.toList());
@@ -432,10 +789,8 @@ public class OfferEvaluator {
             }
         }
 
-        if (podInstanceRequirement.getPodInstance().getPod().getPlacementRule().isPresent() &&
-                podInstanceRequirement.getRecoveryType().equals(RecoveryType.PERMANENT)) {
-            evaluationStages.add(new PlacementRuleEvaluationStage(
-                    allTasks, podInstanceRequirement.getPodInstance().getPod().getPlacementRule().get()));
+        if (placementRule.isPresent() && podInstanceRequirement.getRecoveryType().equals(RecoveryType.PERMANENT)) {
+            evaluationStages.add(new PlacementRuleEvaluationStage(allTasks, placementRule.get()));
         }
 
         ResourceSpec firstResource = taskSpecs.get(0).getResourceSet().getResources().iterator().next();
@@ -0,0 +1,127 @@
+package com.mesosphere.sdk.offer.evaluate;
+
+import com.mesosphere.sdk.offer.Constants;
+import com.mesosphere.sdk.offer.MesosResource;
+import com.mesosphere.sdk.offer.MesosResourcePool;
+import com.mesosphere.sdk.offer.TaskException;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelReader;
+import com.mesosphere.sdk.specification.PodInstance;
+import org.apache.mesos.Protos;
+
+import java.util.*;
+
+/**
+ * The policy used by {@link OfferEvaluator} to select among the offers which pass every evaluation stage for a pod.
+ */
+public enum OfferSelectionPolicy {
+
+    /**
+     * Selects the first passing offer in the order that offers were received, without evaluating the remaining offers.
+     */
+    FIRST_FIT,
+
+    /**
+     * Selects the passing offer with the smallest fraction of its cpus, mem, and disk remaining after the pod is
+     * placed. Pods are packed onto the agents which they fill the most, leaving larger agents for larger pods.
+     */
+    BEST_FIT,
+
+    /**
+     * Selects the passing offer with the largest fraction of its cpus, mem, and disk remaining after the pod is placed.
+     * Pods are spread across the agents which have the most room.
+     */
+    WORST_FIT,
+
+    /**
+     * Selects the passing offer in the zone with the fewest tasks of the same pod type.
+     */
+    SPREAD_BY_ZONE;
+
+    private static final Collection<String> SCORED_RESOURCE_TYPES = Arrays.asList(
+            Constants.CPUS_RESOURCE_TYPE,
+            Constants.MEMORY_RESOURCE_TYPE,
+            Constants.DISK_RESOURCE_TYPE);
+
+    /**
+     * Returns a score for an offer which passed every scoring stage, where the offer with the highest score is
+     * selected. Ties are broken in favor of the offer which was received first.
+     *
+     * @param remainingPool the pool for the offer, after the pod's resources were consumed from it
+     * @param podTasksByZone the number of other tasks of the pod's type in each zone, as returned by
+     *     {@link #getTasksByZone(PodInstance, Collection)}. Only used by {@link #SPREAD_BY_ZONE}
+     */
+    double score(MesosResourcePool remainingPool, Map<Optional<String>, Integer> podTasksByZone) {
+        switch (this) {
+        case BEST_FIT:
+            return -getRemainingFraction(remainingPool);
+        case WORST_FIT:
+            return getRemainingFraction(remainingPool);
+        case SPREAD_BY_ZONE:
+            return -podTasksByZone.getOrDefault(getZone(remainingPool.getOffer()), 0);
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the fraction of the offer's reservable cpus, mem, and disk which remain in the pool, averaged across the
+     * resource types which were offered.
+     */
+    private static double getRemainingFraction(MesosResourcePool pool) {
+        Map<String, Double> offered = new HashMap<>();
+        for (Protos.Resource resource : pool.getOffer().getResourcesList()) {
+            if (SCORED_RESOURCE_TYPES.contains(resource.getName())
+                    && resource.getType() == Protos.Value.Type.SCALAR
+                    && !new MesosResource(resource).hasResourceId()) {
+                offered.merge(resource.getName(), resource.getScalar().getValue(), Double::sum);
+            }
+        }
+
+        Map<String, Double> remaining = new HashMap<>();
+        for (Map<String, Protos.Value> rolePool : pool.getReservableMergedPoolByRole().values()) {
+            for (Map.Entry<String, Protos.Value> entry : rolePool.entrySet()) {
+                if (offered.containsKey(entry.getKey()) && entry.getValue().getType() == Protos.Value.Type.SCALAR) {
+                    remaining.merge(entry.getKey(), entry.getValue().getScalar().getValue(), Double::sum);
+                }
+            }
+        }
+
+        double fractionSum = 0;
+        int typeCount = 0;
+        for (Map.Entry<String, Double> entry : offered.entrySet()) {
+            if (entry.getValue() > 0) {
+                fractionSum += remaining.getOrDefault(entry.getKey(), 0.0) / entry.getValue();
+                typeCount++;
+            }
+        }
+        return typeCount == 0 ? 0 : fractionSum / typeCount;
+    }
+
+    /**
+     * Returns the number of tasks of the same pod type in each zone, not counting the pod instance's own tasks. Tasks
+     * without a zone are counted against {@link Optional#empty()}. This only needs to be computed once for all of the
+     * offers which are evaluated for the pod instance.
+     */
+    static Map<Optional<String>, Integer> getTasksByZone(
+            PodInstance podInstance, Collection<Protos.TaskInfo> allTasks) {
+        Map<Optional<String>, Integer> tasksByZone = new HashMap<>();
+        for (Protos.TaskInfo task : allTasks) {
+            TaskLabelReader labels = new TaskLabelReader(task);
+            try {
+                if (podInstance.getPod().getType().equals(labels.getType())
+                        && podInstance.getIndex() != labels.getIndex()) {
+                    tasksByZone.merge(labels.getZone(), 1, Integer::sum);
+                }
+            } catch (TaskException | NumberFormatException e) {
+                // Tasks without type or index labels can't belong to the pod type.
+            }
+        }
+        return tasksByZone;
+    }
+
+    private static Optional<String> getZone(Protos.Offer offer) {
+        return offer.hasDomain() && offer.getDomain().getFaultDomain().hasZone()
+                ? Optional.of(offer.getDomain().getFaultDomain().getZone().getName())
+                : Optional.empty();
+    }
+}
@@ -1,6 +1,7 @@
 package com.mesosphere.sdk.offer.evaluate;
 
 import com.mesosphere.sdk.offer.MesosResourcePool;
+import com.mesosphere.sdk.offer.evaluate.placement.CompiledPlacementRule;
 import com.mesosphere.sdk.offer.evaluate.placement.PlacementRule;
 import org.apache.mesos.Protos;
 
@@ -11,13 +12,23 @@ import static com.mesosphere.sdk.offer.evaluate.EvaluationOutcome.pass;
 /**
  * This class evaluates an offer against a given {@link com.mesosphere.sdk.scheduler.plan.PodInstanceRequirement},
  * ensuring that its resources meet the constraints imposed by the supplied
- * {@link com.mesosphere.sdk.offer.evaluate.placement.PlacementRule}.
+ * {@link com.mesosphere.sdk.offer.evaluate.placement.PlacementRule}. The rule is evaluated in its compiled form, so
+ * that any parts of the rule which only depend on the offer are evaluated once per offer.
  */
 public class PlacementRuleEvaluationStage implements OfferEvaluationStage {
     private final Collection<Protos.TaskInfo> deployedTasks;
-    private final PlacementRule placementRule;
+    private final CompiledPlacementRule placementRule;
 
     public PlacementRuleEvaluationStage(Collection<Protos.TaskInfo> deployedTasks, PlacementRule placementRule) {
+        this(deployedTasks, placementRule == null ? null : CompiledPlacementRule.compile(placementRule));
+    }
+
+    /**
+     * Creates a new instance which evaluates a rule which has already been compiled, so that the same compiled rule may
+     * be reused across offers.
+     */
+    public PlacementRuleEvaluationStage(
+            Collection<Protos.TaskInfo> deployedTasks, CompiledPlacementRule placementRule) {
         this.deployedTasks = deployedTasks;
         this.placementRule = placementRule;
     }
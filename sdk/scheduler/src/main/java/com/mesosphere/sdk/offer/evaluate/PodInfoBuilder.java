@@ -38,6 +38,8 @@ public class PodInfoBuilder {
     private static final String CONFIG_TEMPLATE_KEY_FORMAT = "CONFIG_TEMPLATE_%s";
     private static final String CONFIG_TEMPLATE_DOWNLOAD_PATH = "config-templates/";
     private Set<Long> assignedOverlayPorts = new HashSet<>();
+    // Dynamic host ports which were claimed from the offer for the pod's port stages, and not yet handed out to them:
+    private Optional<LongIntervalSet> claimedDynamicPorts = Optional.empty();
     private final Map<String, Protos.TaskInfo.Builder> taskBuilders = new HashMap<>();
     private Protos.ExecutorInfo.Builder executorBuilder;
     private final PodInstance podInstance;
@@ -153,6 +155,18 @@ public class PodInfoBuilder {
         return assignedOverlayPorts;
     }
 
+    /**
+     * Returns the dynamic host ports which were claimed from the offer for this pod, if any have been claimed yet.
+     * Ports are removed from the returned set as they are assigned.
+     */
+    public Optional<LongIntervalSet> getClaimedDynamicPorts() {
+        return claimedDynamicPorts;
+    }
+
+    public void setClaimedDynamicPorts(LongIntervalSet ports) {
+        claimedDynamicPorts = Optional.of(ports);
+    }
+
     public void setExecutorVolume(VolumeSpec volumeSpec) {
         // Volumes on the executor must be declared in each TaskInfo.ContainerInfo to be shared among them.
         if (useDefaultExecutor) {
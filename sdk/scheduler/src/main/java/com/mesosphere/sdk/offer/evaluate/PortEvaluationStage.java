@@ -13,8 +13,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 
 /**
@@ -187,16 +185,37 @@ public class PortEvaluationStage implements OfferEvaluationStage {
 
     private static Optional<Integer> selectDynamicPort(
             MesosResourcePool mesosResourcePool, PodInfoBuilder podInfoBuilder) {
-        Set<Integer> consumedPorts = new HashSet<>();
+        if (!podInfoBuilder.getClaimedDynamicPorts().isPresent()) {
+            podInfoBuilder.setClaimedDynamicPorts(claimDynamicPorts(mesosResourcePool, podInfoBuilder));
+        }
+        OptionalLong dynamicPort = podInfoBuilder.getClaimedDynamicPorts().get().claimFirst();
+        return dynamicPort.isPresent() ? Optional.of((int) dynamicPort.getAsLong()) : Optional.empty();
+    }
+
+    /**
+     * Claims the lowest available ports in the offer for all of the pod's dynamic host ports at once, so that the
+     * candidate ports are only collected once rather than once per port. The ports are handed out in ascending order
+     * as each port stage asks for one, which matches claiming the lowest candidate port in each stage.
+     */
+    private static LongIntervalSet claimDynamicPorts(
+            MesosResourcePool mesosResourcePool, PodInfoBuilder podInfoBuilder) {
+        Protos.Value availablePorts = mesosResourcePool.getUnreservedMergedPool().get(Constants.PORTS_RESOURCE_TYPE);
+        if (availablePorts == null) {
+            return new LongIntervalSet();
+        }
+        LongIntervalSet candidatePorts = LongIntervalSet.fromRanges(availablePorts.getRanges().getRangeList());
 
         // We don't want to accidentally dynamically consume a port that's explicitly claimed elsewhere in this pod, so
         // compile a list of those to check against the offered ports.
+        long dynamicPortCount = 0;
         for (TaskSpec task : podInfoBuilder.getPodInstance().getPod().getTasks()) {
             for (ResourceSpec resourceSpec : task.getResourceSet().getResources()) {
                 if (resourceSpec instanceof PortSpec) {
                     PortSpec portSpec = (PortSpec) resourceSpec;
                     if (portSpec.getPort() != 0) {
-                        consumedPorts.add((int) portSpec.getPort());
+                        candidatePorts.remove(portSpec.getPort(), portSpec.getPort());
+                    } else if (requireHostPorts(portSpec.getNetworkNames())) {
+                        ++dynamicPortCount;
                     }
                 }
             }
@@ -204,22 +223,18 @@ public class PortEvaluationStage implements OfferEvaluationStage {
 
         // Also check other dynamically allocated ports which had been taken by earlier stages of this evaluation round.
         for (Protos.Resource.Builder resourceBuilder : podInfoBuilder.getTaskResourceBuilders()) {
-            consumedPorts.addAll(getPortsInResource(resourceBuilder.build()));
+            removePortsInResource(candidatePorts, resourceBuilder);
         }
         for (Protos.Resource.Builder resourceBuilder : podInfoBuilder.getExecutorResourceBuilders()) {
-            consumedPorts.addAll(getPortsInResource(resourceBuilder.build()));
+            removePortsInResource(candidatePorts, resourceBuilder);
         }
 
-        Protos.Value availablePorts = mesosResourcePool.getUnreservedMergedPool().get(Constants.PORTS_RESOURCE_TYPE);
-        Optional<Integer> dynamicPort = Optional.empty();
-        if (availablePorts != null) {
-            dynamicPort = availablePorts.getRanges().getRangeList().stream()
-                    .flatMap(r -> IntStream.rangeClosed((int) r.getBegin(), (int) r.getEnd()).boxed())
-                    .filter(p -> !consumedPorts.contains(p))
-                    .findFirst();
-        }
-
-        return dynamicPort;
+        // Port 0 is never assigned, even if it's offered: a port of 0 denotes a request for a dynamic port, so
+        // assigning it would leave the task without a usable port.
+        candidatePorts.remove(0, 0);
+        // Ports which were previously reserved are reused rather than claimed, so this may claim more ports than are
+        // needed. The surplus is simply left unused. If fewer ports are available, the later stages will fail.
+        return candidatePorts.claimFirst(Math.min(dynamicPortCount, candidatePorts.size())).get();
     }
 
     private static Optional<Integer> selectOverlayPort(PodInfoBuilder podInfoBuilder) {
@@ -236,17 +251,16 @@ public class PortEvaluationStage implements OfferEvaluationStage {
         return dynamicPort;
     }
 
-    private static Set<Integer> getPortsInResource(Protos.Resource resource) {
-        if (!resource.getName().equals(Constants.PORTS_RESOURCE_TYPE)) {
-            return Collections.emptySet();
+    private static void removePortsInResource(LongIntervalSet ports, Protos.ResourceOrBuilder resource) {
+        if (resource.getName().equals(Constants.PORTS_RESOURCE_TYPE)) {
+            ports.removeAll(LongIntervalSet.fromRanges(resource.getRanges().getRangeList()));
         }
-        return resource.getRanges().getRangeList().stream()
-                .flatMap(r -> IntStream.rangeClosed((int) r.getBegin(), (int) r.getEnd()).boxed())
-                .filter(p -> p != 0)
-                .collect(Collectors.toSet());
     }
 
-    private static boolean requireHostPorts(Collection<String> networkNames) {
+    /**
+     * Returns whether a port on the provided networks must be reserved from the ports offered by the host.
+     */
+    static boolean requireHostPorts(Collection<String> networkNames) {
         if (networkNames.isEmpty()) {  // no network names, must be on host network and use the host IP
             return true;
         } else {
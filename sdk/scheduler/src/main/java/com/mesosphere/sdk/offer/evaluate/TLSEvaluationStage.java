@@ -8,6 +8,7 @@ import com.mesosphere.sdk.dcos.clients.SecretsClient;
 import com.mesosphere.sdk.offer.MesosResourcePool;
 import com.mesosphere.sdk.offer.evaluate.security.*;
 import com.mesosphere.sdk.scheduler.SchedulerConfig;
+import com.mesosphere.sdk.specification.PodInstance;
 import com.mesosphere.sdk.specification.TaskSpec;
 import com.mesosphere.sdk.specification.TransportEncryptionSpec;
 import org.apache.http.client.methods.HttpPut;
@@ -18,6 +19,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * A {@link TLSEvaluationStage} is responsible for provisioning X.509 certificates, converting them to
@@ -62,6 +64,46 @@ public class TLSEvaluationStage implements OfferEvaluationStage {
                     serviceName, new SecretsClient(executor), new CertificateAuthorityClient(executor));
         }
 
+        /**
+         * Loads the names of any existing secrets in the service's namespace. See
+         * {@link TLSArtifactsUpdater#prewarm(Collection)}.
+         */
+        public void prewarm() {
+            tlsArtifactsUpdater.prewarm(Collections.singletonList(namespace));
+        }
+
+        /**
+         * Starts generating any missing TLS artifacts for the provided tasks in the background, so that they're ready
+         * (or nearly so) by the time an offer reaches their {@link TLSEvaluationStage}s. The tasks' certificates are
+         * signed concurrently.
+         */
+        public void prefetch(PodInstance podInstance, Collection<TaskSpec> taskSpecs) {
+            for (TaskSpec taskSpec : taskSpecs) {
+                if (taskSpec.getTransportEncryption().isEmpty()) {
+                    continue;
+                }
+                CertificateNamesGenerator certificateNamesGenerator =
+                        new CertificateNamesGenerator(serviceName, taskSpec, podInstance);
+                TLSArtifactPaths tlsArtifactPaths = new TLSArtifactPaths(
+                        namespace,
+                        TaskSpec.getInstanceName(podInstance, taskSpec.getName()),
+                        certificateNamesGenerator.getSANsHash());
+                tlsArtifactsUpdater.prefetch(
+                        tlsArtifactPaths,
+                        certificateNamesGenerator,
+                        taskSpec.getTransportEncryption().stream()
+                                .map(TransportEncryptionSpec::getName)
+                                .collect(Collectors.toList()));
+            }
+        }
+
+        /**
+         * Stops any artifacts which are being prefetched. See {@link TLSArtifactsUpdater#close()}.
+         */
+        public void close() {
+            tlsArtifactsUpdater.close();
+        }
+
         public TLSEvaluationStage build(String taskName) {
             return new TLSEvaluationStage(serviceName, taskName, namespace, tlsArtifactsUpdater);
         }
@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -53,49 +54,57 @@ abstract class AbstractRoundRobinRule implements PlacementRule {
             return EvaluationOutcome.fail(this, "Offer lacks required round robin key").build();
         }
 
-        // search across tasks, keeping key counts on a per-key basis.
-        // key => # of instances on key
-        Map<String, Integer> counts = new HashMap<>();
-        for (TaskInfo task : tasks) {
-            // only tally tasks which match the task matcher (eg 'index-.*')
-            if (!taskFilter.matches(task.getName())) {
-                continue;
-            }
-            if (PlacementUtils.areEquivalent(task, podInstance)) {
-                // This is stale data for the same task that we're currently evaluating for
-                // placement. Don't worry about counting its usage. This occurs when we're
-                // redeploying a given task with a new configuration (old data not deleted yet).
-                continue;
-            }
-
-            final String taskKey = getKey(task);
-            if (taskKey == null) {
-                // no key matching the name was found. ignore.
-                continue;
+        int minKnownKeyCount;
+        int maxKnownKeyCount;
+        int offerKeyCount;
+        int knownKeyCount;
+        Optional<PlacementIndex.Counts<String>> indexedCounts = PlacementIndex.getCounts(
+                tasks, this, this::getCountedKeys, podInstance, Collections.singleton(offerKey));
+        if (indexedCounts.isPresent()) {
+            // Use the precomputed key counts, rather than examining every task.
+            minKnownKeyCount = indexedCounts.get().getMinCount();
+            maxKnownKeyCount = indexedCounts.get().getMaxCount();
+            offerKeyCount = indexedCounts.get().getCount(offerKey);
+            knownKeyCount = indexedCounts.get().getKeyCount();
+        } else {
+            // search across tasks, keeping key counts on a per-key basis.
+            // key => # of instances on key
+            Map<String, Integer> counts = new HashMap<>();
+            for (TaskInfo task : tasks) {
+                Collection<String> taskKeys = getCountedKeys(task);
+                if (taskKeys.isEmpty()) {
+                    continue;
+                }
+                if (PlacementUtils.areEquivalent(task, podInstance)) {
+                    // This is stale data for the same task that we're currently evaluating for
+                    // placement. Don't worry about counting its usage. This occurs when we're
+                    // redeploying a given task with a new configuration (old data not deleted yet).
+                    continue;
+                }
+                for (String taskKey : taskKeys) {
+                    Integer count = counts.get(taskKey);
+                    counts.put(taskKey, (count == null) ? 1 : count + 1);
+                }
             }
-            Integer count = counts.get(taskKey);
-            counts.put(taskKey, (count == null) ? 1 : count + 1);
-        }
 
-        int maxKnownKeyCount = 0;
-        int minKnownKeyCount = Integer.MAX_VALUE;
-        for (Integer count : counts.values()) {
-            if (count > maxKnownKeyCount) {
-                maxKnownKeyCount = count;
+            maxKnownKeyCount = 0;
+            minKnownKeyCount = Integer.MAX_VALUE;
+            for (Integer count : counts.values()) {
+                if (count > maxKnownKeyCount) {
+                    maxKnownKeyCount = count;
+                }
+                if (count < minKnownKeyCount) {
+                    minKnownKeyCount = count;
+                }
             }
-            if (count < minKnownKeyCount) {
-                minKnownKeyCount = count;
+            if (minKnownKeyCount == Integer.MAX_VALUE) {
+                minKnownKeyCount = 0;
             }
+            offerKeyCount = counts.getOrDefault(offerKey, 0);
+            knownKeyCount = counts.size();
         }
-        if (minKnownKeyCount == Integer.MAX_VALUE) {
-            minKnownKeyCount = 0;
-        }
-        Integer offerKeyCount = counts.get(offerKey);
-        if (offerKeyCount == null) {
-            offerKeyCount = 0;
-        }
-        LOGGER.info("Key counts: {}, knownMin: {}, knownMax: {}, offer: {}",
-                counts, minKnownKeyCount, maxKnownKeyCount, offerKeyCount);
+        LOGGER.info("Known keys: {}, knownMin: {}, knownMax: {}, offer: {}",
+                knownKeyCount, minKnownKeyCount, maxKnownKeyCount, offerKeyCount);
 
         if (minKnownKeyCount == maxKnownKeyCount
                 || offerKeyCount <= minKnownKeyCount) {
@@ -108,7 +117,7 @@ abstract class AbstractRoundRobinRule implements PlacementRule {
                         this,
                         "Distinct key count is unspecified, and '%s' has %d instances while others have%d to %d",
                         offerKey, offerKeyCount, minKnownKeyCount, maxKnownKeyCount).build();
-            } else if (counts.size() >= distinctKeyCount.get()) {
+            } else if (knownKeyCount >= distinctKeyCount.get()) {
                 // no keys are missing from our counts, and this key has fewer instances than some other key in
                 // the system.
                 return EvaluationOutcome.pass(
@@ -133,6 +142,20 @@ abstract class AbstractRoundRobinRule implements PlacementRule {
         }
     }
 
+    /**
+     * Returns the key which the provided task counts against, or an empty collection if the task isn't selected by
+     * the task filter or has no key.
+     */
+    private Collection<String> getCountedKeys(TaskInfo task) {
+        // only tally tasks which match the task matcher (eg 'index-.*')
+        if (!taskFilter.matches(task.getName())) {
+            return Collections.emptyList();
+        }
+        final String taskKey = getKey(task);
+        // no key matching the name was found. ignore.
+        return taskKey == null ? Collections.emptyList() : Collections.singletonList(taskKey);
+    }
+
     @JsonProperty("task-filter")
     private StringMatcher getTaskFilter() {
         return taskFilter;
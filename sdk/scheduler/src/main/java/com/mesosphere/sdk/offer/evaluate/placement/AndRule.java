@@ -32,18 +32,26 @@ public class AndRule implements PlacementRule {
 
     @Override
     public EvaluationOutcome filter(Offer offer, PodInstance podInstance, Collection<TaskInfo> tasks) {
+        Collection<EvaluationOutcome> children = new ArrayList<>();
+        for (PlacementRule rule : rules) {
+            children.add(rule.filter(offer, podInstance, tasks));
+        }
+        return combine(children);
+    }
+
+    /**
+     * Returns the outcome of this rule, given the outcomes of each of its rules.
+     */
+    EvaluationOutcome combine(Collection<EvaluationOutcome> children) {
         if (rules.isEmpty()) {
             return EvaluationOutcome.fail(this, "No rules to AND together is treated as 'always fail'").build();
         }
 
         int passingCount = 0;
-        Collection<EvaluationOutcome> children = new ArrayList<>();
-        for (PlacementRule rule : rules) {
-            EvaluationOutcome child = rule.filter(offer, podInstance, tasks);
+        for (EvaluationOutcome child : children) {
             if (child.isPassing()) {
                 passingCount++;
             }
-            children.add(child);
         }
 
         if (passingCount == rules.size()) {
@@ -69,7 +77,7 @@ public class AndRule implements PlacementRule {
     }
 
     @JsonProperty("rules")
-    private Collection<PlacementRule> getRules() {
+    Collection<PlacementRule> getRules() {
         return rules;
     }
 
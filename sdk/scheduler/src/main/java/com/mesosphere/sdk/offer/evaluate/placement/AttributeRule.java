@@ -2,13 +2,13 @@ package com.mesosphere.sdk.offer.evaluate.placement;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.stream.Collectors;
 
 import com.mesosphere.sdk.specification.PodInstance;
 import org.apache.mesos.Protos.Attribute;
 import org.apache.mesos.Protos.Offer;
 import org.apache.mesos.Protos.TaskInfo;
 
+import com.mesosphere.sdk.offer.OfferFacts;
 import com.mesosphere.sdk.offer.evaluate.EvaluationOutcome;
 import com.mesosphere.sdk.offer.taskdata.AttributeStringUtils;
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -50,8 +50,6 @@ public class AttributeRule extends StringMatcherRule {
 
     @Override
     public Collection<String> getKeys(Offer offer) {
-        return offer.getAttributesList().stream()
-                .map(attribute -> AttributeStringUtils.toString(attribute))
-                .collect(Collectors.toList());
+        return OfferFacts.of(offer).getAttributeStrings();
     }
 }
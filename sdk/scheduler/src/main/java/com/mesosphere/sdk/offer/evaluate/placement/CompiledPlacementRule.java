@@ -0,0 +1,156 @@
+package com.mesosphere.sdk.offer.evaluate.placement;
+
+import com.mesosphere.sdk.offer.OfferFacts;
+import com.mesosphere.sdk.offer.evaluate.EvaluationOutcome;
+import com.mesosphere.sdk.specification.PodInstance;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.TaskInfo;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * An evaluator for a {@link PlacementRule} tree which produces the same {@link EvaluationOutcome}s as
+ * {@link PlacementRule#filter(Offer, PodInstance, Collection)}, while avoiding repeated work when the same offer is
+ * evaluated for several pods.
+ * <p>
+ * Compiling a rule identifies each subtree whose outcome only depends on the offer, such as the {@link AttributeRule}s,
+ * {@link HostnameRule}s, and {@link AgentRule}s which are produced by {@link MarathonConstraintParser}, along with any
+ * {@link AndRule}s, {@link OrRule}s, and {@link NotRule}s which only contain such rules. The outcome of each of these
+ * subtrees is computed once per offer and then reused for subsequent pods. Any other rules, including rules which
+ * count tasks and custom rule implementations, are evaluated as usual each time.
+ */
+public class CompiledPlacementRule {
+
+    /**
+     * Rule types whose outcome only depends on the offer, and never on the pod or on other tasks. Only exact types are
+     * listed, as subclasses may override this behavior.
+     */
+    private static final Set<Class<?>> OFFER_ONLY_RULE_TYPES = new HashSet<>(Arrays.asList(
+            AgentRule.class,
+            AttributeRule.class,
+            HostnameRule.class,
+            PassthroughRule.class,
+            RegionRule.class,
+            ZoneRule.class));
+
+    /**
+     * A node in the compiled rule tree.
+     */
+    private interface Node {
+        EvaluationOutcome filter(Offer offer, PodInstance podInstance, Collection<TaskInfo> tasks);
+    }
+
+    private final PlacementRule rule;
+    private final Node root;
+
+    private CompiledPlacementRule(PlacementRule rule) {
+        this.rule = rule;
+        this.root = compileNode(rule).node;
+    }
+
+    /**
+     * Returns a compiled form of the provided rule.
+     */
+    public static CompiledPlacementRule compile(PlacementRule rule) {
+        return new CompiledPlacementRule(rule);
+    }
+
+    /**
+     * Returns the rule which was compiled.
+     */
+    public PlacementRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Evaluates the rule, producing the same outcome as {@link PlacementRule#filter(Offer, PodInstance, Collection)}.
+     */
+    public EvaluationOutcome filter(Offer offer, PodInstance podInstance, Collection<TaskInfo> tasks) {
+        return root.filter(offer, podInstance, tasks);
+    }
+
+    /**
+     * Compiles the provided rule in a single bottom-up pass: a combining rule is offer-only if all of its children
+     * are, in which case it replaces the compiled children with a single node for the whole subtree.
+     */
+    private static CompiledNode compileNode(PlacementRule rule) {
+        if (OFFER_ONLY_RULE_TYPES.contains(rule.getClass())) {
+            return CompiledNode.offerOnly(rule);
+        } else if (rule.getClass() == AndRule.class) {
+            AndRule andRule = (AndRule) rule;
+            List<CompiledNode> children = compileAll(andRule.getRules());
+            if (allOfferOnly(children)) {
+                return CompiledNode.offerOnly(rule);
+            }
+            List<Node> childNodes = getNodes(children);
+            return new CompiledNode((offer, podInstance, tasks) ->
+                    andRule.combine(filterAll(childNodes, offer, podInstance, tasks)), false);
+        } else if (rule.getClass() == OrRule.class) {
+            OrRule orRule = (OrRule) rule;
+            List<CompiledNode> children = compileAll(orRule.getRules());
+            if (allOfferOnly(children)) {
+                return CompiledNode.offerOnly(rule);
+            }
+            List<Node> childNodes = getNodes(children);
+            return new CompiledNode((offer, podInstance, tasks) ->
+                    orRule.combine(filterAll(childNodes, offer, podInstance, tasks)), false);
+        } else if (rule.getClass() == NotRule.class) {
+            NotRule notRule = (NotRule) rule;
+            CompiledNode child = compileNode(notRule.getRule());
+            if (child.offerOnly) {
+                return CompiledNode.offerOnly(rule);
+            }
+            return new CompiledNode((offer, podInstance, tasks) ->
+                    notRule.combine(child.node.filter(offer, podInstance, tasks)), false);
+        }
+        return new CompiledNode(rule::filter, false);
+    }
+
+    private static List<CompiledNode> compileAll(Collection<PlacementRule> rules) {
+        return rules.stream().map(CompiledPlacementRule::compileNode).collect(Collectors.toList());
+    }
+
+    private static boolean allOfferOnly(List<CompiledNode> compiledNodes) {
+        return compiledNodes.stream().allMatch(compiledNode -> compiledNode.offerOnly);
+    }
+
+    private static List<Node> getNodes(List<CompiledNode> compiledNodes) {
+        return compiledNodes.stream().map(compiledNode -> compiledNode.node).collect(Collectors.toList());
+    }
+
+    private static Collection<EvaluationOutcome> filterAll(
+            List<Node> nodes, Offer offer, PodInstance podInstance, Collection<TaskInfo> tasks) {
+        Collection<EvaluationOutcome> outcomes = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            outcomes.add(node.filter(offer, podInstance, tasks));
+        }
+        return outcomes;
+    }
+
+    /**
+     * A compiled subtree, along with whether its outcome only depends on the offer.
+     */
+    private static class CompiledNode {
+        private final Node node;
+        private final boolean offerOnly;
+
+        private CompiledNode(Node node, boolean offerOnly) {
+            this.node = node;
+            this.offerOnly = offerOnly;
+        }
+
+        /**
+         * Returns a node which evaluates the provided offer-only rule once per offer.
+         */
+        private static CompiledNode offerOnly(PlacementRule rule) {
+            return new CompiledNode((offer, podInstance, tasks) ->
+                    OfferFacts.of(offer).getValue(rule, () -> rule.filter(offer, podInstance, tasks)), true);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompiledPlacementRule{rule=%s}", rule);
+    }
+}
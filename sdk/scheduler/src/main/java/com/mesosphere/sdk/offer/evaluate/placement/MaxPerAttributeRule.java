@@ -2,8 +2,8 @@ package com.mesosphere.sdk.offer.evaluate.placement;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mesosphere.sdk.offer.OfferFacts;
 import com.mesosphere.sdk.offer.evaluate.EvaluationOutcome;
-import com.mesosphere.sdk.offer.taskdata.AttributeStringUtils;
 import com.mesosphere.sdk.offer.taskdata.TaskLabelReader;
 import com.mesosphere.sdk.specification.PodInstance;
 import com.mesosphere.sdk.specification.validation.ValidationUtils;
@@ -138,8 +138,7 @@ public class MaxPerAttributeRule extends MaxPerRule {
 
     @Override
     public Collection<String> getKeys(Offer offer) {
-        return offer.getAttributesList().stream()
-                .map(proto -> AttributeStringUtils.toString(proto))
+        return OfferFacts.of(offer).getAttributeStrings().stream()
                 .filter(attribute -> attributeMatcher.matches(attribute))
                 .collect(Collectors.toList());
     }
@@ -9,8 +9,10 @@ import org.apache.mesos.Protos;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -51,27 +53,44 @@ public abstract class MaxPerRule implements PlacementRule {
             PodInstance podInstance,
             Collection<Protos.TaskInfo> tasks) {
 
-        tasks = tasks.stream()
-                .filter(task -> getTaskFilter().matches(task.getName()))
-                .filter(task -> !PlacementUtils.areEquivalent(task, podInstance))
-                .collect(Collectors.toList());
-
         Map<String, Integer> counts = new HashMap<>();
 
         Collection<String> offerKeys = getKeys(offer);
         updateMap(counts, offerKeys);
 
-        for (Protos.TaskInfo task : tasks) {
-            updateMap(
-                    counts,
-                    getKeys(task).stream()
-                            .filter(key -> offerKeys.contains(key))
-                            .collect(Collectors.toList()));
+        Optional<PlacementIndex.Counts<String>> indexedCounts =
+                PlacementIndex.getCounts(tasks, this, this::getCountedKeys, podInstance, counts.keySet());
+        if (indexedCounts.isPresent()) {
+            // Use the precomputed counts for each of the offer's keys, rather than examining every task.
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                entry.setValue(entry.getValue() + indexedCounts.get().getCount(entry.getKey()));
+            }
+        } else {
+            tasks = tasks.stream()
+                    .filter(task -> getTaskFilter().matches(task.getName()))
+                    .filter(task -> !PlacementUtils.areEquivalent(task, podInstance))
+                    .collect(Collectors.toList());
+
+            for (Protos.TaskInfo task : tasks) {
+                updateMap(
+                        counts,
+                        getKeys(task).stream()
+                                .filter(key -> offerKeys.contains(key))
+                                .collect(Collectors.toList()));
+            }
         }
 
         return counts.values().stream().allMatch(value -> value <= max);
     }
 
+    /**
+     * Returns the keys which the provided task counts against, or an empty collection if the task isn't selected by
+     * the task filter.
+     */
+    private Collection<String> getCountedKeys(Protos.TaskInfo taskInfo) {
+        return getTaskFilter().matches(taskInfo.getName()) ? getKeys(taskInfo) : Collections.emptyList();
+    }
+
     private void updateMap(Map<String, Integer> map, Collection<String> keys) {
         for (String key : keys) {
             Integer count = map.get(key);
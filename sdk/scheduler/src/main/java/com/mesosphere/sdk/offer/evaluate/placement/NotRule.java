@@ -25,7 +25,13 @@ public class NotRule implements PlacementRule {
 
     @Override
     public EvaluationOutcome filter(Offer offer, PodInstance podInstance, Collection<TaskInfo> tasks) {
-        EvaluationOutcome child = rule.filter(offer, podInstance, tasks);
+        return combine(rule.filter(offer, podInstance, tasks));
+    }
+
+    /**
+     * Returns the outcome of this rule, given the outcome of the wrapped rule.
+     */
+    EvaluationOutcome combine(EvaluationOutcome child) {
         String reason = "Returning opposite of child rule";
         if (child.isPassing()) {
             return EvaluationOutcome.fail(this, reason).build();
@@ -40,7 +46,7 @@ public class NotRule implements PlacementRule {
     }
 
     @JsonProperty("rule")
-    private PlacementRule getRule() {
+    PlacementRule getRule() {
         return rule;
     }
 
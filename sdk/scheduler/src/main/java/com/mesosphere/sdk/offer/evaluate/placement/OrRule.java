@@ -32,14 +32,22 @@ public class OrRule implements PlacementRule {
 
     @Override
     public EvaluationOutcome filter(Offer offer, PodInstance podInstance, Collection<TaskInfo> tasks) {
-        int passingCount = 0;
         Collection<EvaluationOutcome> children = new ArrayList<>();
         for (PlacementRule rule : rules) {
-            EvaluationOutcome child = rule.filter(offer, podInstance, tasks);
+            children.add(rule.filter(offer, podInstance, tasks));
+        }
+        return combine(children);
+    }
+
+    /**
+     * Returns the outcome of this rule, given the outcomes of each of its rules.
+     */
+    EvaluationOutcome combine(Collection<EvaluationOutcome> children) {
+        int passingCount = 0;
+        for (EvaluationOutcome child : children) {
             if (child.isPassing()) {
                 passingCount++;
             }
-            children.add(child);
         }
 
         if (passingCount != 0) {
@@ -65,7 +73,7 @@ public class OrRule implements PlacementRule {
     }
 
     @JsonProperty("rules")
-    private Collection<PlacementRule> getRules() {
+    Collection<PlacementRule> getRules() {
         return rules;
     }
 
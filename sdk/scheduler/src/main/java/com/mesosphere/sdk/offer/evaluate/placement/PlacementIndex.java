@@ -0,0 +1,339 @@
+package com.mesosphere.sdk.offer.evaluate.placement;
+
+import com.mesosphere.sdk.offer.TaskException;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelReader;
+import com.mesosphere.sdk.specification.PodInstance;
+import org.apache.mesos.Protos.TaskInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Incrementally maintained counts of tasks by placement key (hostname, zone, region, attribute, agent, ...), which
+ * allow {@link PlacementRule}s to evaluate an offer without examining every task in the service.
+ * <p>
+ * Each rule which consults the index registers a key function, which maps a {@link TaskInfo} to the keys which that
+ * rule counts it against. The index keeps a count of tasks for each key, and updates these counts as tasks are added
+ * or removed. Counters are created on first use and a bounded number are retained, with the least recently used
+ * counters being dropped first.
+ * <p>
+ * Rules receive the index via the task collection returned by {@link #wrap(Collection)}. The index is only consulted
+ * if it hasn't changed since the collection was wrapped, so that results always match those which would be produced
+ * by examining the collection directly. Otherwise {@link #getCounts(Collection, Object, Function, PodInstance,
+ * Collection)} returns an empty {@link Optional} and the rule should fall back to examining the collection.
+ * <p>
+ * This class is thread-safe.
+ */
+public class PlacementIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlacementIndex.class);
+
+    /**
+     * The maximum number of counters to retain. There is one counter per distinct rule in the service.
+     */
+    private static final int MAX_COUNTERS = 100;
+
+    // The following are guarded by 'this':
+
+    private final Map<String, TaskInfo> tasksByName = new HashMap<>();
+    // Keyed by [pod type, pod index]:
+    private final Map<List<Object>, Set<String>> taskNamesByPodInstance = new HashMap<>();
+    private final Map<Object, KeyCounter<?>> countersById =
+            new LinkedHashMap<Object, KeyCounter<?>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, KeyCounter<?>> eldest) {
+                    return size() > MAX_COUNTERS;
+                }
+            };
+    // Incremented on every change, to detect whether a wrapped collection is still in sync with the index:
+    private long version;
+
+    /**
+     * Adds the provided task to the index, replacing any prior task with the same name.
+     */
+    public synchronized void addTask(TaskInfo taskInfo) {
+        removeTask(taskInfo.getName());
+        tasksByName.put(taskInfo.getName(), taskInfo);
+        Optional<List<Object>> podInstanceKey = getPodInstanceKey(taskInfo);
+        if (podInstanceKey.isPresent()) {
+            taskNamesByPodInstance.computeIfAbsent(podInstanceKey.get(), k -> new HashSet<>()).add(taskInfo.getName());
+        }
+        for (KeyCounter<?> counter : countersById.values()) {
+            counter.addTask(taskInfo);
+        }
+        ++version;
+    }
+
+    /**
+     * Removes the task with the provided name from the index, if present.
+     */
+    public synchronized void removeTask(String taskName) {
+        TaskInfo taskInfo = tasksByName.remove(taskName);
+        if (taskInfo == null) {
+            return;
+        }
+        Optional<List<Object>> podInstanceKey = getPodInstanceKey(taskInfo);
+        if (podInstanceKey.isPresent()) {
+            Set<String> taskNames = taskNamesByPodInstance.get(podInstanceKey.get());
+            if (taskNames != null && taskNames.remove(taskName) && taskNames.isEmpty()) {
+                taskNamesByPodInstance.remove(podInstanceKey.get());
+            }
+        }
+        for (KeyCounter<?> counter : countersById.values()) {
+            counter.removeTask(taskName);
+        }
+        ++version;
+    }
+
+    /**
+     * Removes all tasks from the index.
+     */
+    public synchronized void clear() {
+        tasksByName.clear();
+        taskNamesByPodInstance.clear();
+        countersById.clear();
+        ++version;
+    }
+
+    /**
+     * Returns a read-only view of the provided tasks which carries this index. The provided tasks must be exactly
+     * the tasks which are currently in the index.
+     */
+    public synchronized Collection<TaskInfo> wrap(Collection<TaskInfo> tasks) {
+        return new IndexedTasks(this, version, tasks);
+    }
+
+    /**
+     * Returns the counts of the provided keys among the provided tasks, using the index carried by the tasks, or an
+     * empty {@link Optional} if the tasks don't carry an index or the index has changed since they were wrapped.
+     *
+     * @param tasks the tasks to be counted, as passed to {@link PlacementRule#filter}
+     * @param counterId identifies the key function, e.g. the rule itself. Counters are shared between equal ids
+     * @param keyFunction maps each task to the keys which it should be counted against, or an empty collection if the
+     *     task shouldn't be counted. Tasks with more than one occurrence of a key are counted once per occurrence
+     * @param podInstance tasks which belong to this pod instance are omitted from the counts, per
+     *     {@link PlacementUtils#areEquivalent(TaskInfo, PodInstance)}
+     * @param keys the keys whose individual counts should be included in the result
+     */
+    public static <K> Optional<Counts<K>> getCounts(
+            Collection<TaskInfo> tasks,
+            Object counterId,
+            Function<TaskInfo, Collection<K>> keyFunction,
+            PodInstance podInstance,
+            Collection<K> keys) {
+        if (!(tasks instanceof IndexedTasks)) {
+            return Optional.empty();
+        }
+        IndexedTasks indexedTasks = (IndexedTasks) tasks;
+        return indexedTasks.index.getCounts(indexedTasks.version, counterId, keyFunction, podInstance, keys);
+    }
+
+    private synchronized <K> Optional<Counts<K>> getCounts(
+            long expectedVersion,
+            Object counterId,
+            Function<TaskInfo, Collection<K>> keyFunction,
+            PodInstance podInstance,
+            Collection<K> keys) {
+        if (version != expectedVersion) {
+            LOGGER.debug("Placement index has changed since tasks were retrieved, falling back to task scan");
+            return Optional.empty();
+        }
+
+        @SuppressWarnings("unchecked")
+        KeyCounter<K> counter = (KeyCounter<K>) countersById.get(counterId);
+        if (counter == null) {
+            counter = new KeyCounter<>(keyFunction);
+            for (TaskInfo taskInfo : tasksByName.values()) {
+                counter.addTask(taskInfo);
+            }
+            countersById.put(counterId, counter);
+        }
+
+        // Temporarily omit any prior tasks for the pod instance being placed, then restore them:
+        int matchingTaskCount = counter.getMatchingTaskCount();
+        Set<String> excludedTaskNames = taskNamesByPodInstance.getOrDefault(
+                Arrays.asList(podInstance.getPod().getType(), podInstance.getIndex()), Collections.emptySet());
+        for (String taskName : excludedTaskNames) {
+            counter.removeTask(taskName);
+        }
+        try {
+            Map<K, Integer> keyCounts = new HashMap<>();
+            for (K key : keys) {
+                keyCounts.put(key, counter.getCount(key));
+            }
+            return Optional.of(new Counts<>(
+                    keyCounts,
+                    counter.getMinCount(),
+                    counter.getMaxCount(),
+                    counter.getKeyCount(),
+                    matchingTaskCount));
+        } finally {
+            for (String taskName : excludedTaskNames) {
+                counter.addTask(tasksByName.get(taskName));
+            }
+        }
+    }
+
+    private static Optional<List<Object>> getPodInstanceKey(TaskInfo taskInfo) {
+        try {
+            TaskLabelReader labelReader = new TaskLabelReader(taskInfo);
+            return Optional.of(Arrays.asList(labelReader.getType(), labelReader.getIndex()));
+        } catch (TaskException | NumberFormatException e) {
+            // Not equivalent to any pod instance, see PlacementUtils.areEquivalent()
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The result of a lookup against the index.
+     *
+     * @param <K> the type of the keys which were counted
+     */
+    public static class Counts<K> {
+        private final Map<K, Integer> keyCounts;
+        private final int minCount;
+        private final int maxCount;
+        private final int keyCount;
+        private final int matchingTaskCount;
+
+        private Counts(Map<K, Integer> keyCounts, int minCount, int maxCount, int keyCount, int matchingTaskCount) {
+            this.keyCounts = keyCounts;
+            this.minCount = minCount;
+            this.maxCount = maxCount;
+            this.keyCount = keyCount;
+            this.matchingTaskCount = matchingTaskCount;
+        }
+
+        /**
+         * Returns the number of times that the provided key was found, which must be one of the requested keys.
+         */
+        public int getCount(K key) {
+            return keyCounts.getOrDefault(key, 0);
+        }
+
+        /**
+         * Returns the smallest nonzero count among all keys, or zero if no keys were found.
+         */
+        public int getMinCount() {
+            return minCount;
+        }
+
+        /**
+         * Returns the largest count among all keys, or zero if no keys were found.
+         */
+        public int getMaxCount() {
+            return maxCount;
+        }
+
+        /**
+         * Returns the number of distinct keys which were found.
+         */
+        public int getKeyCount() {
+            return keyCount;
+        }
+
+        /**
+         * Returns the number of tasks which had at least one key, including any tasks for the pod instance which were
+         * omitted from the other counts.
+         */
+        public int getMatchingTaskCount() {
+            return matchingTaskCount;
+        }
+    }
+
+    /**
+     * Counts of tasks by key for a single key function.
+     */
+    private static class KeyCounter<K> {
+        private final Function<TaskInfo, Collection<K>> keyFunction;
+        private final Map<String, Collection<K>> keysByTaskName = new HashMap<>();
+        private final Map<K, Integer> countsByKey = new HashMap<>();
+        // The number of keys with each count, for finding the min and max counts:
+        private final TreeMap<Integer, Integer> keyCountsByCount = new TreeMap<>();
+
+        private KeyCounter(Function<TaskInfo, Collection<K>> keyFunction) {
+            this.keyFunction = keyFunction;
+        }
+
+        private void addTask(TaskInfo taskInfo) {
+            Collection<K> keys = keyFunction.apply(taskInfo);
+            if (keys.isEmpty()) {
+                return;
+            }
+            keysByTaskName.put(taskInfo.getName(), keys);
+            for (K key : keys) {
+                setCount(key, getCount(key) + 1);
+            }
+        }
+
+        private void removeTask(String taskName) {
+            Collection<K> keys = keysByTaskName.remove(taskName);
+            if (keys == null) {
+                return;
+            }
+            for (K key : keys) {
+                setCount(key, getCount(key) - 1);
+            }
+        }
+
+        private int getCount(K key) {
+            return countsByKey.getOrDefault(key, 0);
+        }
+
+        private int getMinCount() {
+            return keyCountsByCount.isEmpty() ? 0 : keyCountsByCount.firstKey();
+        }
+
+        private int getMaxCount() {
+            return keyCountsByCount.isEmpty() ? 0 : keyCountsByCount.lastKey();
+        }
+
+        private int getKeyCount() {
+            return countsByKey.size();
+        }
+
+        private int getMatchingTaskCount() {
+            return keysByTaskName.size();
+        }
+
+        private void setCount(K key, int count) {
+            int previousCount = getCount(key);
+            if (previousCount > 0) {
+                keyCountsByCount.compute(previousCount, (c, n) -> n == 1 ? null : n - 1);
+            }
+            if (count > 0) {
+                countsByKey.put(key, count);
+                keyCountsByCount.merge(count, 1, Integer::sum);
+            } else {
+                countsByKey.remove(key);
+            }
+        }
+    }
+
+    /**
+     * A read-only collection of tasks which carries the {@link PlacementIndex} of those tasks.
+     */
+    private static class IndexedTasks extends AbstractCollection<TaskInfo> {
+        private final PlacementIndex index;
+        private final long version;
+        private final Collection<TaskInfo> tasks;
+
+        private IndexedTasks(PlacementIndex index, long version, Collection<TaskInfo> tasks) {
+            this.index = index;
+            this.version = version;
+            this.tasks = Collections.unmodifiableCollection(tasks);
+        }
+
+        @Override
+        public Iterator<TaskInfo> iterator() {
+            return tasks.iterator();
+        }
+
+        @Override
+        public int size() {
+            return tasks.size();
+        }
+    }
+}
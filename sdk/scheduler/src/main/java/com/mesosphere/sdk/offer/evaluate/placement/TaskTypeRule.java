@@ -4,11 +4,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import com.mesosphere.sdk.specification.PodInstance;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.SlaveID;
 import org.apache.mesos.Protos.TaskInfo;
 import com.mesosphere.sdk.offer.evaluate.EvaluationOutcome;
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -94,17 +96,29 @@ public class TaskTypeRule implements PlacementRule {
 
     @Override
     public EvaluationOutcome filter(Offer offer, PodInstance podInstance, Collection<TaskInfo> tasks) {
-        List<TaskInfo> matchingTasks = new ArrayList<>();
-        for (TaskInfo task : tasks) {
-            if (typeToFind.equals(typeConverter.getTaskType(task))) {
-                matchingTasks.add(task);
+        boolean anyMatchingTasks;
+        boolean matchingTaskOnAgent;
+        Optional<PlacementIndex.Counts<SlaveID>> indexedCounts = PlacementIndex.getCounts(
+                tasks, this, this::getMatchingAgentIds, podInstance, Collections.singleton(offer.getSlaveId()));
+        if (indexedCounts.isPresent()) {
+            // Use the precomputed counts of matching tasks on each agent, rather than examining every task.
+            anyMatchingTasks = indexedCounts.get().getMatchingTaskCount() > 0;
+            matchingTaskOnAgent = indexedCounts.get().getCount(offer.getSlaveId()) > 0;
+        } else {
+            List<TaskInfo> matchingTasks = new ArrayList<>();
+            for (TaskInfo task : tasks) {
+                if (typeToFind.equals(typeConverter.getTaskType(task))) {
+                    matchingTasks.add(task);
+                }
             }
+            anyMatchingTasks = !matchingTasks.isEmpty();
+            matchingTaskOnAgent = anyMatchingTasks && isMatchingTaskOnAgent(offer, podInstance, matchingTasks);
         }
         // Create a rule which will handle most of the validation. Logic is deferred to avoid
         // double-counting a task against a prior version of itself.
         switch (behaviorType) {
         case AVOID:
-            if (matchingTasks.isEmpty()) {
+            if (!anyMatchingTasks) {
                 // nothing to avoid, but this is expected when avoiding nodes of the same type
                 // (self-avoidance), or when the developer has configured bidirectional rules
                 // (A avoids B + B avoids A)
@@ -114,10 +128,10 @@ public class TaskTypeRule implements PlacementRule {
                         typeToFind)
                         .build();
             } else {
-                return filterAvoid(offer, podInstance, matchingTasks);
+                return filterAvoid(matchingTaskOnAgent);
             }
         case COLOCATE:
-            if (matchingTasks.isEmpty()) {
+            if (!anyMatchingTasks) {
                 // nothing to colocate with! fall back to allowing any location.
                 // this is expected when the developer has configured bidirectional rules
                 // (A colocates with B + B colocates with A)
@@ -127,7 +141,7 @@ public class TaskTypeRule implements PlacementRule {
                         typeToFind)
                         .build();
             } else {
-                return filterColocate(offer, podInstance, matchingTasks);
+                return filterColocate(matchingTaskOnAgent);
             }
         default:
             throw new IllegalStateException("Unsupported behavior type: " + behaviorType);
@@ -141,31 +155,50 @@ public class TaskTypeRule implements PlacementRule {
     }
 
     /**
-     * Implementation of task type avoidance. Considers the presence of tasks in the cluster to
-     * determine whether the provided task can be launched against a given offer. This rule requires
-     * that the offer be located on an agent which doesn't currently have an instance of the
-     * specified task type.
+     * Returns the agent of the provided task if it's of the type to be found, or an empty collection otherwise.
+     */
+    private Collection<SlaveID> getMatchingAgentIds(TaskInfo task) {
+        return typeToFind.equals(typeConverter.getTaskType(task))
+                ? Collections.singletonList(task.getSlaveId())
+                : Collections.emptyList();
+    }
+
+    /**
+     * Returns whether any of the provided tasks of the type to be found are located on the offer's agent.
      */
-    private EvaluationOutcome filterAvoid(
+    private static boolean isMatchingTaskOnAgent(
             Offer offer,
             PodInstance podInstance,
-            Collection<TaskInfo> tasksToAvoid) {
+            Collection<TaskInfo> matchingTasks) {
 
-        for (TaskInfo taskToAvoid : tasksToAvoid) {
-            if (PlacementUtils.areEquivalent(taskToAvoid, podInstance)) {
+        for (TaskInfo matchingTask : matchingTasks) {
+            if (PlacementUtils.areEquivalent(matchingTask, podInstance)) {
                 // This is stale data for the same task that we're currently evaluating for
-                // placement. Don't worry about avoiding it. This occurs when we're redeploying
-                // a given task with a new configuration (old data not deleted yet).
+                // placement. Don't worry about avoiding or colocating with it. This occurs when we're
+                // redeploying a given task with a new configuration (old data not deleted yet).
                 continue;
             }
-            if (taskToAvoid.getSlaveId().equals(offer.getSlaveId())) {
-                // The offer is for an agent which has a task to be avoided. Denied!
-                return EvaluationOutcome.fail(
-                        this,
-                        "Found a task matching avoided type '%s' on this agent.", typeToFind)
-                        .build();
+            if (matchingTask.getSlaveId().equals(offer.getSlaveId())) {
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Implementation of task type avoidance. Considers the presence of tasks in the cluster to
+     * determine whether the provided task can be launched against a given offer. This rule requires
+     * that the offer be located on an agent which doesn't currently have an instance of the
+     * specified task type.
+     */
+    private EvaluationOutcome filterAvoid(boolean taskToAvoidOnAgent) {
+        if (taskToAvoidOnAgent) {
+            // The offer is for an agent which has a task to be avoided. Denied!
+            return EvaluationOutcome.fail(
+                    this,
+                    "Found a task matching avoided type '%s' on this agent.", typeToFind)
+                    .build();
+        }
         // The offer doesn't match any tasks to avoid. Approved!
         return EvaluationOutcome.pass(this, "No tasks of avoided type '%s' found on this agent.", typeToFind).build();
     }
@@ -176,26 +209,14 @@ public class TaskTypeRule implements PlacementRule {
      * that the offer be located on an agent which currently has an instance of the specified task
      * type.
      */
-    private EvaluationOutcome filterColocate(
-            Offer offer,
-            PodInstance podInstance,
-            Collection<TaskInfo> tasksToColocate) {
-
-        for (TaskInfo taskToColocate : tasksToColocate) {
-            if (PlacementUtils.areEquivalent(taskToColocate, podInstance)) {
-                // This is stale data for the same task that we're currently evaluating for
-                // placement. Don't worry about colocating with it. This occurs when we're
-                // redeploying a given task with a new configuration (old data not deleted yet).
-                continue;
-            }
-            if (taskToColocate.getSlaveId().equals(offer.getSlaveId())) {
-                // The offer is for an agent which has a task to colocate with. Approved!
-                return EvaluationOutcome.pass(
-                        this,
-                        "Found a task matching colocated type '%s' on this agent.",
-                        typeToFind)
-                        .build();
-            }
+    private EvaluationOutcome filterColocate(boolean taskToColocateOnAgent) {
+        if (taskToColocateOnAgent) {
+            // The offer is for an agent which has a task to colocate with. Approved!
+            return EvaluationOutcome.pass(
+                    this,
+                    "Found a task matching colocated type '%s' on this agent.",
+                    typeToFind)
+                    .build();
         }
         // The offer doesn't match any tasks to colocate with. Denied!
         return EvaluationOutcome.fail(
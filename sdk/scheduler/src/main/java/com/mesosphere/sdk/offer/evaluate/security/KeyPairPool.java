@@ -0,0 +1,93 @@
+package com.mesosphere.sdk.offer.evaluate.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of {@link KeyPair}s which is kept full by a background thread, so that callers don't need to wait on
+ * key generation. If the pool is empty when a key pair is requested, the key pair is generated by the caller instead.
+ */
+class KeyPairPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyPairPool.class);
+
+    private final KeyPairGenerator keyPairGenerator;
+    // Null if pooling is disabled:
+    private final BlockingQueue<KeyPair> keyPairs;
+    private final Thread fillThread;
+
+    /**
+     * Creates a new pool which holds up to {@code capacity} key pairs from the provided generator.
+     *
+     * @param capacity the number of key pairs to generate ahead of time, or zero to always generate key pairs on demand
+     */
+    KeyPairPool(KeyPairGenerator keyPairGenerator, int capacity) {
+        this.keyPairGenerator = keyPairGenerator;
+        if (capacity > 0) {
+            this.keyPairs = new ArrayBlockingQueue<>(capacity);
+            this.fillThread = new Thread(this::fill, "tls-keypair-pool");
+            this.fillThread.setDaemon(true);
+            this.fillThread.start();
+        } else {
+            this.keyPairs = null;
+            this.fillThread = null;
+        }
+    }
+
+    /**
+     * Returns a pre-generated key pair if one is available, or generates a new key pair otherwise. Each key pair is
+     * only returned once.
+     */
+    KeyPair take() {
+        KeyPair keyPair = keyPairs == null ? null : keyPairs.poll();
+        return keyPair == null ? generate() : keyPair;
+    }
+
+    /**
+     * Stops filling the pool and discards any key pairs which it holds. Subsequent calls to {@link #take()} generate
+     * key pairs on demand.
+     */
+    void close() {
+        if (fillThread == null) {
+            return;
+        }
+        fillThread.interrupt();
+        keyPairs.clear();
+    }
+
+    /**
+     * Returns the number of key pairs which are currently ready in the pool.
+     */
+    @VisibleForTesting
+    int getAvailableCount() {
+        return keyPairs == null ? 0 : keyPairs.size();
+    }
+
+    private void fill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                keyPairs.put(generate());
+            }
+        } catch (InterruptedException e) {
+            // Interrupted by close()
+        } catch (RuntimeException e) {
+            logger.error("Failed to generate key pair for pool, key pairs will be generated on demand.", e);
+            return;
+        }
+        logger.info("Stopped filling key pair pool, key pairs will be generated on demand.");
+    }
+
+    private KeyPair generate() {
+        // KeyPairGenerators aren't guaranteed to be thread-safe:
+        synchronized (keyPairGenerator) {
+            return keyPairGenerator.generateKeyPair();
+        }
+    }
+}
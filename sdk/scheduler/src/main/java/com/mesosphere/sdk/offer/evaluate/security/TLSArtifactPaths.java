@@ -104,7 +104,7 @@ public class TLSArtifactPaths {
     /**
      * Returns the appropriate name for the provided {@link TLSArtifact} to be used in a secret store.
      */
-    private String getSecretStoreName(TLSArtifact tlsArtifact, String encryptionSpecName) {
+    public String getSecretStoreName(TLSArtifact tlsArtifact, String encryptionSpecName) {
         return tlsArtifact.getSecretStoreName(sansHash, taskInstanceName, encryptionSpecName);
     }
 }
@@ -9,12 +9,24 @@ import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
@@ -27,6 +39,8 @@ import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequestBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.mesosphere.sdk.dcos.clients.CertificateAuthorityClient;
@@ -42,11 +56,40 @@ class TLSArtifactsGenerator {
     @VisibleForTesting
     static final char[] KEYSTORE_PASSWORD = "notsecure".toCharArray();
 
+    // The number of key pairs to generate ahead of time:
+    private static final int KEY_PAIR_POOL_CAPACITY = 8;
+    // The number of artifact sets which may be generated concurrently in the background:
+    private static final int PREFETCH_THREADS = 4;
+    // Prefetched artifacts which go unused for this long are discarded:
+    private static final Duration PREFETCH_TTL = Duration.ofHours(1);
+    // The longest to wait for prefetched artifacts before generating them inline instead:
+    private static final Duration DEFAULT_PREFETCH_WAIT = Duration.ofSeconds(30);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private final CertificateAuthorityClient caClient;
-    private final KeyPairGenerator keyPairGenerator;
+    private final KeyPairPool keyPairPool;
+    private final Duration prefetchWait;
+    private final ExecutorService prefetchExecutor;
+
+    // Access must be synchronized on the map:
+    private final Map<String, Deque<PrefetchedArtifacts>> prefetchedArtifacts = new HashMap<>();
+
+    /**
+     * Artifacts which are being generated in the background, along with when their generation was started.
+     */
+    private static class PrefetchedArtifacts {
+        private final Future<Map<TLSArtifact, String>> artifacts;
+        private final long startNanos;
+
+        private PrefetchedArtifacts(Future<Map<TLSArtifact, String>> artifacts, long startNanos) {
+            this.artifacts = artifacts;
+            this.startNanos = startNanos;
+        }
+    }
 
     public TLSArtifactsGenerator(CertificateAuthorityClient caClient) {
-        this(caClient, getDefaultKeyPairGenerator());
+        this(caClient, new KeyPairPool(getDefaultKeyPairGenerator(), KEY_PAIR_POOL_CAPACITY));
     }
 
     /**
@@ -62,15 +105,141 @@ class TLSArtifactsGenerator {
 
     @VisibleForTesting
     TLSArtifactsGenerator(CertificateAuthorityClient caClient, KeyPairGenerator keyPairGenerator) {
+        this(caClient, new KeyPairPool(keyPairGenerator, 0));
+    }
+
+    @VisibleForTesting
+    TLSArtifactsGenerator(CertificateAuthorityClient caClient, KeyPairPool keyPairPool) {
+        this(caClient, keyPairPool, DEFAULT_PREFETCH_WAIT);
+    }
+
+    @VisibleForTesting
+    TLSArtifactsGenerator(CertificateAuthorityClient caClient, KeyPairPool keyPairPool, Duration prefetchWait) {
         this.caClient = caClient;
-        this.keyPairGenerator = keyPairGenerator;
+        this.keyPairPool = keyPairPool;
+        this.prefetchWait = prefetchWait;
+        this.prefetchExecutor = Executors.newFixedThreadPool(PREFETCH_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "tls-artifacts-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts generating artifacts for the provided certificate names in the background, so that later calls to
+     * {@link #generate(CertificateNamesGenerator)} for the same names don't need to wait on key generation and signing
+     * one at a time. Calling this for several tasks at once results in their certificates being signed concurrently.
+     *
+     * @param count the number of artifact sets which will be needed for these names, one per TLS config in the task.
+     *              Artifacts are only started for any sets which aren't already pending
+     */
+    void prefetch(CertificateNamesGenerator certificateNamesGenerator, int count) {
+        String key = getPrefetchKey(certificateNamesGenerator);
+        synchronized (prefetchedArtifacts) {
+            discardExpiredPrefetches();
+            Deque<PrefetchedArtifacts> pending = prefetchedArtifacts.get(key);
+            if (pending == null) {
+                pending = new ArrayDeque<>();
+                prefetchedArtifacts.put(key, pending);
+            }
+            while (pending.size() < count) {
+                logger.info("Prefetching TLS artifacts for {}", key);
+                Future<Map<TLSArtifact, String>> artifacts;
+                try {
+                    artifacts = prefetchExecutor.submit(() -> generateArtifacts(certificateNamesGenerator));
+                } catch (RejectedExecutionException e) {
+                    logger.info("Not prefetching TLS artifacts for {}: prefetching has been stopped", key);
+                    break;
+                }
+                pending.add(new PrefetchedArtifacts(artifacts, System.nanoTime()));
+            }
+            if (pending.isEmpty()) {
+                prefetchedArtifacts.remove(key);
+            }
+        }
     }
 
     /**
-     * Returns a mapping of {@link TLSArtifact} types to generated secret content, to be stored in a SecretStore.
+     * Returns a mapping of {@link TLSArtifact} types to generated secret content, to be stored in a SecretStore. If
+     * artifacts for these names were {@link #prefetch}ed, those are returned instead of generating new ones. If the
+     * prefetched artifacts aren't ready within a bounded wait, they're abandoned and new ones are generated inline.
      */
     Map<TLSArtifact, String> generate(CertificateNamesGenerator certificateNamesGenerator) throws Exception {
-        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        PrefetchedArtifacts prefetched = takePrefetched(getPrefetchKey(certificateNamesGenerator));
+        if (prefetched != null) {
+            try {
+                return prefetched.artifacts.get(prefetchWait.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                logger.warn("Failed to prefetch TLS artifacts, retrying", e.getCause());
+            } catch (TimeoutException e) {
+                logger.warn("Timed out after {}ms waiting for prefetched TLS artifacts, retrying",
+                        prefetchWait.toMillis());
+                prefetched.artifacts.cancel(true);
+            } catch (CancellationException e) {
+                logger.warn("Prefetching TLS artifacts was cancelled, retrying");
+            }
+        }
+        return generateArtifacts(certificateNamesGenerator);
+    }
+
+    /**
+     * Stops generating any prefetched artifacts or pooled key pairs, and discards any which were already generated.
+     * Subsequent calls to {@link #prefetch} have no effect, while {@link #generate} generates artifacts inline.
+     */
+    void close() {
+        synchronized (prefetchedArtifacts) {
+            for (Deque<PrefetchedArtifacts> pending : prefetchedArtifacts.values()) {
+                pending.forEach(prefetched -> prefetched.artifacts.cancel(true));
+            }
+            prefetchedArtifacts.clear();
+        }
+        prefetchExecutor.shutdownNow();
+        keyPairPool.close();
+    }
+
+    private PrefetchedArtifacts takePrefetched(String key) {
+        synchronized (prefetchedArtifacts) {
+            Deque<PrefetchedArtifacts> pending = prefetchedArtifacts.get(key);
+            if (pending == null) {
+                return null;
+            }
+            PrefetchedArtifacts prefetched = pending.poll();
+            if (pending.isEmpty()) {
+                prefetchedArtifacts.remove(key);
+            }
+            return prefetched;
+        }
+    }
+
+    /**
+     * Discards any prefetched artifacts which were never used, e.g. because the task's configuration changed. Must be
+     * called while synchronized on {@code prefetchedArtifacts}.
+     */
+    private void discardExpiredPrefetches() {
+        long nowNanos = System.nanoTime();
+        for (Iterator<Deque<PrefetchedArtifacts>> iter = prefetchedArtifacts.values().iterator(); iter.hasNext();) {
+            Deque<PrefetchedArtifacts> pending = iter.next();
+            pending.removeIf(prefetched -> {
+                if (nowNanos - prefetched.startNanos <= PREFETCH_TTL.toNanos()) {
+                    return false;
+                }
+                // Stop generating the artifacts if that's still in progress:
+                prefetched.artifacts.cancel(true);
+                return true;
+            });
+            if (pending.isEmpty()) {
+                iter.remove();
+            }
+        }
+    }
+
+    private static String getPrefetchKey(CertificateNamesGenerator certificateNamesGenerator) {
+        return String.format("%s/%s", certificateNamesGenerator.getSubject(), certificateNamesGenerator.getSANsHash());
+    }
+
+    private Map<TLSArtifact, String> generateArtifacts(CertificateNamesGenerator certificateNamesGenerator)
+            throws Exception {
+        KeyPair keyPair = keyPairPool.take();
 
         // Get new end-entity certificate from CA
         X509Certificate certificate = caClient.sign(generateCSR(keyPair, certificateNamesGenerator));
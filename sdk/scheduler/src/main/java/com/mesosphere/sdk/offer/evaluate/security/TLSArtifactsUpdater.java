@@ -6,8 +6,13 @@ import org.slf4j.LoggerFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.mesosphere.sdk.dcos.clients.CertificateAuthorityClient;
 import com.mesosphere.sdk.dcos.clients.SecretsClient;
+import com.mesosphere.sdk.scheduler.Metrics;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -15,14 +20,37 @@ import java.util.stream.Collectors;
 
 /**
  * Automatically populates a secret service with missing TLS certificate content.
+ *
+ * <p>The names of the secrets in each namespace are cached for a limited time, rather than listing the namespace each
+ * time a task is evaluated. Secrets which are created or deleted by this updater are reflected in the cache
+ * immediately, so the TTL only bounds how long changes made by others may go unnoticed.
  */
 public class TLSArtifactsUpdater {
 
+    private static final Duration DEFAULT_SECRET_NAMES_TTL = Duration.ofMinutes(1);
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final String serviceName;
     private final SecretsClient secretsClient;
     private final TLSArtifactsGenerator tlsArtifactsGenerator;
+    private final long secretNamesTtlNanos;
+
+    // Access must be synchronized on the map:
+    private final Map<String, CachedSecretNames> secretNamesByNamespace = new HashMap<>();
+
+    /**
+     * A listing of the secret names in a namespace, along with when the listing expires.
+     */
+    private static class CachedSecretNames {
+        private final Set<String> names;
+        private final long expirationNanos;
+
+        private CachedSecretNames(Collection<String> names, long expirationNanos) {
+            this.names = new HashSet<>(names);
+            this.expirationNanos = expirationNanos;
+        }
+    }
 
     public TLSArtifactsUpdater(String serviceName, SecretsClient secretsClient, CertificateAuthorityClient caClient) {
         this(serviceName, secretsClient, new TLSArtifactsGenerator(caClient));
@@ -30,9 +58,68 @@ public class TLSArtifactsUpdater {
 
     @VisibleForTesting
     TLSArtifactsUpdater(String serviceName, SecretsClient secretsClient, TLSArtifactsGenerator tlsArtifactsGenerator) {
+        this(serviceName, secretsClient, tlsArtifactsGenerator, DEFAULT_SECRET_NAMES_TTL);
+    }
+
+    @VisibleForTesting
+    TLSArtifactsUpdater(
+            String serviceName,
+            SecretsClient secretsClient,
+            TLSArtifactsGenerator tlsArtifactsGenerator,
+            Duration secretNamesTtl) {
         this.serviceName = serviceName;
         this.secretsClient = secretsClient;
         this.tlsArtifactsGenerator = tlsArtifactsGenerator;
+        this.secretNamesTtlNanos = secretNamesTtl.toNanos();
+    }
+
+    /**
+     * Lists the secrets in each of the provided namespaces ahead of any calls to {@link #update}, so that the first
+     * evaluations of TLS-enabled tasks don't need to wait on the secret store. Namespaces which fail to be listed are
+     * skipped, and will instead be listed when they're first needed.
+     */
+    public void prewarm(Collection<String> namespaces) {
+        for (String namespace : namespaces) {
+            try {
+                Collection<String> secretNames = secretsClient.list(namespace);
+                putSecretNames(namespace, secretNames);
+                logger.info("Loaded {} secret names in namespace '{}'", secretNames.size(), namespace);
+            } catch (IOException e) {
+                logger.warn(String.format("Failed to list secrets in namespace '%s'", namespace), e);
+            }
+        }
+    }
+
+    /**
+     * Starts generating artifacts in the background for any of the provided TLS configs whose secrets are missing, so
+     * that a later {@link #update} for this task doesn't need to wait on generating them. Failures are logged, and
+     * otherwise left to be handled by {@link #update}.
+     */
+    public void prefetch(
+            TLSArtifactPaths tlsArtifactPaths,
+            CertificateNamesGenerator certificateNamesGenerator,
+            Collection<String> encryptionSpecNames) {
+        String namespace = tlsArtifactPaths.getTaskSecretsNamespace();
+        Collection<String> currentSecretNames;
+        try {
+            currentSecretNames = getSecretNames(namespace);
+        } catch (IOException e) {
+            logger.warn(String.format("Failed to list secrets in namespace '%s'", namespace), e);
+            return;
+        }
+        int missingCount = (int) encryptionSpecNames.stream()
+                .filter(specName -> !currentSecretNames.containsAll(tlsArtifactPaths.getAllNames(specName)))
+                .count();
+        if (missingCount > 0) {
+            tlsArtifactsGenerator.prefetch(certificateNamesGenerator, missingCount);
+        }
+    }
+
+    /**
+     * Stops generating any artifacts which were started by {@link #prefetch}.
+     */
+    public void close() {
+        tlsArtifactsGenerator.close();
     }
 
     /**
@@ -43,7 +130,7 @@ public class TLSArtifactsUpdater {
             CertificateNamesGenerator certificateNamesGenerator,
             String encryptionSpecName) throws Exception {
         String namespace = tlsArtifactPaths.getTaskSecretsNamespace();
-        Collection<String> currentSecretNames = secretsClient.list(namespace);
+        Collection<String> currentSecretNames = getSecretNames(namespace);
         // Convert "namespace/secret" => "secret":
         Set<String> expectedSecretNames = new TreeSet<>(tlsArtifactPaths.getAllNames(encryptionSpecName));
         Set<String> missingSecrets = new TreeSet<>();
@@ -73,21 +160,81 @@ public class TLSArtifactsUpdater {
         // where we delete old secrets, then fail to generate their replacements and leave everything in a bad state.
         Map<TLSArtifact, String> newArtifactValues = tlsArtifactsGenerator.generate(certificateNamesGenerator);
 
-        // One or more secrets are missing. Erase any current values and start from scratch.
-        for (String secretName : currentSecretNames.stream()
-                .filter(path -> expectedSecretNames.contains(path))
-                .collect(Collectors.toList())) {
-            String secretPath = namespace + "/" + secretName;
-            logger.info("Deleting secret: {}", secretPath);
-            secretsClient.delete(secretPath);
+        boolean updateSucceeded = false;
+        try {
+            // One or more secrets are missing. Erase any current values and start from scratch.
+            for (String secretName : currentSecretNames.stream()
+                    .filter(path -> expectedSecretNames.contains(path))
+                    .collect(Collectors.toList())) {
+                String secretPath = namespace + "/" + secretName;
+                logger.info("Deleting secret: {}", secretPath);
+                secretsClient.delete(secretPath);
+                updateSecretName(namespace, secretName, false);
+            }
+
+            // Generate and write new values after deleting any current values.
+            for (Map.Entry<TLSArtifact, String> entry : newArtifactValues.entrySet()) {
+                String secretStorePath = tlsArtifactPaths.getSecretStorePath(entry.getKey(), encryptionSpecName);
+                logger.info("Creating new secret: {}", secretStorePath);
+                secretsClient.create(secretStorePath,
+                        new SecretsClient.Payload(serviceName, entry.getValue(), entry.getKey().getDescription()));
+                updateSecretName(
+                        namespace, tlsArtifactPaths.getSecretStoreName(entry.getKey(), encryptionSpecName), true);
+            }
+            updateSucceeded = true;
+        } finally {
+            if (!updateSucceeded) {
+                // The failed operation may or may not have taken effect. List the namespace again when it's next used.
+                invalidateSecretNames(namespace);
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the secrets in the provided namespace, listing the namespace if it isn't already cached or
+     * if the cached listing has expired.
+     */
+    private Collection<String> getSecretNames(String namespace) throws IOException {
+        synchronized (secretNamesByNamespace) {
+            CachedSecretNames cachedSecretNames = secretNamesByNamespace.get(namespace);
+            if (cachedSecretNames != null && System.nanoTime() - cachedSecretNames.expirationNanos < 0) {
+                Metrics.incrementTLSSecretNamesCacheHits();
+                return new TreeSet<>(cachedSecretNames.names);
+            }
+        }
+        Metrics.incrementTLSSecretNamesCacheMisses();
+        Collection<String> secretNames = secretsClient.list(namespace);
+        putSecretNames(namespace, secretNames);
+        return secretNames;
+    }
+
+    private void putSecretNames(String namespace, Collection<String> secretNames) {
+        synchronized (secretNamesByNamespace) {
+            secretNamesByNamespace.put(
+                    namespace, new CachedSecretNames(secretNames, System.nanoTime() + secretNamesTtlNanos));
         }
+    }
+
+    /**
+     * Reflects the creation or deletion of a secret in the cached listing of its namespace, if any.
+     */
+    private void updateSecretName(String namespace, String secretName, boolean created) {
+        synchronized (secretNamesByNamespace) {
+            CachedSecretNames cachedSecretNames = secretNamesByNamespace.get(namespace);
+            if (cachedSecretNames == null) {
+                return;
+            }
+            if (created) {
+                cachedSecretNames.names.add(secretName);
+            } else {
+                cachedSecretNames.names.remove(secretName);
+            }
+        }
+    }
 
-        // Generate and write new values after deleting any current values.
-        for (Map.Entry<TLSArtifact, String> entry : newArtifactValues.entrySet()) {
-            String secretStorePath = tlsArtifactPaths.getSecretStorePath(entry.getKey(), encryptionSpecName);
-            logger.info("Creating new secret: {}", secretStorePath);
-            secretsClient.create(secretStorePath,
-                    new SecretsClient.Payload(serviceName, entry.getValue(), entry.getKey().getDescription()));
+    private void invalidateSecretNames(String namespace) {
+        synchronized (secretNamesByNamespace) {
+            secretNamesByNamespace.remove(namespace);
         }
     }
 }
@@ -11,13 +11,26 @@ public class OfferOutcome {
     private final boolean pass;
     private final Protos.Offer offer;
     private final String outcomeDetails;
+    private final String selection;
 
     public OfferOutcome(String podInstanceName, boolean pass, Protos.Offer offer, String outcomeDetails) {
+        this(podInstanceName, pass, offer, outcomeDetails, "");
+    }
+
+    /**
+     * Creates a new outcome which also describes how the offer fared against the other passing offers.
+     *
+     * @param selection a description of the offer's score and whether it was selected, or an empty string if the
+     *                  offer wasn't scored
+     */
+    public OfferOutcome(
+            String podInstanceName, boolean pass, Protos.Offer offer, String outcomeDetails, String selection) {
         this.timestamp = System.currentTimeMillis();
         this.podInstanceName = podInstanceName;
         this.pass = pass;
         this.offer = offer;
         this.outcomeDetails = outcomeDetails;
+        this.selection = selection;
     }
 
     public String getPodInstanceName() {
@@ -36,6 +49,10 @@ public class OfferOutcome {
         return outcomeDetails;
     }
 
+    public String getSelection() {
+        return selection;
+    }
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -26,6 +26,7 @@ public class OfferOutcomeTracker {
     static final String OUTCOME_FIELD = "outcome";
     static final String EXPLANATION_FIELD = "explanation";
     static final String OFFER_FIELD = "offer";
+    static final String SELECTION_FIELD = "selection";
 
     public OfferOutcomeTracker() {
         this.outcomes = EvictingQueue.create(DEFAULT_CAPACITY);
@@ -35,15 +36,15 @@ public class OfferOutcomeTracker {
         this.outcomes = EvictingQueue.create(capacity);
     }
 
-    public void track(OfferOutcome outcome) {
+    public synchronized void track(OfferOutcome outcome) {
         outcomes.add(outcome);
     }
 
-    public void track(OfferOutcome... outcomes) {
+    public synchronized void track(OfferOutcome... outcomes) {
         this.outcomes.addAll(Arrays.asList(outcomes));
     }
 
-    private List<OfferOutcome> reverseList() {
+    private synchronized List<OfferOutcome> reverseList() {
         // Read the current outcomes into a list, reversing the list
         // as callers want to see the most recent offer outcomes first.
         List<OfferOutcome> recentFirst = outcomes.stream().collect(Collectors.toList());
@@ -68,6 +69,7 @@ public class OfferOutcomeTracker {
                     .put(POD_INSTANCE_NAME_FIELD, offerOutcome.getPodInstanceName())
                     .put(OUTCOME_FIELD, offerOutcome.pass() ? "pass" : "fail")
                     .put(EXPLANATION_FIELD, offerOutcome.getOutcomeDetails())
+                    .put(SELECTION_FIELD, offerOutcome.getSelection())
                     .put(OFFER_FIELD, offerOutcome.getOffer().toString());
             outcomes.put(outcome);
         });
@@ -88,6 +90,7 @@ public class OfferOutcomeTracker {
                                         th("Pod Instance"),
                                         th("Outcome"),
                                         th("Explanation"),
+                                        th("Selection"),
                                         th("Offer")
                                 ),
                                 each(reverseList(), offerOutcome ->
@@ -98,6 +101,7 @@ public class OfferOutcomeTracker {
                                             td(offerOutcome.pass() ? "PASS" : "FAIL"),
                                             td(newLineToHtmlBreak(offerOutcome.getOutcomeDetails()))
                                                     .withStyle("width: 500px"),
+                                            td(offerOutcome.getSelection()).withStyle("white-space: nowrap"),
                                             td(offerOutcome.getOffer().toString()).withStyle("width: 500px")
                                     )
                                 )
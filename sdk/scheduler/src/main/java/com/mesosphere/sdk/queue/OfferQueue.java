@@ -6,60 +6,125 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class acts as a buffer of Offers from Mesos.  By default it holds a maximum of 100 Offers.
+ *
+ * <p>Offers are keyed by their {@link Protos.OfferID}, so that rescinding an offer doesn't require a scan of the
+ * buffer, and are additionally indexed by agent. Offers which are taken from the buffer are grouped by agent, so that
+ * all offers for an agent may be coalesced into a single offer for evaluation. See
+ * {@link com.mesosphere.sdk.offer.OfferUtils#coalesceByAgent(List)}.
+ *
+ * <p>When the buffer is full, the configured {@link OverflowPolicy} decides which offer is dropped by
+ * {@link #put(Protos.Offer)}.
  */
 public class OfferQueue {
+
+    /**
+     * The policy for selecting which offer to drop when an offer is added to a full {@link OfferQueue}.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The new offer is dropped, leaving the buffered offers in place.
+         */
+        DECLINE_NEWEST,
+
+        /**
+         * The offer which has been buffered the longest is dropped to make room for the new offer. This avoids holding
+         * onto offers which are growing stale while newer offers are turned away.
+         */
+        DECLINE_OLDEST
+    }
+
     private static final int DEFAULT_CAPACITY = 100;
     private static final Duration DEFAULT_OFFER_WAIT = Duration.ofSeconds(5);
     private final Logger logger = LoggerFactory.getLogger(getClass());
-    private final BlockingQueue<Protos.Offer> queue;
+
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Offers in the order that they were added, allowing the oldest offer to be found quickly:
+    private final Map<Protos.OfferID, Protos.Offer> offers = new LinkedHashMap<>();
+    // Offer IDs for each agent, with agents in the order that their first buffered offer was added:
+    private final Map<String, Set<Protos.OfferID>> offerIdsByAgentId = new LinkedHashMap<>();
 
     public OfferQueue() {
         this(DEFAULT_CAPACITY);
     }
 
     /**
-     * Creates a new queue with the provided capacity.
+     * Creates a new queue with the provided capacity, which drops new offers when full.
      *
      * @param capacity the maximum size of the queue, or zero for unlimited queue size
      */
     public OfferQueue(int capacity) {
-        this.queue = capacity == 0 ? new LinkedBlockingQueue<>() : new LinkedBlockingQueue<>(capacity);
+        this(capacity, OverflowPolicy.DECLINE_NEWEST);
+    }
+
+    /**
+     * Creates a new queue with the provided capacity and overflow policy.
+     *
+     * @param capacity the maximum size of the queue, or zero for unlimited queue size
+     * @param overflowPolicy which offer to drop when an offer is {@link #put(Protos.Offer)} into a full queue
+     */
+    public OfferQueue(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Offer queue capacity must be non-negative: %d", capacity));
+        }
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
     }
 
     /**
      * Calling this method will wait for Offers for the provided duration.
-     * It returns all Offers currently in the queue if any are present and none otherwise.
+     * It returns all Offers currently in the queue if any are present and none otherwise. The returned Offers are
+     * grouped by agent, with agents ordered by the arrival of their oldest Offer. Offers from the same agent are
+     * adjacent, see the class documentation.
      */
     public List<Protos.Offer> takeAll(Duration duration) {
-        List<Protos.Offer> offers = new LinkedList<>();
+        lock.lock();
         try {
-            // The poll() waits for one Offer or returns null if none is present within the timeout.  The following
-            // drainTo() call will pull the following Offers (if any) off the queue and return.
-            Protos.Offer offer = queue.poll(duration.getSeconds(), TimeUnit.SECONDS);
-            if (offer != null) {
-                offers.add(offer);
+            try {
+                long remainingNanos = duration.toNanos();
+                while (offers.isEmpty() && remainingNanos > 0) {
+                    remainingNanos = notEmpty.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                logger.warn("Interrupted while waiting for offer in queue.");
             }
 
-            queue.drainTo(offers);
-        } catch (InterruptedException e) {
-            logger.warn("Interrupted while waiting for offer in queue.");
+            List<Protos.Offer> takenOffers = new ArrayList<>(offers.size());
+            for (Set<Protos.OfferID> agentOfferIds : offerIdsByAgentId.values()) {
+                for (Protos.OfferID offerId : agentOfferIds) {
+                    takenOffers.add(offers.get(offerId));
+                }
+            }
+            offers.clear();
+            offerIdsByAgentId.clear();
+            return takenOffers;
+        } finally {
+            lock.unlock();
         }
-
-        return offers;
     }
 
     /**
-     * Calling this method will wait for Offers for a static duration of {@link OfferQueue#DEFAULT_CAPACITY}.
+     * Calling this method will wait for Offers for a static duration of {@link OfferQueue#DEFAULT_OFFER_WAIT}.
      * It returns all Offers currently in the queue if any are present and an empty list if the duration
      * of {@link OfferQueue#DEFAULT_OFFER_WAIT} is reached.
      */
@@ -69,34 +134,105 @@ public class OfferQueue {
 
     /**
      * This method enqueues an Offer from Mesos if there is capacity. If there is not capacity the Offer is not added
-     * to the queue.
+     * to the queue, regardless of the {@link OverflowPolicy}.
      * @return true if the Offer was successfully put in the queue, false otherwise
      */
     public boolean offer(Protos.Offer offer) {
-        return queue.offer(offer);
+        lock.lock();
+        try {
+            if (isFull() && !offers.containsKey(offer.getId())) {
+                return false;
+            }
+            add(offer);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * This method removes an offer from the queue based on its OfferID.
+     * This method enqueues an Offer from Mesos. If the queue is full, an Offer is dropped according to the queue's
+     * {@link OverflowPolicy}: either the provided Offer, or the oldest Offer in the queue. The dropped Offer should be
+     * declined by the caller.
+     *
+     * @return the Offer which was dropped to make room, or an empty {@link Optional} if no Offer was dropped
      */
-    public void remove(Protos.OfferID offerID) {
-        Collection<Protos.Offer> offers = queue.parallelStream()
-                .filter(offer -> offer.getId().equals(offerID))
-                .collect(Collectors.toList());
+    public Optional<Protos.Offer> put(Protos.Offer offer) {
+        lock.lock();
+        try {
+            if (!isFull() || offers.containsKey(offer.getId())) {
+                add(offer);
+                return Optional.empty();
+            }
+            switch (overflowPolicy) {
+            case DECLINE_NEWEST:
+                return Optional.of(offer);
+            case DECLINE_OLDEST:
+                Protos.Offer oldestOffer = offers.values().iterator().next();
+                removeOffer(oldestOffer.getId());
+                add(offer);
+                return Optional.of(oldestOffer);
+            default:
+                throw new IllegalStateException(String.format("Unsupported overflow policy: %s", overflowPolicy));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        boolean removed = queue.removeAll(offers);
+    /**
+     * This method removes an offer from the queue based on its OfferID.
+     *
+     * @return whether the offer was present in the queue
+     */
+    public boolean remove(Protos.OfferID offerID) {
+        boolean removed;
+        lock.lock();
+        try {
+            removed = removeOffer(offerID) != null;
+        } finally {
+            lock.unlock();
+        }
         if (!removed) {
             logger.warn("Attempted to remove offer: '{}' but it was not present in the queue.", offerID.getValue());
         } else {
             logger.info("Removed offer: {}", offerID.getValue());
         }
+        return removed;
+    }
+
+    /**
+     * This method removes all offers for the provided agent from the queue, e.g. when the agent has been lost.
+     *
+     * @return the offers which were removed, if any
+     */
+    public Collection<Protos.Offer> removeAgent(Protos.SlaveID agentId) {
+        lock.lock();
+        try {
+            Set<Protos.OfferID> agentOfferIds = offerIdsByAgentId.remove(agentId.getValue());
+            if (agentOfferIds == null) {
+                return Collections.emptyList();
+            }
+            List<Protos.Offer> removedOffers = new ArrayList<>(agentOfferIds.size());
+            for (Protos.OfferID offerId : agentOfferIds) {
+                removedOffers.add(offers.remove(offerId));
+            }
+            return removedOffers;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * This method specifies whether any offers are in the queue.
      */
     public boolean isEmpty() {
-        return queue.isEmpty();
+        lock.lock();
+        try {
+            return offers.isEmpty();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -104,7 +240,12 @@ public class OfferQueue {
      */
     @VisibleForTesting
     int getSize() {
-        return queue.size();
+        lock.lock();
+        try {
+            return offers.size();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -112,6 +253,67 @@ public class OfferQueue {
      */
     @VisibleForTesting
     int getRemainingCapacity() {
-        return queue.remainingCapacity();
+        lock.lock();
+        try {
+            return capacity == 0 ? Integer.MAX_VALUE : capacity - offers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the offers in the queue for each agent.
+     */
+    @VisibleForTesting
+    Map<String, Set<Protos.OfferID>> getOfferIdsByAgentId() {
+        lock.lock();
+        try {
+            Map<String, Set<Protos.OfferID>> copy = new HashMap<>();
+            for (Map.Entry<String, Set<Protos.OfferID>> entry : offerIdsByAgentId.entrySet()) {
+                copy.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+            }
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Internals, which must be invoked with the lock held:
+
+    private boolean isFull() {
+        return capacity != 0 && offers.size() >= capacity;
+    }
+
+    /**
+     * Adds or replaces the provided offer, and wakes any waiting {@link #takeAll(Duration)} call.
+     */
+    private void add(Protos.Offer offer) {
+        Protos.Offer previousOffer = offers.put(offer.getId(), offer);
+        if (previousOffer != null && !previousOffer.getSlaveId().equals(offer.getSlaveId())) {
+            removeFromAgentIndex(previousOffer);
+        }
+        Set<Protos.OfferID> agentOfferIds = offerIdsByAgentId.get(offer.getSlaveId().getValue());
+        if (agentOfferIds == null) {
+            agentOfferIds = new LinkedHashSet<>();
+            offerIdsByAgentId.put(offer.getSlaveId().getValue(), agentOfferIds);
+        }
+        agentOfferIds.add(offer.getId());
+        notEmpty.signalAll();
+    }
+
+    private Protos.Offer removeOffer(Protos.OfferID offerId) {
+        Protos.Offer offer = offers.remove(offerId);
+        if (offer != null) {
+            removeFromAgentIndex(offer);
+        }
+        return offer;
+    }
+
+    private void removeFromAgentIndex(Protos.Offer offer) {
+        String agentId = offer.getSlaveId().getValue();
+        Set<Protos.OfferID> agentOfferIds = offerIdsByAgentId.get(agentId);
+        if (agentOfferIds != null && agentOfferIds.remove(offer.getId()) && agentOfferIds.isEmpty()) {
+            offerIdsByAgentId.remove(agentId);
+        }
     }
 }
@@ -3,6 +3,7 @@ package com.mesosphere.sdk.scheduler;
 import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.TextFormat;
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
 import com.mesosphere.sdk.offer.OfferUtils;
 import com.mesosphere.sdk.offer.evaluate.placement.IsLocalRegionRule;
 import com.mesosphere.sdk.queue.OfferQueue;
@@ -14,6 +15,7 @@ import com.mesosphere.sdk.scheduler.plan.Step;
 import com.mesosphere.sdk.specification.ServiceSpec;
 import com.mesosphere.sdk.state.ConfigStore;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.StateStoreException;
 import org.apache.mesos.Protos;
 import org.apache.mesos.Scheduler;
 import org.apache.mesos.SchedulerDriver;
@@ -23,19 +25,43 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Abstract main scheduler class that ties together the main pieces of a SDK Scheduler process.
  * Handles interaction with Mesos via an embedded {@link AbstractScheduler.MesosScheduler} object.
+ *
+ * <p>Offers are handled in a pipeline of stages, each with its own latency metric (see {@link Metrics}):
+ * <ol>
+ * <li>Intake, on the driver's callback thread: Offers are deduplicated and added to a bounded {@link OfferQueue}. If
+ * the queue is full, either the new offer or the oldest queued offer is declined.</li>
+ * <li>Candidate selection, on the offer thread: Once reconciliation has completed, candidate steps are fetched from the
+ * {@link PlanCoordinator} and offers are revived if needed.</li>
+ * <li>Evaluation, on the offer thread: Offers are matched against the candidate steps and accepted by
+ * {@link #processOffers(SchedulerDriver, List, Collection)}.</li>
+ * <li>Decline, on its own thread with a bounded queue: Offers which weren't accepted are declined in a batch for each
+ * cycle, so that the next cycle doesn't wait on these driver calls.</li>
+ * </ol>
+ * Candidate selection depends on the outcome of the previous evaluation, so those two stages run in sequence. Intake
+ * and decline run independently of them, so a slow evaluation doesn't hold up intake.
  */
 public abstract class AbstractScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractScheduler.class);
 
+    /**
+     * The number of decline batches which may be queued for the decline stage. When the queue is full, the submitting
+     * thread performs its declines itself rather than holding the offers any longer.
+     */
+    private static final int DECLINE_QUEUE_CAPACITY = 100;
+
     protected final StateStore stateStore;
     protected final ConfigStore<ServiceSpec> configStore;
     protected final SchedulerConfig schedulerConfig;
@@ -43,6 +69,8 @@ public abstract class AbstractScheduler {
     // Tracks whether apiServer has entered a started state. We avoid launching tasks until after the API server has
     // started, because when tasks launch they typically require access to ArtifactResource for config templates.
     private final AtomicBoolean apiServerStarted = new AtomicBoolean(false);
+    // Not set until the scheduler has registered with Mesos:
+    private volatile SchedulerApiServer apiServer;
     private final AtomicBoolean started = new AtomicBoolean(false);
 
     // Whether we should run in multithreaded mode. Should only be disabled for tests.
@@ -51,7 +79,10 @@ public abstract class AbstractScheduler {
     private final MesosScheduler mesosScheduler = new MesosScheduler();
 
     private final Object inProgressLock = new Object();
-    private final Set<Protos.OfferID> offersInProgress = new HashSet<>();
+    // Offers which haven't been accepted or declined yet, mapped to their System.nanoTime() at intake.
+    private final Map<Protos.OfferID, Long> offersInProgress = new HashMap<>();
+    // Offers which are queued to be declined. These remain in progress until the decline has been sent.
+    private final Set<Protos.OfferID> offersPendingDecline = new HashSet<>();
 
     /**
      * Executor for handling TaskStatus updates in {@link Scheduler#statusUpdate(SchedulerDriver, Protos.TaskStatus)}.
@@ -63,6 +94,15 @@ public abstract class AbstractScheduler {
      */
     private final ExecutorService offerExecutor = Executors.newSingleThreadExecutor();
 
+    /**
+     * Executor for declining unused offers, see {@link #declineShort(SchedulerDriver, Collection)} and
+     * {@link #declineLong(SchedulerDriver, Collection)}.
+     */
+    private final ExecutorService declineExecutor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(DECLINE_QUEUE_CAPACITY),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
     /**
      * Creates a new AbstractScheduler given a {@link StateStore}.
      */
@@ -73,6 +113,8 @@ public abstract class AbstractScheduler {
         this.stateStore = stateStore;
         this.configStore = configStore;
         this.schedulerConfig = schedulerConfig;
+        this.mesosScheduler.offerQueue = new OfferQueue(
+                schedulerConfig.getOfferQueueCapacity(), schedulerConfig.getOfferQueueOverflowPolicy());
     }
 
     /**
@@ -103,6 +145,20 @@ public abstract class AbstractScheduler {
         return this;
     }
 
+    /**
+     * Releases the resources held by the service, such as worker threads. Called once, when the process is shutting
+     * down. Subclasses which hold resources of their own should release them here, after calling this method.
+     */
+    public void stop() {
+        LOGGER.info("Stopping scheduler");
+        SchedulerApiServer apiServer = this.apiServer;
+        if (apiServer != null) {
+            apiServer.stop();
+        }
+        // Stores any task statuses which are still queued for a group commit:
+        stateStore.close();
+    }
+
     /**
      * Returns a Mesos API {@link Scheduler} object to be registered with Mesos, or an empty {@link Optional} if Mesos
      * registration should not be performed.
@@ -129,7 +185,7 @@ public abstract class AbstractScheduler {
                     return;
                 }
                 LOGGER.warn("Offers in progress {} is non-empty, sleeping for {}ms ...",
-                        offersInProgress, sleepDurationMs);
+                        offersInProgress.keySet(), sleepDurationMs);
             }
             Thread.sleep(sleepDurationMs);
         }
@@ -168,7 +224,7 @@ public abstract class AbstractScheduler {
      */
     @VisibleForTesting
     public AbstractScheduler setOfferQueueSize(int queueSize) {
-        mesosScheduler.offerQueue = new OfferQueue(queueSize);
+        mesosScheduler.offerQueue = new OfferQueue(queueSize, schedulerConfig.getOfferQueueOverflowPolicy());
         return this;
     }
 
@@ -182,12 +238,69 @@ public abstract class AbstractScheduler {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Declines the provided offers for a short duration, so that they're quickly offered again. The decline is
+     * performed asynchronously by the decline stage, and the offers remain in progress until it has been sent.
+     */
+    protected void declineShort(SchedulerDriver driver, Collection<Protos.Offer> offers) {
+        submitDecline(offers, declinedOffers -> OfferUtils.declineShort(driver, declinedOffers));
+    }
+
+    /**
+     * Declines the provided offers for a long duration, as they aren't currently needed. The decline is performed
+     * asynchronously by the decline stage, and the offers remain in progress until it has been sent.
+     */
+    protected void declineLong(SchedulerDriver driver, Collection<Protos.Offer> offers) {
+        submitDecline(offers, declinedOffers -> OfferUtils.declineLong(driver, declinedOffers));
+    }
+
+    private void submitDecline(Collection<Protos.Offer> offers, Consumer<Collection<Protos.Offer>> decline) {
+        if (offers.isEmpty()) {
+            return;
+        }
+        List<Protos.Offer> declinedOffers = new ArrayList<>(offers);
+        List<Protos.OfferID> declinedOfferIds = declinedOffers.stream()
+                .map(Protos.Offer::getId)
+                .collect(Collectors.toList());
+        synchronized (inProgressLock) {
+            offersPendingDecline.addAll(declinedOfferIds);
+        }
+        Runnable declineStage = () -> {
+            final Timer.Context context = Metrics.getOfferStageTimer(Metrics.OFFER_STAGE_DECLINE);
+            try {
+                decline.accept(declinedOffers);
+            } catch (RuntimeException e) {
+                LOGGER.error(String.format("Failed to decline offers: %s", declinedOfferIds), e);
+            } finally {
+                context.stop();
+                // Remove AFTER decline: Avoid race where we haven't declined yet but appear to be done
+                synchronized (inProgressLock) {
+                    offersPendingDecline.removeAll(declinedOfferIds);
+                    offersInProgress.keySet().removeAll(declinedOfferIds);
+                }
+            }
+        };
+        if (multithreaded) {
+            declineExecutor.execute(declineStage);
+        } else {
+            declineStage.run();
+        }
+    }
+
     /**
      * Returns a list of API resources to be served by the scheduler to the local cluster.
      * This may be called before {@link #initialize(SchedulerDriver)} has been called.
      */
     protected abstract Collection<Object> getResources();
 
+    /**
+     * Returns the executor which the {@link #getResources()} use to produce responses to reads, to be shut down along
+     * with the API server. By default, responses are produced on the API server's request threads.
+     */
+    protected ReadRequestExecutor getReadRequestExecutor() {
+        return ReadRequestExecutor.direct();
+    }
+
     /**
      * Performs any additional Scheduler initialization after registration has completed. The provided
      * {@link SchedulerDriver} may be used to talk to Mesos. Returns a {@link PlanCoordinator} which will be used to
@@ -218,8 +331,8 @@ public abstract class AbstractScheduler {
         // Avoid attempting to process offers until initialization has completed via the first call to registered().
         private final AtomicBoolean isInitialized = new AtomicBoolean(false);
 
-        // May be overridden in tests:
-        private OfferQueue offerQueue = new OfferQueue();
+        // Assigned by the AbstractScheduler constructor, may be overridden in tests:
+        private OfferQueue offerQueue;
 
         // These are all (re)assigned when the scheduler has (re)registered:
         private SchedulerDriver driver;
@@ -254,7 +367,7 @@ public abstract class AbstractScheduler {
             if (apiServerStarted.get()) {
                 LOGGER.info("Skipping API server setup");
             } else {
-                SchedulerApiServer apiServer = new SchedulerApiServer(schedulerConfig, getResources());
+                apiServer = new SchedulerApiServer(schedulerConfig, getResources(), getReadRequestExecutor());
                 apiServer.start(new AbstractLifeCycle.AbstractLifeCycleListener() {
                     @Override
                     public void lifeCycleStarted(LifeCycle event) {
@@ -291,45 +404,61 @@ public abstract class AbstractScheduler {
 
         @Override
         public void resourceOffers(SchedulerDriver driver, List<Protos.Offer> offers) {
+            final Timer.Context context = Metrics.getOfferStageTimer(Metrics.OFFER_STAGE_INTAKE);
+            try {
+                enqueueOffers(driver, offers);
+            } finally {
+                context.stop();
+            }
+
+            if (!multithreaded) {
+                processQueuedOffers();
+            }
+        }
+
+        /**
+         * Intake stage: Adds any new offers to the offer queue, declining them if the queue is full.
+         */
+        private void enqueueOffers(SchedulerDriver driver, List<Protos.Offer> offers) {
             Metrics.incrementReceivedOffers(offers.size());
 
             if (!apiServerStarted.get()) {
                 LOGGER.info("Declining {} offer{}: Waiting for API Server to start.",
                         offers.size(), offers.size() == 1 ? "" : "s");
-                OfferUtils.declineShort(driver, offers);
+                declineShort(driver, offers);
                 return;
             }
 
+            List<Protos.Offer> newOffers = new ArrayList<>();
             synchronized (inProgressLock) {
-                offersInProgress.addAll(
-                        offers.stream()
-                                .map(offer -> offer.getId())
-                                .collect(Collectors.toList()));
+                long nowNanos = System.nanoTime();
+                for (Protos.Offer offer : offers) {
+                    if (offersInProgress.putIfAbsent(offer.getId(), nowNanos) == null) {
+                        newOffers.add(offer);
+                    } else {
+                        LOGGER.warn("Ignoring duplicate offer which is already in progress: '{}'",
+                                offer.getId().getValue());
+                    }
+                }
 
                 LOGGER.info("Enqueuing {} offer{}. Updated offers in progress: {}",
-                        offers.size(),
-                        offers.size() == 1 ? "" : "s",
-                        offersInProgress.stream()
+                        newOffers.size(),
+                        newOffers.size() == 1 ? "" : "s",
+                        offersInProgress.keySet().stream()
                                 .map(offerID -> offerID.getValue())
                                 .collect(Collectors.toList()));
             }
 
-            for (Protos.Offer offer : offers) {
-                boolean queued = offerQueue.offer(offer);
-                if (!queued) {
+            List<Protos.Offer> overflowOffers = new ArrayList<>();
+            for (Protos.Offer offer : newOffers) {
+                Optional<Protos.Offer> droppedOffer = offerQueue.put(offer);
+                if (droppedOffer.isPresent()) {
                     LOGGER.warn("Offer queue is full: Declining offer and removing from in progress: '{}'",
-                            offer.getId().getValue());
-                    OfferUtils.declineShort(driver, Arrays.asList(offer));
-                    // Remove AFTER decline: Avoid race where we haven't declined yet but appear to be done
-                    synchronized (inProgressLock) {
-                        offersInProgress.remove(offer.getId());
-                    }
+                            droppedOffer.get().getId().getValue());
+                    overflowOffers.add(droppedOffer.get());
                 }
             }
-
-            if (!multithreaded) {
-                processQueuedOffers();
-            }
+            declineShort(driver, overflowOffers);
         }
 
         @Override
@@ -355,7 +484,12 @@ public abstract class AbstractScheduler {
         @Override
         public void offerRescinded(SchedulerDriver driver, Protos.OfferID offerId) {
             LOGGER.info("Rescinding offer: {}", offerId.getValue());
-            offerQueue.remove(offerId);
+            if (offerQueue.remove(offerId)) {
+                // The offer will never be processed, so it's no longer in progress:
+                synchronized (inProgressLock) {
+                    offersInProgress.remove(offerId);
+                }
+            }
         }
 
         @Override
@@ -375,6 +509,15 @@ public abstract class AbstractScheduler {
         public void slaveLost(SchedulerDriver driver, Protos.SlaveID agentId) {
             // TODO: Add recovery optimizations relevant to loss of an Agent.  TaskStatus updates are sufficient now.
             LOGGER.warn("Agent lost: {}", agentId.getValue());
+            // Mesos rescinds any outstanding offers for the agent, but don't wait on that before dropping them:
+            Collection<Protos.Offer> droppedOffers = offerQueue.removeAgent(agentId);
+            if (!droppedOffers.isEmpty()) {
+                LOGGER.info("Dropped {} queued offer{} from lost agent: {}",
+                        droppedOffers.size(), droppedOffers.size() == 1 ? "" : "s", agentId.getValue());
+                synchronized (inProgressLock) {
+                    droppedOffers.forEach(offer -> offersInProgress.remove(offer.getId()));
+                }
+            }
         }
 
         @Override
@@ -397,6 +540,7 @@ public abstract class AbstractScheduler {
         private void processQueuedOffers() {
             LOGGER.info("Waiting for queued offers...");
             List<Protos.Offer> offers = offerQueue.takeAll();
+            recordQueuedDurations(offers);
             try {
                 if (offers.isEmpty() && !isInitialized.get()) {
                     // The scheduler hasn't finished registration yet, so many members haven't been initialized either.
@@ -405,31 +549,37 @@ public abstract class AbstractScheduler {
                     return;
                 }
 
-                // Task Reconciliation:
-                // Task Reconciliation must complete before any Tasks may be launched.  It ensures that a Scheduler and
-                // Mesos have agreed upon the state of all Tasks of interest to the scheduler.
-                // http://mesos.apache.org/documentation/latest/reconciliation/
-                reconciler.reconcile(driver);
-                if (!reconciler.isReconciled()) {
-                    LOGGER.info("Declining {} offer{}: Waiting for task reconciliation to complete.",
-                            offers.size(), offers.size() == 1 ? "" : "s");
-                    OfferUtils.declineShort(driver, offers);
-                    return;
-                }
+                final Collection<Step> steps;
+                final Timer.Context candidatesContext = Metrics.getOfferStageTimer(Metrics.OFFER_STAGE_CANDIDATES);
+                try {
+                    // Task Reconciliation:
+                    // Task Reconciliation must complete before any Tasks may be launched.  It ensures that a Scheduler
+                    // and Mesos have agreed upon the state of all Tasks of interest to the scheduler.
+                    // http://mesos.apache.org/documentation/latest/reconciliation/
+                    reconciler.reconcile(driver);
+                    if (!reconciler.isReconciled()) {
+                        LOGGER.info("Declining {} offer{}: Waiting for task reconciliation to complete.",
+                                offers.size(), offers.size() == 1 ? "" : "s");
+                        declineShort(driver, offers);
+                        return;
+                    }
 
-                // Get the current work
-                Collection<Step> steps = planCoordinator.getCandidates();
+                    // Get the current work
+                    steps = planCoordinator.getCandidates();
 
-                // Revive previously suspended offers, if necessary
-                Collection<Step> activeWorkSet = new HashSet<>(steps);
-                Collection<Step> inProgressSteps = getInProgressSteps(planCoordinator);
-                LOGGER.info(
-                        "InProgress Steps: {}",
-                        inProgressSteps.stream()
-                                .map(step -> step.getMessage())
-                                .collect(Collectors.toList()));
-                activeWorkSet.addAll(inProgressSteps);
-                reviveManager.revive(activeWorkSet);
+                    // Revive previously suspended offers, if necessary
+                    Collection<Step> activeWorkSet = new HashSet<>(steps);
+                    Collection<Step> inProgressSteps = getInProgressSteps(planCoordinator);
+                    LOGGER.info(
+                            "InProgress Steps: {}",
+                            inProgressSteps.stream()
+                                    .map(step -> step.getMessage())
+                                    .collect(Collectors.toList()));
+                    activeWorkSet.addAll(inProgressSteps);
+                    reviveManager.revive(activeWorkSet);
+                } finally {
+                    candidatesContext.stop();
+                }
 
                 LOGGER.info("Processing {} offer{} against {} step{}:",
                         offers.size(), offers.size() == 1 ? "" : "s",
@@ -438,6 +588,16 @@ public abstract class AbstractScheduler {
                     LOGGER.info("  {}: {}", i + 1, TextFormat.shortDebugString(offers.get(i)));
                 }
 
+                // Any statuses which are pending a group commit must be stored before we accept offers based on them:
+                try {
+                    stateStore.flushStatuses();
+                } catch (StateStoreException e) {
+                    LOGGER.error(String.format("Declining %d offer%s: Failed to store pending task statuses",
+                            offers.size(), offers.size() == 1 ? "" : "s"), e);
+                    declineShort(driver, offers);
+                    return;
+                }
+
                 // Match offers with work (call into implementation)
                 final Timer.Context context = Metrics.getProcessOffersDurationTimer();
                 try {
@@ -449,16 +609,35 @@ public abstract class AbstractScheduler {
                 Metrics.incrementProcessedOffers(offers.size());
 
                 synchronized (inProgressLock) {
-                    offersInProgress.removeAll(
-                            offers.stream()
-                                    .map(offer -> offer.getId())
-                                    .collect(Collectors.toList()));
+                    // Offers which are queued to be declined are removed by the decline stage once it's sent them.
+                    for (Protos.Offer offer : offers) {
+                        if (!offersPendingDecline.contains(offer.getId())) {
+                            offersInProgress.remove(offer.getId());
+                        }
+                    }
                     LOGGER.info("Processed {} queued offer{}. {} {} in progress: {}",
                             offers.size(),
                             offers.size() == 1 ? "" : "s",
                             offersInProgress.size(),
                             offersInProgress.size() == 1 ? "offer remains" : "offers remain",
-                            offersInProgress.stream().map(Protos.OfferID::getValue).collect(Collectors.toList()));
+                            offersInProgress.keySet().stream()
+                                    .map(Protos.OfferID::getValue)
+                                    .collect(Collectors.toList()));
+                }
+            }
+        }
+
+        /**
+         * Records how long each of the provided offers waited between intake and being dequeued for processing.
+         */
+        private void recordQueuedDurations(List<Protos.Offer> offers) {
+            long nowNanos = System.nanoTime();
+            synchronized (inProgressLock) {
+                for (Protos.Offer offer : offers) {
+                    Long intakeNanos = offersInProgress.get(offer.getId());
+                    if (intakeNanos != null) {
+                        Metrics.recordOfferQueuedDuration(nowNanos - intakeNanos);
+                    }
                 }
             }
         }
@@ -4,9 +4,11 @@ import com.google.common.annotations.VisibleForTesting;
 import com.mesosphere.sdk.dcos.Capabilities;
 import com.mesosphere.sdk.http.*;
 import com.mesosphere.sdk.http.types.EndpointProducer;
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
 import com.mesosphere.sdk.http.types.StringPropertyDeserializer;
 import com.mesosphere.sdk.offer.*;
 import com.mesosphere.sdk.offer.evaluate.OfferEvaluator;
+import com.mesosphere.sdk.offer.evaluate.OfferSelectionPolicy;
 import com.mesosphere.sdk.offer.history.OfferOutcomeTracker;
 import com.mesosphere.sdk.scheduler.decommission.DecommissionPlanFactory;
 import com.mesosphere.sdk.scheduler.decommission.DecommissionRecorder;
@@ -51,10 +53,11 @@ public class DefaultScheduler extends AbstractScheduler {
     private final HealthResource healthResource;
     private final PlansResource plansResource;
     private final PodResource podResource;
+    private final ReadRequestExecutor readExecutor;
 
     private TaskKiller taskKiller;
     private PlanCoordinator planCoordinator;
-    private PlanScheduler planScheduler;
+    private volatile PlanScheduler planScheduler;
 
     private final OfferOutcomeTracker offerOutcomeTracker;
 
@@ -99,25 +102,31 @@ public class DefaultScheduler extends AbstractScheduler {
                 new PersistentLaunchRecorder(stateStore, serviceSpec),
                 Metrics.OperationsCounter.getInstance()));
 
+        // Reads of the state store are answered off of the API server's request threads:
+        this.readExecutor = ReadRequestExecutor.create(
+                schedulerConfig.getApiServerReadThreads(), schedulerConfig.getApiServerReadQueueCapacity());
+
         this.resources = new ArrayList<>();
         this.resources.addAll(customResources);
         this.resources.add(new ArtifactResource(configStore));
         this.resources.add(new ConfigResource<>(configStore));
-        EndpointsResource endpointsResource = new EndpointsResource(stateStore, serviceSpec.getName());
+        EndpointsResource endpointsResource = new EndpointsResource(stateStore, serviceSpec.getName(), readExecutor);
         for (Map.Entry<String, EndpointProducer> entry : customEndpointProducers.entrySet()) {
             endpointsResource.setCustomEndpoint(entry.getKey(), entry.getValue());
         }
         this.resources.add(endpointsResource);
-        this.plansResource = new PlansResource();
+        this.plansResource = new PlansResource(readExecutor);
         this.resources.add(this.plansResource);
         this.healthResource = new HealthResource();
         this.resources.add(this.healthResource);
         this.podResource = new PodResource(
                 stateStore,
                 serviceSpec.getName(),
-                new DefaultTaskFailureListener(stateStore, configStore));
+                new DefaultTaskFailureListener(stateStore, configStore),
+                readExecutor);
         this.resources.add(this.podResource);
-        this.resources.add(new StateResource(stateStore, new StringPropertyDeserializer()));
+        this.resources.add(new StateResource(stateStore, new StringPropertyDeserializer(), readExecutor));
+        this.resources.add(new ChangesResource(stateStore.getChangeFeed()));
 
         this.offerOutcomeTracker = new OfferOutcomeTracker();
         this.resources.add(new OfferOutcomeResource(offerOutcomeTracker));
@@ -128,6 +137,21 @@ public class DefaultScheduler extends AbstractScheduler {
         return resources;
     }
 
+    @Override
+    protected ReadRequestExecutor getReadRequestExecutor() {
+        return readExecutor;
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        // Not set until the scheduler has registered with Mesos:
+        PlanScheduler planScheduler = this.planScheduler;
+        if (planScheduler != null) {
+            planScheduler.close();
+        }
+    }
+
     @Override
     protected PlanCoordinator initialize(SchedulerDriver driver) throws Exception {
         // NOTE: We wait until this point to perform any work using configStore/stateStore.
@@ -139,17 +163,33 @@ public class DefaultScheduler extends AbstractScheduler {
                 DefaultPlanManager.createProceeding(SchedulerUtils.getDeployPlan(plans).get());
         PlanManager recoveryPlanManager = getRecoveryPlanManager();
         planCoordinator = buildPlanCoordinator(deploymentPlanManager, recoveryPlanManager);
+        OfferEvaluator offerEvaluator = new OfferEvaluator(
+                stateStore,
+                offerOutcomeTracker,
+                serviceSpec.getName(),
+                configStore.getTargetConfig(),
+                schedulerConfig,
+                Capabilities.getInstance().supportsDefaultExecutor());
+        boolean anyTasksWithTLS = serviceSpec.getPods().stream()
+                .flatMap(podSpec -> podSpec.getTasks().stream())
+                .anyMatch(taskSpec -> !taskSpec.getTransportEncryption().isEmpty());
+        if (anyTasksWithTLS) {
+            offerEvaluator.prewarmTLSSecrets();
+        }
+        int evaluationThreads = schedulerConfig.getOfferEvaluationThreads();
+        if (evaluationThreads > 0 && schedulerConfig.getOfferSelectionPolicy() != OfferSelectionPolicy.FIRST_FIT) {
+            // Parallel evaluation assigns each step the first offer which passed, so it can't honor other policies.
+            LOGGER.warn(
+                    "Evaluating offers serially: Parallel offer evaluation only supports {} offer selection, not {}",
+                    OfferSelectionPolicy.FIRST_FIT, schedulerConfig.getOfferSelectionPolicy());
+            evaluationThreads = 0;
+        }
         planScheduler = new DefaultPlanScheduler(
                         offerAccepter,
-                        new OfferEvaluator(
-                                stateStore,
-                                offerOutcomeTracker,
-                                serviceSpec.getName(),
-                                configStore.getTargetConfig(),
-                                schedulerConfig,
-                                Capabilities.getInstance().supportsDefaultExecutor()),
+                        offerEvaluator,
                         stateStore,
-                        taskKiller);
+                        taskKiller,
+                        evaluationThreads);
         killUnneededTasks(stateStore, taskKiller, PlanUtils.getLaunchableTasks(plans));
 
         plansResource.setPlanManagers(planCoordinator.getPlanManagers());
@@ -251,10 +291,14 @@ public class DefaultScheduler extends AbstractScheduler {
 
     @Override
     protected void processOffers(SchedulerDriver driver, List<Protos.Offer> offers, Collection<Step> steps) {
+        // Offers for the same agent are evaluated as a single offer, so that pods may use resources which were split
+        // across several offers. Accepting a coalesced offer accepts all of the offers which it was coalesced from.
+        List<Protos.Offer> coalescedOffers = OfferUtils.coalesceByAgent(offers);
+
         // See which offers are useful to the plans.
         List<Protos.OfferID> planOffers = new ArrayList<>();
-        planOffers.addAll(planScheduler.resourceOffers(driver, offers, steps));
-        List<Protos.Offer> unusedOffers = OfferUtils.filterOutAcceptedOffers(offers, planOffers);
+        planOffers.addAll(planScheduler.resourceOffers(driver, coalescedOffers, steps));
+        List<Protos.Offer> unusedOffers = OfferUtils.filterOutAcceptedOffers(coalescedOffers, planOffers);
 
         // Resource Cleaning:
         // A ResourceCleaner ensures that reserved Resources are not leaked.  It is possible that an Agent may
@@ -268,11 +312,15 @@ public class DefaultScheduler extends AbstractScheduler {
         ResourceCleanerScheduler cleanerScheduler =
                 new ResourceCleanerScheduler(new DefaultResourceCleaner(stateStore), offerAccepter);
         List<Protos.OfferID> cleanerOffers = cleanerScheduler.resourceOffers(driver, unusedOffers);
-        unusedOffers = OfferUtils.filterOutAcceptedOffers(unusedOffers, cleanerOffers);
+        Set<Protos.OfferID> unusedOfferIds = new HashSet<>(OfferUtils.getOriginalOfferIds(
+                OfferUtils.filterOutAcceptedOffers(unusedOffers, cleanerOffers)));
+        unusedOffers = offers.stream()
+                .filter(offer -> unusedOfferIds.contains(offer.getId()))
+                .collect(Collectors.toList());
 
         // Decline remaining offers.
         if (!unusedOffers.isEmpty()) {
-            OfferUtils.declineLong(driver, unusedOffers);
+            declineLong(driver, unusedOffers);
         }
 
         if (offers.isEmpty()) {
@@ -301,7 +349,7 @@ public class DefaultScheduler extends AbstractScheduler {
         // StateStore updates:
         // - TaskStatus
         // - Override status (if applicable)
-        stateStore.storeStatus(taskName, status);
+        Optional<Protos.TaskStatus> previousStatus = stateStore.storeStatus(taskName, status);
 
         // Notify plans of status update:
         planCoordinator.getPlanManagers().forEach(planManager -> planManager.update(status));
@@ -315,7 +363,7 @@ public class DefaultScheduler extends AbstractScheduler {
                         .anyMatch(networkInfo -> networkInfo.getIpAddressesCount() > 0)) {
             // Map the TaskStatus to a TaskInfo. The map will throw a StateStoreException if no such TaskInfo exists.
             try {
-                StateStoreUtils.storeTaskStatusAsProperty(stateStore, taskName, status);
+                StateStoreUtils.storeTaskStatusAsProperty(stateStore, taskName, status, previousStatus);
             } catch (StateStoreException e) {
                 LOGGER.warn("Unable to store network info for status update: " + status, e);
             }
@@ -0,0 +1,67 @@
+package com.mesosphere.sdk.scheduler;
+
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import java.util.List;
+
+/**
+ * Records the latency of each API request against the endpoint which handled it, complementing the server-wide
+ * request metrics which are recorded by the Jetty handler. Endpoints are identified by their path template rather than
+ * the requested path, so that e.g. requests for different pods are recorded against the same endpoint.
+ */
+class EndpointMetricsListener implements ApplicationEventListener {
+
+    /**
+     * The path template to record requests against when they didn't match any endpoint.
+     */
+    static final String UNMATCHED_PATH = "unmatched";
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+        // Only request events are recorded
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        final long startNanos = System.nanoTime();
+        return event -> {
+            if (event.getType() == RequestEvent.Type.FINISHED) {
+                Metrics.recordApiRequestDuration(
+                        event.getContainerRequest().getMethod(),
+                        getPathTemplate(event.getUriInfo().getMatchedTemplates()),
+                        System.nanoTime() - startNanos);
+            }
+        };
+    }
+
+    /**
+     * Returns the full path template of the matched endpoint, e.g. {@code /v1/pod/{name}/status}.
+     *
+     * @param matchedTemplates the matched templates, from the most specific (the resource method) to the least
+     *     specific (the root resource)
+     */
+    static String getPathTemplate(List<UriTemplate> matchedTemplates) {
+        if (matchedTemplates.isEmpty()) {
+            return UNMATCHED_PATH;
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = matchedTemplates.size() - 1; i >= 0; --i) {
+            String template = matchedTemplates.get(i).getTemplate();
+            if (template.isEmpty() || template.equals("/")) {
+                continue;
+            }
+            boolean pathEndsWithSlash = path.length() > 0 && path.charAt(path.length() - 1) == '/';
+            if (pathEndsWithSlash && template.startsWith("/")) {
+                path.setLength(path.length() - 1);
+            } else if (!pathEndsWithSlash && !template.startsWith("/")) {
+                path.append('/');
+            }
+            path.append(template);
+        }
+        return path.length() == 0 ? "/" : path.toString();
+    }
+}
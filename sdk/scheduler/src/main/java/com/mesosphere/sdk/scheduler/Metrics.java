@@ -76,6 +76,49 @@ public class Metrics {
         return metrics.timer(PROCESS_OFFERS).time();
     }
 
+    // Offer processing stages
+    static final String OFFER_STAGE_INTAKE = "offers.stage.intake";
+    static final String OFFER_STAGE_QUEUED = "offers.stage.queued";
+    static final String OFFER_STAGE_CANDIDATES = "offers.stage.candidates";
+    static final String OFFER_STAGE_DECLINE = "offers.stage.decline";
+
+    /**
+     * Returns a timer context which may be used to measure the time spent in one stage of offer processing, where the
+     * stage is one of the {@code OFFER_STAGE_*} names. The evaluation stage is measured by
+     * {@link #getProcessOffersDurationTimer()}. The returned timer must be terminated by invoking
+     * {@link Timer.Context#stop()}.
+     */
+    static Timer.Context getOfferStageTimer(String stageName) {
+        return metrics.timer(stageName).time();
+    }
+
+    /**
+     * Records the amount of time that an offer spent queued between intake and the start of its processing.
+     */
+    static void recordOfferQueuedDuration(long durationNanos) {
+        metrics.timer(OFFER_STAGE_QUEUED).update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Offer evaluation pre-filter
+    static final String OFFER_PREFILTER_PASSES = "offers.prefilter.passes";
+    static final String OFFER_PREFILTER_SKIPS = "offers.prefilter.skips";
+
+    /**
+     * Records that an offer passed the aggregate resource check, and was evaluated by the full evaluation pipeline.
+     */
+    public static void incrementOfferPrefilterPasses() {
+        metrics.counter(OFFER_PREFILTER_PASSES).inc();
+    }
+
+    /**
+     * Records that an offer was skipped without running the evaluation pipeline, because the offer lacked a sufficient
+     * total amount of the named resource. Skips are counted in total and by resource.
+     */
+    public static void incrementOfferPrefilterSkips(String resourceName) {
+        metrics.counter(OFFER_PREFILTER_SKIPS).inc();
+        metrics.counter(String.format("%s.%s", OFFER_PREFILTER_SKIPS, resourceName)).inc();
+    }
+
     // Decline / Revive
     static final String REVIVES = "revives";
     static final String REVIVE_THROTTLES = "revives.throttles";
@@ -98,6 +141,51 @@ public class Metrics {
         metrics.counter(DECLINE_LONG).inc(amount);
     }
 
+    // TLS
+    static final String TLS_SECRET_NAMES_CACHE_HITS = "tls.secret_names_cache.hits";
+    static final String TLS_SECRET_NAMES_CACHE_MISSES = "tls.secret_names_cache.misses";
+
+    public static void incrementTLSSecretNamesCacheHits() {
+        metrics.counter(TLS_SECRET_NAMES_CACHE_HITS).inc();
+    }
+
+    public static void incrementTLSSecretNamesCacheMisses() {
+        metrics.counter(TLS_SECRET_NAMES_CACHE_MISSES).inc();
+    }
+
+    // Storage
+    static final String TRANSACTION_ROUND_TRIPS = "storage.transaction.round_trips";
+
+    /**
+     * Records the number of ZK round trips which were made to complete a single write transaction, including any
+     * existence checks and commit attempts.
+     */
+    public static void recordTransactionRoundTrips(int roundTrips) {
+        metrics.histogram(TRANSACTION_ROUND_TRIPS).update(roundTrips);
+    }
+
+    // API
+    static final String API_REQUESTS_REJECTED = "api.requests.rejected";
+    static final String API_ENDPOINTS_PREFIX = "api.endpoints";
+
+    /**
+     * Records that an API request was rejected with a "503 Service Unavailable" response, because too many requests
+     * were already waiting to be handled.
+     */
+    public static void incrementApiRequestsRejected() {
+        metrics.counter(API_REQUESTS_REJECTED).inc();
+    }
+
+    /**
+     * Records the amount of time taken to respond to an API request, against the HTTP method and path template of the
+     * endpoint which handled it, e.g. {@code GET /v1/pod/{name}/status}. For suspended requests this includes the time
+     * spent waiting to be resumed.
+     */
+    static void recordApiRequestDuration(String method, String pathTemplate, long durationNanos) {
+        metrics.timer(String.format("%s.%s.%s", API_ENDPOINTS_PREFIX, method, pathTemplate))
+                .update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
     /**
      * This class records counter metrics for all Mesos Operations performed by the scheduler.
      */
@@ -1,11 +1,14 @@
 package com.mesosphere.sdk.scheduler;
 
 import com.codahale.metrics.jetty9.InstrumentedHandler;
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.glassfish.jersey.jetty.JettyHttpContainerFactory;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.glassfish.jersey.server.ResourceConfig;
@@ -29,14 +32,26 @@ public class SchedulerApiServer {
     private final int port;
     private final Server server;
     private final Duration startTimeout;
+    private final ReadRequestExecutor readExecutor;
 
     public SchedulerApiServer(SchedulerConfig schedulerConfig, Collection<Object> resources) {
+        this(schedulerConfig, resources, ReadRequestExecutor.direct());
+    }
+
+    /**
+     * Creates a new API server for the provided resources, which produce their responses to reads using the provided
+     * {@link ReadRequestExecutor}. The executor is shut down when the server is stopped.
+     */
+    public SchedulerApiServer(
+            SchedulerConfig schedulerConfig, Collection<Object> resources, ReadRequestExecutor readExecutor) {
+        this.readExecutor = readExecutor;
         this.port = schedulerConfig.getApiServerPort();
         this.server = JettyHttpContainerFactory.createServer(
                 UriBuilder.fromUri("http://0.0.0.0/").port(this.port).build(),
                 new ResourceConfig(MultiPartFeature.class).registerInstances(new HashSet<>(resources)),
                 false /* don't start yet. wait for start() call below. */);
         this.startTimeout = schedulerConfig.getApiServerInitTimeout();
+        configureThreadPool(server.getThreadPool(), schedulerConfig.getApiServerThreads());
 
         ServletContextHandler context = new ServletContextHandler();
 
@@ -45,8 +60,12 @@ public class SchedulerApiServer {
 
         // Resources
         ResourceConfig resourceConfig = new ResourceConfig(MultiPartFeature.class)
-                .registerInstances(new HashSet<>(resources));
+                .registerInstances(new HashSet<>(resources))
+                // Per-endpoint request latencies, alongside the server-wide metrics from InstrumentedHandler below:
+                .register(new EndpointMetricsListener());
         ServletHolder resourceHolder = new ServletHolder(new ServletContainer(resourceConfig));
+        // Required by resources which suspend requests, e.g. to wait for changes:
+        resourceHolder.setAsyncSupported(true);
         context.addServlet(resourceHolder, "/*");
 
         final InstrumentedHandler handler = new InstrumentedHandler(Metrics.getRegistry());
@@ -54,6 +73,23 @@ public class SchedulerApiServer {
         server.setHandler(handler);
     }
 
+    /**
+     * Applies the configured maximum number of threads to the server's thread pool, if one was configured.
+     */
+    private static void configureThreadPool(ThreadPool threadPool, int maxThreads) {
+        if (maxThreads <= 0) {
+            return;
+        }
+        if (!(threadPool instanceof QueuedThreadPool)) {
+            LOGGER.warn("Unable to configure API server threads: unsupported thread pool {}", threadPool);
+            return;
+        }
+        QueuedThreadPool queuedThreadPool = (QueuedThreadPool) threadPool;
+        queuedThreadPool.setMinThreads(Math.min(queuedThreadPool.getMinThreads(), maxThreads));
+        queuedThreadPool.setMaxThreads(maxThreads);
+        LOGGER.info("Configured API server with up to {} threads", maxThreads);
+    }
+
     /**
      * Launches the API server on a separate thread.
      *
@@ -101,4 +137,17 @@ public class SchedulerApiServer {
 
         new Thread(runServerCallback).start();
     }
+
+    /**
+     * Stops the API server, and then the executor which produces responses to read requests.
+     */
+    public void stop() {
+        LOGGER.info("Stopping API server at port {}", port);
+        try {
+            server.stop();
+        } catch (Exception e) {
+            LOGGER.error(String.format("Failed to stop API server at port %d with exception: ", port), e);
+        }
+        readExecutor.shutdown();
+    }
 }
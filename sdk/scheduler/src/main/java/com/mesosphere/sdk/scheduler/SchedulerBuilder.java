@@ -57,12 +57,7 @@ public class SchedulerBuilder {
     private PlanCustomizer planCustomizer;
 
     SchedulerBuilder(ServiceSpec serviceSpec, SchedulerConfig schedulerConfig) throws PersisterException {
-        this(
-                serviceSpec,
-                schedulerConfig,
-                schedulerConfig.isStateCacheEnabled() ?
-                        new PersisterCache(CuratorPersister.newBuilder(serviceSpec).build()) :
-                        CuratorPersister.newBuilder(serviceSpec).build());
+        this(serviceSpec, schedulerConfig, getPersister(serviceSpec, schedulerConfig));
     }
 
     SchedulerBuilder(ServiceSpec serviceSpec, SchedulerConfig schedulerConfig, Persister persister) {
@@ -71,6 +66,19 @@ public class SchedulerBuilder {
         this.persister = persister;
     }
 
+    private static Persister getPersister(ServiceSpec serviceSpec, SchedulerConfig schedulerConfig)
+            throws PersisterException {
+        Persister persister = CuratorPersister.newBuilder(serviceSpec).build();
+        if (!schedulerConfig.isStateCacheEnabled()) {
+            return persister;
+        }
+        return new PersisterCache(
+                persister,
+                schedulerConfig.isStateCacheWatchEnabled() ?
+                        PersisterCache.RefreshMode.WATCH :
+                        PersisterCache.RefreshMode.FULL);
+    }
+
     /**
      * Returns the {@link ServiceSpec} which was provided via the constructor.
      */
@@ -109,7 +117,7 @@ public class SchedulerBuilder {
      */
     public StateStore getStateStore() {
         if (!stateStoreOptional.isPresent()) {
-            setStateStore(new StateStore(persister));
+            setStateStore(new StateStore(persister, schedulerConfig.getStatusGroupCommitWindow()));
         }
         return stateStoreOptional.get();
     }
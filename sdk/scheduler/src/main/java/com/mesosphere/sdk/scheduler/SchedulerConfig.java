@@ -12,6 +12,8 @@ import com.mesosphere.sdk.dcos.DcosHttpExecutor;
 import com.mesosphere.sdk.dcos.auth.CachedTokenProvider;
 import com.mesosphere.sdk.dcos.auth.TokenProvider;
 import com.mesosphere.sdk.dcos.clients.ServiceAccountIAMTokenClient;
+import com.mesosphere.sdk.offer.evaluate.OfferSelectionPolicy;
+import com.mesosphere.sdk.queue.OfferQueue;
 
 import java.io.IOException;
 import java.io.StringReader;
@@ -23,6 +25,7 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.RSAPublicKeySpec;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -75,6 +78,26 @@ public class SchedulerConfig {
     /** The default number of seconds to wait for the Scheduler API to come up during startup. */
     private static final int DEFAULT_API_SERVER_TIMEOUT_S = 600;
 
+    /**
+     * Controls the maximum number of threads used by the Scheduler API server to accept and handle requests. When
+     * unset or zero, the Jetty default is used.
+     */
+    private static final String API_SERVER_THREADS_ENV = "API_SERVER_THREADS";
+
+    /**
+     * Controls the number of threads used to produce responses for Scheduler API reads which access the state store,
+     * such as pod statuses, endpoints, and plans (8 by default). When set to zero, these responses are produced on the
+     * API server's request threads.
+     */
+    private static final String API_SERVER_READ_THREADS_ENV = "API_SERVER_READ_THREADS";
+
+    /**
+     * Controls the maximum number of Scheduler API reads which may wait for a read thread (100 by default). Reads
+     * received while this many are already waiting receive a "503 Service Unavailable" response. When set to zero, the
+     * number of waiting reads is unlimited.
+     */
+    private static final String API_SERVER_READ_QUEUE_CAPACITY_ENV = "API_SERVER_READ_QUEUE_CAPACITY";
+
     /**
      * Envvar name to specify a custom amount of time before auth token expiration that will trigger auth
      * token refresh.
@@ -104,6 +127,48 @@ public class SchedulerConfig {
      */
     private static final String DISABLE_STATE_CACHE_ENV = "DISABLE_STATE_CACHE";
 
+    /**
+     * Controls whether the ZK write-through cache watches ZK for changes (disabled by default). When enabled, the cache
+     * is loaded via a ZK watch, and only the nodes which change are applied afterwards, rather than reloading the full
+     * tree on each refresh. If this envvar is set (to anything at all), the watch is enabled.
+     */
+    private static final String ENABLE_STATE_CACHE_WATCH_ENV = "ENABLE_STATE_CACHE_WATCH";
+
+    /**
+     * Controls whether task statuses are written to ZK using a group commit (disabled by default). When set to a
+     * positive number of milliseconds, statuses received within that window are coalesced and written in a single
+     * transaction, with only the latest status retained for each task.
+     */
+    private static final String STATUS_GROUP_COMMIT_WINDOW_MS_ENV = "STATUS_GROUP_COMMIT_WINDOW_MS";
+
+    /**
+     * Controls whether offers are evaluated against candidate steps in parallel (disabled by default). When set to a
+     * positive number of threads, each (step, offer) pair is evaluated concurrently on a pool of that size, after which
+     * offers are assigned to steps in plan order. The resulting placements are the same as with serial evaluation.
+     */
+    private static final String OFFER_EVALUATION_THREADS_ENV = "OFFER_EVALUATION_THREADS";
+
+    /**
+     * Controls the maximum number of offers which may be queued for processing (100 by default). When set to zero, the
+     * queue size is unlimited.
+     */
+    private static final String OFFER_QUEUE_CAPACITY_ENV = "OFFER_QUEUE_CAPACITY";
+
+    /**
+     * Controls which offer is declined when an offer is received while the offer queue is full. Either
+     * {@code DECLINE_NEWEST} (the default), which declines the received offer, or {@code DECLINE_OLDEST}, which
+     * declines the offer that has been queued the longest.
+     */
+    private static final String OFFER_QUEUE_OVERFLOW_POLICY_ENV = "OFFER_QUEUE_OVERFLOW_POLICY";
+
+    /**
+     * Controls how an offer is selected when several offers pass evaluation for a pod. Either {@code FIRST_FIT} (the
+     * default), which selects the first passing offer, or one of {@code BEST_FIT}, {@code WORST_FIT}, or
+     * {@code SPREAD_BY_ZONE}, which evaluate every offer and select the passing offer with the best score. Parallel
+     * offer evaluation is only used with {@code FIRST_FIT}.
+     */
+    private static final String OFFER_SELECTION_POLICY_ENV = "OFFER_SELECTION_POLICY";
+
     /**
      * When a port named {@code api} is added to the Marathon app definition for the scheduler, marathon should create
      * an envvar with this name in the scheduler env. This is preferred over using e.g. the {@code PORT0} envvar which
@@ -192,6 +257,28 @@ public class SchedulerConfig {
         return envStore.getRequiredInt(MARATHON_API_PORT_ENV);
     }
 
+    /**
+     * Returns the maximum number of threads to be used by the API server, or zero to use the server's default.
+     */
+    public int getApiServerThreads() {
+        return envStore.getOptionalInt(API_SERVER_THREADS_ENV, 0);
+    }
+
+    /**
+     * Returns the number of threads to produce API read responses on, or zero if they should be produced on the API
+     * server's request threads.
+     */
+    public int getApiServerReadThreads() {
+        return envStore.getOptionalInt(API_SERVER_READ_THREADS_ENV, 8);
+    }
+
+    /**
+     * Returns the maximum number of API reads which may wait for a read thread, or zero for no limit.
+     */
+    public int getApiServerReadQueueCapacity() {
+        return envStore.getOptionalInt(API_SERVER_READ_QUEUE_CAPACITY_ENV, 100);
+    }
+
     public String getExecutorURI() {
         return envStore.getRequired(EXECUTOR_URI_ENV);
     }
@@ -234,6 +321,62 @@ public class SchedulerConfig {
         return !envStore.isPresent(DISABLE_STATE_CACHE_ENV);
     }
 
+    public boolean isStateCacheWatchEnabled() {
+        return envStore.isPresent(ENABLE_STATE_CACHE_WATCH_ENV);
+    }
+
+    /**
+     * Returns the window within which task statuses are coalesced before being written, or zero if each status should
+     * be written immediately.
+     */
+    public Duration getStatusGroupCommitWindow() {
+        return Duration.ofMillis(envStore.getOptionalLong(STATUS_GROUP_COMMIT_WINDOW_MS_ENV, 0));
+    }
+
+    /**
+     * Returns the number of threads to use when evaluating offers against candidate steps, or zero if offers should be
+     * evaluated serially.
+     */
+    public int getOfferEvaluationThreads() {
+        return envStore.getOptionalInt(OFFER_EVALUATION_THREADS_ENV, 0);
+    }
+
+    /**
+     * Returns the maximum number of offers which may be queued for processing, or zero for no limit.
+     */
+    public int getOfferQueueCapacity() {
+        return envStore.getOptionalInt(OFFER_QUEUE_CAPACITY_ENV, 100);
+    }
+
+    /**
+     * Returns which offer should be declined when an offer is received while the offer queue is full.
+     */
+    public OfferQueue.OverflowPolicy getOfferQueueOverflowPolicy() {
+        String policy = envStore.getOptional(
+                OFFER_QUEUE_OVERFLOW_POLICY_ENV, OfferQueue.OverflowPolicy.DECLINE_NEWEST.name());
+        try {
+            return OfferQueue.OverflowPolicy.valueOf(policy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw ConfigException.invalidValue(String.format(
+                    "Failed to parse configured environment variable '%s' as one of %s: %s",
+                    OFFER_QUEUE_OVERFLOW_POLICY_ENV, Arrays.asList(OfferQueue.OverflowPolicy.values()), policy));
+        }
+    }
+
+    /**
+     * Returns how an offer should be selected when several offers pass evaluation for a pod.
+     */
+    public OfferSelectionPolicy getOfferSelectionPolicy() {
+        String policy = envStore.getOptional(OFFER_SELECTION_POLICY_ENV, OfferSelectionPolicy.FIRST_FIT.name());
+        try {
+            return OfferSelectionPolicy.valueOf(policy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw ConfigException.invalidValue(String.format(
+                    "Failed to parse configured environment variable '%s' as one of %s: %s",
+                    OFFER_SELECTION_POLICY_ENV, Arrays.asList(OfferSelectionPolicy.values()), policy));
+        }
+    }
+
     public boolean isUninstallEnabled() {
         return envStore.isPresent(SDK_UNINSTALL);
     }
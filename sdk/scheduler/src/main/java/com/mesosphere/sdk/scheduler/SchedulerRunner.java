@@ -116,6 +116,10 @@ public class SchedulerRunner implements Runnable {
         Metrics.configureStatsd(schedulerConfig);
         AbstractScheduler scheduler = schedulerBuilder.build();
         scheduler.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            LOGGER.info("Shutdown initiated, stopping scheduler");
+            scheduler.stop();
+        }));
         Optional<Scheduler> mesosScheduler = scheduler.getMesosScheduler();
         if (mesosScheduler.isPresent()) {
             runScheduler(
@@ -37,6 +37,7 @@ import com.mesosphere.sdk.specification.PodSpec;
 import com.mesosphere.sdk.specification.ServiceSpec;
 import com.mesosphere.sdk.state.GoalStateOverride;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.TaskStateIndex;
 
 /**
  * Handles creation of the decommission plan, used for removing nodes from a service.
@@ -107,7 +108,8 @@ public class DecommissionPlanFactory {
      */
     private static PlanInfo buildPlanInfo(ServiceSpec serviceSpec, StateStore stateStore, TaskKiller taskKiller) {
         // Determine which tasks should be decommissioned (and which shouldn't)
-        Collection<Protos.TaskInfo> allTasks = stateStore.fetchTasks();
+        TaskStateIndex taskStateIndex = stateStore.getTaskStateIndex();
+        Collection<Protos.TaskInfo> allTasks = taskStateIndex.getTasks();
         SortedMap<PodKey, Collection<Protos.TaskInfo>> podsToDecommission =
                 getPodsToDecommission(serviceSpec, allTasks);
         Set<String> tasksToDecommission = new HashSet<>();
@@ -118,7 +120,7 @@ public class DecommissionPlanFactory {
         // Update state store override bits to reflect current decommission state (or lack thereof).
         // This will be visible to the operator via pod status, showing any affected pods as DECOMMISSIONING.
         for (Protos.TaskInfo task : allTasks) {
-            GoalStateOverride.Status taskOverride = stateStore.fetchGoalOverrideStatus(task.getName());
+            GoalStateOverride.Status taskOverride = taskStateIndex.getGoalOverrideStatus(task.getName());
             if (tasksToDecommission.contains(task.getName())) {
                 if (taskOverride.target != GoalStateOverride.DECOMMISSIONED) {
                     // Set decommission bit: Task to be decommissioned hasn't been marked as such yet
@@ -10,8 +10,12 @@ import java.util.UUID;
 
 /**
  * Provides a default implementation of commonly-used {@link Step} logic.
+ * <p>
+ * Changes made via {@link #setStatus(Status)}, {@link #interrupt()}, and {@link #proceed()} are reported to any
+ * {@link StatusNotifier.Listener}s. Subclasses which otherwise change their status or errors must invoke
+ * {@link #notifyStatusListeners()}.
  */
-public abstract class AbstractStep implements Step {
+public abstract class AbstractStep implements Step, StatusNotifier {
 
     /**
      * Non-static to ensure that we inherit the names of subclasses.
@@ -25,6 +29,9 @@ public abstract class AbstractStep implements Step {
     private Status status;
     private boolean interrupted;
 
+    // Transient to exclude from reflection-based equals() and toString():
+    private final transient StatusListeners statusListeners = new StatusListeners();
+
     protected AbstractStep(String name, Status status) {
         this.name = name;
         this.status = status;
@@ -65,20 +72,28 @@ public abstract class AbstractStep implements Step {
             logger.info("{}: changed status from: {} to: {} (interrupted={})",
                     getName(), oldStatus, newStatus, interrupted);
         }
+        // Notify even if the status is unchanged, as the errors may have changed along with it:
+        notifyStatusListeners();
     }
 
     @Override
     public void interrupt() {
-        synchronized (statusLock) {
-            interrupted = true;
-        }
+        setInterrupted(true);
     }
 
     @Override
     public void proceed() {
+        setInterrupted(false);
+    }
+
+    private void setInterrupted(boolean newInterrupted) {
         synchronized (statusLock) {
-            interrupted = false;
+            if (interrupted == newInterrupted) {
+                return;
+            }
+            interrupted = newInterrupted;
         }
+        notifyStatusListeners();
     }
 
     @Override
@@ -88,6 +103,20 @@ public abstract class AbstractStep implements Step {
         }
     }
 
+    @Override
+    public boolean addStatusListener(StatusNotifier.Listener listener) {
+        statusListeners.add(listener);
+        return true;
+    }
+
+    /**
+     * Notifies any {@link StatusNotifier.Listener}s that this step's status or errors may have changed. Must not be
+     * invoked while holding any locks which are also held while reading the step's status.
+     */
+    protected void notifyStatusListeners() {
+        statusListeners.notifyListeners(this);
+    }
+
     @Override
     public void restart() {
         logger.warn("Restarting step: '{} [{}]'", getName(), getId());
@@ -6,14 +6,17 @@ import com.mesosphere.sdk.scheduler.plan.strategy.Strategy;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * The Default Phase implementation tracks {@link Step}s both by their UUID and by their ordering. It is an immutable
  * class.
- *
+ * <p>
+ * When its {@link Strategy} and {@link Step}s report changes via {@link StatusNotifier}, the phase's status is
+ * maintained incrementally rather than being recomputed on each call.
  */
-public class DefaultPhase implements Phase {
+public class DefaultPhase implements Phase, StatusNotifier {
 
     private final UUID id = UUID.randomUUID();
     private final String name;
@@ -21,6 +24,10 @@ public class DefaultPhase implements Phase {
     private final List<String> errors;
     private final List<Step> steps;
 
+    // Transient to exclude from reflection-based equals() and toString():
+    private final transient StatusListeners statusListeners = new StatusListeners();
+    private final transient StatusAggregator<Step> statusAggregator = new StatusAggregator<>(this, statusListeners);
+
     public DefaultPhase(String name, List<Step> steps, Strategy<Step> strategy, List<String> errors) {
         this.name = name;
         this.steps = steps;
@@ -53,6 +60,18 @@ public class DefaultPhase implements Phase {
         return steps;
     }
 
+    @Override
+    public Status getStatus() {
+        Optional<Status> status = statusAggregator.getStatus(errors);
+        return status.isPresent() ? status.get() : Phase.super.getStatus();
+    }
+
+    @Override
+    public boolean addStatusListener(StatusNotifier.Listener listener) {
+        statusListeners.add(listener);
+        return statusAggregator.isEnabled();
+    }
+
     @Override
     public String toString() {
         return ReflectionToStringBuilder.toString(this);
@@ -1,8 +1,10 @@
 package com.mesosphere.sdk.scheduler.plan;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.mesos.Protos;
 
 import com.google.common.base.Joiner;
+import com.google.protobuf.TextFormat;
 import com.mesosphere.sdk.scheduler.plan.strategy.SerialStrategy;
 import com.mesosphere.sdk.scheduler.plan.strategy.Strategy;
 
@@ -10,14 +12,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * An ordered list of {@link Phase}s, composed into a {@link Plan}. It may
  * optionally contain a List of errors associated with the phase.
- *
+ * <p>
+ * When its {@link Strategy} and {@link Phase}s report changes via {@link StatusNotifier}, the plan's status is
+ * maintained incrementally rather than being recomputed on each call. {@link Protos.TaskStatus} updates are only
+ * delivered to the {@link Step}s which are interested in them, see {@link TaskStatusRouter}.
  */
-public class DefaultPlan implements Plan {
+public class DefaultPlan implements Plan, StatusNotifier {
 
     private final UUID id = UUID.randomUUID();
     private final Strategy<Phase> strategy;
@@ -25,6 +31,11 @@ public class DefaultPlan implements Plan {
     private final List<String> errors;
     private final String name;
 
+    // Transient to exclude from reflection-based equals():
+    private final transient StatusListeners statusListeners = new StatusListeners();
+    private final transient StatusAggregator<Phase> statusAggregator = new StatusAggregator<>(this, statusListeners);
+    private final transient TaskStatusRouter taskStatusRouter = new TaskStatusRouter(this);
+
     public DefaultPlan(
             final String name,
             final List<Phase> phases,
@@ -54,6 +65,24 @@ public class DefaultPlan implements Plan {
         return strategy;
     }
 
+    @Override
+    public Status getStatus() {
+        Optional<Status> status = statusAggregator.getStatus(errors);
+        return status.isPresent() ? status.get() : Plan.super.getStatus();
+    }
+
+    @Override
+    public void update(Protos.TaskStatus taskStatus) {
+        LOGGER.debug("Updated {} with TaskStatus: {}", getName(), TextFormat.shortDebugString(taskStatus));
+        taskStatusRouter.update(taskStatus);
+    }
+
+    @Override
+    public boolean addStatusListener(StatusNotifier.Listener listener) {
+        statusListeners.add(listener);
+        return statusAggregator.isEnabled();
+    }
+
     @Override
     public UUID getId() {
         return id;
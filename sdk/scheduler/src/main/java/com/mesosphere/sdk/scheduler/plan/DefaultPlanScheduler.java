@@ -16,10 +16,22 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
  * Default deployment scheduler. See docs in {@link PlanScheduler} interface.
+ *
+ * <p>By default, candidate steps are evaluated serially: each step in turn is evaluated against the offers which
+ * remain after any earlier steps have been launched. If a number of evaluation threads is provided, then each
+ * (step, offer) pair is instead evaluated speculatively on a bounded {@link ForkJoinPool}, after which offers are
+ * assigned to steps in the same order as the serial path. Speculative results are only used where they cannot have
+ * been affected by launches made earlier in the same offer cycle, so the resulting placements are identical. Offer
+ * outcomes are only recorded for the speculative results which are used, so that the recorded outcomes also match
+ * those of the serial path.
  */
 public class DefaultPlanScheduler implements PlanScheduler {
 
@@ -29,16 +41,33 @@ public class DefaultPlanScheduler implements PlanScheduler {
     private final OfferEvaluator offerEvaluator;
     private final StateStore stateStore;
     private final TaskKiller taskKiller;
+    private final ForkJoinPool evaluationPool;
 
     public DefaultPlanScheduler(
             OfferAccepter offerAccepter,
             OfferEvaluator offerEvaluator,
             StateStore stateStore,
             TaskKiller taskKiller) {
+        this(offerAccepter, offerEvaluator, stateStore, taskKiller, 0);
+    }
+
+    /**
+     * Creates a new scheduler which evaluates offers against candidate steps using the provided number of threads.
+     *
+     * @param evaluationThreads the number of threads to evaluate (step, offer) pairs with, or zero to evaluate each
+     *                          step serially
+     */
+    public DefaultPlanScheduler(
+            OfferAccepter offerAccepter,
+            OfferEvaluator offerEvaluator,
+            StateStore stateStore,
+            TaskKiller taskKiller,
+            int evaluationThreads) {
         this.offerAccepter = offerAccepter;
         this.offerEvaluator = offerEvaluator;
         this.stateStore = stateStore;
         this.taskKiller = taskKiller;
+        this.evaluationPool = evaluationThreads > 0 ? new ForkJoinPool(evaluationThreads) : null;
     }
 
     @Override
@@ -52,6 +81,18 @@ public class DefaultPlanScheduler implements PlanScheduler {
             return Collections.emptyList();
         }
 
+        // Start on any missing TLS artifacts for the pending steps, so that they're generated concurrently rather than
+        // one step at a time:
+        for (Step step : steps) {
+            if (step != null && step.isPending()) {
+                step.getPodInstanceRequirement().ifPresent(offerEvaluator::prefetchTLSArtifacts);
+            }
+        }
+
+        if (evaluationPool != null) {
+            return resourceOffersInParallel(driver, offers, steps);
+        }
+
         List<OfferID> acceptedOfferIds = new ArrayList<>();
         List<Offer> availableOffers = new ArrayList<>(offers);
 
@@ -63,6 +104,18 @@ public class DefaultPlanScheduler implements PlanScheduler {
         return acceptedOfferIds;
     }
 
+    /**
+     * Shuts down the pool used for parallel evaluation, if any, along with any background work of the
+     * {@link OfferEvaluator}. Evaluations which are already in progress are allowed to finish.
+     */
+    @Override
+    public void close() {
+        if (evaluationPool != null) {
+            evaluationPool.shutdown();
+        }
+        offerEvaluator.close();
+    }
+
     private Collection<OfferID> resourceOffers(SchedulerDriver driver, List<Offer> offers, Step step) {
 
         if (driver == null || offers == null) {
@@ -70,14 +123,122 @@ public class DefaultPlanScheduler implements PlanScheduler {
             return Collections.emptyList();
         }
 
+        Optional<PodInstanceRequirement> podInstanceRequirementOptional = startStep(step);
+        if (!podInstanceRequirementOptional.isPresent()) {
+            return Collections.emptyList();
+        }
+        PodInstanceRequirement podInstanceRequirement = podInstanceRequirementOptional.get();
+
+        // Step has returned an OfferRequirement to process. Find offers which match the
+        // requirement and accept them, if any are found:
+        List<OfferRecommendation> recommendations = null;
+        try {
+            recommendations = offerEvaluator.evaluate(podInstanceRequirement, offers);
+        } catch (InvalidRequirementException | IOException e) {
+            logger.error("Failed generate OfferRecommendations.", e);
+            return Collections.emptyList();
+        }
+
+        return acceptRecommendations(driver, step, podInstanceRequirement, recommendations);
+    }
+
+    /**
+     * Evaluates all (step, offer) pairs in parallel, then starts each step and assigns offers to it in the order that
+     * the steps were provided. The resulting placements are the same as those produced by evaluating each step
+     * serially.
+     */
+    private Collection<OfferID> resourceOffersInParallel(
+            SchedulerDriver driver, List<Offer> offers, Collection<? extends Step> steps) {
+        // Evaluate each candidate step against each offer in isolation. Starting a step has side effects (killing
+        // tasks), so this uses the requirement which the step would provide without starting it. Each evaluation only
+        // reads the offer and the state store, building its own resource pool from the offer, so the evaluations may
+        // run concurrently. Nothing is recorded about the evaluated offers until a result is used.
+        List<CandidateStep> candidateSteps = new ArrayList<>();
+        List<Callable<OfferEvaluator.SpeculativeEvaluation>> evaluations = new ArrayList<>();
+        for (Step step : steps) {
+            CandidateStep candidateStep = new CandidateStep(step, getSpeculativeRequirement(step));
+            candidateSteps.add(candidateStep);
+            if (!candidateStep.speculativeRequirement.isPresent()) {
+                continue;
+            }
+            for (Offer offer : offers) {
+                evaluations.add(() -> offerEvaluator.evaluateSpeculatively(
+                        candidateStep.speculativeRequirement.get(), Collections.singletonList(offer)));
+            }
+        }
+        List<Future<OfferEvaluator.SpeculativeEvaluation>> results = evaluationPool.invokeAll(evaluations);
+        Iterator<Future<OfferEvaluator.SpeculativeEvaluation>> resultsIter = results.iterator();
+        for (CandidateStep candidateStep : candidateSteps) {
+            if (candidateStep.speculativeRequirement.isPresent()) {
+                candidateStep.speculativeResults = getSpeculativeResults(resultsIter, offers.size());
+            }
+        }
+
+        // Commit phase: Start each step and assign offers to it in step order, consuming each accepted offer as the
+        // serial path would. A speculative result is discarded if the started step's requirement differs from the
+        // one which was evaluated, or if an earlier launch in this cycle may have affected it.
+        List<OfferID> acceptedOfferIds = new ArrayList<>();
+        List<Offer> availableOffers = new ArrayList<>(offers);
+        List<PodInstanceRequirement> launchedRequirements = new ArrayList<>();
+        for (CandidateStep candidateStep : candidateSteps) {
+            Optional<PodInstanceRequirement> podInstanceRequirementOptional = startStep(candidateStep.step);
+            if (!podInstanceRequirementOptional.isPresent()) {
+                continue;
+            }
+            PodInstanceRequirement podInstanceRequirement = podInstanceRequirementOptional.get();
+
+            List<OfferRecommendation> recommendations;
+            if (candidateStep.speculativeResults.isPresent()
+                    && podInstanceRequirement.equals(candidateStep.speculativeRequirement.get())
+                    && !isAffectedByLaunches(podInstanceRequirement, launchedRequirements)) {
+                recommendations = commitFirstMatch(offers, candidateStep.speculativeResults.get(), acceptedOfferIds);
+            } else {
+                try {
+                    recommendations = offerEvaluator.evaluate(podInstanceRequirement, availableOffers);
+                } catch (InvalidRequirementException | IOException e) {
+                    logger.error("Failed generate OfferRecommendations.", e);
+                    continue;
+                }
+            }
+
+            Collection<OfferID> stepAcceptedOfferIds =
+                    acceptRecommendations(driver, candidateStep.step, podInstanceRequirement, recommendations);
+            if (!stepAcceptedOfferIds.isEmpty()) {
+                launchedRequirements.add(podInstanceRequirement);
+                acceptedOfferIds.addAll(stepAcceptedOfferIds);
+                availableOffers = PlanUtils.filterAcceptedOffers(availableOffers, acceptedOfferIds);
+            }
+        }
+
+        return acceptedOfferIds;
+    }
+
+    /**
+     * Returns the requirement which the provided step would provide if it were started, or an empty {@link Optional}
+     * if the step isn't a candidate for offers or its requirement may not be evaluated speculatively. This doesn't
+     * start the step.
+     */
+    private static Optional<PodInstanceRequirement> getSpeculativeRequirement(Step step) {
+        if (step == null || !(step.isPending() || step.isPrepared())) {
+            return Optional.empty();
+        }
+        return step.getPodInstanceRequirement()
+                .filter(DefaultPlanScheduler::isSpeculativeEvaluationSupported);
+    }
+
+    /**
+     * Returns the requirement to be evaluated for the provided step after starting it, or an empty {@link Optional} if
+     * the step doesn't need any offers.
+     */
+    private Optional<PodInstanceRequirement> startStep(Step step) {
         if (step == null) {
             logger.info("Ignoring resource offers for null step.");
-            return Collections.emptyList();
+            return Optional.empty();
         }
 
         if (!(step.isPending() || step.isPrepared())) {
             logger.info("Ignoring resource offers for step: {} status: {}", step.getName(), step.getStatus());
-            return Collections.emptyList();
+            return Optional.empty();
         }
 
         logger.info("Processing resource offers for step: {}", step.getName());
@@ -85,25 +246,21 @@ public class DefaultPlanScheduler implements PlanScheduler {
         if (!podInstanceRequirementOptional.isPresent()) {
             logger.info("No PodInstanceRequirement for step: {}", step.getName());
             step.updateOfferStatus(Collections.emptyList());
-            return Collections.emptyList();
+            return Optional.empty();
         }
 
-        PodInstanceRequirement podInstanceRequirement = podInstanceRequirementOptional.get();
         // It is harmless to attempt to kill tasks which have never been launched.  This call attempts to Kill all Tasks
         // with a Task name which is equivalent to that expressed by the OfferRequirement.  If no such Task is currently
         // running no operation occurs.
-        killTasks(podInstanceRequirement);
-
-        // Step has returned an OfferRequirement to process. Find offers which match the
-        // requirement and accept them, if any are found:
-        List<OfferRecommendation> recommendations = null;
-        try {
-            recommendations = offerEvaluator.evaluate(podInstanceRequirement, offers);
-        } catch (InvalidRequirementException | IOException e) {
-            logger.error("Failed generate OfferRecommendations.", e);
-            return Collections.emptyList();
-        }
+        killTasks(podInstanceRequirementOptional.get());
+        return podInstanceRequirementOptional;
+    }
 
+    private Collection<OfferID> acceptRecommendations(
+            SchedulerDriver driver,
+            Step step,
+            PodInstanceRequirement podInstanceRequirement,
+            List<OfferRecommendation> recommendations) {
         if (recommendations.isEmpty()) {
             // Log that we're not finding suitable offers, possibly due to insufficient resources.
             logger.warn(
@@ -127,6 +284,87 @@ public class DefaultPlanScheduler implements PlanScheduler {
         return acceptedOffers;
     }
 
+    /**
+     * Returns whether the provided requirement may be evaluated speculatively. Evaluating TLS-enabled pods has side
+     * effects (provisioning secrets), so those are only evaluated in the commit phase.
+     */
+    private static boolean isSpeculativeEvaluationSupported(PodInstanceRequirement podInstanceRequirement) {
+        return podInstanceRequirement.getPodInstance().getPod().getTasks().stream()
+                .allMatch(taskSpec -> taskSpec.getTransportEncryption().isEmpty());
+    }
+
+    /**
+     * Returns whether a speculative evaluation of the provided requirement may have been invalidated by the launches
+     * which were already made in this offer cycle. The offers consumed by those launches are skipped separately. Apart
+     * from that, a launch only stores the tasks of the launched pod instance, and an evaluation reads the stored tasks
+     * in these ways:
+     * <ul>
+     * <li>The tasks of the evaluated pod instance itself determine its executor and whether its existing resources are
+     * reused. These only change if a task of the same pod instance was launched, for example by another step of a pod
+     * whose tasks are deployed separately.</li>
+     * <li>The tasks of other pods are only consulted by placement rules.</li>
+     * </ul>
+     * Requirements which conflict over the same assets are never launched together, so those are treated as affected
+     * as well. Any other interaction between launches, such as a new evaluation stage which reads other pods' tasks,
+     * must be accounted for here.
+     */
+    private static boolean isAffectedByLaunches(
+            PodInstanceRequirement podInstanceRequirement, List<PodInstanceRequirement> launchedRequirements) {
+        if (launchedRequirements.isEmpty()) {
+            return false;
+        }
+        String podInstanceName = podInstanceRequirement.getPodInstance().getName();
+        return podInstanceRequirement.getPodInstance().getPod().getPlacementRule().isPresent()
+                || launchedRequirements.stream().anyMatch(launched ->
+                        launched.getPodInstance().getName().equals(podInstanceName))
+                || PlanUtils.assetConflicts(podInstanceRequirement, launchedRequirements);
+    }
+
+    /**
+     * Returns the speculative results for the next step, one per offer, or an empty {@link Optional} if any of the
+     * evaluations failed. Failed evaluations are retried in the commit phase, where any error is handled as it would
+     * be in the serial path.
+     */
+    private static Optional<List<OfferEvaluator.SpeculativeEvaluation>> getSpeculativeResults(
+            Iterator<Future<OfferEvaluator.SpeculativeEvaluation>> resultsIter, int offerCount) {
+        List<OfferEvaluator.SpeculativeEvaluation> speculativeResults = new ArrayList<>();
+        boolean failed = false;
+        for (int i = 0; i < offerCount; ++i) {
+            Future<OfferEvaluator.SpeculativeEvaluation> result = resultsIter.next();
+            try {
+                speculativeResults.add(result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed = true;
+            } catch (ExecutionException e) {
+                logger.warn("Speculative offer evaluation failed, evaluating serially", e.getCause());
+                failed = true;
+            }
+        }
+        return failed ? Optional.empty() : Optional.of(speculativeResults);
+    }
+
+    /**
+     * Returns the recommendations for the first offer which has not already been accepted and which passed
+     * evaluation, matching the offer which the serial path would have selected. The outcomes of that offer and of the
+     * offers before it are recorded, as the serial path would have recorded them.
+     */
+    private List<OfferRecommendation> commitFirstMatch(
+            List<Offer> offers,
+            List<OfferEvaluator.SpeculativeEvaluation> speculativeResults,
+            List<OfferID> acceptedOfferIds) {
+        for (int i = 0; i < offers.size(); ++i) {
+            if (acceptedOfferIds.contains(offers.get(i).getId())) {
+                continue;
+            }
+            List<OfferRecommendation> recommendations = offerEvaluator.commit(speculativeResults.get(i));
+            if (!recommendations.isEmpty()) {
+                return recommendations;
+            }
+        }
+        return Collections.emptyList();
+    }
+
     private void killTasks(PodInstanceRequirement podInstanceRequirement) {
         Map<String, TaskInfo> taskInfoMap = new HashMap<>();
         stateStore.fetchTasks().forEach(taskInfo -> taskInfoMap.put(taskInfo.getName(), taskInfo));
@@ -192,4 +430,19 @@ public class DefaultPlanScheduler implements PlanScheduler {
 
         return filteredRecommendations;
     }
+
+    /**
+     * A step which may be started in this offer cycle, along with the requirement which was evaluated speculatively
+     * and the results of that evaluation, if any.
+     */
+    private static class CandidateStep {
+        private final Step step;
+        private final Optional<PodInstanceRequirement> speculativeRequirement;
+        private Optional<List<OfferEvaluator.SpeculativeEvaluation>> speculativeResults = Optional.empty();
+
+        private CandidateStep(Step step, Optional<PodInstanceRequirement> speculativeRequirement) {
+            this.step = step;
+            this.speculativeRequirement = speculativeRequirement;
+        }
+    }
 }
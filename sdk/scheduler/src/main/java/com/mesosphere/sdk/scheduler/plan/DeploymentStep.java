@@ -6,6 +6,7 @@ import com.mesosphere.sdk.offer.*;
 import com.mesosphere.sdk.offer.taskdata.TaskLabelReader;
 import com.mesosphere.sdk.specification.GoalState;
 import com.mesosphere.sdk.specification.TaskSpec;
+import com.mesosphere.sdk.state.ChangeFeed;
 import com.mesosphere.sdk.state.GoalStateOverride;
 import com.mesosphere.sdk.state.StateStore;
 
@@ -18,7 +19,7 @@ import java.util.stream.Collectors;
 /**
  * Step which implements the deployment of a pod.
  */
-public class DeploymentStep extends AbstractStep {
+public class DeploymentStep extends AbstractStep implements TaskStatusSubscriber {
 
     protected final StateStore stateStore;
     protected final PodInstanceRequirement podInstanceRequirement;
@@ -26,8 +27,16 @@ public class DeploymentStep extends AbstractStep {
     private final List<String> errors = new ArrayList<>();
     private final Map<String, String> parameters = new HashMap<>();
     private Map<Protos.TaskID, TaskStatusPair> tasks = new HashMap<>();
+    // A snapshot of the keys of 'tasks', which may be read without locking. Transient to exclude from equals():
+    private transient volatile Set<Protos.TaskID> subscribedTaskIds = Collections.emptySet();
     private final AtomicBoolean prepared = new AtomicBoolean(false);
 
+    // Publishes the step's status transitions to the change feed, however they come about. Listeners are weakly
+    // referenced, so this must be retained. Transient to exclude from equals():
+    private final transient StatusNotifier.Listener changeFeedPublisher = source -> publishStatusChange();
+    // The last status which was published, guarded by changeFeedPublisher:
+    private transient Status publishedStatus;
+
     /**
      * Creates a new instance with the provided {@code name}, initial {@code status}, associated pod instance required
      * by the step, and any {@code errors} to be displayed to the user.
@@ -37,6 +46,8 @@ public class DeploymentStep extends AbstractStep {
         super(name, Status.PENDING);
         this.podInstanceRequirement = podInstanceRequirement;
         this.stateStore = stateStore;
+        this.publishedStatus = super.getStatus();
+        addStatusListener(changeFeedPublisher);
         updateStatus();
     }
 
@@ -115,6 +126,9 @@ public class DeploymentStep extends AbstractStep {
             }
         }
 
+        subscribedTaskIds = Collections.unmodifiableSet(new HashSet<>(tasks.keySet()));
+        // Report the new subscriptions now, as updateStatus() below may leave the status as-is without notifying:
+        notifyStatusListeners();
         logger.info("Step '{} [{}]' is now waiting for updates for task IDs: {}", getName(), getId(), tasks.keySet());
 
         if (recommendations.isEmpty()) {
@@ -132,6 +146,15 @@ public class DeploymentStep extends AbstractStep {
         return errors;
     }
 
+    /**
+     * Returns the tasks launched by the most recent {@link #updateOfferStatus(Collection)}. Changes are reported to
+     * listeners as soon as they're made.
+     */
+    @Override
+    public Collection<Protos.TaskID> getSubscribedTaskIds() {
+        return subscribedTaskIds;
+    }
+
     @Override
     public String getDisplayStatus() {
         // NOTE: This is obtained on the fly because it's only effectively needed when someone is actually fetching
@@ -262,6 +285,25 @@ public class DeploymentStep extends AbstractStep {
         }
     }
 
+    /**
+     * Publishes a {@link ChangeFeed.Type#STEP} event if the step's status differs from the status which was last
+     * published. Invoked for every status notification, so that changes made via e.g. {@link #updateInitialStatus},
+     * {@link #interrupt()}, or {@link #forceComplete()} are published along with those resulting from task updates.
+     */
+    private void publishStatusChange() {
+        synchronized (changeFeedPublisher) {
+            Status newStatus = super.getStatus();
+            if (newStatus == publishedStatus) {
+                return;
+            }
+            Map<String, String> details = new HashMap<>();
+            details.put("old_status", publishedStatus.toString());
+            details.put("status", newStatus.toString());
+            publishedStatus = newStatus;
+            stateStore.getChangeFeed().publish(ChangeFeed.Type.STEP, getName(), details);
+        }
+    }
+
     @VisibleForTesting
     static String getDisplayStatus(StateStore stateStore, Status stepStatus, Collection<String> tasksToLaunch) {
         // It is valid for some tasks to be paused and not others, i.e. user specified specific task(s) to paused.
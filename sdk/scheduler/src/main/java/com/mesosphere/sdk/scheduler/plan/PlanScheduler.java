@@ -24,4 +24,12 @@ public interface PlanScheduler {
             final SchedulerDriver driver,
             final List<Offer> offers,
             final Collection<? extends Step> steps);
+
+    /**
+     * Releases any resources held by this instance, such as threads. Called once the scheduler is stopping, after
+     * which no further offers are processed.
+     */
+    default void close() {
+        // No resources to release by default
+    }
 }
@@ -0,0 +1,225 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import com.mesosphere.sdk.scheduler.plan.strategy.Strategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Incrementally maintains the {@link Status} of a {@link ParentElement}, producing the same result as
+ * {@link ParentElement#getStatus()} without examining every child on each call.
+ * <p>
+ * The aggregator keeps a count of children in each {@link Status}, along with a count of children with errors, and
+ * a count of candidate children in each {@link Status}. These are only refreshed when a child or the parent's
+ * {@link Strategy} reports a change via {@link StatusNotifier}, at which point only the affected children are
+ * reexamined. If the strategy or any child doesn't support notifications, the aggregator is disabled and callers
+ * should fall back to {@link ParentElement#getStatus()}.
+ * <p>
+ * Changes are forwarded to the parent's own listeners, so that a {@link Plan} is notified of changes to the
+ * {@link Step}s within its {@link Phase}s.
+ *
+ * @param <C> the type of the child elements
+ */
+class StatusAggregator<C extends Element> implements StatusNotifier.Listener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatusAggregator.class);
+
+    private final ParentElement<C> parent;
+    private final StatusListeners parentListeners;
+
+    // The following are guarded by 'this':
+
+    // The children and strategy which are being observed, or null if not yet initialized:
+    private List<C> children;
+    private Strategy<C> strategy;
+    private boolean enabled;
+
+    // Indexes of each child within the list of children, by identity:
+    private final Map<Object, List<Integer>> childIndexes = new IdentityHashMap<>();
+    private Status[] childStatuses;
+    private boolean[] childHasErrors;
+    private final Set<Integer> dirtyChildIndexes = new HashSet<>();
+    private final int[] statusCounts = new int[Status.values().length];
+    private int childrenWithErrors;
+
+    private boolean candidatesDirty;
+    private final int[] candidateStatusCounts = new int[Status.values().length];
+    private int candidateCount;
+
+    StatusAggregator(ParentElement<C> parent, StatusListeners parentListeners) {
+        this.parent = parent;
+        this.parentListeners = parentListeners;
+    }
+
+    /**
+     * Returns whether the strategy and all children of the parent support notifications.
+     */
+    synchronized boolean isEnabled() {
+        List<C> currentChildren = parent.getChildren();
+        if (currentChildren == null) {
+            return false;
+        }
+        initIfChanged(currentChildren);
+        return enabled;
+    }
+
+    /**
+     * Returns the parent's status, or an empty {@link Optional} if the status cannot be determined incrementally.
+     *
+     * @param ownErrors the parent's own errors, excluding any errors from its children
+     */
+    synchronized Optional<Status> getStatus(List<String> ownErrors) {
+        List<C> currentChildren = parent.getChildren();
+        if (currentChildren == null) {
+            return Optional.empty();
+        }
+        initIfChanged(currentChildren);
+        if (!enabled) {
+            return Optional.empty();
+        }
+        refreshChildren();
+        if (candidatesDirty) {
+            refreshCandidates();
+        }
+        return Optional.of(aggregate(!ownErrors.isEmpty() || childrenWithErrors > 0));
+    }
+
+    @Override
+    public void statusChanged(Object source) {
+        synchronized (this) {
+            List<Integer> indexes = childIndexes.get(source);
+            if (indexes != null) {
+                dirtyChildIndexes.addAll(indexes);
+            }
+            // Candidacy depends on both the strategy and the statuses of the children:
+            candidatesDirty = true;
+        }
+        parentListeners.notifyListeners(parent);
+    }
+
+    // Internals, which must be invoked with the lock held:
+
+    /**
+     * (Re)initializes the aggregator if the parent's children or strategy are different from what's being observed.
+     */
+    private void initIfChanged(List<C> currentChildren) {
+        Strategy<C> currentStrategy = parent.getStrategy();
+        if (children != null
+                && strategy == currentStrategy
+                && children.size() == currentChildren.size()
+                && (children.isEmpty() || children.get(0) == currentChildren.get(0))) {
+            return;
+        }
+
+        children = new ArrayList<>(currentChildren);
+        strategy = currentStrategy;
+        childIndexes.clear();
+        dirtyChildIndexes.clear();
+        childStatuses = new Status[children.size()];
+        childHasErrors = new boolean[children.size()];
+        Arrays.fill(statusCounts, 0);
+        childrenWithErrors = 0;
+
+        // Register with everything (without short-circuiting), so that we're notified if any child changes:
+        boolean allNotify = addListener(strategy);
+        for (int i = 0; i < children.size(); ++i) {
+            C child = children.get(i);
+            allNotify &= addListener(child);
+            List<Integer> indexes = childIndexes.get(child);
+            if (indexes == null) {
+                indexes = new ArrayList<>(1);
+                childIndexes.put(child, indexes);
+            }
+            indexes.add(i);
+            dirtyChildIndexes.add(i);
+        }
+        candidatesDirty = true;
+        enabled = allNotify;
+        if (!enabled) {
+            LOGGER.debug("({}) Status changes aren't reported by all children, status will not be cached",
+                    parent.getName());
+        }
+    }
+
+    private boolean addListener(Object notifier) {
+        return notifier instanceof StatusNotifier && ((StatusNotifier) notifier).addStatusListener(this);
+    }
+
+    private void refreshChildren() {
+        if (dirtyChildIndexes.isEmpty()) {
+            return;
+        }
+        for (Integer index : dirtyChildIndexes) {
+            C child = children.get(index);
+            Status previousStatus = childStatuses[index];
+            if (previousStatus != null) {
+                --statusCounts[previousStatus.ordinal()];
+            }
+            if (childHasErrors[index]) {
+                --childrenWithErrors;
+            }
+
+            Status status = child.getStatus();
+            boolean hasErrors = !child.getErrors().isEmpty();
+            childStatuses[index] = status;
+            ++statusCounts[status.ordinal()];
+            childHasErrors[index] = hasErrors;
+            if (hasErrors) {
+                ++childrenWithErrors;
+            }
+        }
+        dirtyChildIndexes.clear();
+    }
+
+    private void refreshCandidates() {
+        Arrays.fill(candidateStatusCounts, 0);
+        Collection<C> candidates = strategy.getCandidates(parent.getChildren(), Collections.emptyList());
+        for (C candidate : candidates) {
+            ++candidateStatusCounts[candidate.getStatus().ordinal()];
+        }
+        candidateCount = candidates.size();
+        candidatesDirty = false;
+    }
+
+    private boolean any(Status status) {
+        return statusCounts[status.ordinal()] > 0;
+    }
+
+    private boolean anyCandidate(Status status) {
+        return candidateStatusCounts[status.ordinal()] > 0;
+    }
+
+    /**
+     * Matches the ordering of the checks in {@link ParentElement#getStatus()}. Modify both with care.
+     */
+    private Status aggregate(boolean hasErrors) {
+        if (hasErrors || any(Status.ERROR)) {
+            return Status.ERROR;
+        } else if (statusCounts[Status.COMPLETE.ordinal()] == children.size()) {
+            return Status.COMPLETE;
+        } else if (parent.isInterrupted()) {
+            return Status.WAITING;
+        } else if (any(Status.PREPARED)) {
+            return Status.IN_PROGRESS;
+        } else if (anyCandidate(Status.WAITING)) {
+            return Status.WAITING;
+        } else if (anyCandidate(Status.IN_PROGRESS)) {
+            return Status.IN_PROGRESS;
+        } else if (any(Status.COMPLETE) && (anyCandidate(Status.PENDING)
+                || anyCandidate(Status.STARTING)
+                || anyCandidate(Status.STARTED))) {
+            return Status.IN_PROGRESS;
+        } else if (candidateCount > 0 && anyCandidate(Status.PENDING)) {
+            return Status.PENDING;
+        } else if (any(Status.WAITING)) {
+            return Status.WAITING;
+        } else if (anyCandidate(Status.STARTING)) {
+            return Status.STARTING;
+        } else if (anyCandidate(Status.STARTED)) {
+            return Status.STARTED;
+        }
+        LOGGER.warn("({} status={}) Unexpected state. children: {}", parent.getName(), Status.ERROR, children);
+        return Status.ERROR;
+    }
+}
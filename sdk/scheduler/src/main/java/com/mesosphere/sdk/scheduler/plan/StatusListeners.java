@@ -0,0 +1,56 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The set of {@link StatusNotifier.Listener}s registered with a {@link StatusNotifier}. Listeners are weakly referenced
+ * and are dropped once they have been garbage collected.
+ * <p>
+ * This class is thread-safe. Listeners are invoked without any lock held.
+ */
+public class StatusListeners {
+
+    private final List<WeakReference<StatusNotifier.Listener>> listeners = new ArrayList<>();
+
+    /**
+     * Adds the provided listener, if it isn't already present.
+     */
+    public synchronized void add(StatusNotifier.Listener listener) {
+        for (Iterator<WeakReference<StatusNotifier.Listener>> iter = listeners.iterator(); iter.hasNext();) {
+            StatusNotifier.Listener existing = iter.next().get();
+            if (existing == null) {
+                iter.remove();
+            } else if (existing == listener) {
+                return;
+            }
+        }
+        listeners.add(new WeakReference<>(listener));
+    }
+
+    /**
+     * Notifies all listeners of a change to the provided source.
+     */
+    public void notifyListeners(Object source) {
+        List<StatusNotifier.Listener> liveListeners;
+        synchronized (this) {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            liveListeners = new ArrayList<>(listeners.size());
+            for (Iterator<WeakReference<StatusNotifier.Listener>> iter = listeners.iterator(); iter.hasNext();) {
+                StatusNotifier.Listener listener = iter.next().get();
+                if (listener == null) {
+                    iter.remove();
+                } else {
+                    liveListeners.add(listener);
+                }
+            }
+        }
+        for (StatusNotifier.Listener listener : liveListeners) {
+            listener.statusChanged(source);
+        }
+    }
+}
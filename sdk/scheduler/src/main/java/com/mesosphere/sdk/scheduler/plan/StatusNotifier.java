@@ -0,0 +1,37 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import com.mesosphere.sdk.scheduler.plan.strategy.Strategy;
+
+/**
+ * Interface for plan components which notify listeners of changes which may affect the {@link Status} of a
+ * {@link ParentElement}. For an {@link Element}, this is any change to its status, errors, or interrupted state. For a
+ * {@link Strategy}, this is any change to which children it would return as candidates, other than changes which
+ * result from the children themselves.
+ * <p>
+ * Listeners are weakly referenced, so that registering with a long-lived component doesn't keep the listener alive.
+ * Callers must retain their own reference to any listener they register.
+ */
+public interface StatusNotifier {
+
+    /**
+     * A listener for changes reported by a {@link StatusNotifier}.
+     */
+    interface Listener {
+
+        /**
+         * Invoked after a change which may affect a parent's status. This may be invoked from any thread, and must not
+         * block on other plan components.
+         *
+         * @param source the component which changed
+         */
+        void statusChanged(Object source);
+    }
+
+    /**
+     * Registers the provided listener. Registering the same listener more than once has no effect.
+     *
+     * @return whether all relevant changes will be reported to the listener, or false if the caller must not rely on
+     *     notifications from this component
+     */
+    boolean addStatusListener(Listener listener);
+}
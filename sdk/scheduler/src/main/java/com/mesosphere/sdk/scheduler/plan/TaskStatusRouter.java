@@ -0,0 +1,129 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import org.apache.mesos.Protos;
+
+import java.util.*;
+
+/**
+ * Delivers {@link Protos.TaskStatus} updates to the {@link Step}s of a {@link Plan}, using an index of the tasks which
+ * each {@link TaskStatusSubscriber} step is interested in. Updates are only delivered to subscribed steps whose tasks
+ * match the update, along with any steps which don't support subscriptions. This avoids passing every update to every
+ * step, most of which would ignore it.
+ * <p>
+ * Subscriptions are refreshed lazily: a step which reports a change via {@link StatusNotifier} is reindexed before the
+ * next update is routed. The steps within {@link DefaultPhase}s are routed individually, while any other
+ * {@link Phase}s receive every update.
+ */
+class TaskStatusRouter implements StatusNotifier.Listener {
+
+    private final ParentElement<Phase> plan;
+
+    // The following are guarded by 'this':
+
+    // The phases which are being observed, or null if not yet initialized:
+    private List<Phase> phases;
+    // Phases and steps which receive every update:
+    private final List<Element> broadcastElements = new ArrayList<>();
+    // The current subscriptions of each subscribed step, by identity:
+    private final Map<Step, Collection<Protos.TaskID>> taskIdsByStep = new IdentityHashMap<>();
+    // Subscribed steps for each task, by identity:
+    private final Map<Protos.TaskID, Set<Step>> stepsByTaskId = new HashMap<>();
+    private final Set<Step> dirtySteps = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    TaskStatusRouter(ParentElement<Phase> plan) {
+        this.plan = plan;
+    }
+
+    /**
+     * Delivers the provided update to the interested elements of the plan.
+     */
+    void update(Protos.TaskStatus status) {
+        for (Element element : getRecipients(status.getTaskId())) {
+            element.update(status);
+        }
+    }
+
+    /**
+     * Returns the elements which should receive an update for the provided task.
+     */
+    synchronized List<Element> getRecipients(Protos.TaskID taskId) {
+        initIfChanged(plan.getChildren());
+        for (Step step : dirtySteps) {
+            index(step);
+        }
+        dirtySteps.clear();
+
+        Set<Step> subscribedSteps = stepsByTaskId.get(taskId);
+        if (subscribedSteps == null) {
+            return new ArrayList<>(broadcastElements);
+        }
+        List<Element> recipients = new ArrayList<>(broadcastElements.size() + subscribedSteps.size());
+        recipients.addAll(broadcastElements);
+        recipients.addAll(subscribedSteps);
+        return recipients;
+    }
+
+    @Override
+    public void statusChanged(Object source) {
+        if (source instanceof Step) {
+            synchronized (this) {
+                if (taskIdsByStep.containsKey(source)) {
+                    dirtySteps.add((Step) source);
+                }
+            }
+        }
+    }
+
+    // Internals, which must be invoked with the lock held:
+
+    private void initIfChanged(List<Phase> currentPhases) {
+        if (phases != null
+                && phases.size() == currentPhases.size()
+                && (phases.isEmpty() || phases.get(0) == currentPhases.get(0))) {
+            return;
+        }
+
+        phases = new ArrayList<>(currentPhases);
+        broadcastElements.clear();
+        taskIdsByStep.clear();
+        stepsByTaskId.clear();
+        dirtySteps.clear();
+
+        for (Phase phase : phases) {
+            if (phase.getClass() != DefaultPhase.class) {
+                // Other phases may handle updates differently:
+                broadcastElements.add(phase);
+                continue;
+            }
+            for (Step step : phase.getChildren()) {
+                if (step instanceof TaskStatusSubscriber && ((TaskStatusSubscriber) step).addStatusListener(this)) {
+                    if (!taskIdsByStep.containsKey(step)) {
+                        taskIdsByStep.put(step, Collections.emptyList());
+                        index(step);
+                    }
+                } else {
+                    broadcastElements.add(step);
+                }
+            }
+        }
+    }
+
+    private void index(Step step) {
+        for (Protos.TaskID taskId : taskIdsByStep.get(step)) {
+            Set<Step> steps = stepsByTaskId.get(taskId);
+            if (steps != null && steps.remove(step) && steps.isEmpty()) {
+                stepsByTaskId.remove(taskId);
+            }
+        }
+        Collection<Protos.TaskID> taskIds = new ArrayList<>(((TaskStatusSubscriber) step).getSubscribedTaskIds());
+        for (Protos.TaskID taskId : taskIds) {
+            Set<Step> steps = stepsByTaskId.get(taskId);
+            if (steps == null) {
+                steps = Collections.newSetFromMap(new IdentityHashMap<>());
+                stepsByTaskId.put(taskId, steps);
+            }
+            steps.add(step);
+        }
+        taskIdsByStep.put(step, taskIds);
+    }
+}
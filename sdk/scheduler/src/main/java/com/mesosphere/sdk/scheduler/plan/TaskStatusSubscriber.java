@@ -0,0 +1,23 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import org.apache.mesos.Protos;
+
+import java.util.Collection;
+
+/**
+ * Implemented by {@link Step}s which only act on {@link Protos.TaskStatus} updates for a known set of tasks. This
+ * allows a {@link Plan} to deliver each update directly to the interested steps, rather than to every step in the
+ * plan.
+ * <p>
+ * Any change to the subscribed {@link Protos.TaskID}s must be reported via {@link StatusNotifier}.
+ */
+public interface TaskStatusSubscriber extends StatusNotifier {
+
+    /**
+     * Returns the IDs of the tasks whose {@link Protos.TaskStatus} updates this step acts on. Updates for any other
+     * tasks must have no effect when passed to {@link Step#update(Protos.TaskStatus)}.
+     * <p>
+     * This may be invoked while the caller holds locks of its own, so implementations must not block.
+     */
+    Collection<Protos.TaskID> getSubscribedTaskIds();
+}
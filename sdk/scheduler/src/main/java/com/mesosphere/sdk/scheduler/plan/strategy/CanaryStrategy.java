@@ -1,6 +1,7 @@
 package com.mesosphere.sdk.scheduler.plan.strategy;
 
 import com.mesosphere.sdk.scheduler.plan.PodInstanceRequirement;
+import com.mesosphere.sdk.scheduler.plan.StatusNotifier;
 import com.mesosphere.sdk.scheduler.plan.Step;
 
 import java.util.Collection;
@@ -25,7 +26,7 @@ import java.util.stream.Collectors;
  * get their desired behavior by directly applying CanaryStrategy to some subset of the
  * {@link com.mesosphere.sdk.scheduler.plan.Phase}s in their {@link com.mesosphere.sdk.scheduler.plan.Plan}.
  */
-public class CanaryStrategy implements Strategy<Step> {
+public class CanaryStrategy implements Strategy<Step>, StatusNotifier {
 
     /**
      * One proceed() to launch the first block, then a second proceed() to launch all the rest.
@@ -116,6 +117,20 @@ public class CanaryStrategy implements Strategy<Step> {
         return strategy.isInterrupted();
     }
 
+    /**
+     * The candidates depend on the state of the canary steps and of the underlying strategy, so changes are only
+     * reported if both of those report changes.
+     */
+    @Override
+    public boolean addStatusListener(StatusNotifier.Listener listener) {
+        boolean allNotify = strategy instanceof StatusNotifier
+                && ((StatusNotifier) strategy).addStatusListener(listener);
+        for (Step step : canarySteps) {
+            allNotify &= step instanceof StatusNotifier && ((StatusNotifier) step).addStatusListener(listener);
+        }
+        return allNotify;
+    }
+
     private Step getNextProceedStep() {
         for (Step proceedStep : canarySteps) {
             if (!proceedStep.isInterrupted() && !proceedStep.isComplete()) {
@@ -1,30 +1,48 @@
 package com.mesosphere.sdk.scheduler.plan.strategy;
 
 import com.mesosphere.sdk.scheduler.plan.Element;
+import com.mesosphere.sdk.scheduler.plan.StatusListeners;
+import com.mesosphere.sdk.scheduler.plan.StatusNotifier;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class provides an encapsulation of common implementations for the methods associated with pausing and resuming
- * strategies.
+ * strategies. Interrupting or proceeding is reported to any {@link StatusNotifier.Listener}s, as it changes the set of
+ * candidates.
  *
  * @param <C> is the type of {@link Element}s to which the Strategy applies.
  */
-public abstract class InterruptibleStrategy<C extends Element> implements Strategy<C> {
+public abstract class InterruptibleStrategy<C extends Element> implements Strategy<C>, StatusNotifier {
     private AtomicBoolean interrupted = new AtomicBoolean(false);
+    private final StatusListeners statusListeners = new StatusListeners();
 
     @Override
     public void interrupt() {
-        interrupted.set(true);
+        if (!interrupted.getAndSet(true)) {
+            statusListeners.notifyListeners(this);
+        }
     }
 
     @Override
     public void proceed() {
-        interrupted.set(false);
+        if (interrupted.getAndSet(false)) {
+            statusListeners.notifyListeners(this);
+        }
     }
 
     @Override
     public boolean isInterrupted() {
         return interrupted.get();
     }
+
+    /**
+     * Subclasses whose candidates change for reasons other than interruption or the state of their elements must
+     * override this to report those changes, or to return false.
+     */
+    @Override
+    public boolean addStatusListener(StatusNotifier.Listener listener) {
+        statusListeners.add(listener);
+        return true;
+    }
 }
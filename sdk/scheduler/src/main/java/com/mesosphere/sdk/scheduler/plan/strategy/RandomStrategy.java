@@ -2,6 +2,7 @@ package com.mesosphere.sdk.scheduler.plan.strategy;
 
 import com.mesosphere.sdk.scheduler.plan.Element;
 import com.mesosphere.sdk.scheduler.plan.PodInstanceRequirement;
+import com.mesosphere.sdk.scheduler.plan.StatusNotifier;
 import com.mesosphere.sdk.scheduler.plan.Step;
 
 import java.util.*;
@@ -29,6 +30,14 @@ public class RandomStrategy<C extends Element> extends InterruptibleStrategy<C>
         return "random";
     }
 
+    /**
+     * Candidates are selected at random on each call, so changes to them cannot be reported.
+     */
+    @Override
+    public boolean addStatusListener(StatusNotifier.Listener listener) {
+        return false;
+    }
+
     public StrategyGenerator<C> getGenerator() {
         return new Generator<>();
     }
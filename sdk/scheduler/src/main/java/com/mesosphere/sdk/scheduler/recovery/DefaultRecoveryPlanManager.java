@@ -13,6 +13,7 @@ import com.mesosphere.sdk.specification.TaskSpec;
 import com.mesosphere.sdk.state.ConfigStore;
 import com.mesosphere.sdk.state.StateStore;
 import com.mesosphere.sdk.state.StateStoreUtils;
+import com.mesosphere.sdk.state.TaskStateIndex;
 import org.apache.mesos.Protos;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -237,8 +238,9 @@ public class DefaultRecoveryPlanManager implements PlanManager {
                 recoverableTaskNames);
         logger.info("Found tasks needing recovery: {}", getTaskNames(failedTasks));
 
-        List<Protos.TaskInfo> allLaunchedTasks = stateStore.fetchTasks().stream()
-                .filter(taskInfo -> stateStore.fetchStatus(taskInfo.getName()).isPresent())
+        TaskStateIndex taskStateIndex = stateStore.getTaskStateIndex();
+        List<Protos.TaskInfo> allLaunchedTasks = taskStateIndex.getTasks().stream()
+                .filter(taskInfo -> taskStateIndex.getStatus(taskInfo.getName()).isPresent())
                 .collect(Collectors.toList());
 
         List<PodInstanceRequirement> failedPods = TaskUtils.getPodRequirements(
@@ -272,7 +274,7 @@ public class DefaultRecoveryPlanManager implements PlanManager {
         for (PodInstanceRequirement failedPod : failedPods) {
             List<Protos.TaskInfo> failedPodTaskInfos = failedPod.getTasksToLaunch().stream()
                     .map(taskSpecName -> TaskSpec.getInstanceName(failedPod.getPodInstance(), taskSpecName))
-                    .map(taskInfoName -> stateStore.fetchTask(taskInfoName))
+                    .map(taskInfoName -> taskStateIndex.getTask(taskInfoName))
                     .filter(taskInfo -> taskInfo.isPresent())
                     .map(taskInfo -> taskInfo.get())
                     .collect(Collectors.toList());
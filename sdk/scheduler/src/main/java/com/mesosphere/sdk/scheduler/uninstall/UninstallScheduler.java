@@ -145,7 +145,7 @@ public class UninstallScheduler extends AbstractScheduler {
             logger.info("No offers to be declined.");
         } else {
             logger.info("Declining {} unused offers", unusedOffers.size());
-            OfferUtils.declineLong(driver, unusedOffers);
+            declineLong(driver, unusedOffers);
         }
     }
 
@@ -53,6 +53,9 @@ public class DefaultPodSpec implements PodSpec {
     @NotNull
     private Boolean sharePidNamespace;
 
+    // Lazily computed by getFingerprint(). Must be transient, to be excluded from reflectionEquals().
+    private transient String fingerprint;
+
     @JsonCreator
     public DefaultPodSpec(
             @JsonProperty("type") String type,
@@ -198,6 +201,14 @@ public class DefaultPodSpec implements PodSpec {
         return sharePidNamespace;
     }
 
+    @Override
+    public String getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = PodSpec.super.getFingerprint();
+        }
+        return fingerprint;
+    }
+
     @Override
     public boolean equals(Object o) {
         return EqualsBuilder.reflectionEquals(this, o);
@@ -68,6 +68,12 @@ public class DefaultServiceSpec implements ServiceSpec {
     @Valid
     private ReplacementFailurePolicy replacementFailurePolicy;
 
+    /**
+     * Computed on first use by {@link #getFingerprint()}. Transient so that it's ignored by reflection-based equality,
+     * hashing, and toString.
+     */
+    private transient String fingerprint;
+
     @JsonCreator
     public DefaultServiceSpec(
             @JsonProperty("name") String name,
@@ -214,6 +220,15 @@ public class DefaultServiceSpec implements ServiceSpec {
         return Optional.ofNullable(replacementFailurePolicy);
     }
 
+    @Override
+    public String getFingerprint() {
+        // Threads racing to compute the fingerprint all produce the same value.
+        if (fingerprint == null) {
+            fingerprint = ServiceSpec.super.getFingerprint();
+        }
+        return fingerprint;
+    }
+
     @Override
     public boolean equals(Object o) {
         return EqualsBuilder.reflectionEquals(this, o);
@@ -250,6 +265,12 @@ public class DefaultServiceSpec implements ServiceSpec {
 
         @Override
         public boolean equals(ServiceSpec first, ServiceSpec second) {
+            // Shortcut: Specs with the same content are equal, without walking every pod and task. This relies on
+            // the serialized form capturing every field, which is checked by getConfigurationFactory().
+            String firstFingerprint = first.getFingerprint();
+            if (firstFingerprint != null && firstFingerprint.equals(second.getFingerprint())) {
+                return true;
+            }
             return EqualsBuilder.reflectionEquals(first, second);
         }
     }
@@ -65,6 +65,9 @@ public class DefaultTaskSpec implements TaskSpec {
     @Valid
     private Collection<TransportEncryptionSpec> transportEncryption;
 
+    // Lazily computed by getFingerprint(). Must be transient, to be excluded from reflectionHashCode().
+    private transient String fingerprint;
+
     @SuppressWarnings("PMD.SimplifiedTernary")
     @JsonCreator
     public DefaultTaskSpec(
@@ -192,6 +195,14 @@ public class DefaultTaskSpec implements TaskSpec {
         return ReflectionToStringBuilder.toString(this);
     }
 
+    @Override
+    public String getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = TaskSpec.super.getFingerprint();
+        }
+        return fingerprint;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof TaskSpec)) {
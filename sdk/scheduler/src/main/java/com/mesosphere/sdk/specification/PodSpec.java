@@ -3,8 +3,10 @@ package com.mesosphere.sdk.specification;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.mesosphere.sdk.config.SerializationUtils;
 import com.mesosphere.sdk.offer.evaluate.placement.PlacementRule;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
 import java.util.List;
@@ -61,4 +63,18 @@ public interface PodSpec {
     static String getName(PodSpec podSpec, int index) {
         return podSpec.getType() + "-" + index;
     }
+
+    /**
+     * Returns a fingerprint of this pod's content.
+     *
+     * @see ServiceSpec#getFingerprint()
+     */
+    @JsonIgnore
+    default String getFingerprint() {
+        try {
+            return SerializationUtils.toFingerprint(this);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
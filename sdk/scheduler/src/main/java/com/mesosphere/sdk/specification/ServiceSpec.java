@@ -1,8 +1,11 @@
 package com.mesosphere.sdk.specification;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.mesosphere.sdk.config.Configuration;
+import com.mesosphere.sdk.config.SerializationUtils;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +36,23 @@ public interface ServiceSpec extends Configuration {
 
     @JsonProperty("user")
     String getUser();
+
+    /**
+     * Returns a fingerprint of this service's content, as produced by
+     * {@link com.mesosphere.sdk.config.SerializationUtils#toFingerprint(Object)}, or {@code null} if the content can't
+     * be serialized. The fingerprint is stable across JVMs. The default implementation computes the fingerprint on
+     * each call, and implementations which are immutable may cache it.
+     * <p>
+     * Specs with the same fingerprint are equal, so the fingerprint may be used as a fast equality check or as a cache
+     * key. Specs with different fingerprints may still be equal, because {@link TaskSpec} equality ignores some fields
+     * and orderings.
+     */
+    @JsonIgnore
+    default String getFingerprint() {
+        try {
+            return SerializationUtils.toFingerprint(this);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
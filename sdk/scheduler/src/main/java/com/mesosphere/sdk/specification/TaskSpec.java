@@ -1,8 +1,11 @@
 package com.mesosphere.sdk.specification;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.mesosphere.sdk.config.SerializationUtils;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Optional;
 
@@ -51,4 +54,19 @@ public interface TaskSpec {
     static String getInstanceName(PodInstance podInstance, String taskName) {
         return podInstance.getName() + "-" + taskName;
     }
+
+    /**
+     * Returns a fingerprint of this task's content. Unlike task equality, the fingerprint covers every field and is
+     * sensitive to the order of resources, volumes, and config files.
+     *
+     * @see ServiceSpec#getFingerprint()
+     */
+    @JsonIgnore
+    default String getFingerprint() {
+        try {
+            return SerializationUtils.toFingerprint(this);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
@@ -2,11 +2,14 @@ package com.mesosphere.sdk.specification.yaml;
 
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
@@ -14,6 +17,7 @@ import org.apache.commons.lang3.StringUtils;
 import com.github.mustachejava.Binding;
 import com.github.mustachejava.Code;
 import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheException;
 import com.github.mustachejava.ObjectHandler;
 import com.github.mustachejava.TemplateContext;
@@ -21,13 +25,50 @@ import com.github.mustachejava.codes.ValueCode;
 import com.github.mustachejava.reflect.GuardedBinding;
 import com.github.mustachejava.reflect.MissingWrapper;
 import com.github.mustachejava.reflect.ReflectionObjectHandler;
+import com.github.mustachejava.util.GuardException;
 import com.github.mustachejava.util.Wrapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
 
 /**
  * Utility methods relating to rendering mustache templates.
  */
 public class TemplateUtils {
 
+    /**
+     * The maximum number of distinct compiled templates to retain. A service typically renders its YAML spec and a
+     * handful of config templates, so this comfortably covers several services in the same JVM, as in tests.
+     */
+    private static final int MAX_CACHED_TEMPLATES = 100;
+
+    /**
+     * Compiled templates, keyed by a hash of the template name and content. A compiled template doesn't depend on the
+     * values it's rendered with, so re-rendering the same template with a different environment only needs to execute
+     * it.
+     */
+    private static final Cache<String, Mustache> COMPILED_TEMPLATES = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_TEMPLATES)
+            .recordStats()
+            .build();
+
+    /**
+     * The missing values of the template which is currently being executed on this thread. Compiled templates are
+     * shared between renders, so missing values can't be collected against a list which is fixed at compile time.
+     */
+    private static final ThreadLocal<MissingValues> CURRENT_MISSING_VALUES = new ThreadLocal<>();
+
+    private static final DefaultMustacheFactory MUSTACHE_FACTORY = new DefaultMustacheFactory();
+    static {
+        MUSTACHE_FACTORY.setObjectHandler(new ReflectionObjectHandler() {
+            @Override
+            public Binding createBinding(String name, final TemplateContext tc, Code code) {
+                return new MissingValueBinding(this, name, tc, code);
+            }
+        });
+    }
+
     private TemplateUtils() {
         // do not instantiate
     }
@@ -65,7 +106,8 @@ public class TemplateUtils {
      * @param templateContent String representation of template
      * @param values Map of values to be inserted into the template
      * @param missingValues List where missing value entries will be added for any template params in
-     *     {@code templateContent} which are not found in {@code values}
+     *     {@code templateContent} which are not found in {@code values}. Each param is only added once per line, even
+     *     if it's used repeatedly, e.g. within a section which is rendered for each element of a list
      * @return Rendered Mustache template String
      */
     public static String renderMustache(
@@ -74,14 +116,6 @@ public class TemplateUtils {
             Map<String, String> values,
             final List<MissingValue> missingValues) {
         StringWriter writer = new StringWriter();
-        DefaultMustacheFactory mustacheFactory = new DefaultMustacheFactory();
-        mustacheFactory.setObjectHandler(new ReflectionObjectHandler() {
-            @Override
-            public Binding createBinding(String name, final TemplateContext tc, Code code) {
-                return new MissingValueBinding(this, name, tc, code, missingValues);
-            }
-        });
-
         Map<String, Object> objEnv = new HashMap<>();
         for (Map.Entry<String, String> entry : values.entrySet()) {
             if (StringUtils.equalsIgnoreCase(entry.getValue(), "false") ||
@@ -92,9 +126,13 @@ public class TemplateUtils {
             }
         }
 
-        mustacheFactory
-                .compile(new StringReader(templateContent), templateName)
-                .execute(writer, objEnv);
+        Mustache mustache = getCompiledTemplate(templateName, templateContent);
+        CURRENT_MISSING_VALUES.set(new MissingValues(missingValues));
+        try {
+            mustache.execute(writer, objEnv);
+        } finally {
+            CURRENT_MISSING_VALUES.remove();
+        }
         return writer.toString();
     }
 
@@ -136,24 +174,44 @@ public class TemplateUtils {
     }
 
     /**
-     * An extension of {@link GuardedBinding} which collects missing values against the provided list.
+     * Returns statistics for the cache of compiled templates, for use in tests.
+     */
+    static CacheStats getCompiledTemplateStats() {
+        return COMPILED_TEMPLATES.stats();
+    }
+
+    /**
+     * Returns the compiled form of the provided template, compiling it if it isn't already cached.
+     */
+    private static Mustache getCompiledTemplate(String templateName, String templateContent) {
+        String key = Hashing.sha256().newHasher()
+                .putString(templateName, StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(templateContent, StandardCharsets.UTF_8)
+                .hash()
+                .toString();
+        Mustache mustache = COMPILED_TEMPLATES.getIfPresent(key);
+        if (mustache == null) {
+            // Compile outside of the cache so that template errors are thrown as-is. Two threads compiling the same
+            // template at once will produce equivalent results, so it doesn't matter which one is retained.
+            mustache = MUSTACHE_FACTORY.compile(new StringReader(templateContent), templateName);
+            COMPILED_TEMPLATES.put(key, mustache);
+        }
+        return mustache;
+    }
+
+    /**
+     * An extension of {@link GuardedBinding} which collects missing values against the list for the current render.
      */
     private static class MissingValueBinding extends GuardedBinding {
 
         private final TemplateContext tc;
         private final Code code;
-        private final List<MissingValue> missingValues;
 
-        private MissingValueBinding(
-                ObjectHandler oh,
-                String name,
-                final TemplateContext tc,
-                Code code,
-                List<MissingValue> missingValues) {
+        private MissingValueBinding(ObjectHandler oh, String name, final TemplateContext tc, Code code) {
             super(oh, name, tc, code);
             this.tc = tc;
             this.code = code;
-            this.missingValues = missingValues;
         }
 
         @Override
@@ -167,9 +225,57 @@ public class TemplateUtils {
             // - "{{^hello}}{{/hello}}" = NotIterableCode
             // - etc... "{{>partial}}", "{{!comment}}"
             if (code instanceof ValueCode && wrapper instanceof MissingWrapper) {
-                missingValues.add(new MissingValue(name, tc.line()));
+                // The binding retains the returned wrapper and reuses it for as long as its guards pass, so the value
+                // must be recorded each time the wrapper is called, not just when it's first created.
+                return new MissingValueWrapper(wrapper, new MissingValue(name, tc.line()));
             }
             return wrapper;
         }
     }
+
+    /**
+     * A {@link Wrapper} for a value which isn't present in the environment, which records the missing value each time
+     * it's used.
+     */
+    private static class MissingValueWrapper implements Wrapper {
+
+        private final Wrapper wrapper;
+        private final MissingValue missingValue;
+
+        private MissingValueWrapper(Wrapper wrapper, MissingValue missingValue) {
+            this.wrapper = wrapper;
+            this.missingValue = missingValue;
+        }
+
+        @Override
+        public Object call(List<Object> scopes) throws GuardException {
+            // Throws if the value is present in this environment, in which case it isn't missing:
+            Object result = wrapper.call(scopes);
+            MissingValues missingValues = CURRENT_MISSING_VALUES.get();
+            if (missingValues != null) {
+                missingValues.add(missingValue);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The missing values which were encountered during a single render. A value which is missing from a section that is
+     * executed repeatedly is only reported once for each line where it appears.
+     */
+    private static class MissingValues {
+
+        private final List<MissingValue> missingValues;
+        private final Set<String> seen = new HashSet<>();
+
+        private MissingValues(List<MissingValue> missingValues) {
+            this.missingValues = missingValues;
+        }
+
+        private void add(MissingValue missingValue) {
+            if (seen.add(missingValue.toString())) {
+                missingValues.add(missingValue);
+            }
+        }
+    }
 }
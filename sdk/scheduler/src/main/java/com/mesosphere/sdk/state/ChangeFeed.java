@@ -0,0 +1,320 @@
+package com.mesosphere.sdk.state;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * A bounded in-memory log of recent changes to the service, which allows clients to follow changes to plans, tasks,
+ * and endpoints as they happen, rather than repeatedly fetching and comparing the full state.
+ *
+ * <p>Each published event is assigned the next sequence number, starting from 1. Sequence numbers restart whenever
+ * the scheduler restarts, so clients are instead given a cursor which combines the sequence number with a random epoch
+ * that identifies this instance of the feed. Only the most recent events are retained: a client whose cursor refers to
+ * an event which is no longer retained, or which was issued by another instance of the feed (e.g. before the scheduler
+ * was restarted), is told that its view is {@link Changes#isTruncated() truncated} and should reload the full state
+ * before following further changes.
+ *
+ * <p>Clients which are waiting for changes register a {@link Watcher}. Each published event results in a single pass
+ * over the waiting watchers, in which watchers with the same cursor share the same {@link Changes} instance and its
+ * rendered JSON.
+ *
+ * <p>This class is thread-safe.
+ */
+public class ChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    /**
+     * The default number of events to retain.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Separates the epoch from the sequence number within a cursor.
+     */
+    private static final char CURSOR_DELIM = ':';
+
+    /**
+     * The kinds of changes which are published to the feed.
+     */
+    public enum Type {
+        /**
+         * A change to the status of a deployment step. The event name is the name of the step.
+         */
+        STEP("step"),
+
+        /**
+         * A task status which was stored in the {@link StateStore}. The event name is the name of the task.
+         */
+        TASK_STATUS("task-status"),
+
+        /**
+         * A change to the IP addresses which are advertised for a task's endpoints. The event name is the name of the
+         * task.
+         */
+        ENDPOINT("endpoint");
+
+        private final String serializedName;
+
+        Type(String serializedName) {
+            this.serializedName = serializedName;
+        }
+
+        public String getSerializedName() {
+            return serializedName;
+        }
+    }
+
+    /**
+     * A single change which was published to the feed.
+     */
+    public static final class Event {
+        private final long sequence;
+        private final Type type;
+        private final String name;
+        private final Map<String, String> details;
+        private final long timestampMs;
+
+        private Event(long sequence, Type type, String name, Map<String, String> details) {
+            this.sequence = sequence;
+            this.type = type;
+            this.name = name;
+            this.details = Collections.unmodifiableMap(new TreeMap<>(details));
+            this.timestampMs = System.currentTimeMillis();
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Map<String, String> getDetails() {
+            return details;
+        }
+
+        private JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("sequence", sequence);
+            json.put("type", type.getSerializedName());
+            json.put("name", name);
+            json.put("timestamp", timestampMs);
+            json.put("details", new JSONObject(details));
+            return json;
+        }
+    }
+
+    /**
+     * The events which followed a client's cursor.
+     */
+    public static final class Changes {
+        private final String epoch;
+        private final long latestSequence;
+        private final boolean truncated;
+        private final List<Event> events;
+        private String json;
+
+        private Changes(String epoch, long latestSequence, boolean truncated, List<Event> events) {
+            this.epoch = epoch;
+            this.latestSequence = latestSequence;
+            this.truncated = truncated;
+            this.events = Collections.unmodifiableList(events);
+        }
+
+        /**
+         * Returns the sequence number of the most recent event.
+         */
+        public long getLatestSequence() {
+            return latestSequence;
+        }
+
+        /**
+         * Returns the cursor of the most recent event, which clients should pass with their next request.
+         */
+        public String getCursor() {
+            return epoch + CURSOR_DELIM + latestSequence;
+        }
+
+        /**
+         * Returns whether some events following the client's cursor are no longer retained, in which case the returned
+         * events start from the oldest retained event.
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public List<Event> getEvents() {
+            return events;
+        }
+
+        /**
+         * Returns a JSON rendering of these changes, which is only rendered once per instance.
+         */
+        public synchronized String toJson() {
+            if (json == null) {
+                JSONObject response = new JSONObject();
+                response.put("version", getCursor());
+                response.put("truncated", truncated);
+                JSONArray eventsJson = new JSONArray();
+                for (Event event : events) {
+                    eventsJson.put(event.toJson());
+                }
+                response.put("events", eventsJson);
+                json = response.toString(2);
+            }
+            return json;
+        }
+    }
+
+    /**
+     * A client which is waiting for changes following its cursor.
+     */
+    @FunctionalInterface
+    public interface Watcher {
+
+        /**
+         * Invoked once, on the thread which published the first change following the watcher's cursor. This must not
+         * block.
+         */
+        void changed(Changes changes);
+    }
+
+    private final String epoch;
+    private final Event[] buffer;
+    private long latestSequence = 0;
+    private final Map<Watcher, Long> watchers = new LinkedHashMap<>();
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new feed which retains the provided number of the most recent events.
+     */
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.epoch = UUID.randomUUID().toString();
+        this.buffer = new Event[capacity];
+    }
+
+    /**
+     * Appends an event to the feed, and notifies any watchers which were waiting for it.
+     *
+     * @param type the kind of change
+     * @param name the name of the step or task which changed
+     * @param details additional information about the change
+     */
+    public void publish(Type type, String name, Map<String, String> details) {
+        Map<Watcher, Long> waiting;
+        synchronized (this) {
+            latestSequence++;
+            buffer[getIndex(latestSequence)] = new Event(latestSequence, type, name, details);
+            if (watchers.isEmpty()) {
+                return;
+            }
+            waiting = new LinkedHashMap<>(watchers);
+            watchers.clear();
+        }
+
+        Map<Long, Changes> changesByCursor = new HashMap<>();
+        for (Map.Entry<Watcher, Long> entry : waiting.entrySet()) {
+            Changes changes = changesByCursor.computeIfAbsent(entry.getValue(), this::getChangesSince);
+            try {
+                entry.getKey().changed(changes);
+            } catch (RuntimeException e) {
+                logger.error("Failed to notify watcher of changes", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the sequence number of the most recent event, or zero if no events have been published.
+     */
+    public synchronized long getLatestSequence() {
+        return latestSequence;
+    }
+
+    /**
+     * Returns the sequence number which the provided client cursor refers to, or {@code -1} if the cursor was issued by
+     * another instance of the feed or is malformed. Passing {@code -1} to {@link #getChangesSince(long)} or
+     * {@link #watch(long, Watcher)} returns the oldest retained events, marked as truncated.
+     *
+     * @see Changes#getCursor()
+     */
+    public long getSequence(String cursor) {
+        int delim = cursor.lastIndexOf(CURSOR_DELIM);
+        if (delim < 0 || !cursor.substring(0, delim).equals(epoch)) {
+            return -1;
+        }
+        try {
+            long sequence = Long.parseLong(cursor.substring(delim + 1));
+            return sequence < 0 ? -1 : sequence;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the retained events which followed the provided sequence number, which may be empty.
+     *
+     * @param since the sequence number of the last event which the client has seen, or zero if the client hasn't seen
+     *     any events
+     */
+    public synchronized Changes getChangesSince(long since) {
+        long oldestSequence = Math.max(1, latestSequence - buffer.length + 1);
+        boolean truncated = since < oldestSequence - 1 || since > latestSequence;
+        List<Event> events = new ArrayList<>();
+        for (long sequence = truncated ? oldestSequence : since + 1; sequence <= latestSequence; ++sequence) {
+            events.add(buffer[getIndex(sequence)]);
+        }
+        return new Changes(epoch, latestSequence, truncated, events);
+    }
+
+    /**
+     * Returns the changes which followed the provided cursor if there are any, or otherwise registers the provided
+     * watcher to be notified of the next change.
+     *
+     * @param since the sequence number of the last event which the client has seen
+     * @param watcher the watcher to be notified if there are no changes yet
+     * @return the changes following the cursor, or an empty result if the watcher was registered
+     */
+    public synchronized Optional<Changes> watch(long since, Watcher watcher) {
+        if (since == latestSequence) {
+            watchers.put(watcher, since);
+            return Optional.empty();
+        }
+        return Optional.of(getChangesSince(since));
+    }
+
+    /**
+     * Unregisters a watcher which is no longer waiting, e.g. because its client timed out.
+     *
+     * @return whether the watcher was still registered
+     */
+    public synchronized boolean unwatch(Watcher watcher) {
+        return watchers.remove(watcher) != null;
+    }
+
+    /**
+     * Returns the number of watchers which are waiting for changes.
+     */
+    public synchronized int getWatcherCount() {
+        return watchers.size();
+    }
+
+    private int getIndex(long sequence) {
+        return (int) (sequence % buffer.length);
+    }
+}
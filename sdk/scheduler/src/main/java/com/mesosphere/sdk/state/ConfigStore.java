@@ -1,5 +1,6 @@
 package com.mesosphere.sdk.state;
 
+import com.google.common.hash.Hashing;
 import com.mesosphere.sdk.config.Configuration;
 import com.mesosphere.sdk.config.ConfigurationFactory;
 import com.mesosphere.sdk.storage.Persister;
@@ -11,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An implementation of {@link ConfigStore} which relies on the provided {@link Persister} for data persistence.
@@ -20,7 +22,9 @@ import java.util.*;
  * <br>&nbsp;-> ConfigTarget (contains UUID)
  * <br>&nbsp;-> Configurations/
  * <br>&nbsp;&nbsp;-> [Config-ID-0] (contains serialized config)
+ * <br>&nbsp;&nbsp;&nbsp;-> Digest (contains hex SHA-256 digest of serialized config)
  * <br>&nbsp;&nbsp;-> [Config-ID-1] (contains serialized config)
+ * <br>&nbsp;&nbsp;&nbsp;-> Digest (contains hex SHA-256 digest of serialized config)
  * <br>&nbsp;&nbsp;-> ...
  *
  * @param <T> The {@code Configuration} object to be serialized and deserialized in the
@@ -38,10 +42,13 @@ public class ConfigStore<T extends Configuration> implements ConfigTargetStore {
 
     private static final String TARGET_PATH_NAME = "ConfigTarget";
     private static final String CONFIGURATIONS_PATH_NAME = "Configurations";
+    private static final String DIGEST_PATH_NAME = "Digest";
 
     private final ConfigurationFactory<T> factory;
     private final Persister persister;
-    private final Map<UUID, T> cache = new HashMap<>();
+    // Configs may be fetched concurrently, e.g. when configs are parsed in parallel at startup.
+    private final Map<UUID, T> cache = new ConcurrentHashMap<>();
+    private final Map<UUID, String> digestCache = new ConcurrentHashMap<>();
 
     /**
      * Creates a new {@link ConfigStore} which uses the provided {@link Persister} to access configuration data.
@@ -61,9 +68,17 @@ public class ConfigStore<T extends Configuration> implements ConfigTargetStore {
         }
     }
 
+    /**
+     * Returns the digest of the provided serialized configuration, as stored alongside the configuration. Two
+     * configurations with the same digest have identical serialized content.
+     */
+    public static String getDigest(byte[] data) {
+        return Hashing.sha256().hashBytes(data).toString();
+    }
+
     /**
      * Serializes the provided {@link Configuration} using its {@link Configuration#getBytes()}
-     * function, writes it to storage, and returns the UUID which it was stored against.
+     * function, writes it to storage along with its digest, and returns the UUID which it was stored against.
      *
      * @throws ConfigStoreException if serialization or writing fails
      */
@@ -71,14 +86,19 @@ public class ConfigStore<T extends Configuration> implements ConfigTargetStore {
         UUID id = UUID.randomUUID();
         String path = getConfigPath(id);
         byte[] data = config.getBytes();
+        String digest = getDigest(data);
+        Map<String, byte[]> values = new HashMap<>();
+        values.put(path, data);
+        values.put(getDigestPath(id), digest.getBytes(StandardCharsets.UTF_8));
         try {
-            persister.set(path, data);
+            persister.setMany(values);
         } catch (PersisterException e) {
             throw new ConfigStoreException(e, String.format(
                     "Failed to store configuration to path '%s': %s", path, config));
         }
 
         cache.put(id, config);
+        digestCache.put(id, digest);
         return id;
     }
 
@@ -116,6 +136,71 @@ public class ConfigStore<T extends Configuration> implements ConfigTargetStore {
         return config;
     }
 
+    /**
+     * Retrieves the digests of the serialized configurations assigned to the provided UUIDs, without deserializing
+     * the configurations. Configurations which were stored without a digest have their digest computed from their
+     * serialized content and stored. Configurations which are missing are omitted from the result.
+     *
+     * @param ids The UUIDs of the configurations whose digests should be fetched
+     * @return A mapping of UUIDs to digests, as returned by {@link #getDigest(byte[])}
+     * @throws ConfigStoreException if retrieval fails
+     */
+    public Map<UUID, String> fetchDigests(Collection<UUID> ids) throws ConfigStoreException {
+        Map<UUID, String> digests = new HashMap<>();
+        Map<String, UUID> idsByDigestPath = new HashMap<>();
+        for (UUID id : ids) {
+            String digest = digestCache.get(id);
+            if (digest != null) {
+                digests.put(id, digest);
+            } else {
+                idsByDigestPath.put(getDigestPath(id), id);
+            }
+        }
+        if (idsByDigestPath.isEmpty()) {
+            return digests;
+        }
+
+        try {
+            Map<String, UUID> idsByConfigPath = new HashMap<>();
+            Map<String, byte[]> storedDigests = persister.getMany(idsByDigestPath.keySet());
+            for (Map.Entry<String, UUID> entry : idsByDigestPath.entrySet()) {
+                byte[] digest = storedDigests.get(entry.getKey());
+                if (digest != null) {
+                    digests.put(entry.getValue(), new String(digest, StandardCharsets.UTF_8));
+                } else {
+                    idsByConfigPath.put(getConfigPath(entry.getValue()), entry.getValue());
+                }
+            }
+
+            // Configs stored by older versions lack a digest. Compute them from the content, without parsing it.
+            Map<String, byte[]> missingDigests = new HashMap<>();
+            Map<String, byte[]> storedConfigs = persister.getMany(idsByConfigPath.keySet());
+            for (Map.Entry<String, UUID> entry : idsByConfigPath.entrySet()) {
+                byte[] data = storedConfigs.get(entry.getKey());
+                if (data != null) {
+                    String digest = getDigest(data);
+                    digests.put(entry.getValue(), digest);
+                    missingDigests.put(getDigestPath(entry.getValue()), digest.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            if (!missingDigests.isEmpty()) {
+                logger.info("Storing {} missing configuration digests", missingDigests.size());
+                persister.setMany(missingDigests);
+            }
+        } catch (PersisterException e) {
+            throw new ConfigStoreException(e, String.format(
+                    "Failed to retrieve digests for configurations: %s", ids));
+        }
+
+        for (UUID id : ids) {
+            String digest = digests.get(id);
+            if (digest != null) {
+                digestCache.put(id, digest);
+            }
+        }
+        return digests;
+    }
+
     /**
      * Deletes the configuration with the provided UUID, or does nothing if no matching
      * configuration is found.
@@ -139,6 +224,7 @@ public class ConfigStore<T extends Configuration> implements ConfigTargetStore {
         }
 
         cache.remove(id);
+        digestCache.remove(id);
     }
 
     /**
@@ -207,4 +293,8 @@ public class ConfigStore<T extends Configuration> implements ConfigTargetStore {
     private static String getConfigPath(UUID id) {
         return PersisterUtils.join(CONFIGURATIONS_PATH_NAME, id.toString());
     }
+
+    private static String getDigestPath(UUID id) {
+        return PersisterUtils.join(getConfigPath(id), DIGEST_PATH_NAME);
+    }
 }
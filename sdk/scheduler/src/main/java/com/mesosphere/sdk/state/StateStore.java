@@ -3,6 +3,7 @@ package com.mesosphere.sdk.state;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.mesosphere.sdk.offer.TaskUtils;
 import com.mesosphere.sdk.storage.Persister;
+import com.mesosphere.sdk.storage.PersisterCache;
 import com.mesosphere.sdk.storage.PersisterException;
 import com.mesosphere.sdk.storage.PersisterUtils;
 import com.mesosphere.sdk.storage.StorageError.Reason;
@@ -13,7 +14,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * A {@code StateStore} stores the state of a service, including tasks' TaskInfo and TaskStatus objects. Each
@@ -38,6 +47,19 @@ import java.util.*;
  * <br>&nbsp;&nbsp;&nbsp;-> TaskInfo
  * <br>&nbsp;&nbsp;&nbsp;-> TaskStatus
  * <br>&nbsp;&nbsp;-> ...
+ *
+ * <p>Task statuses may optionally be written using a group commit, by providing a non-zero commit window. In this mode,
+ * {@link #storeStatus(String, Protos.TaskStatus)} returns once the status has been queued, and any statuses queued
+ * within the window are then written in a single transaction, with only the latest status retained for each task.
+ * This mode has the following guarantees:
+ * <ul><li>Reads are consistent with writes: Queued statuses are returned by {@link #fetchStatus(String)} and
+ * {@link #fetchStatuses()} as if they had already been written.</li>
+ * <li>Writes are ordered: Statuses are committed in the order that they were queued, and before any subsequent
+ * {@link #storeTasks(Collection)} or {@link #clearTask(String)} against the same state takes effect.</li>
+ * <li>Writes are not immediately durable: If the scheduler exits before a queued status is committed, that status is
+ * lost. Mesos will not resend it, as it was already acknowledged, but the scheduler will retrieve the current state of
+ * each task via task reconciliation on its next startup. Callers which must act on durable statuses, such as before
+ * accepting offers, should invoke {@link #flushStatuses()} first.</li></ul>
  */
 public class StateStore {
 
@@ -64,13 +86,60 @@ public class StateStore {
 
     protected final Persister persister;
 
+    /**
+     * Statuses which have been queued by {@link #storeStatus(String, Protos.TaskStatus)} but not yet committed, keyed
+     * by task name. Only used in group commit mode. Access is synchronized on the map itself.
+     */
+    private final Map<String, Protos.TaskStatus> pendingStatuses = new HashMap<>();
+
+    /**
+     * Held while committing pending statuses, and while reading or clearing state which pending statuses may affect.
+     * This ensures that pending statuses are never observed as both uncommitted and not yet visible in the persister.
+     */
+    private final Object statusCommitLock = new Object();
+
+    private final Duration statusCommitWindow;
+    private final ScheduledExecutorService statusCommitExecutor;
+    private boolean statusCommitScheduled = false;
+
+    /**
+     * In-memory view of the stored tasks, which is notified of any task changes made via this instance. Notifications
+     * are always made outside of {@link #statusCommitLock}, as the index itself may fetch statuses while locked.
+     */
+    private final TaskStateIndex taskStateIndex = new TaskStateIndex(this);
+
+    /**
+     * Incremented following every write made via this instance, after the written data has become visible to readers.
+     *
+     * @see #getVersion()
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private final ChangeFeed changeFeed = new ChangeFeed();
+
     /**
      * Creates a new {@link StateStore} which uses the provided {@link Persister} to access state data.
      *
      * @param persister The persister which holds the state data
      */
     public StateStore(Persister persister) {
+        this(persister, Duration.ZERO);
+    }
+
+    /**
+     * Creates a new {@link StateStore} which uses the provided {@link Persister} to access state data, and which writes
+     * task statuses using a group commit.
+     *
+     * @param persister The persister which holds the state data
+     * @param statusCommitWindow The amount of time to wait for additional statuses before committing a queued status,
+     *                           or zero to write each status immediately
+     */
+    public StateStore(Persister persister, Duration statusCommitWindow) {
         this.persister = persister;
+        this.statusCommitWindow = statusCommitWindow;
+        this.statusCommitExecutor = statusCommitWindow.isZero() || statusCommitWindow.isNegative() ?
+                null :
+                createStatusCommitExecutor();
 
         // Check version up-front:
         int currentVersion = new SchemaVersionStore(persister).fetch();
@@ -83,6 +152,11 @@ public class StateStore {
         }
 
         StateStoreUtils.repairTaskIDs(this);
+
+        if (persister instanceof PersisterCache) {
+            // Changes which a watching cache picks up from other parties bypass this instance:
+            ((PersisterCache) persister).addChangeListener(this::invalidateCachedState);
+        }
     }
 
     // Framework ID
@@ -98,6 +172,8 @@ public class StateStore {
             persister.set(FWK_ID_PATH_NAME, fwkId.toByteArray());
         } catch (PersisterException e) {
             throw new StateStoreException(e, "Failed to store FrameworkID");
+        } finally {
+            version.incrementAndGet();
         }
     }
 
@@ -116,6 +192,8 @@ public class StateStore {
             } else {
                 throw new StateStoreException(e);
             }
+        } finally {
+            version.incrementAndGet();
         }
     }
 
@@ -162,9 +240,20 @@ public class StateStore {
             taskBytesMap.put(getTaskInfoPath(taskInfo.getName()), taskInfo.toByteArray());
         }
         try {
-            persister.setMany(taskBytesMap);
+            if (isStatusGroupCommitEnabled()) {
+                // Include any pending statuses in the same transaction, so that they're committed first.
+                commitPendingStatuses(taskBytesMap);
+            } else {
+                persister.setMany(taskBytesMap);
+            }
         } catch (PersisterException e) {
             throw new StateStoreException(e, String.format("Failed to store %d TaskInfos", tasks.size()));
+        } finally {
+            // Invalidate even on failure: the write may have been partially applied by the underlying storage.
+            for (Protos.TaskInfo taskInfo : tasks) {
+                taskStateIndex.invalidateTask(taskInfo.getName());
+            }
+            version.incrementAndGet();
         }
     }
 
@@ -174,10 +263,12 @@ public class StateStore {
      * {@link com.mesosphere.sdk.offer.CommonIdUtils#toTaskId(String)}.
      *
      * @param status The status to be stored, which meets the above requirements
+     * @return The status which was replaced, or an empty Optional if the task had no status
      * @throws StateStoreException if storing the TaskStatus fails, or if its TaskId is malformed, or if its matching
      *                             TaskInfo wasn't stored first
      */
-    public void storeStatus(String taskName, Protos.TaskStatus status) throws StateStoreException {
+    public Optional<Protos.TaskStatus> storeStatus(String taskName, Protos.TaskStatus status)
+            throws StateStoreException {
         Optional<Protos.TaskStatus> currentStatusOptional = fetchStatus(taskName);
         if (currentStatusOptional.isPresent()
                 && status.getState().equals(Protos.TaskState.TASK_LOST)
@@ -196,12 +287,78 @@ public class StateStore {
         }
 
         String path = getTaskStatusPath(taskName);
+        if (isStatusGroupCommitEnabled()) {
+            logger.info("Queuing status '{}' for '{}' to be stored in '{}'", status.getState(), taskName, path);
+            synchronized (pendingStatuses) {
+                pendingStatuses.put(taskName, status);
+                scheduleStatusCommit();
+            }
+            taskStateIndex.invalidateStatus(taskName);
+            version.incrementAndGet();
+            publishStatus(taskName, status);
+            return currentStatusOptional;
+        }
+
         logger.info("Storing status '{}' for '{}' in '{}'", status.getState(), taskName, path);
 
         try {
             persister.set(path, status.toByteArray());
         } catch (PersisterException e) {
             throw new StateStoreException(e);
+        } finally {
+            taskStateIndex.invalidateStatus(taskName);
+            version.incrementAndGet();
+        }
+        publishStatus(taskName, status);
+        return currentStatusOptional;
+    }
+
+    private void publishStatus(String taskName, Protos.TaskStatus status) {
+        Map<String, String> details = new HashMap<>();
+        details.put("state", status.getState().toString());
+        details.put("task_id", status.getTaskId().getValue());
+        if (status.hasMessage()) {
+            details.put("message", status.getMessage());
+        }
+        if (status.hasHealthy()) {
+            details.put("healthy", String.valueOf(status.getHealthy()));
+        }
+        changeFeed.publish(ChangeFeed.Type.TASK_STATUS, taskName, details);
+    }
+
+    /**
+     * Commits any statuses which were queued by {@link #storeStatus(String, Protos.TaskStatus)} but not yet written,
+     * returning once they have been stored. This is a no-op unless group commit is enabled.
+     *
+     * @throws StateStoreException if storing the pending statuses fails, in which case they remain queued
+     */
+    public void flushStatuses() throws StateStoreException {
+        if (!isStatusGroupCommitEnabled()) {
+            return;
+        }
+        try {
+            commitPendingStatuses(Collections.emptyMap());
+        } catch (PersisterException e) {
+            throw new StateStoreException(e, "Failed to store pending TaskStatuses");
+        }
+    }
+
+    /**
+     * Stops the background group commit of task statuses, after committing any statuses which are still queued. This
+     * is a no-op unless group commit is enabled. Statuses which are stored after this has been called remain queued
+     * until {@link #flushStatuses()} is called.
+     */
+    public void close() {
+        if (!isStatusGroupCommitEnabled()) {
+            return;
+        }
+        // Lets a commit which is already running finish, and drops any which are scheduled. Those are replaced by the
+        // flush below:
+        statusCommitExecutor.shutdown();
+        try {
+            flushStatuses();
+        } catch (StateStoreException e) {
+            logger.error("Failed to store pending TaskStatuses while closing", e);
         }
     }
 
@@ -212,6 +369,27 @@ public class StateStore {
      * @throws StateStoreException when clearing the indicated Task's information fails
      */
     public void clearTask(String taskName) throws StateStoreException {
+        try {
+            if (isStatusGroupCommitEnabled()) {
+                synchronized (statusCommitLock) {
+                    // Drop any pending status, rather than committing it after the task is gone.
+                    synchronized (pendingStatuses) {
+                        pendingStatuses.remove(taskName);
+                    }
+                    clearPersistedTask(taskName);
+                }
+            } else {
+                clearPersistedTask(taskName);
+            }
+        } finally {
+            taskStateIndex.invalidateTask(taskName);
+            taskStateIndex.invalidateStatus(taskName);
+            taskStateIndex.invalidateGoalOverrideStatus(taskName);
+            version.incrementAndGet();
+        }
+    }
+
+    private void clearPersistedTask(String taskName) throws StateStoreException {
         try {
             persister.recursiveDelete(getTaskPath(taskName));
         } catch (PersisterException e) {
@@ -234,6 +412,21 @@ public class StateStore {
      * @throws StateStoreException when fetching the data fails
      */
     public Collection<String> fetchTaskNames() throws StateStoreException {
+        if (!isStatusGroupCommitEnabled()) {
+            return fetchPersistedTaskNames();
+        }
+        synchronized (statusCommitLock) {
+            Collection<String> taskNames = fetchPersistedTaskNames();
+            for (String pendingTaskName : getPendingStatuses().keySet()) {
+                if (!taskNames.contains(pendingTaskName)) {
+                    taskNames.add(pendingTaskName);
+                }
+            }
+            return taskNames;
+        }
+    }
+
+    private Collection<String> fetchPersistedTaskNames() throws StateStoreException {
         try {
             Collection<String> taskNames = new ArrayList<>();
             taskNames.addAll(persister.getChildren(TASKS_ROOT_NAME));
@@ -257,15 +450,23 @@ public class StateStore {
      * @throws StateStoreException if fetching the TaskInfo information otherwise fails
      */
     public Collection<Protos.TaskInfo> fetchTasks() throws StateStoreException {
+        Collection<String> taskNames = fetchTaskNames();
+        Map<String, byte[]> taskBytesMap = fetchMany(taskNames, StateStore::getTaskInfoPath);
         Collection<Protos.TaskInfo> taskInfos = new ArrayList<>();
-        for (String taskName : fetchTaskNames()) {
-            Optional<Protos.TaskInfo> taskInfoOptional = fetchTask(taskName);
-            if (taskInfoOptional.isPresent()) {
-                taskInfos.add(taskInfoOptional.get());
-            } else {
+        for (String taskName : taskNames) {
+            byte[] bytes = taskBytesMap.get(getTaskInfoPath(taskName));
+            if (bytes == null) {
                 // We should always have a TaskInfo for every name entry we just got
                 throw new StateStoreException(Reason.NOT_FOUND,
                         String.format("Expected task named %s to be present when retrieving all tasks", taskName));
+            } else if (bytes.length == 0) {
+                throw new StateStoreException(Reason.SERIALIZATION_ERROR, String.format(
+                        "Empty TaskInfo for TaskName: %s", taskName));
+            }
+            try {
+                taskInfos.add(Protos.TaskInfo.parseFrom(bytes));
+            } catch (InvalidProtocolBufferException e) {
+                throw new StateStoreException(Reason.SERIALIZATION_ERROR, e);
             }
         }
         return taskInfos;
@@ -309,19 +510,36 @@ public class StateStore {
      * @throws StateStoreException if fetching the TaskStatus information fails
      */
     public Collection<Protos.TaskStatus> fetchStatuses() throws StateStoreException {
+        if (!isStatusGroupCommitEnabled()) {
+            return fetchPersistedStatuses(Collections.emptyMap());
+        }
+        synchronized (statusCommitLock) {
+            return fetchPersistedStatuses(getPendingStatuses());
+        }
+    }
+
+    /**
+     * Returns all persisted statuses, with any provided pending statuses taking the place of their persisted versions.
+     */
+    private Collection<Protos.TaskStatus> fetchPersistedStatuses(Map<String, Protos.TaskStatus> overrides)
+            throws StateStoreException {
+        Collection<String> taskNames = fetchTaskNames();
+        Map<String, byte[]> statusBytesMap = fetchMany(taskNames, StateStore::getTaskStatusPath);
         Collection<Protos.TaskStatus> taskStatuses = new ArrayList<>();
-        for (String taskName : fetchTaskNames()) {
+        for (String taskName : taskNames) {
+            Protos.TaskStatus pendingStatus = overrides.get(taskName);
+            if (pendingStatus != null) {
+                taskStatuses.add(pendingStatus);
+                continue;
+            }
+            byte[] bytes = statusBytesMap.get(getTaskStatusPath(taskName));
+            if (bytes == null) {
+                // The task node exists, but it doesn't contain a TaskStatus node. This may occur if
+                // the only contents are a TaskInfo.
+                continue;
+            }
             try {
-                byte[] bytes = persister.get(getTaskStatusPath(taskName));
                 taskStatuses.add(Protos.TaskStatus.parseFrom(bytes));
-            } catch (PersisterException e) {
-                if (e.getReason() == Reason.NOT_FOUND) {
-                    // The task node exists, but it doesn't contain a TaskStatus node. This may occur if
-                    // the only contents are a TaskInfo.
-                    continue;
-                } else {
-                    throw new StateStoreException(e);
-                }
             } catch (InvalidProtocolBufferException e) {
                 throw new StateStoreException(Reason.SERIALIZATION_ERROR, e);
             }
@@ -339,6 +557,16 @@ public class StateStore {
      *                             information otherwise fails
      */
     public Optional<Protos.TaskStatus> fetchStatus(String taskName) throws StateStoreException {
+        if (!isStatusGroupCommitEnabled()) {
+            return fetchPersistedStatus(taskName);
+        }
+        synchronized (statusCommitLock) {
+            Protos.TaskStatus pendingStatus = getPendingStatuses().get(taskName);
+            return pendingStatus == null ? fetchPersistedStatus(taskName) : Optional.of(pendingStatus);
+        }
+    }
+
+    private Optional<Protos.TaskStatus> fetchPersistedStatus(String taskName) throws StateStoreException {
         String path = getTaskStatusPath(taskName);
         try {
             byte[] bytes = persister.get(path);
@@ -380,6 +608,8 @@ public class StateStore {
             persister.set(path, value);
         } catch (PersisterException e) {
             throw new StateStoreException(e);
+        } finally {
+            version.incrementAndGet();
         }
     }
 
@@ -440,6 +670,8 @@ public class StateStore {
             } else {
                 throw new StateStoreException(e);
             }
+        } finally {
+            version.incrementAndGet();
         }
     }
 
@@ -469,6 +701,9 @@ public class StateStore {
             }
         } catch (PersisterException e) {
             throw new StateStoreException(e);
+        } finally {
+            taskStateIndex.invalidateGoalOverrideStatus(taskName);
+            version.incrementAndGet();
         }
     }
 
@@ -537,6 +772,24 @@ public class StateStore {
      * Clears the root service node, leaving just the root node behind.
      */
     public void clearAllData() throws StateStoreException {
+        try {
+            if (isStatusGroupCommitEnabled()) {
+                synchronized (statusCommitLock) {
+                    synchronized (pendingStatuses) {
+                        pendingStatuses.clear();
+                    }
+                    clearPersistedData();
+                }
+            } else {
+                clearPersistedData();
+            }
+        } finally {
+            taskStateIndex.invalidateAll();
+            version.incrementAndGet();
+        }
+    }
+
+    private void clearPersistedData() throws StateStoreException {
         try {
             persister.recursiveDelete(PersisterUtils.PATH_DELIM_STR);
         } catch (PersisterException e) {
@@ -548,6 +801,44 @@ public class StateStore {
         }
     }
 
+    /**
+     * Returns an in-memory view of the tasks in this store, which is kept up to date with any changes made via this
+     * instance. Callers which repeatedly examine tasks, statuses, or goal state overrides should prefer the index over
+     * fetching them from this store directly.
+     */
+    public TaskStateIndex getTaskStateIndex() {
+        return taskStateIndex;
+    }
+
+    /**
+     * Returns a counter which is incremented by every write made via this instance, including writes which failed and
+     * statuses which are queued but not yet committed. Callers may cache data which they derive from this store, and
+     * reuse it for as long as the version is unchanged. The version should be read before reading the data, so that a
+     * write which races with the read results in a newer version.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Discards any in-memory state which was derived from the underlying {@link Persister}, and increments the
+     * {@link #getVersion() version}. This should be invoked if the persisted data was modified without going through
+     * this instance, for example following a refresh of a {@link PersisterCache}. This is invoked automatically when a
+     * watching {@link PersisterCache} applies a change which was made by another party.
+     */
+    public void invalidateCachedState() {
+        taskStateIndex.invalidateAll();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the feed of recent changes to this service. Stored task statuses are published to the feed by this
+     * instance, while other components publish changes to plans and endpoints.
+     */
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
     /**
      * Returns the underlying {@link Persister} object for direct access.
      * @return
@@ -558,6 +849,99 @@ public class StateStore {
 
     // Internals
 
+    private boolean isStatusGroupCommitEnabled() {
+        return statusCommitExecutor != null;
+    }
+
+    private static ScheduledExecutorService createStatusCommitExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    private Map<String, Protos.TaskStatus> getPendingStatuses() {
+        synchronized (pendingStatuses) {
+            return new HashMap<>(pendingStatuses);
+        }
+    }
+
+    /**
+     * Schedules a commit of the pending statuses at the end of the commit window, if one isn't already scheduled. Must
+     * be called while synchronized on {@link #pendingStatuses}.
+     */
+    private void scheduleStatusCommit() {
+        if (statusCommitScheduled) {
+            return;
+        }
+        try {
+            statusCommitExecutor.schedule(() -> {
+                synchronized (pendingStatuses) {
+                    // Any statuses queued from this point onwards are handled by a following commit.
+                    statusCommitScheduled = false;
+                }
+                try {
+                    commitPendingStatuses(Collections.emptyMap());
+                } catch (Throwable e) {
+                    logger.error("Failed to store pending TaskStatuses, retrying after commit window", e);
+                    synchronized (pendingStatuses) {
+                        if (!pendingStatuses.isEmpty()) {
+                            scheduleStatusCommit();
+                        }
+                    }
+                }
+            }, statusCommitWindow.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The executor was shut down by close()
+            logger.warn("Status group commit has stopped, statuses remain queued until they're flushed");
+            return;
+        }
+        // Set after scheduling, which is safe as the commit task synchronizes on pendingStatuses before resetting it:
+        statusCommitScheduled = true;
+    }
+
+    /**
+     * Writes all pending statuses, along with the provided additional values, in a single transaction. Pending statuses
+     * are only dequeued once the transaction has succeeded, and only if they weren't replaced in the meantime.
+     */
+    private void commitPendingStatuses(Map<String, byte[]> values) throws PersisterException {
+        synchronized (statusCommitLock) {
+            Map<String, Protos.TaskStatus> statuses = getPendingStatuses();
+            if (statuses.isEmpty() && values.isEmpty()) {
+                return;
+            }
+            Map<String, byte[]> allValues = new HashMap<>(values);
+            for (Map.Entry<String, Protos.TaskStatus> entry : statuses.entrySet()) {
+                allValues.put(getTaskStatusPath(entry.getKey()), entry.getValue().toByteArray());
+            }
+            persister.setMany(allValues);
+            synchronized (pendingStatuses) {
+                for (Map.Entry<String, Protos.TaskStatus> entry : statuses.entrySet()) {
+                    pendingStatuses.remove(entry.getKey(), entry.getValue());
+                }
+            }
+            if (!statuses.isEmpty()) {
+                logger.info("Stored {} pending TaskStatus{}: {}",
+                        statuses.size(), statuses.size() == 1 ? "" : "es", statuses.keySet());
+            }
+        }
+    }
+
+    /**
+     * Retrieves the data at the paths for each of the provided task names in a single batch. Entries which are missing
+     * have a {@code null} value.
+     */
+    private Map<String, byte[]> fetchMany(Collection<String> taskNames, Function<String, String> taskPathFunction)
+            throws StateStoreException {
+        if (taskNames.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return persister.getMany(taskNames.stream().map(taskPathFunction).collect(Collectors.toList()));
+        } catch (PersisterException e) {
+            throw new StateStoreException(e, String.format("Failed to retrieve data for %d tasks", taskNames.size()));
+        }
+    }
+
     protected static String getTaskInfoPath(String taskName) {
         return PersisterUtils.join(getTaskPath(taskName), TASK_INFO_PATH_NAME);
     }
@@ -248,11 +248,36 @@ public class StateStoreUtils {
     }
 
     /**
-     * Stores a TaskStatus as a Property in the provided state store.
+     * Stores a TaskStatus as a Property in the provided state store. If the task's IP addresses differ from those in
+     * the TaskStatus which it replaced, the new addresses are published to the state store's {@link ChangeFeed}.
+     *
+     * @param previousTaskStatus the task's status before {@code taskStatus}, as returned by
+     *     {@link StateStore#storeStatus(String, Protos.TaskStatus)}
      */
-    public static void storeTaskStatusAsProperty(StateStore stateStore, String taskName, Protos.TaskStatus taskStatus)
-            throws StateStoreException {
+    public static void storeTaskStatusAsProperty(
+            StateStore stateStore,
+            String taskName,
+            Protos.TaskStatus taskStatus,
+            Optional<Protos.TaskStatus> previousTaskStatus) throws StateStoreException {
         stateStore.storeProperty(taskName + PROPERTY_TASK_INFO_SUFFIX, taskStatus.toByteArray());
+
+        Set<String> ipAddresses = getIpAddresses(taskStatus);
+        Set<String> previousIpAddresses = previousTaskStatus.isPresent()
+                ? getIpAddresses(previousTaskStatus.get())
+                : Collections.emptySet();
+        if (!ipAddresses.equals(previousIpAddresses)) {
+            stateStore.getChangeFeed().publish(
+                    ChangeFeed.Type.ENDPOINT,
+                    taskName,
+                    Collections.singletonMap("ip_addresses", String.join(",", ipAddresses)));
+        }
+    }
+
+    private static Set<String> getIpAddresses(Protos.TaskStatus taskStatus) {
+        return taskStatus.getContainerStatus().getNetworkInfosList().stream()
+                .flatMap(networkInfo -> networkInfo.getIpAddressesList().stream())
+                .map(ipAddress -> ipAddress.getIpAddress())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     /**
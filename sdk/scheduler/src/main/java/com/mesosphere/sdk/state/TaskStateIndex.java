@@ -0,0 +1,323 @@
+package com.mesosphere.sdk.state;
+
+import com.mesosphere.sdk.offer.ResourceUtils;
+import com.mesosphere.sdk.offer.TaskException;
+import com.mesosphere.sdk.offer.evaluate.placement.PlacementIndex;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelReader;
+import com.mesosphere.sdk.specification.PodInstance;
+
+import org.apache.mesos.Protos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * An in-memory view of the tasks in a {@link StateStore}, which avoids repeatedly fetching and parsing every
+ * {@link Protos.TaskInfo} each time the tasks are examined. Parsed {@link Protos.TaskInfo}s,
+ * {@link Protos.TaskStatus}es and {@link GoalStateOverride.Status}es are retained until the {@link StateStore}
+ * reports that they've been written, at which point only the affected entries are refreshed. In addition to lookups
+ * by task name, tasks may be looked up by pod type, pod instance, agent ID, resource ID, and TaskID. A
+ * {@link PlacementIndex} of the tasks is maintained for use by placement rules.
+ *
+ * <p>The index returned by {@link StateStore#getTaskStateIndex()} is kept up to date with any writes
+ * which are performed via that {@link StateStore}. Writes made directly against the underlying persister are not
+ * reflected.
+ *
+ * <p>This class is thread-safe. Returned collections are copies which do not reflect later changes.
+ */
+public class TaskStateIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStateIndex.class);
+
+    private final StateStore stateStore;
+
+    // Populated by the first call which needs all tasks, then updated incrementally:
+    private boolean allTasksLoaded = false;
+    private final Set<String> dirtyTaskNames = new HashSet<>();
+    private final Map<String, Protos.TaskInfo> tasksByName = new TreeMap<>();
+    private final Map<String, Set<String>> taskNamesByPodType = new HashMap<>();
+    private final Map<String, Set<String>> taskNamesByPodInstance = new HashMap<>();
+    private final Map<String, Set<String>> taskNamesByAgentId = new HashMap<>();
+    private final Map<String, String> taskNamesByResourceId = new HashMap<>();
+    private final Map<String, String> taskNamesByTaskId = new HashMap<>();
+    // The keys under which each task was indexed above, so that a task may be removed without scanning every index:
+    private final Map<String, IndexKeys> indexKeysByName = new HashMap<>();
+    private final PlacementIndex placementIndex = new PlacementIndex();
+
+    // Populated on demand for each task:
+    private final Map<String, Optional<Protos.TaskStatus>> statusesByName = new HashMap<>();
+    private final Map<String, GoalStateOverride.Status> overrideStatusesByName = new HashMap<>();
+
+    /**
+     * Creates a new index of the provided {@link StateStore}'s tasks. Most callers should instead use the instance
+     * returned by {@link StateStore#getTaskStateIndex()}, which is notified of any changes.
+     */
+    public TaskStateIndex(StateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
+    /**
+     * Returns all {@link Protos.TaskInfo}s, sorted by task name.
+     *
+     * @see StateStore#fetchTasks()
+     */
+    public synchronized Collection<Protos.TaskInfo> getTasks() throws StateStoreException {
+        loadTasks();
+        return new ArrayList<>(tasksByName.values());
+    }
+
+    /**
+     * Returns all {@link Protos.TaskInfo}s, sorted by task name, in a collection which carries a
+     * {@link PlacementIndex} for use by placement rules.
+     *
+     * @see PlacementIndex#wrap(Collection)
+     */
+    public synchronized Collection<Protos.TaskInfo> getTasksWithPlacementIndex() throws StateStoreException {
+        loadTasks();
+        return placementIndex.wrap(new ArrayList<>(tasksByName.values()));
+    }
+
+    /**
+     * Returns the {@link Protos.TaskInfo} with the provided name, or an empty {@link Optional} if none was found.
+     *
+     * @see StateStore#fetchTask(String)
+     */
+    public synchronized Optional<Protos.TaskInfo> getTask(String taskName) throws StateStoreException {
+        if (!allTasksLoaded) {
+            // Don't load everything just for a single lookup.
+            return stateStore.fetchTask(taskName);
+        }
+        loadTasks();
+        return Optional.ofNullable(tasksByName.get(taskName));
+    }
+
+    /**
+     * Returns the {@link Protos.TaskStatus} for the task with the provided name, or an empty {@link Optional} if none
+     * was found.
+     *
+     * @see StateStore#fetchStatus(String)
+     */
+    public synchronized Optional<Protos.TaskStatus> getStatus(String taskName) throws StateStoreException {
+        Optional<Protos.TaskStatus> status = statusesByName.get(taskName);
+        if (status == null) {
+            status = stateStore.fetchStatus(taskName);
+            statusesByName.put(taskName, status);
+        }
+        return status;
+    }
+
+    /**
+     * Returns the goal state override status for the task with the provided name.
+     *
+     * @see StateStore#fetchGoalOverrideStatus(String)
+     */
+    public synchronized GoalStateOverride.Status getGoalOverrideStatus(String taskName) throws StateStoreException {
+        GoalStateOverride.Status overrideStatus = overrideStatusesByName.get(taskName);
+        if (overrideStatus == null) {
+            overrideStatus = stateStore.fetchGoalOverrideStatus(taskName);
+            overrideStatusesByName.put(taskName, overrideStatus);
+        }
+        return overrideStatus;
+    }
+
+    /**
+     * Returns all {@link Protos.TaskInfo}s which belong to pods of the provided type, sorted by task name.
+     */
+    public synchronized Collection<Protos.TaskInfo> getTasksByPodType(String podType) throws StateStoreException {
+        loadTasks();
+        return getIndexedTasks(taskNamesByPodType.get(podType));
+    }
+
+    /**
+     * Returns all {@link Protos.TaskInfo}s which belong to the pod instance with the provided name (e.g.
+     * {@code hello-0}), sorted by task name.
+     *
+     * @see PodInstance#getName(String, int)
+     */
+    public synchronized Collection<Protos.TaskInfo> getTasksByPodInstance(String podInstanceName)
+            throws StateStoreException {
+        loadTasks();
+        return getIndexedTasks(taskNamesByPodInstance.get(podInstanceName));
+    }
+
+    /**
+     * Returns all {@link Protos.TaskInfo}s which were launched on the agent with the provided ID, sorted by task name.
+     */
+    public synchronized Collection<Protos.TaskInfo> getTasksByAgentId(String agentId) throws StateStoreException {
+        loadTasks();
+        return getIndexedTasks(taskNamesByAgentId.get(agentId));
+    }
+
+    /**
+     * Returns the {@link Protos.TaskInfo} whose task or executor resources include a resource with the provided
+     * resource ID, or an empty {@link Optional} if none was found.
+     */
+    public synchronized Optional<Protos.TaskInfo> getTaskByResourceId(String resourceId) throws StateStoreException {
+        loadTasks();
+        return getIndexedTask(taskNamesByResourceId.get(resourceId));
+    }
+
+    /**
+     * Returns the {@link Protos.TaskInfo} with the provided {@link Protos.TaskID}, or an empty {@link Optional} if none
+     * was found.
+     */
+    public synchronized Optional<Protos.TaskInfo> getTaskByTaskId(Protos.TaskID taskId) throws StateStoreException {
+        loadTasks();
+        return getIndexedTask(taskNamesByTaskId.get(taskId.getValue()));
+    }
+
+    /**
+     * Returns all resource IDs which are currently reserved by tasks.
+     */
+    public synchronized Set<String> getResourceIds() throws StateStoreException {
+        loadTasks();
+        return new HashSet<>(taskNamesByResourceId.keySet());
+    }
+
+    // Invalidation, invoked by StateStore following writes:
+
+    synchronized void invalidateTask(String taskName) {
+        if (allTasksLoaded) {
+            dirtyTaskNames.add(taskName);
+        }
+    }
+
+    synchronized void invalidateStatus(String taskName) {
+        statusesByName.remove(taskName);
+    }
+
+    synchronized void invalidateGoalOverrideStatus(String taskName) {
+        overrideStatusesByName.remove(taskName);
+    }
+
+    synchronized void invalidateAll() {
+        allTasksLoaded = false;
+        dirtyTaskNames.clear();
+        tasksByName.clear();
+        taskNamesByPodType.clear();
+        taskNamesByPodInstance.clear();
+        taskNamesByAgentId.clear();
+        taskNamesByResourceId.clear();
+        taskNamesByTaskId.clear();
+        indexKeysByName.clear();
+        placementIndex.clear();
+        statusesByName.clear();
+        overrideStatusesByName.clear();
+    }
+
+    // Internals:
+
+    /**
+     * Ensures that all tasks are loaded, refreshing any tasks which have been written since they were last loaded.
+     */
+    private void loadTasks() throws StateStoreException {
+        if (!allTasksLoaded) {
+            for (Protos.TaskInfo taskInfo : stateStore.fetchTasks()) {
+                addTask(taskInfo);
+            }
+            allTasksLoaded = true;
+            logger.info("Indexed {} tasks", tasksByName.size());
+            return;
+        }
+        if (dirtyTaskNames.isEmpty()) {
+            return;
+        }
+        for (Iterator<String> iter = dirtyTaskNames.iterator(); iter.hasNext();) {
+            String taskName = iter.next();
+            Optional<Protos.TaskInfo> taskInfo = stateStore.fetchTask(taskName);
+            removeTask(taskName);
+            if (taskInfo.isPresent()) {
+                addTask(taskInfo.get());
+            }
+            iter.remove();
+        }
+    }
+
+    private void addTask(Protos.TaskInfo taskInfo) {
+        String taskName = taskInfo.getName();
+        tasksByName.put(taskName, taskInfo);
+        IndexKeys keys = new IndexKeys();
+        try {
+            TaskLabelReader labelReader = new TaskLabelReader(taskInfo);
+            String podType = labelReader.getType();
+            String podInstanceName = PodInstance.getName(podType, labelReader.getIndex());
+            addToIndex(taskNamesByPodType, podType, taskName);
+            addToIndex(taskNamesByPodInstance, podInstanceName, taskName);
+            keys.podType = podType;
+            keys.podInstanceName = podInstanceName;
+        } catch (TaskException | NumberFormatException e) {
+            logger.warn(String.format("Unable to determine pod of task %s, omitting from pod index", taskName), e);
+        }
+        if (taskInfo.hasSlaveId()) {
+            keys.agentId = taskInfo.getSlaveId().getValue();
+            addToIndex(taskNamesByAgentId, keys.agentId, taskName);
+        }
+        keys.resourceIds = ResourceUtils.getResourceIds(ResourceUtils.getAllResources(taskInfo));
+        for (String resourceId : keys.resourceIds) {
+            taskNamesByResourceId.put(resourceId, taskName);
+        }
+        keys.taskId = taskInfo.getTaskId().getValue();
+        taskNamesByTaskId.put(keys.taskId, taskName);
+        indexKeysByName.put(taskName, keys);
+        placementIndex.addTask(taskInfo);
+    }
+
+    private void removeTask(String taskName) {
+        if (tasksByName.remove(taskName) == null) {
+            return;
+        }
+        IndexKeys keys = indexKeysByName.remove(taskName);
+        removeFromIndex(taskNamesByPodType, keys.podType, taskName);
+        removeFromIndex(taskNamesByPodInstance, keys.podInstanceName, taskName);
+        removeFromIndex(taskNamesByAgentId, keys.agentId, taskName);
+        // Only remove entries which still refer to this task, in case another task has since claimed the same ID:
+        for (String resourceId : keys.resourceIds) {
+            taskNamesByResourceId.remove(resourceId, taskName);
+        }
+        taskNamesByTaskId.remove(keys.taskId, taskName);
+        placementIndex.removeTask(taskName);
+    }
+
+    private Collection<Protos.TaskInfo> getIndexedTasks(Set<String> taskNames) {
+        if (taskNames == null) {
+            return Collections.emptyList();
+        }
+        return taskNames.stream().map(tasksByName::get).collect(Collectors.toList());
+    }
+
+    private Optional<Protos.TaskInfo> getIndexedTask(String taskNameOrNull) {
+        return taskNameOrNull == null ? Optional.empty() : Optional.ofNullable(tasksByName.get(taskNameOrNull));
+    }
+
+    private static void addToIndex(Map<String, Set<String>> index, String key, String taskName) {
+        Set<String> taskNames = index.get(key);
+        if (taskNames == null) {
+            taskNames = new TreeSet<>();
+            index.put(key, taskNames);
+        }
+        taskNames.add(taskName);
+    }
+
+    private static void removeFromIndex(Map<String, Set<String>> index, String key, String taskName) {
+        if (key == null) {
+            return;
+        }
+        Set<String> taskNames = index.get(key);
+        if (taskNames != null && taskNames.remove(taskName) && taskNames.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * The keys under which a task was added to each index, or {@code null} where it wasn't added to an index.
+     */
+    private static class IndexKeys {
+        private String podType;
+        private String podInstanceName;
+        private String agentId;
+        private Collection<String> resourceIds = Collections.emptyList();
+        private String taskId;
+    }
+}
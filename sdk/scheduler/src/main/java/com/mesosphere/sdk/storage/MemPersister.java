@@ -109,7 +109,7 @@ public class MemPersister implements Persister {
     public void set(String path, byte[] bytes) throws PersisterException {
         lockRW();
         try {
-            getNode(root, path, true).data = Optional.of(bytes);
+            getNode(root, path, true).data = Optional.ofNullable(bytes);
         } finally {
             unlockRW();
         }
@@ -120,7 +120,7 @@ public class MemPersister implements Persister {
         lockRW();
         try {
             for (Map.Entry<String, byte[]> entry : pathBytesMap.entrySet()) {
-                getNode(root, entry.getKey(), true).data = Optional.of(entry.getValue());
+                getNode(root, entry.getKey(), true).data = Optional.ofNullable(entry.getValue());
             }
         } finally {
             unlockRW();
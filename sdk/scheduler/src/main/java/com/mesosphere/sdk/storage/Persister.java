@@ -1,7 +1,9 @@
 package com.mesosphere.sdk.storage;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * A low-level interface for key/value storage in a tree structure.
@@ -35,6 +37,30 @@ public interface Persister {
      */
     Collection<String> getChildren(String path) throws PersisterException;
 
+    /**
+     * Returns the names of child nodes at each of the provided paths, as with {@link #getChildren(String)}. Paths which
+     * don't exist are mapped to an empty collection, as they may have been deleted since they were listed.
+     *
+     * <p>The default implementation lists each path in turn. Implementations which support batched reads may override
+     * this to list the paths without a separate round trip for each path.
+     *
+     * @throws PersisterException in the event of an access error
+     */
+    default Map<String, Collection<String>> getChildrenMany(Collection<String> paths) throws PersisterException {
+        Map<String, Collection<String>> result = new TreeMap<>();
+        for (String path : paths) {
+            try {
+                result.put(path, getChildren(path));
+            } catch (PersisterException e) {
+                if (e.getReason() != StorageError.Reason.NOT_FOUND) {
+                    throw e;
+                }
+                result.put(path, Collections.emptyList());
+            }
+        }
+        return result;
+    }
+
     /**
      * Writes a single value to storage at the specified path, replacing any existing data at the path or creating the
      * path if it doesn't exist yet.
@@ -1,7 +1,15 @@
 package com.mesosphere.sdk.storage;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -12,20 +20,78 @@ import org.slf4j.LoggerFactory;
 /**
  * A transparent write-through cache for an underlying {@link Persister} instance. Each cache instance is thread-safe,
  * but there is no guarantee of consistent behavior across multiple cache instances.
+ *
+ * <p>In {@link RefreshMode#WATCH} mode, the cache additionally follows changes made to the underlying storage by other
+ * parties. These changes are applied asynchronously as they are observed, so a change made behind the scheduler's back
+ * will become visible in the cache shortly after it was made, without any need to call {@link #refresh()}. The watch
+ * also reports the cache's own writes, which are already in the cache by then. Any watched change which predates the
+ * cache's latest write to a node is dropped, so that the cache continues to read its own writes.
  */
 public class PersisterCache implements Persister {
 
     private static final Logger logger = LoggerFactory.getLogger(PersisterCache.class);
 
+    /**
+     * The maximum amount of time to wait for a watch to deliver the initial content of the underlying storage.
+     */
+    private static final long WATCH_INIT_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Marks a node which was found to be deleted before the watch reported the delete. The version reported with a
+     * delete is that of the removed node rather than of the delete itself, so a tombstone must outrank any version.
+     */
+    private static final long TOMBSTONE_VERSION = Long.MAX_VALUE;
+
+    /**
+     * How the cache is populated from the underlying {@link Persister}.
+     */
+    public enum RefreshMode {
+        /**
+         * All data is read up-front by walking the underlying tree, and is read again in full by {@link #refresh()}.
+         * Changes made by other parties are not visible until the next refresh.
+         */
+        FULL,
+
+        /**
+         * All data is read up-front by starting a watch against the underlying {@link WatchablePersister}. After the
+         * initial load, only the nodes which have changed are applied to the cache.
+         */
+        WATCH
+    }
+
     private final ReadWriteLock internalLock = new ReentrantReadWriteLock();
     private final Lock rlock = internalLock.readLock();
     private final Lock rwlock = internalLock.writeLock();
 
     private final Persister persister;
-    private MemPersister cache;
+    private final Optional<WatchablePersister> watchablePersister;
+    // Volatile: May be lazily initialized by one of several concurrent readers, see getCache()
+    private volatile MemPersister cache;
+    private CacheWatcher watcher;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
 
     public PersisterCache(Persister persister) throws PersisterException {
+        this(persister, RefreshMode.FULL);
+    }
+
+    /**
+     * Creates a new cache instance with the provided refresh mode.
+     *
+     * @throws IllegalArgumentException if {@link RefreshMode#WATCH} was requested but the provided {@link Persister}
+     *     isn't a {@link WatchablePersister}
+     */
+    public PersisterCache(Persister persister, RefreshMode refreshMode) throws PersisterException {
         this.persister = persister;
+        if (refreshMode == RefreshMode.WATCH) {
+            if (!(persister instanceof WatchablePersister)) {
+                throw new IllegalArgumentException(String.format(
+                        "Persister must be a WatchablePersister in order to be watched: %s",
+                        persister.getClass().getName()));
+            }
+            this.watchablePersister = Optional.of((WatchablePersister) persister);
+        } else {
+            this.watchablePersister = Optional.empty();
+        }
     }
 
     @Override
@@ -55,6 +121,9 @@ public class PersisterCache implements Persister {
             MemPersister cache = getCache();
             persister.set(path, bytes);
             cache.set(path, bytes);
+            if (watcher != null) {
+                watcher.expectWrite(path, bytes);
+            }
         } finally {
             rwlock.unlock();
         }
@@ -62,11 +131,11 @@ public class PersisterCache implements Persister {
 
     @Override
     public Map<String, byte[]> getMany(Collection<String> paths) throws PersisterException {
-        rwlock.lock();
+        rlock.lock();
         try {
             return getCache().getMany(paths);
         } finally {
-            rwlock.unlock();
+            rlock.unlock();
         }
     }
 
@@ -77,6 +146,11 @@ public class PersisterCache implements Persister {
             MemPersister cache = getCache();
             persister.setMany(pathBytesMap);
             cache.setMany(pathBytesMap);
+            if (watcher != null) {
+                for (Map.Entry<String, byte[]> entry : pathBytesMap.entrySet()) {
+                    watcher.expectWrite(entry.getKey(), entry.getValue());
+                }
+            }
         } finally {
             rwlock.unlock();
         }
@@ -89,6 +163,11 @@ public class PersisterCache implements Persister {
             MemPersister cache = getCache();
             persister.recursiveDeleteMany(paths);
             cache.recursiveDeleteMany(paths);
+            if (watcher != null) {
+                for (String path : paths) {
+                    watcher.expectDelete(path);
+                }
+            }
         } finally {
             rwlock.unlock();
         }
@@ -100,6 +179,9 @@ public class PersisterCache implements Persister {
         try {
             MemPersister cache = getCache();
             persister.recursiveDelete(path);
+            if (watcher != null) {
+                watcher.expectDelete(path);
+            }
             try {
                 cache.recursiveDelete(path);
             } catch (PersisterException e) {
@@ -117,6 +199,7 @@ public class PersisterCache implements Persister {
     public void close() {
         rwlock.lock();
         try {
+            stopWatch();
             persister.close();
             if (cache != null) {
                 cache.close();
@@ -126,6 +209,15 @@ public class PersisterCache implements Persister {
         }
     }
 
+    /**
+     * Registers a listener to be invoked whenever a watch has applied a change which was made by another party. Has no
+     * effect in {@link RefreshMode#FULL} mode, where callers are expected to handle the effects of {@link #refresh()}
+     * themselves. The listener is invoked from the watch thread, without holding any lock on this instance.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
     /**
      * Refreshes the cache with the underlying persister's data.
      */
@@ -135,6 +227,7 @@ public class PersisterCache implements Persister {
             if (cache != null) {
                 logger.info("Cache content before refresh:\n{}", cache.getDebugString());
             }
+            stopWatch();
             cache = null;
             getCache(); // recreate cache
         } finally {
@@ -144,10 +237,326 @@ public class PersisterCache implements Persister {
 
     private MemPersister getCache() throws PersisterException {
         if (cache == null) {
-            // We already have our own locking, so we can disable locking in the underlying MemPersister:
-            cache = new MemPersister(MemPersister.LockMode.DISABLED, PersisterUtils.getAllData(persister));
-            logger.info("Loaded data from persister:\n{}", cache.getDebugString());
+            // Readers only hold the read lock, so avoid having two of them both load the data (and both start watches):
+            synchronized (this) {
+                if (cache == null) {
+                    if (watchablePersister.isPresent()) {
+                        cache = startWatch(watchablePersister.get());
+                    } else {
+                        // We already have our own locking, so we can disable locking in the underlying MemPersister:
+                        cache = new MemPersister(MemPersister.LockMode.DISABLED, PersisterUtils.getAllData(persister));
+                    }
+                    logger.info("Loaded data from persister:\n{}", cache.getDebugString());
+                }
+            }
         }
         return cache;
     }
+
+    /**
+     * Starts a new watch against the provided persister, and returns the initial data once it has been fully loaded.
+     *
+     * <p>Note: Caller must obtain a lock and synchronize on this instance before invoking this method.
+     */
+    private MemPersister startWatch(WatchablePersister persister) throws PersisterException {
+        CacheWatcher newWatcher = new CacheWatcher();
+        newWatcher.watch = persister.watch(newWatcher);
+        try {
+            if (!newWatcher.initialized.await(WATCH_INIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                newWatcher.close();
+                throw new PersisterException(StorageError.Reason.STORAGE_ERROR, String.format(
+                        "Timed out after %dms waiting for initial data from persister", WATCH_INIT_TIMEOUT_MS));
+            }
+        } catch (InterruptedException e) {
+            newWatcher.close();
+            Thread.currentThread().interrupt();
+            throw new PersisterException(StorageError.Reason.STORAGE_ERROR,
+                    "Interrupted while waiting for initial data from persister", e);
+        }
+        watcher = newWatcher;
+        return newWatcher.data;
+    }
+
+    /**
+     * Stops the current watch, if any.
+     *
+     * <p>Note: Caller must obtain a read-write lock before invoking this method.
+     */
+    private void stopWatch() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    private void notifyChangeListeners() {
+        for (Runnable listener : changeListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.error("Change listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes reported by a {@link WatchablePersister} to a {@link MemPersister}.
+     *
+     * <p>The initial content is applied without locking: the data isn't visible to readers until
+     * {@link #startWatch(WatchablePersister)} has returned it, and all listener calls are made from a single thread.
+     * Once initialized, each change is applied while holding the cache's read-write lock.
+     *
+     * <p>The cache's own writes are applied to the cache directly, and are later reported by the watch as well. Until
+     * the watch has reported a node's latest local write, any other change reported for that node either predates the
+     * local write, or was made by another party after it. Those two cases are told apart by reading the node's current
+     * value from the underlying storage, without holding the lock. The latest version applied to each node is tracked,
+     * and any change reported with an older version is dropped.
+     *
+     * <p>Changes made by other parties are passed on to the listeners registered via
+     * {@link PersisterCache#addChangeListener(Runnable)}.
+     */
+    private class CacheWatcher implements WatchablePersister.Listener {
+        /**
+         * Marks a pending write as a delete. Compared by identity, so that it can't be confused with empty data.
+         */
+        private final byte[] deleted = new byte[0];
+
+        // We already have our own locking, so we can disable locking in the underlying MemPersister:
+        private final MemPersister data = new MemPersister(MemPersister.LockMode.DISABLED, Collections.emptyMap());
+        private final CountDownLatch initialized = new CountDownLatch(1);
+        // Normalized path => latest value written by the cache which the watch hasn't reported yet. Guarded by rwlock.
+        private final Map<String, byte[]> pendingWrites = new HashMap<>();
+        // Normalized path => latest version which was applied to the cache, or TOMBSTONE_VERSION if the node was found
+        // to be deleted before the watch reported the delete. Entries are removed once the delete has been applied.
+        // Guarded by rwlock once initialized.
+        private final Map<String, Long> appliedVersions = new HashMap<>();
+        private WatchablePersister.Watch watch;
+        private volatile boolean closed = false;
+
+        /**
+         * Records that the cache has written the provided data to the provided path.
+         *
+         * <p>Note: Caller must obtain a read-write lock before invoking this method.
+         */
+        private void expectWrite(String path, byte[] bytes) {
+            // Nodes without data may be reported with either null or empty data:
+            pendingWrites.put(normalize(path), bytes == null ? new byte[0] : bytes);
+        }
+
+        /**
+         * Records that the cache has deleted the provided path, along with anything beneath it.
+         *
+         * <p>Note: Caller must obtain a read-write lock before invoking this method.
+         */
+        private void expectDelete(String path) {
+            String key = normalize(path);
+            // Writes beneath the deleted path are superseded by the delete:
+            String prefix = key.isEmpty() ? key : key + PersisterUtils.PATH_DELIM;
+            pendingWrites.keySet().removeIf(pendingKey -> pendingKey.startsWith(prefix));
+            pendingWrites.put(key, deleted);
+        }
+
+        @Override
+        public void onSet(String path, byte[] bytes, long version) {
+            apply(path, bytes, version);
+        }
+
+        @Override
+        public void onDelete(String path, long version) {
+            apply(path, deleted, version);
+        }
+
+        @Override
+        public void onInitialized() {
+            initialized.countDown();
+        }
+
+        private void apply(String path, byte[] bytes, long version) {
+            String key = normalize(path);
+            if (initialized.getCount() > 0) {
+                // The cache can't have written anything yet, and nobody is following changes yet:
+                applyImpl(key, bytes, version);
+                return;
+            }
+            byte[] conflictingBytes;
+            rwlock.lock();
+            try {
+                if (closed || isStale(key, path, bytes, version)) {
+                    return;
+                }
+                conflictingBytes = getPendingWrite(key);
+                if (conflictingBytes == null || isSame(conflictingBytes, bytes)) {
+                    // Either nothing is pending, or the watch has caught up with our own write
+                    logger.debug("Applying watched {} of {} to cache", getOperationName(bytes), path);
+                    pendingWrites.remove(key);
+                    applyImpl(key, bytes, version);
+                    if (conflictingBytes != null) {
+                        // Our own write: the cache's users already know about it
+                        return;
+                    }
+                }
+            } finally {
+                rwlock.unlock();
+            }
+            if (conflictingBytes == null || resolve(key, path, bytes, version, conflictingBytes)) {
+                notifyChangeListeners();
+            }
+        }
+
+        /**
+         * Returns whether the reported change is older than the value which was last applied to the node.
+         *
+         * <p>Note: Caller must obtain a read-write lock before invoking this method.
+         */
+        private boolean isStale(String key, String path, byte[] bytes, long version) {
+            Long appliedVersion = appliedVersions.get(key);
+            if (appliedVersion == null) {
+                return false;
+            }
+            if (appliedVersion == TOMBSTONE_VERSION) {
+                // Only the delete itself can clear a tombstone, because any set reported ahead of it predates it:
+                if (bytes == deleted) {
+                    return false;
+                }
+                logger.info("Dropping watched set of {}: node has since been deleted", path);
+                return true;
+            }
+            if (version < appliedVersion) {
+                logger.info("Dropping watched {} of {}: version {} predates applied version {}",
+                        getOperationName(bytes), path, version, appliedVersion);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Handles a reported change which conflicts with a pending local write, by applying the node's current value.
+         * The current value is read without holding the lock, and is only applied if the pending write is unchanged
+         * once the lock has been obtained again. Otherwise the cache has since written to the node again, and the
+         * watch will report that write as well.
+         *
+         * @return whether the cache was modified
+         */
+        private boolean resolve(String key, String path, byte[] bytes, long version, byte[] conflictingBytes) {
+            WatchablePersister.VersionedData current;
+            try {
+                current = watchablePersister.get().getVersioned(path);
+            } catch (PersisterException e) {
+                if (e.getReason() != StorageError.Reason.NOT_FOUND) {
+                    logger.error(String.format(
+                            "Failed to read current value of %s, dropping watched %s which conflicts with local write",
+                            path, getOperationName(bytes)), e);
+                    return false;
+                }
+                current = null;
+            }
+            rwlock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                if (getPendingWrite(key) != conflictingBytes) {
+                    logger.info("Dropping watched {} of {}: cache has written to the node again",
+                            getOperationName(bytes), path);
+                    return false;
+                }
+                pendingWrites.remove(key);
+                if (current == null) {
+                    // The node is gone, so any set reported up to this point is stale, as is any set reported before
+                    // the watch gets to the delete:
+                    logger.info("Dropping watched {} of {}: node no longer exists", getOperationName(bytes), path);
+                    applyImpl(key, deleted, version);
+                    if (bytes != deleted) {
+                        appliedVersions.put(key, TOMBSTONE_VERSION);
+                    }
+                } else {
+                    logger.info("Applying current version {} of {} in place of watched {} at version {}",
+                            current.getVersion(), path, getOperationName(bytes), version);
+                    applyImpl(key, current.getBytes(), current.getVersion());
+                }
+                return true;
+            } finally {
+                rwlock.unlock();
+            }
+        }
+
+        private void applyImpl(String key, byte[] bytes, long version) {
+            try {
+                if (bytes == deleted) {
+                    // Our own deletes are applied to the cache directly, so the path may already be gone. Use the
+                    // 'many' variant, which doesn't treat a missing path as an error:
+                    data.recursiveDeleteMany(Collections.singleton(key));
+                    // The watch has now reported every change to the path and anything beneath it, up to and including
+                    // the delete, so their versions are no longer needed:
+                    appliedVersions.remove(key);
+                    String prefix = key.isEmpty() ? key : key + PersisterUtils.PATH_DELIM;
+                    appliedVersions.keySet().removeIf(appliedKey -> appliedKey.startsWith(prefix));
+                } else {
+                    data.set(key, bytes);
+                    appliedVersions.put(key, version);
+                }
+            } catch (PersisterException e) {
+                // Shouldn't happen with a MemPersister, but just in case...
+                logger.error(String.format(
+                        "Failed to apply watched %s of %s to cache", getOperationName(bytes), key), e);
+            }
+        }
+
+        /**
+         * Returns the pending write to the provided path, or a pending delete of one of its parents, or {@code null} if
+         * neither is pending.
+         */
+        private byte[] getPendingWrite(String key) {
+            if (pendingWrites.isEmpty()) {
+                return null;
+            }
+            byte[] pendingBytes = pendingWrites.get(key);
+            if (pendingBytes != null) {
+                return pendingBytes;
+            }
+            for (int i = key.lastIndexOf(PersisterUtils.PATH_DELIM); i >= 0;
+                    i = key.lastIndexOf(PersisterUtils.PATH_DELIM, i - 1)) {
+                if (pendingWrites.get(key.substring(0, i)) == deleted) {
+                    return deleted;
+                }
+            }
+            return pendingWrites.get("") == deleted ? deleted : null;
+        }
+
+        private boolean isSame(byte[] pendingBytes, byte[] bytes) {
+            if (pendingBytes == deleted || bytes == deleted) {
+                return pendingBytes == bytes;
+            }
+            return Arrays.equals(pendingBytes, bytes == null ? new byte[0] : bytes);
+        }
+
+        private String getOperationName(byte[] bytes) {
+            return bytes == deleted ? "delete" : "set";
+        }
+
+        private void close() {
+            closed = true;
+            if (watch != null) {
+                watch.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the provided path without any leading, trailing, or repeated delimiters, so that the different forms of a
+     * path which are accepted by {@link Persister}s map to the same key.
+     */
+    private static String normalize(String path) {
+        StringBuilder builder = new StringBuilder();
+        for (String element : path.split(PersisterUtils.PATH_DELIM_STR)) {
+            if (element.isEmpty()) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(PersisterUtils.PATH_DELIM);
+            }
+            builder.append(element);
+        }
+        return builder.toString();
+    }
 }
@@ -2,6 +2,7 @@ package com.mesosphere.sdk.storage;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -68,27 +69,39 @@ public class PersisterUtils {
      * Returns all data present within the provided {@link Persister} in a flat map, omitting any stub parent entries
      * with {@code null} data.
      *
+     * <p>The tree is walked one level at a time, with the children and data for each level being retrieved in single
+     * {@link Persister#getChildrenMany(Collection)} and {@link Persister#getMany(Collection)} calls. This allows
+     * persisters which support batched reads to walk the tree without a separate round trip for each node.
+     *
      * @throws PersisterException if the underlying {@link Persister} couldn't be accessed
      */
     public static Map<String, byte[]> getAllData(Persister persister) throws PersisterException {
-        return getAllDataUnder(persister, PATH_DELIM_STR);
+        Map<String, byte[]> allData = new TreeMap<>(); // consistent ordering (mainly for tests)
+        Collection<String> levelPaths = getChildPaths(persister, Collections.singletonList(PATH_DELIM_STR));
+        while (!levelPaths.isEmpty()) {
+            for (Map.Entry<String, byte[]> entry : persister.getMany(levelPaths).entrySet()) {
+                // omit empty parents which lack data of their own:
+                if (entry.getValue() != null) {
+                    allData.put(entry.getKey(), entry.getValue());
+                }
+            }
+            levelPaths = getChildPaths(persister, levelPaths);
+        }
+        return allData;
     }
 
     /**
-     * Returns all data present within the provided {@link Persister}, under the provided path.
+     * Returns the full paths of all children of the provided paths.
      */
-    private static Map<String, byte[]> getAllDataUnder(Persister persister, String path) throws PersisterException {
-        Map<String, byte[]> allData = new TreeMap<>(); // consistent ordering (mainly for tests)
-        for (String child : persister.getChildren(path)) {
-            String childPath = join(path, child);
-            byte[] data = persister.get(childPath);
-            // omit empty parents which lack data of their own:
-            if (data != null) {
-                allData.put(childPath, data);
+    private static Collection<String> getChildPaths(Persister persister, Collection<String> paths)
+            throws PersisterException {
+        Collection<String> childPaths = new ArrayList<>();
+        for (Map.Entry<String, Collection<String>> entry : persister.getChildrenMany(paths).entrySet()) {
+            for (String child : entry.getValue()) {
+                childPaths.add(join(entry.getKey(), child));
             }
-            allData.putAll(getAllDataUnder(persister, childPath)); // RECURSE
         }
-        return allData;
+        return childPaths;
     }
 
     /**
@@ -0,0 +1,88 @@
+package com.mesosphere.sdk.storage;
+
+/**
+ * A {@link Persister} which is additionally able to notify a listener about changes to the underlying storage,
+ * including any changes which were made by other parties.
+ *
+ * <p>This allows a cache such as {@link PersisterCache} to apply only the nodes which have changed, rather than
+ * reloading the full tree.
+ */
+public interface WatchablePersister extends Persister {
+
+    /**
+     * Callback interface for receiving the content of a {@link WatchablePersister}. All calls against a given listener
+     * are made serially from a single thread, in the order that the changes were observed.
+     *
+     * <p>Each call includes the version of the storage at which the node was last modified. Versions increase with
+     * each modification, so that a listener may tell whether a change is older than one it has already seen.
+     */
+    interface Listener {
+
+        /**
+         * Invoked when a node has been added or its data has been updated. The path is in the same form as paths passed
+         * to {@link Persister#get(String)}. The provided {@code bytes} may be {@code null} if the node lacks data.
+         */
+        void onSet(String path, byte[] bytes, long version);
+
+        /**
+         * Invoked when a node has been removed. Any children of the node are removed as well. The provided version is
+         * the version at which the removed node was last modified.
+         */
+        void onDelete(String path, long version);
+
+        /**
+         * Invoked once, after the initial content of the storage has been delivered via
+         * {@link #onSet(String, byte[], long)}. Any following calls reflect subsequent changes to the storage.
+         */
+        void onInitialized();
+    }
+
+    /**
+     * The data of a node, along with the version of the storage at which the node was last modified.
+     */
+    class VersionedData {
+        private final byte[] bytes;
+        private final long version;
+
+        public VersionedData(byte[] bytes, long version) {
+            this.bytes = bytes;
+            this.version = version;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Handle to a watch which was started with {@link WatchablePersister#watch(Listener)}.
+     */
+    interface Watch {
+
+        /**
+         * Stops the watch. A call against the listener which was already in progress may still complete, but no new
+         * calls will be started.
+         */
+        void close();
+    }
+
+    /**
+     * Starts watching the storage. The full current content is first delivered to the provided listener, followed by
+     * a call to {@link Listener#onInitialized()}, followed by any subsequent changes.
+     *
+     * @throws PersisterException if the watch could not be started
+     */
+    Watch watch(Listener listener) throws PersisterException;
+
+    /**
+     * Returns the current data at the provided path, along with its version. The version is comparable to the versions
+     * which are delivered to a {@link Listener}.
+     *
+     * @throws PersisterException with {@link StorageError.Reason#NOT_FOUND} if the path doesn't exist
+     */
+    VersionedData getVersioned(String path) throws PersisterException;
+}
@@ -3,6 +3,7 @@ package com.mesosphere.sdk.config;
 import com.mesosphere.sdk.config.validate.DefaultConfigValidators;
 import com.mesosphere.sdk.dcos.Capabilities;
 import com.mesosphere.sdk.dcos.DcosConstants;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
 import com.mesosphere.sdk.specification.DefaultPodSpec;
 import com.mesosphere.sdk.specification.DefaultServiceSpec;
 import com.mesosphere.sdk.specification.PodSpec;
@@ -11,8 +12,10 @@ import com.mesosphere.sdk.state.ConfigStore;
 import com.mesosphere.sdk.state.ConfigStoreException;
 import com.mesosphere.sdk.state.StateStore;
 import com.mesosphere.sdk.testutils.SchedulerConfigTestUtils;
+import com.mesosphere.sdk.testutils.TaskTestUtils;
 import com.mesosphere.sdk.testutils.TestConstants;
 import com.mesosphere.sdk.testutils.TestPodFactory;
+import org.apache.mesos.Protos;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,6 +24,9 @@ import org.mockito.MockitoAnnotations;
 
 import java.util.*;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,6 +34,7 @@ public class ConfigurationUpdaterTest {
     private static final UUID TARGET_ID = UUID.randomUUID();
     private static final UUID NEW_ID = UUID.randomUUID();
     private static final UUID UNKNOWN_ID = UUID.randomUUID();
+    private static final UUID DUPLICATE_ID = UUID.randomUUID();
 
     private static final String SERVICE_NAME = "test-service";
     private static final int TASK_A_COUNT = 1;
@@ -300,4 +307,57 @@ public class ConfigurationUpdaterTest {
         Assert.assertEquals(TARGET_ID, result.getTargetId());
         Assert.assertEquals(0, result.getErrors().size());
     }
+
+    @Test
+    public void testCleanupComparesDigestsAndMemoizesComparisons() throws Exception {
+        final ConfigurationUpdater<ServiceSpec> configurationUpdater =
+                new DefaultConfigurationUpdater(
+                        mockStateStore,
+                        mockConfigStore,
+                        DefaultServiceSpec.getComparatorInstance(),
+                        Collections.emptyList());
+        when(mockConfigStore.getTargetConfig()).thenReturn(TARGET_ID);
+        when(mockConfigStore.fetch(TARGET_ID)).thenReturn(ORIGINAL_SERVICE_SPECIFICATION);
+        when(mockConfigStore.store(UPDATED_SERVICE_SPECIFICATION)).thenReturn(NEW_ID);
+        when(mockConfigStore.list()).thenReturn(Arrays.asList(TARGET_ID, NEW_ID, DUPLICATE_ID));
+
+        // DUPLICATE_ID has the same content as the new target, while TARGET_ID has a different pod A:
+        String updatedDigest = ConfigStore.getDigest(UPDATED_SERVICE_SPECIFICATION.getBytes());
+        Map<UUID, String> digests = new HashMap<>();
+        digests.put(TARGET_ID, ConfigStore.getDigest(ORIGINAL_SERVICE_SPECIFICATION.getBytes()));
+        digests.put(NEW_ID, updatedDigest);
+        digests.put(DUPLICATE_ID, updatedDigest);
+        when(mockConfigStore.fetchDigests(any())).thenReturn(digests);
+
+        List<Protos.TaskInfo> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            tasks.add(getTask(TASK_A_POD_NAME, i, TARGET_ID));
+        }
+        tasks.add(getTask(TASK_B_POD_NAME, 0, DUPLICATE_ID));
+        tasks.add(getTask(TASK_B_POD_NAME, 1, DUPLICATE_ID));
+        when(mockStateStore.fetchTasks()).thenReturn(tasks);
+
+        ConfigurationUpdater.UpdateResult result = configurationUpdater.updateConfiguration(UPDATED_SERVICE_SPECIFICATION);
+        Assert.assertEquals(NEW_ID, result.getTargetId());
+
+        // The duplicate config was never parsed, and its tasks were moved to the new target:
+        verify(mockConfigStore, never()).fetch(DUPLICATE_ID);
+        verify(mockConfigStore).clear(DUPLICATE_ID);
+        verify(mockConfigStore, never()).clear(TARGET_ID);
+        verify(mockStateStore).storeTasks(Arrays.asList(
+                getTask(TASK_B_POD_NAME, 0, NEW_ID), getTask(TASK_B_POD_NAME, 1, NEW_ID)));
+        // The prior target was compared once for all of its tasks, rather than once per task:
+        verify(mockConfigStore, atMost(4)).fetch(TARGET_ID);
+    }
+
+    private static Protos.TaskInfo getTask(String podType, int index, UUID configId) {
+        Protos.TaskInfo.Builder taskBuilder = TaskTestUtils.getTaskInfo(Collections.emptyList()).toBuilder()
+                .setName(String.format("%s-%d", podType, index));
+        taskBuilder.setLabels(new TaskLabelWriter(taskBuilder)
+                .setType(podType)
+                .setIndex(index)
+                .setTargetConfiguration(configId)
+                .toProto());
+        return taskBuilder.build();
+    }
 }
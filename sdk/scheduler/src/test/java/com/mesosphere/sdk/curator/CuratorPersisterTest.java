@@ -25,7 +25,11 @@ import org.junit.*;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Histogram;
+import com.mesosphere.sdk.scheduler.Metrics;
 import com.mesosphere.sdk.specification.ServiceSpec;
 import com.mesosphere.sdk.storage.Persister;
 import com.mesosphere.sdk.storage.PersisterException;
@@ -45,6 +49,8 @@ import static org.mockito.Mockito.when;
  * Tests for {@link CuratorPersister}.
  */
 public class CuratorPersisterTest {
+    private static final Logger logger = LoggerFactory.getLogger(CuratorPersisterTest.class);
+
     @Mock private CuratorFramework mockClient;
     @Mock private CuratorTransaction mockTransaction;
     @Mock private CuratorTransactionFinal mockTranactionFinal;
@@ -505,6 +511,168 @@ public class CuratorPersisterTest {
         assertEquals(Collections.singleton("/lock"), PersisterUtils.getAllKeys(persister));
     }
 
+    // Uses a real ZK instance to ensure that our integration works as expected:
+    @Test
+    public void testGetManyPipelined() throws Exception {
+        CuratorTestUtils.clear(testZk);
+        when(mockServiceSpec.getZookeeperConnection()).thenReturn(testZk.getConnectString());
+        // Use a window which is smaller than the number of paths being retrieved:
+        Persister persister = CuratorPersister.newBuilder(mockServiceSpec).setMaxReadsInFlight(2).build();
+        persister.setMany(SET_MANY_MAP);
+
+        List<String> paths = new ArrayList<>(SET_MANY_MAP.keySet());
+        paths.add(PATH_PARENT);
+        paths.add("/missing");
+        paths.add("/missing/child");
+        Map<String, byte[]> values = persister.getMany(paths);
+        assertEquals(new TreeSet<>(paths), values.keySet());
+        for (Map.Entry<String, byte[]> entry : SET_MANY_MAP.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), values.get(entry.getKey()));
+        }
+        assertNull(values.get("/missing"));
+        assertNull(values.get("/missing/child"));
+        // Stub parent: Has whatever data that curator assigns by default, just check it's the same as get():
+        assertArrayEquals(persister.get(PATH_PARENT), values.get(PATH_PARENT));
+        persister.close();
+    }
+
+    // Uses a real ZK instance to ensure that our integration works as expected:
+    @Test
+    public void testGetChildrenManyPipelined() throws Exception {
+        CuratorTestUtils.clear(testZk);
+        when(mockServiceSpec.getZookeeperConnection()).thenReturn(testZk.getConnectString());
+        Persister persister = CuratorPersister.newBuilder(mockServiceSpec).setMaxReadsInFlight(2).build();
+        persister.setMany(SET_MANY_MAP);
+
+        List<String> paths = new ArrayList<>(SET_MANY_MAP.keySet());
+        paths.add(PATH_PARENT);
+        paths.add("");
+        paths.add("/missing");
+        Map<String, Collection<String>> children = persister.getChildrenMany(paths);
+        assertEquals(new TreeSet<>(paths), children.keySet());
+        for (String path : paths) {
+            if (path.equals("/missing")) {
+                assertTrue(children.get(path).isEmpty());
+            } else {
+                assertEquals(path, persister.getChildren(path), children.get(path));
+            }
+        }
+        // Walking the tree level by level finds the same data as reading each path:
+        Map<String, byte[]> allData = PersisterUtils.getAllData(persister);
+        for (Map.Entry<String, byte[]> entry : SET_MANY_MAP.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), allData.get(entry.getKey()));
+        }
+        persister.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxReadsInFlight() {
+        CuratorPersister.newBuilder(mockServiceSpec).setMaxReadsInFlight(0);
+    }
+
+    /**
+     * Not a correctness test: Logs the time taken to read many values with serial reads vs pipelined reads.
+     */
+    @Test
+    public void testGetManyBenchmark() throws Exception {
+        CuratorTestUtils.clear(testZk);
+        when(mockServiceSpec.getZookeeperConnection()).thenReturn(testZk.getConnectString());
+        Persister persister = CuratorPersister.newBuilder(mockServiceSpec).build();
+
+        final int pathCount = 2000;
+        List<String> paths = new ArrayList<>();
+        Map<String, byte[]> batch = new TreeMap<>();
+        for (int i = 0; i < pathCount; ++i) {
+            String path = String.format("Tasks/task-%d/TaskInfo", i);
+            paths.add(path);
+            batch.put(path, DATA_1);
+            if (batch.size() >= 200) {
+                persister.setMany(batch);
+                batch.clear();
+            }
+        }
+
+        long startNs = System.nanoTime();
+        for (String path : paths) {
+            persister.get(path);
+        }
+        long serialMs = (System.nanoTime() - startNs) / 1000000;
+
+        startNs = System.nanoTime();
+        Map<String, byte[]> values = persister.getMany(paths);
+        long pipelinedMs = (System.nanoTime() - startNs) / 1000000;
+
+        assertEquals(pathCount, values.size());
+        for (byte[] value : values.values()) {
+            assertArrayEquals(DATA_1, value);
+        }
+        logger.info("Read {} paths: serial get() {}ms, pipelined getMany() {}ms", pathCount, serialMs, pipelinedMs);
+        persister.close();
+    }
+
+    // Uses a real ZK instance to ensure that our integration works as expected:
+    @Test
+    public void testTransactionsUseKnownPaths() throws Exception {
+        CuratorTestUtils.clear(testZk);
+        when(mockServiceSpec.getZookeeperConnection()).thenReturn(testZk.getConnectString());
+        Persister persister = CuratorPersister.newBuilder(mockServiceSpec).build();
+        Metrics.getRegistry().remove("storage.transaction.round_trips");
+
+        // First transaction: Index is seeded by listing root and its 'servicename' child, plus the commit itself
+        persister.setMany(SET_MANY_MAP);
+        assertEquals(4, getLastTransactionRoundTrips());
+
+        // Later transactions: Only the commit itself, regardless of what's being created or updated
+        persister.setMany(SET_MANY_MAP);
+        assertEquals(1, getLastTransactionRoundTrips());
+        Map<String, byte[]> newPaths = new TreeMap<>();
+        newPaths.put("/path/sub/3", DATA_SUB_1);
+        newPaths.put("/other/1", DATA_1);
+        persister.setMany(newPaths);
+        assertEquals(1, getLastTransactionRoundTrips());
+        persister.recursiveDeleteMany(Arrays.asList(PATH_SUB_PARENT, "/missing"));
+        assertEquals(1, getLastTransactionRoundTrips());
+        persister.setMany(Collections.singletonMap(PATH_SUB_1, DATA_SUB_2));
+        assertEquals(1, getLastTransactionRoundTrips());
+
+        assertEquals(new TreeSet<>(Arrays.asList("1", "2", "sub")), persister.getChildren(PATH_PARENT));
+        assertEquals(Collections.singleton("1"), persister.getChildren(PATH_SUB_PARENT));
+        assertArrayEquals(DATA_1, persister.get(PATH_1));
+        assertArrayEquals(DATA_SUB_2, persister.get(PATH_SUB_1));
+        assertArrayEquals(DATA_1, persister.get("/other/1"));
+        persister.close();
+    }
+
+    // Uses a real ZK instance to ensure that our integration works as expected:
+    @Test
+    public void testStaleKnownPathsAreRetried() throws Exception {
+        CuratorTestUtils.clear(testZk);
+        when(mockServiceSpec.getZookeeperConnection()).thenReturn(testZk.getConnectString());
+        Persister persister = CuratorPersister.newBuilder(mockServiceSpec).build();
+        Persister otherPersister = CuratorPersister.newBuilder(mockServiceSpec).build();
+        persister.setMany(SET_MANY_MAP);
+        Metrics.getRegistry().remove("storage.transaction.round_trips");
+
+        // Changes made behind the persister's back leave its index stale:
+        otherPersister.recursiveDelete(PATH_SUB_PARENT);
+        otherPersister.set(PATH_SUB_PARENT, DATA_SUB_1);
+
+        // Index says that the sub nodes exist, so the first attempt fails and the retry checks ZK directly:
+        persister.setMany(SET_MANY_MAP);
+        assertTrue(getLastTransactionRoundTrips() > 2);
+        assertArrayEquals(DATA_SUB_1, persister.get(PATH_SUB_1));
+        assertArrayEquals(DATA_SUB_2, persister.get(PATH_SUB_2));
+
+        // Index is rebuilt, then things are back to normal:
+        persister.recursiveDeleteMany(Arrays.asList(PATH_SUB_PARENT));
+        assertTrue(getLastTransactionRoundTrips() > 1);
+        persister.setMany(SET_MANY_MAP);
+        assertEquals(1, getLastTransactionRoundTrips());
+        assertEquals(new TreeSet<>(Arrays.asList("1", "2")), persister.getChildren(PATH_SUB_PARENT));
+        persister.close();
+        otherPersister.close();
+    }
+
     @Test
     public void testWriteServiceName() throws Exception {
         CuratorTestUtils.clear(testZk);
@@ -530,6 +698,17 @@ public class CuratorPersisterTest {
         }
     }
 
+    /**
+     * Returns the number of round trips recorded for the most recent transaction, and resets the metric.
+     */
+    private static long getLastTransactionRoundTrips() {
+        String metricName = "storage.transaction.round_trips";
+        Histogram histogram = Metrics.getRegistry().histogram(metricName);
+        assertEquals(1, histogram.getCount());
+        Metrics.getRegistry().remove(metricName);
+        return histogram.getSnapshot().getMax();
+    }
+
     private void setupCommon() throws Exception {
         when(mockClient.checkExists()).thenReturn(mockExistsBuilder);
         when(mockClient.getChildren()).thenReturn(mockGetChildrenBuilder);
@@ -0,0 +1,196 @@
+package com.mesosphere.sdk.curator;
+
+import org.apache.curator.test.TestingServer;
+import org.junit.*;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mesosphere.sdk.specification.ServiceSpec;
+import com.mesosphere.sdk.storage.PersisterCache;
+import com.mesosphere.sdk.storage.PersisterException;
+import com.mesosphere.sdk.storage.PersisterUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CuratorPersister#watch(com.mesosphere.sdk.storage.WatchablePersister.Listener)}, as used by
+ * {@link PersisterCache} in {@link PersisterCache.RefreshMode#WATCH} mode.
+ */
+public class CuratorPersisterWatchTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CuratorPersisterWatchTest.class);
+
+    private static final byte[] DATA_1 = "one".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATA_2 = "two".getBytes(StandardCharsets.UTF_8);
+
+    private static TestingServer testZk;
+
+    @Mock private ServiceSpec mockServiceSpec;
+    private CuratorPersister persister;
+    private CuratorPersister otherPersister;
+
+    @BeforeClass
+    public static void beforeAll() throws Exception {
+        testZk = new TestingServer();
+    }
+
+    @AfterClass
+    public static void afterAll() throws Exception {
+        testZk.close();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        CuratorTestUtils.clear(testZk);
+        when(mockServiceSpec.getName()).thenReturn(TestConstants.SERVICE_NAME);
+        when(mockServiceSpec.getZookeeperConnection()).thenReturn(testZk.getConnectString());
+        persister = CuratorPersister.newBuilder(mockServiceSpec).build();
+        // Simulates changes made behind the scheduler's back:
+        otherPersister = CuratorPersister.newBuilder(mockServiceSpec).build();
+    }
+
+    @After
+    public void afterEach() {
+        persister.close();
+        otherPersister.close();
+    }
+
+    @Test
+    public void testInitialLoadMatchesFullLoad() throws Exception {
+        writeTasks(persister, 20);
+        persister.set("a/b/c", DATA_1);
+        persister.set("a/b", DATA_2);
+
+        PersisterCache fullCache = new PersisterCache(persister, PersisterCache.RefreshMode.FULL);
+        PersisterCache watchCache = new PersisterCache(persister, PersisterCache.RefreshMode.WATCH);
+        assertDataEquals(PersisterUtils.getAllData(fullCache), PersisterUtils.getAllData(watchCache));
+        assertEquals(PersisterUtils.getAllKeys(fullCache), PersisterUtils.getAllKeys(watchCache));
+    }
+
+    @Test
+    public void testExternalChangesAreApplied() throws Exception {
+        persister.set("a/1", DATA_1);
+        PersisterCache cache = new PersisterCache(persister, PersisterCache.RefreshMode.WATCH);
+        assertArrayEquals(DATA_1, cache.get("a/1"));
+
+        otherPersister.set("a/1", DATA_2);
+        otherPersister.set("a/2/x", DATA_1);
+        await().atMost(10, TimeUnit.SECONDS).until(() -> Arrays.equals(DATA_2, getOrNull(cache, "a/1")));
+        await().atMost(10, TimeUnit.SECONDS).until(() -> Arrays.equals(DATA_1, getOrNull(cache, "a/2/x")));
+
+        otherPersister.recursiveDelete("a/2");
+        await().atMost(10, TimeUnit.SECONDS).until(() -> !cache.getChildren("a").contains("2"));
+        assertArrayEquals(DATA_2, cache.get("a/1"));
+    }
+
+    @Test
+    public void testOwnChangesAreConsistent() throws Exception {
+        PersisterCache cache = new PersisterCache(persister, PersisterCache.RefreshMode.WATCH);
+        cache.set("a/1", DATA_1);
+        cache.set("a/2", DATA_2);
+        cache.recursiveDelete("a/2");
+        assertArrayEquals(DATA_1, cache.get("a/1"));
+        assertEquals(Collections.singleton("1"), cache.getChildren("a"));
+
+        // Wait for the watch to catch up with our own writes, then check that nothing was reverted:
+        otherPersister.set("marker", DATA_1);
+        await().atMost(10, TimeUnit.SECONDS).until(() -> getOrNull(cache, "marker") != null);
+        assertArrayEquals(DATA_1, cache.get("a/1"));
+        assertEquals(Collections.singleton("1"), cache.getChildren("a"));
+        assertDataEquals(PersisterUtils.getAllData(persister), PersisterUtils.getAllData(cache));
+    }
+
+    @Test
+    public void testRefreshRestartsWatch() throws Exception {
+        PersisterCache cache = new PersisterCache(persister, PersisterCache.RefreshMode.WATCH);
+        persister.set("a/1", DATA_1);
+        cache.refresh();
+        assertArrayEquals(DATA_1, cache.get("a/1"));
+
+        // New watch is still applying changes:
+        otherPersister.set("a/1", DATA_2);
+        await().atMost(10, TimeUnit.SECONDS).until(() -> Arrays.equals(DATA_2, getOrNull(cache, "a/1")));
+    }
+
+    /**
+     * Not a correctness test: Logs the cold-load time and refresh cost of each cache mode as the tree size grows.
+     */
+    @Test
+    public void testLoadTimeVersusTreeSize() throws Exception {
+        int writtenTasks = 0;
+        for (int taskCount : Arrays.asList(10, 100, 500)) {
+            writeTasks(persister, taskCount, writtenTasks);
+            writtenTasks = taskCount;
+
+            PersisterCache fullCache = new PersisterCache(persister, PersisterCache.RefreshMode.FULL);
+            long fullLoadMs = timeMs(() -> fullCache.getChildren(""));
+            long fullRefreshMs = timeMs(() -> fullCache.refresh());
+
+            PersisterCache watchCache = new PersisterCache(persister, PersisterCache.RefreshMode.WATCH);
+            long watchLoadMs = timeMs(() -> watchCache.getChildren(""));
+            long watchChangeMs = timeMs(() -> {
+                otherPersister.set("Tasks/task-0/TaskStatus", DATA_2);
+                await().atMost(10, TimeUnit.SECONDS)
+                        .until(() -> Arrays.equals(DATA_2, getOrNull(watchCache, "Tasks/task-0/TaskStatus")));
+            });
+            assertDataEquals(PersisterUtils.getAllData(persister), PersisterUtils.getAllData(watchCache));
+
+            logger.info("{} tasks ({} nodes): full load {}ms, full refresh {}ms, watch load {}ms, watched change {}ms",
+                    taskCount, PersisterUtils.getAllKeys(persister).size(),
+                    fullLoadMs, fullRefreshMs, watchLoadMs, watchChangeMs);
+            persister.set("Tasks/task-0/TaskStatus", DATA_1);
+        }
+    }
+
+    private static void writeTasks(CuratorPersister persister, int count) throws PersisterException {
+        writeTasks(persister, count, 0);
+    }
+
+    private static void writeTasks(CuratorPersister persister, int count, int start) throws PersisterException {
+        Map<String, byte[]> batch = new TreeMap<>();
+        for (int i = start; i < count; ++i) {
+            batch.put(String.format("Tasks/task-%d/TaskInfo", i), DATA_1);
+            batch.put(String.format("Tasks/task-%d/TaskStatus", i), DATA_1);
+            if (batch.size() >= 100) {
+                persister.setMany(batch);
+                batch.clear();
+            }
+        }
+        persister.setMany(batch);
+    }
+
+    private static byte[] getOrNull(PersisterCache cache, String path) {
+        try {
+            return cache.get(path);
+        } catch (PersisterException e) {
+            return null;
+        }
+    }
+
+    private static void assertDataEquals(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    private interface TimedOperation {
+        void run() throws Exception;
+    }
+
+    private static long timeMs(TimedOperation operation) throws Exception {
+        long startNs = System.nanoTime();
+        operation.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+    }
+}
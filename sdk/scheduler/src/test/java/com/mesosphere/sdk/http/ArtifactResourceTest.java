@@ -9,19 +9,31 @@ import com.mesosphere.sdk.state.ConfigStore;
 import com.mesosphere.sdk.state.ConfigStoreException;
 import com.mesosphere.sdk.storage.StorageError.Reason;
 
+import com.google.common.io.ByteStreams;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ArtifactResourceTest {
@@ -41,21 +53,21 @@ public class ArtifactResourceTest {
 
     @Test
     public void testGetTemplateBadUUID() throws ConfigStoreException {
-        assertEquals(400, resource.getTemplate("bad uuid", "pod", "task", "conffile").getStatus());
+        assertEquals(400, resource.getTemplate("bad uuid", "pod", "task", "conffile", null, null).getStatus());
     }
 
     @Test
     public void testGetTemplateServiceConfigNotFound() throws ConfigStoreException {
         UUID uuid = UUID.randomUUID();
         when(mockConfigStore.fetch(uuid)).thenThrow(new ConfigStoreException(Reason.NOT_FOUND, "hi"));
-        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile").getStatus());
+        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null).getStatus());
     }
 
     @Test
     public void testGetTemplateServiceConfigReadFailed() throws ConfigStoreException {
         UUID uuid = UUID.randomUUID();
         when(mockConfigStore.fetch(uuid)).thenThrow(new ConfigStoreException(Reason.STORAGE_ERROR, "hi"));
-        assertEquals(500, resource.getTemplate(uuid.toString(), "pod", "task", "conffile").getStatus());
+        assertEquals(500, resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null).getStatus());
     }
 
     @Test
@@ -63,7 +75,7 @@ public class ArtifactResourceTest {
         UUID uuid = UUID.randomUUID();
         when(mockConfigStore.fetch(uuid)).thenReturn(mockServiceSpec);
         when(mockServiceSpec.getPods()).thenReturn(Collections.emptyList());
-        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile").getStatus());
+        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null).getStatus());
     }
 
     @Test
@@ -73,7 +85,7 @@ public class ArtifactResourceTest {
         when(mockServiceSpec.getPods()).thenReturn(Arrays.asList(mockPodSpec));
         when(mockPodSpec.getType()).thenReturn("pod");
         when(mockPodSpec.getTasks()).thenReturn(Collections.emptyList());
-        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile").getStatus());
+        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null).getStatus());
     }
 
     @Test
@@ -85,23 +97,73 @@ public class ArtifactResourceTest {
         when(mockPodSpec.getTasks()).thenReturn(Arrays.asList(mockTaskSpec));
         when(mockTaskSpec.getName()).thenReturn("task");
         when(mockTaskSpec.getConfigFiles()).thenReturn(Collections.emptyList());
-        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile").getStatus());
+        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null).getStatus());
     }
 
     @Test
     public void testGetTemplateSuccess() throws ConfigStoreException {
         UUID uuid = UUID.randomUUID();
-        when(mockConfigStore.fetch(uuid)).thenReturn(mockServiceSpec);
-        when(mockServiceSpec.getPods()).thenReturn(Arrays.asList(mockPodSpec));
-        when(mockPodSpec.getType()).thenReturn("pod");
-        when(mockPodSpec.getTasks()).thenReturn(Arrays.asList(mockTaskSpec));
-        when(mockTaskSpec.getName()).thenReturn("task");
-        ConfigFileSpec configSpec = new DefaultConfigFileSpec("conffile", "../conf/confpath.xml", "content goes here");
-        when(mockTaskSpec.getConfigFiles()).thenReturn(Arrays.asList(configSpec));
-        Response r = resource.getTemplate(uuid.toString(), "pod", "task", "conffile");
+        ConfigFileSpec configSpec = mockConfigFile(uuid, "content goes here");
+        Response r = resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null);
         assertEquals(200, r.getStatus());
         assertEquals(MediaType.TEXT_PLAIN_TYPE, r.getMediaType());
-        assertEquals(configSpec.getTemplateContent(), r.getEntity());
+        assertArrayEquals(configSpec.getTemplateContent().getBytes(StandardCharsets.UTF_8), (byte[]) r.getEntity());
+        assertNull(r.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testGetTemplateFetchesConfigOnce() throws ConfigStoreException {
+        UUID uuid = UUID.randomUUID();
+        mockConfigFile(uuid, "content goes here");
+        for (int i = 0; i < 5; ++i) {
+            assertEquals(200, resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null).getStatus());
+        }
+        assertEquals(404, resource.getTemplate(uuid.toString(), "pod", "task", "other", null, null).getStatus());
+        verify(mockConfigStore, times(1)).fetch(uuid);
+    }
+
+    @Test
+    public void testGetTemplateNotModified() throws ConfigStoreException {
+        UUID uuid = UUID.randomUUID();
+        mockConfigFile(uuid, "content goes here");
+        EntityTag tag = resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, null).getEntityTag();
+
+        Response r = resource.getTemplate(
+                uuid.toString(), "pod", "task", "conffile", "\"" + tag.getValue() + "\"", null);
+        assertEquals(304, r.getStatus());
+        assertNull(r.getEntity());
+
+        r = resource.getTemplate(uuid.toString(), "pod", "task", "conffile", "\"stale\"", null);
+        assertEquals(200, r.getStatus());
+        assertEquals(tag, r.getEntityTag());
+    }
+
+    @Test
+    public void testGetTemplateGzip() throws ConfigStoreException, IOException {
+        UUID uuid = UUID.randomUUID();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            content.append(String.format("key%d={{VALUE_%d}}\n", i, i));
+        }
+        mockConfigFile(uuid, content.toString());
+
+        Response plain = resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, "identity");
+        assertNull(plain.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, plain.getHeaderString(HttpHeaders.VARY));
+
+        Response compressed = resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, "deflate, gzip");
+        assertEquals(200, compressed.getStatus());
+        assertEquals("gzip", compressed.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        byte[] decompressed = ByteStreams.toByteArray(
+                new GZIPInputStream(new ByteArrayInputStream((byte[]) compressed.getEntity())));
+        assertEquals(content.toString(), new String(decompressed, StandardCharsets.UTF_8));
+        // Each representation is tagged separately, but either tag is recognized:
+        assertNotEquals(plain.getEntityTag(), compressed.getEntityTag());
+        assertEquals(304, resource.getTemplate(uuid.toString(), "pod", "task", "conffile",
+                "\"" + plain.getEntityTag().getValue() + "\"", "gzip").getStatus());
+
+        Response refused = resource.getTemplate(uuid.toString(), "pod", "task", "conffile", null, "gzip;q=0");
+        assertNull(refused.getHeaderString(HttpHeaders.CONTENT_ENCODING));
     }
 
     @Test
@@ -115,6 +177,16 @@ public class ArtifactResourceTest {
                 "http://api.pathtosvc-name.marathon.l4lb.thisdcos.directory/v1/artifacts/template/"
                         + uuid.toString() + "/some-pod/some-task/some-config",
                 ArtifactResource.getTemplateUrl("/path/to/svc-name", uuid, "some-pod", "some-task", "some-config"));
+    }
 
+    private ConfigFileSpec mockConfigFile(UUID uuid, String content) throws ConfigStoreException {
+        when(mockConfigStore.fetch(uuid)).thenReturn(mockServiceSpec);
+        when(mockServiceSpec.getPods()).thenReturn(Arrays.asList(mockPodSpec));
+        when(mockPodSpec.getType()).thenReturn("pod");
+        when(mockPodSpec.getTasks()).thenReturn(Arrays.asList(mockTaskSpec));
+        when(mockTaskSpec.getName()).thenReturn("task");
+        ConfigFileSpec configSpec = new DefaultConfigFileSpec("conffile", "../conf/confpath.xml", content);
+        when(mockTaskSpec.getConfigFiles()).thenReturn(Arrays.asList(configSpec));
+        return configSpec;
     }
 }
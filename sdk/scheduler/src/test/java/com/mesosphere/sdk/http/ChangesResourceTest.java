@@ -0,0 +1,128 @@
+package com.mesosphere.sdk.http;
+
+import com.mesosphere.sdk.state.ChangeFeed;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link ChangesResource}.
+ */
+public class ChangesResourceTest {
+
+    @Mock private AsyncResponse mockAsyncResponse;
+
+    private ChangeFeed changeFeed;
+    private ChangesResource resource;
+
+    @Before
+    public void beforeEach() {
+        MockitoAnnotations.initMocks(this);
+        changeFeed = new ChangeFeed();
+        resource = new ChangesResource(changeFeed, Runnable::run);
+    }
+
+    @Test
+    public void testGetCurrentVersion() {
+        publish("a");
+        publish("b");
+        resource.getChanges(null, 30, mockAsyncResponse);
+
+        JSONObject json = getResponseJson();
+        assertEquals(getVersion(2), json.getString("version"));
+        assertEquals(0, json.getJSONArray("events").length());
+        assertEquals(0, changeFeed.getWatcherCount());
+    }
+
+    @Test
+    public void testExistingChangesReturnImmediately() {
+        publish("a");
+        publish("b");
+        resource.getChanges(getVersion(1), 30, mockAsyncResponse);
+
+        JSONObject json = getResponseJson();
+        assertEquals(getVersion(2), json.getString("version"));
+        assertEquals("b", json.getJSONArray("events").getJSONObject(0).getString("name"));
+        assertEquals(0, changeFeed.getWatcherCount());
+    }
+
+    @Test
+    public void testWaitForChange() {
+        publish("a");
+        resource.getChanges(getVersion(1), 120, mockAsyncResponse);
+        verify(mockAsyncResponse).setTimeout(60, TimeUnit.SECONDS);
+        verify(mockAsyncResponse, never()).resume(any(Object.class));
+        assertEquals(1, changeFeed.getWatcherCount());
+
+        publish("b");
+        JSONObject json = getResponseJson();
+        assertEquals(getVersion(2), json.getString("version"));
+        assertEquals(1, json.getJSONArray("events").length());
+        assertEquals("b", json.getJSONArray("events").getJSONObject(0).getString("name"));
+    }
+
+    @Test
+    public void testTimeoutWithoutChanges() {
+        resource.getChanges(getVersion(0), 5, mockAsyncResponse);
+        ArgumentCaptor<TimeoutHandler> timeoutHandler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(mockAsyncResponse).setTimeoutHandler(timeoutHandler.capture());
+        verify(mockAsyncResponse).setTimeout(5, TimeUnit.SECONDS);
+
+        timeoutHandler.getValue().handleTimeout(mockAsyncResponse);
+        assertEquals(0, changeFeed.getWatcherCount());
+        JSONObject json = getResponseJson();
+        assertEquals(getVersion(0), json.getString("version"));
+        assertEquals(0, json.getJSONArray("events").length());
+    }
+
+    @Test
+    public void testTruncatedAfterRestart() {
+        // The previous scheduler had published the same number of events:
+        ChangeFeed previousFeed = new ChangeFeed();
+        previousFeed.publish(ChangeFeed.Type.ENDPOINT, "a", Collections.emptyMap());
+        String previousVersion = previousFeed.getChangesSince(0).getCursor();
+
+        publish("a");
+        resource.getChanges(previousVersion, 30, mockAsyncResponse);
+        JSONObject json = getResponseJson();
+        assertTrue(json.getBoolean("truncated"));
+        assertEquals(getVersion(1), json.getString("version"));
+        assertEquals(0, changeFeed.getWatcherCount());
+    }
+
+    @Test
+    public void testMalformedVersionIsTruncated() {
+        publish("a");
+        resource.getChanges("1", 30, mockAsyncResponse);
+        assertTrue(getResponseJson().getBoolean("truncated"));
+    }
+
+    private String getVersion(long sequence) {
+        String cursor = changeFeed.getChangesSince(changeFeed.getLatestSequence()).getCursor();
+        return cursor.substring(0, cursor.lastIndexOf(':') + 1) + sequence;
+    }
+
+    private void publish(String name) {
+        changeFeed.publish(ChangeFeed.Type.ENDPOINT, name, Collections.emptyMap());
+    }
+
+    private JSONObject getResponseJson() {
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(mockAsyncResponse).resume(response.capture());
+        assertEquals(200, response.getValue().getStatus());
+        return new JSONObject((String) response.getValue().getEntity());
+    }
+}
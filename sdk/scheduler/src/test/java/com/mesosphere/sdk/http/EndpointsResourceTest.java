@@ -5,6 +5,7 @@ import com.mesosphere.sdk.offer.Constants;
 import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
 import com.mesosphere.sdk.state.ConfigStoreException;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.TaskStateIndex;
 import com.mesosphere.sdk.testutils.OfferTestUtils;
 import com.mesosphere.sdk.testutils.TaskTestUtils;
 import com.mesosphere.sdk.testutils.TestConstants;
@@ -168,6 +169,7 @@ public class EndpointsResourceTest {
     @Before
     public void beforeAll() {
         MockitoAnnotations.initMocks(this);
+        when(mockStateStore.getTaskStateIndex()).thenAnswer(invocation -> new TaskStateIndex(mockStateStore));
         for (TaskInfo taskInfo : TASK_INFOS) {
             when(mockStateStore.fetchStatus(taskInfo.getName())).thenReturn(Optional.empty());
         }
@@ -183,7 +185,7 @@ public class EndpointsResourceTest {
     @SuppressWarnings("PMD.AvoidUsingHardCodedIP")
     private void testEndpoint(String expectedHostname) throws ConfigStoreException {
         when(mockStateStore.fetchTasks()).thenReturn(TASK_INFOS);
-        Response response = resource.getEndpoint("porta");
+        Response response = resource.getEndpoint("porta", null);
         assertEquals(200, response.getStatus());
         JSONObject json = new JSONObject((String) response.getEntity());
         assertEquals(json.toString(), 3, json.length());
@@ -216,7 +218,7 @@ public class EndpointsResourceTest {
     private void allEndpointsTest(String serviceName, String serviceNetworkName) {
         resource = buildResource(mockStateStore, serviceName);
         when(mockStateStore.fetchTasks()).thenReturn(TASK_INFOS);
-        Response response = resource.getEndpoints();
+        Response response = resource.getEndpoints(null);
         assertEquals(200, response.getStatus());
         JSONArray json = new JSONArray((String) response.getEntity());
         assertEquals(json.toString(), 4, json.length());
@@ -226,10 +228,10 @@ public class EndpointsResourceTest {
         assertEquals("porta", json.get(2));
         assertEquals("portb", json.get(3));
 
-        assertEquals(CUSTOM_VALUE, resource.getEndpoint(CUSTOM_KEY).getEntity());
+        assertEquals(CUSTOM_VALUE, resource.getEndpoint(CUSTOM_KEY, null).getEntity());
 
         // 'novip' port is listed across the two 'vips-' tasks
-        JSONObject endpointNoVip = new JSONObject((String) resource.getEndpoint("novip").getEntity());
+        JSONObject endpointNoVip = new JSONObject((String) resource.getEndpoint("novip", null).getEntity());
         assertEquals(2, endpointNoVip.length());
         JSONArray dns = endpointNoVip.getJSONArray("dns");
         assertEquals(2, dns.length());
@@ -241,7 +243,7 @@ public class EndpointsResourceTest {
         assertEquals(TestConstants.HOSTNAME + ":3459", address.get(1));
 
         // 'porta' is listed across the two 'ports-' tasks and the two 'vips-' tasks
-        JSONObject endpointPortA = new JSONObject((String) resource.getEndpoint("porta").getEntity());
+        JSONObject endpointPortA = new JSONObject((String) resource.getEndpoint("porta", null).getEntity());
         assertEquals(3, endpointPortA.length());
         assertEquals("vip1." + serviceNetworkName + ".l4lb.thisdcos.directory:5432", endpointPortA.get("vip"));
         dns = endpointPortA.getJSONArray("dns");
@@ -258,7 +260,7 @@ public class EndpointsResourceTest {
         assertEquals(TestConstants.HOSTNAME + ":3456", address.get(3));
 
         // 'portb' is just listed in the 'ports-1' and 'vips-2' tasks
-        JSONObject endpointPortB = new JSONObject((String) resource.getEndpoint("portb").getEntity());
+        JSONObject endpointPortB = new JSONObject((String) resource.getEndpoint("portb", null).getEntity());
         assertEquals(3, endpointPortB.length());
         dns = endpointPortB.getJSONArray("dns");
         assertEquals(2, dns.length());
@@ -288,6 +290,8 @@ public class EndpointsResourceTest {
             when(mockStateStore.fetchStatus(taskInfo.getName())).thenReturn(Optional.of(TASK_STATUS));
             when(mockStateStore.fetchProperty(taskInfo.getName() + ":task-status")).thenReturn(TASK_STATUS.toByteArray());
         }
+        // Endpoints are only rebuilt once the state store reports a write:
+        when(mockStateStore.getVersion()).thenReturn(1L);
 
         testEndpoint(TestConstants.OVERLAY_HOSTNAME);
 
@@ -297,16 +301,36 @@ public class EndpointsResourceTest {
             when(mockStateStore.fetchProperty(taskInfo.getName() + ":task-status"))
                     .thenReturn(TASK_STATUS_2.toByteArray());
         }
+        when(mockStateStore.getVersion()).thenReturn(2L);
 
         testEndpoint(TestConstants.OVERLAY_HOSTNAME);
 
         for (TaskInfo taskInfo : TASK_INFOS) {
             when(mockStateStore.fetchStatus(taskInfo.getName())).thenReturn(Optional.empty());
         }
+        when(mockStateStore.getVersion()).thenReturn(3L);
 
         testEndpoint("otherHost");
     }
 
+    @Test
+    public void testGetEndpointNotModified() throws ConfigStoreException {
+        when(mockStateStore.fetchTasks()).thenReturn(TASK_INFOS);
+        Response response = resource.getEndpoint("porta", null);
+        assertEquals(200, response.getStatus());
+        String ifNoneMatch = response.getEntityTag().toString();
+
+        assertEquals(304, resource.getEndpoint("porta", ifNoneMatch).getStatus());
+        assertEquals(200, resource.getEndpoint("portb", ifNoneMatch).getStatus());
+
+        // The tag changes along with the content, once the state store reports a write:
+        when(mockStateStore.fetchStatus(TASK_WITH_VIPS_1.getName()))
+                .thenReturn(Optional.of(createTaskStatus(TestConstants.OVERLAY_HOSTNAME)));
+        assertEquals(304, resource.getEndpoint("porta", ifNoneMatch).getStatus());
+        when(mockStateStore.getVersion()).thenReturn(1L);
+        assertEquals(200, resource.getEndpoint("porta", ifNoneMatch).getStatus());
+    }
+
     private static Protos.TaskStatus createTaskStatus(String hostname) {
         Protos.TaskStatus.Builder taskStatusBuilder = Protos.TaskStatus.newBuilder()
                 .setState(Protos.TaskState.TASK_RUNNING)
@@ -319,7 +343,7 @@ public class EndpointsResourceTest {
     @Test
     public void testGetOneCustomEndpoint() throws ConfigStoreException {
         when(mockStateStore.fetchTasks()).thenReturn(TASK_INFOS);
-        Response response = resource.getEndpoint(CUSTOM_KEY);
+        Response response = resource.getEndpoint(CUSTOM_KEY, null);
         assertEquals(200, response.getStatus());
         assertEquals(CUSTOM_VALUE, response.getEntity());
     }
@@ -1,5 +1,6 @@
 package com.mesosphere.sdk.http;
 
+import com.mesosphere.sdk.http.types.ReadRequestExecutor;
 import com.mesosphere.sdk.http.types.TaskInfoAndStatus;
 import com.mesosphere.sdk.offer.CommonIdUtils;
 import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
@@ -7,6 +8,7 @@ import com.mesosphere.sdk.scheduler.TaskKiller;
 import com.mesosphere.sdk.scheduler.recovery.TaskFailureListener;
 import com.mesosphere.sdk.state.GoalStateOverride;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.TaskStateIndex;
 import com.mesosphere.sdk.testutils.TaskTestUtils;
 import com.mesosphere.sdk.testutils.TestConstants;
 
@@ -18,10 +20,13 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -119,6 +124,7 @@ public class PodResourceTest {
     @Before
     public void beforeAll() {
         MockitoAnnotations.initMocks(this);
+        when(mockStateStore.getTaskStateIndex()).thenAnswer(invocation -> new TaskStateIndex(mockStateStore));
         resource = new PodResource(mockStateStore, TestConstants.SERVICE_NAME, mockTaskFailureListener);
         resource.setTaskKiller(mockTaskKiller);
     }
@@ -137,6 +143,30 @@ public class PodResourceTest {
         assertEquals("UNKNOWN_POD_test-task-name", json.get(3));
     }
 
+    @Test
+    public void testGetPodNamesOnReadExecutor() {
+        when(mockStateStore.fetchTasks()).thenReturn(TASK_INFOS);
+        List<Runnable> queuedReads = new ArrayList<>();
+        PodResource asyncResource = new PodResource(
+                mockStateStore,
+                TestConstants.SERVICE_NAME,
+                mockTaskFailureListener,
+                new ReadRequestExecutor(queuedReads::add));
+        AsyncResponse mockAsyncResponse = mock(AsyncResponse.class);
+
+        // The response is produced by the executor, not the request thread:
+        asyncResource.getPods(mockAsyncResponse);
+        verifyZeroInteractions(mockAsyncResponse);
+        assertEquals(1, queuedReads.size());
+
+        queuedReads.get(0).run();
+        ArgumentCaptor<Response> responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(mockAsyncResponse).resume(responseCaptor.capture());
+        Response response = responseCaptor.getValue();
+        assertEquals(200, response.getStatus());
+        assertEquals(resource.getPods().getEntity(), response.getEntity());
+    }
+
     @Test
     public void testGetAllPodStatuses() {
         when(mockStateStore.fetchTasks()).thenReturn(TASK_INFOS);
@@ -155,7 +185,7 @@ public class PodResourceTest {
         when(mockStateStore.fetchGoalOverrideStatus("test-2-a")).thenReturn(GoalStateOverride.Status.INACTIVE);
         when(mockStateStore.fetchGoalOverrideStatus(TestConstants.TASK_NAME))
                 .thenReturn(GoalStateOverride.PAUSED.newStatus(GoalStateOverride.Progress.COMPLETE));
-        Response response = resource.getPodStatuses();
+        Response response = resource.getPodStatuses(null);
 
         assertEquals(200, response.getStatus());
         JSONObject json = new JSONObject((String) response.getEntity());
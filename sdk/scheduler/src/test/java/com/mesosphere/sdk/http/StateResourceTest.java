@@ -19,6 +19,7 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 
 import java.io.ByteArrayInputStream;
@@ -28,6 +29,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -239,7 +241,8 @@ public class StateResourceTest {
         TaskInfo taskInfo = createTaskInfoWithZone(TestConstants.TASK_NAME, TestConstants.ZONE);
         when(mockStateStore.fetchTaskNames()).thenReturn(Arrays.asList(TestConstants.TASK_NAME));
         when(mockStateStore.fetchTask(TestConstants.TASK_NAME)).thenReturn(Optional.of(taskInfo));
-        Response response = resource.getTaskNamesToZones();
+        when(mockStateStore.fetchStatus(TestConstants.TASK_NAME)).thenReturn(Optional.empty());
+        Response response = resource.getTaskNamesToZones(null);
 
         Map<String, String> expectedTaskNameToZone = new HashMap<>();
         expectedTaskNameToZone.put(TestConstants.TASK_NAME,  TestConstants.ZONE);
@@ -254,7 +257,8 @@ public class StateResourceTest {
         TaskInfo taskInfo = createTaskInfoWithZone(TestConstants.TASK_NAME, TestConstants.ZONE);
         when(mockStateStore.fetchTaskNames()).thenReturn(Arrays.asList(TestConstants.TASK_NAME));
         when(mockStateStore.fetchTask(TestConstants.TASK_NAME)).thenReturn(Optional.of(taskInfo));
-        Response response = resource.getTaskNameToZone(TestConstants.TASK_NAME);
+        when(mockStateStore.fetchStatus(TestConstants.TASK_NAME)).thenReturn(Optional.empty());
+        Response response = resource.getTaskNameToZone(TestConstants.TASK_NAME, null);
         assertEquals(response.getEntity(), TestConstants.ZONE);
     }
 
@@ -268,11 +272,40 @@ public class StateResourceTest {
         when(mockStateStore.fetchStatus(TestConstants.TASK_NAME)).thenReturn(Optional.of(taskStatus));
         Response response = resource.getTaskIPsToZones(
                 TestConstants.TASK_NAME.substring(0, 4), // simulates the pod-type prefix of a task name
-                TestConstants.IP_ADDRESS
-        );
+                TestConstants.IP_ADDRESS,
+                null);
         assertEquals(response.getEntity(), TestConstants.ZONE);
     }
 
+    @Test
+    public void testTasksZonesAreCachedUntilStateChanges() {
+        resource = new StateResource(stateStore);
+        stateStore.storeTasks(Arrays.asList(createTaskInfoWithZone(TestConstants.TASK_NAME, TestConstants.ZONE)));
+
+        Response response = resource.getTaskNamesToZones(null);
+        assertEquals(200, response.getStatus());
+        EntityTag entityTag = response.getEntityTag();
+        String ifNoneMatch = entityTag.toString();
+
+        // Clients which already have the current content are told that it's unchanged:
+        response = resource.getTaskNamesToZones(ifNoneMatch);
+        assertEquals(304, response.getStatus());
+        assertEquals(entityTag, response.getEntityTag());
+        assertEquals(304, resource.getTaskNamesToZones("\"other\", W/" + ifNoneMatch).getStatus());
+        assertEquals(304, resource.getTaskNamesToZones("*").getStatus());
+        assertEquals(200, resource.getTaskNamesToZones("\"other\"").getStatus());
+
+        // Writes which don't affect the content leave the tag unchanged:
+        stateStore.storeProperty("foo", new byte[1]);
+        assertEquals(304, resource.getTaskNamesToZones(ifNoneMatch).getStatus());
+
+        stateStore.storeTasks(Arrays.asList(createTaskInfoWithZone("other-task", TestConstants.ZONE)));
+        response = resource.getTaskNamesToZones(ifNoneMatch);
+        assertEquals(200, response.getStatus());
+        assertEquals(2, new JSONObject((String) response.getEntity()).length());
+        assertNotEquals(entityTag, response.getEntityTag());
+    }
+
     private static TaskStatus createTaskStatusWithIP(TaskInfo taskInfo, String ipAddress) {
         final TaskStatus taskStatus = StateStoreUtilsTest.newTaskStatus(taskInfo, TaskState.TASK_UNKNOWN);
         return TaskStatus.newBuilder(taskStatus)
@@ -0,0 +1,112 @@
+package com.mesosphere.sdk.http.types;
+
+import com.mesosphere.sdk.scheduler.Metrics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for {@link ReadRequestExecutor}.
+ */
+public class ReadRequestExecutorTest {
+
+    @Mock private AsyncResponse mockAsyncResponse;
+
+    @Before
+    public void beforeEach() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testDirectResumesWithResponse() {
+        Response response = Response.ok("hi").build();
+        ReadRequestExecutor.direct().resume(mockAsyncResponse, () -> response);
+        verify(mockAsyncResponse).resume(response);
+    }
+
+    @Test
+    public void testHandlerFailureResumesWithServerError() {
+        ReadRequestExecutor.direct().resume(mockAsyncResponse, () -> {
+            throw new IllegalStateException("hi");
+        });
+        assertEquals(500, getResumedResponse().getStatus());
+    }
+
+    @Test
+    public void testRejectedRequestResumesWithUnavailable() {
+        long rejectedBefore = getRejectedCount();
+        ReadRequestExecutor executor = new ReadRequestExecutor(runnable -> {
+            throw new RejectedExecutionException("full");
+        });
+        executor.resume(mockAsyncResponse, () -> Response.ok().build());
+
+        Response response = getResumedResponse();
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+        assertEquals(rejectedBefore + 1, getRejectedCount());
+    }
+
+    @Test
+    public void testCreateWithoutThreadsIsDirect() {
+        assertSame(ReadRequestExecutor.direct(), ReadRequestExecutor.create(0, 100));
+    }
+
+    @Test
+    public void testPoolRejectsOnceQueueIsFull() throws InterruptedException {
+        ReadRequestExecutor executor = ReadRequestExecutor.create(1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncResponse runningResponse = mock(AsyncResponse.class);
+        AsyncResponse queuedResponse = mock(AsyncResponse.class);
+
+        // Occupy the only thread, then fill the queue:
+        executor.resume(runningResponse, () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return Response.ok().build();
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        executor.resume(queuedResponse, () -> Response.ok().build());
+
+        executor.resume(mockAsyncResponse, () -> Response.ok().build());
+        assertEquals(503, getResumedResponse().getStatus());
+
+        release.countDown();
+        verify(runningResponse, timeout(10000)).resume(any(Response.class));
+        verify(queuedResponse, timeout(10000)).resume(any(Response.class));
+    }
+
+    @Test
+    public void testShutdownPoolRejectsRequests() {
+        ReadRequestExecutor executor = ReadRequestExecutor.create(1, 1);
+        executor.shutdown();
+        executor.resume(mockAsyncResponse, () -> Response.ok().build());
+        assertEquals(503, getResumedResponse().getStatus());
+    }
+
+    private Response getResumedResponse() {
+        ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        verify(mockAsyncResponse).resume(captor.capture());
+        return captor.getValue();
+    }
+
+    private static long getRejectedCount() {
+        return Metrics.getRegistry().counter("api.requests.rejected").getCount();
+    }
+}
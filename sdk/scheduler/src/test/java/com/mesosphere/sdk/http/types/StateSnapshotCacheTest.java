@@ -0,0 +1,109 @@
+package com.mesosphere.sdk.http.types;
+
+import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.StateStoreException;
+import com.mesosphere.sdk.storage.MemPersister;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link StateSnapshotCache}.
+ */
+public class StateSnapshotCacheTest {
+
+    private static final String KEY = "key";
+
+    private StateStore stateStore;
+    private AtomicInteger loadCount;
+    private StateSnapshotCache<String, StateStoreException> cache;
+
+    @Before
+    public void beforeEach() {
+        stateStore = new StateStore(new MemPersister());
+        loadCount = new AtomicInteger();
+        cache = new StateSnapshotCache<>(stateStore, () -> {
+            loadCount.incrementAndGet();
+            return new String(stateStore.fetchProperty(KEY), StandardCharsets.UTF_8);
+        });
+    }
+
+    @Test
+    public void testValueIsReusedUntilWrite() {
+        store("a");
+        assertEquals("a", cache.get());
+        assertEquals("a", cache.get());
+        assertEquals(1, loadCount.get());
+
+        store("b");
+        assertEquals("b", cache.get());
+        assertEquals("b", cache.get());
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        try {
+            cache.get();
+            fail("Expected missing property");
+        } catch (StateStoreException e) {
+            // expected
+        }
+        store("a");
+        assertEquals("a", cache.get());
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testConcurrentPolling() throws Exception {
+        final int pollerCount = 8;
+        final int pollsPerPoller = 5000;
+        final int writeCount = 100;
+        store("initial");
+
+        ExecutorService executor = Executors.newFixedThreadPool(pollerCount + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < pollerCount; ++i) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int poll = 0; poll < pollsPerPoller; ++poll) {
+                        assertNotNull(cache.get());
+                    }
+                    return null;
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int write = 0; write < writeCount; ++write) {
+                    store(String.valueOf(write));
+                    Thread.yield();
+                }
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Each version is loaded at most once, regardless of the number of pollers:
+        assertTrue(String.format("%d loads", loadCount.get()), loadCount.get() <= writeCount + 1);
+        // Pollers observe the latest write once writes have stopped:
+        assertEquals(String.valueOf(writeCount - 1), cache.get());
+    }
+
+    private void store(String value) {
+        stateStore.storeProperty(KEY, value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,6 +3,7 @@ package com.mesosphere.sdk.offer;
 import com.mesosphere.sdk.scheduler.decommission.DecommissionPlanFactory;
 import com.mesosphere.sdk.state.GoalStateOverride;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.TaskStateIndex;
 import com.mesosphere.sdk.testutils.*;
 import org.apache.mesos.Protos.Offer;
 import org.apache.mesos.Protos.Offer.Operation;
@@ -44,7 +45,11 @@ public class DefaultResourceCleanerTest extends DefaultCapabilitiesTestSuite {
             TaskInfo.newBuilder(TaskTestUtils.getTaskInfo(Collections.emptyList()))
                     .setExecutor(TaskTestUtils.getExecutorInfo(EXPECTED_RESOURCE_1))
                     .build();
-    private static final TaskInfo TASK_INFO_2 = TaskTestUtils.getTaskInfo(EXPECTED_RESOURCE_2);
+    // Tasks are stored by name, so each task needs a distinct name:
+    private static final TaskInfo TASK_INFO_2 =
+            TaskInfo.newBuilder(TaskTestUtils.getTaskInfo(EXPECTED_RESOURCE_2))
+                    .setName("other-task-name")
+                    .build();
 
     private final List<ResourceCleaner> emptyCleaners = new ArrayList<>();
     private final List<ResourceCleaner> populatedCleaners = new ArrayList<>();
@@ -55,6 +60,7 @@ public class DefaultResourceCleanerTest extends DefaultCapabilitiesTestSuite {
         // Validate ResourceCleaner statelessness by only initializing them once
 
         mockStateStore = mock(StateStore.class);
+        when(mockStateStore.getTaskStateIndex()).thenAnswer(invocation -> new TaskStateIndex(mockStateStore));
 
         // cleaners without any expected resources
         when(mockStateStore.fetchTasks()).thenReturn(new ArrayList<>());
@@ -0,0 +1,225 @@
+package com.mesosphere.sdk.offer;
+
+import org.apache.mesos.Protos.Value.Range;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LongIntervalSet}.
+ */
+public class LongIntervalSetTest {
+
+    @Test
+    public void testAddMergesOverlappingAndAdjacentIntervals() {
+        LongIntervalSet set = new LongIntervalSet()
+                .add(10, 12)
+                .add(20, 25)
+                .add(13, 14)
+                .add(24, 30)
+                .add(1, 1)
+                .add(5, 4);
+
+        assertEquals("[1, 10-14, 20-30]", set.toString());
+        assertEquals(3, set.getIntervalCount());
+        assertEquals(1 + 5 + 11, set.size());
+
+        set.add(2, 19);
+        assertEquals("[1-30]", set.toString());
+        assertEquals(30, set.size());
+    }
+
+    @Test
+    public void testRemoveSplitsIntervals() {
+        LongIntervalSet set = new LongIntervalSet().add(1, 10).add(20, 30);
+
+        set.remove(5, 5);
+        assertEquals("[1-4, 6-10, 20-30]", set.toString());
+        set.remove(8, 22);
+        assertEquals("[1-4, 6-7, 23-30]", set.toString());
+        set.remove(0, 100);
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    public void testContains() {
+        LongIntervalSet set = new LongIntervalSet().add(1, 10).add(20, 30);
+
+        assertTrue(set.contains(1));
+        assertTrue(set.contains(30));
+        assertFalse(set.contains(15));
+        assertTrue(set.containsAll(22, 28));
+        assertFalse(set.containsAll(5, 25));
+        assertTrue(set.containsAll(new LongIntervalSet().add(2, 3).add(25, 25)));
+        assertFalse(set.containsAll(new LongIntervalSet().add(2, 3).add(11, 11)));
+        assertTrue(set.containsAll(new LongIntervalSet()));
+    }
+
+    @Test
+    public void testValuesBeyondIntegerRange() {
+        long base = Integer.MAX_VALUE;
+        LongIntervalSet set = new LongIntervalSet().add(base, base + 10);
+
+        assertTrue(set.contains(base + 10));
+        assertEquals(
+                Arrays.asList(Range.newBuilder().setBegin(base).setEnd(base + 10).build()),
+                set.toRanges());
+    }
+
+    @Test
+    public void testRangesRoundTrip() {
+        List<Range> ranges = Arrays.asList(getRange(5, 7), getRange(1, 3), getRange(2, 4));
+        LongIntervalSet set = LongIntervalSet.fromRanges(ranges);
+
+        assertEquals(Arrays.asList(getRange(1, 7)), set.toRanges());
+        assertEquals(set, LongIntervalSet.fromRanges(set.toRanges()));
+        assertEquals(set.hashCode(), new LongIntervalSet(set).hashCode());
+    }
+
+    @Test
+    public void testClaimFirst() {
+        LongIntervalSet set = new LongIntervalSet().add(5, 6).add(10, 20);
+
+        assertFalse(set.claim(7));
+        assertTrue(set.claim(15));
+        assertEquals(5, set.claimFirst().getAsLong());
+        assertEquals("[6, 10-14, 16-20]", set.toString());
+
+        LongIntervalSet claimed = set.claimFirst(7).get();
+        assertEquals("[6, 10-14, 16]", claimed.toString());
+        assertEquals("[17-20]", set.toString());
+
+        assertFalse(set.claimFirst(5).isPresent());
+        assertEquals(4, set.size());
+        assertTrue(set.claimFirst(4).isPresent());
+        assertFalse(set.claimFirst().isPresent());
+    }
+
+    @Test
+    public void testClaimRandomFit() {
+        LongIntervalSet original = new LongIntervalSet().add(1, 3).add(10, 12).add(100, 100);
+        LongIntervalSet set = new LongIntervalSet(original);
+        Random random = new Random(1234);
+
+        LongIntervalSet claimed = set.claim(4, LongIntervalSet.AllocationPolicy.RANDOM_FIT, random).get();
+        assertEquals(4, claimed.size());
+        assertEquals(3, set.size());
+        assertTrue(original.containsAll(claimed));
+        assertEquals(original, new LongIntervalSet(set).addAll(claimed));
+
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 200; ++i) {
+            seen.add(new LongIntervalSet(original)
+                    .claim(LongIntervalSet.AllocationPolicy.RANDOM_FIT, random).getAsLong());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L, 10L, 11L, 12L, 100L)), seen);
+    }
+
+    @Test
+    public void testValuesAtLongLimits() {
+        LongIntervalSet set = new LongIntervalSet()
+                .add(Long.MAX_VALUE - 5, Long.MAX_VALUE)
+                .add(Long.MIN_VALUE, Long.MIN_VALUE + 3)
+                .add(Long.MAX_VALUE - 10, Long.MAX_VALUE - 6);
+        assertEquals(2, set.getIntervalCount());
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertTrue(set.contains(Long.MIN_VALUE));
+
+        set.remove(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+        assertFalse(set.contains(Long.MAX_VALUE));
+        assertTrue(set.containsAll(Long.MAX_VALUE - 10, Long.MAX_VALUE - 2));
+        assertEquals(4 + 9, set.size());
+    }
+
+    @Test
+    public void testRandomOperationsMatchValueSet() {
+        Random random = new Random(5678);
+        LongIntervalSet set = new LongIntervalSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 5000; ++i) {
+            long begin = random.nextInt(1000);
+            long end = begin + random.nextInt(20) - 2;
+            switch (random.nextInt(4)) {
+            case 0:
+            case 1:
+                set.add(begin, end);
+                for (long value = begin; value <= end; ++value) {
+                    expected.add(value);
+                }
+                break;
+            case 2:
+                set.remove(begin, end);
+                for (long value = begin; value <= end; ++value) {
+                    expected.remove(value);
+                }
+                break;
+            default:
+                LongIntervalSet.AllocationPolicy policy = random.nextBoolean()
+                        ? LongIntervalSet.AllocationPolicy.FIRST_FIT
+                        : LongIntervalSet.AllocationPolicy.RANDOM_FIT;
+                Optional<LongIntervalSet> claimed = set.claim(random.nextInt(10), policy, random);
+                if (claimed.isPresent()) {
+                    for (Range range : claimed.get().toRanges()) {
+                        for (long value = range.getBegin(); value <= range.getEnd(); ++value) {
+                            assertTrue(expected.remove(value));
+                        }
+                    }
+                }
+                break;
+            }
+            assertEquals(expected.size(), set.size());
+            if (i % 100 == 0) {
+                assertEquals(toSet(expected), set);
+            }
+        }
+        assertEquals(toSet(expected), set);
+    }
+
+    @Test
+    public void testClaimManyPortsFromFragmentedRanges() {
+        // Every other port is available, so each claim splits or removes an interval:
+        LongIntervalSet set = new LongIntervalSet();
+        for (long port = 1025; port < 65535; port += 2) {
+            set.add(port, port);
+        }
+        assertEquals(32255, set.getIntervalCount());
+
+        Random random = new Random(42);
+        LongIntervalSet claimed = new LongIntervalSet();
+        for (int i = 0; i < 100; ++i) {
+            claimed.addAll(set.claimFirst(50).get());
+            // Also claim a specific port from the upper half of the range, and a random port:
+            long port = 40001 + 2 * i;
+            assertTrue(set.claim(port));
+            claimed.add(port, port);
+            port = set.claim(LongIntervalSet.AllocationPolicy.RANDOM_FIT, random).getAsLong();
+            claimed.add(port, port);
+        }
+        assertEquals(32255 - 100 * 52, set.getIntervalCount());
+        assertEquals(set.getIntervalCount(), set.size());
+        assertEquals(100 * 52, claimed.size());
+        // The lowest ports were all claimed by first fit:
+        assertFalse(set.contains(1025));
+        assertTrue(claimed.containsAll(new LongIntervalSet().add(1025, 1025).add(1027, 1027)));
+        for (Range range : claimed.toRanges()) {
+            assertFalse(set.containsAll(range.getBegin(), range.getBegin()));
+        }
+    }
+
+    private static LongIntervalSet toSet(Collection<Long> values) {
+        LongIntervalSet set = new LongIntervalSet();
+        for (long value : values) {
+            set.add(value, value);
+        }
+        return set;
+    }
+
+    private static Range getRange(long begin, long end) {
+        return Range.newBuilder().setBegin(begin).setEnd(end).build();
+    }
+}
@@ -121,4 +121,80 @@ public class MesosResourcePoolTest extends DefaultCapabilitiesTestSuite {
         Assert.assertTrue(map != null);
         Assert.assertTrue(map.isEmpty());
     }
+
+    @Test
+    public void testConsumptionIsNotSharedBetweenPoolsForSameOffer() {
+        Resource cpus = ResourceTestUtils.getUnreservedCpus(2.0);
+        Resource ports = ResourceTestUtils.getUnreservedPorts(10000, 10005);
+        Resource mountVolume = ResourceTestUtils.getUnreservedMountVolume(1000);
+        Resource reservedMem = ResourceTestUtils.getReservedMem(64, TestConstants.RESOURCE_ID);
+        Offer offer = OfferTestUtils.getOffer(Arrays.asList(cpus, ports, mountVolume, reservedMem));
+
+        MesosResourcePool pool = new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE));
+        pool.consumeReservableMerged(cpus.getName(), ValueUtils.getValue(cpus), Constants.ANY_ROLE).get();
+        pool.consumeReservableMerged(ports.getName(), ValueUtils.getValue(
+                ResourceTestUtils.getUnreservedPorts(10000, 10002)), Constants.ANY_ROLE).get();
+        pool.consumeAtomic(mountVolume.getName(), ValueUtils.getValue(mountVolume)).get();
+        pool.consumeReserved(reservedMem.getName(), ValueUtils.getValue(reservedMem), TestConstants.RESOURCE_ID).get();
+
+        Assert.assertEquals(0.0, pool.getUnreservedMergedPool().get("cpus").getScalar().getValue(), 0.0);
+        Assert.assertEquals(ValueUtils.getValue(ResourceTestUtils.getUnreservedPorts(10003, 10005)),
+                pool.getUnreservedMergedPool().get("ports"));
+        Assert.assertTrue(pool.getUnreservedAtomicPool().isEmpty());
+        Assert.assertTrue(pool.getDynamicallyReservedPoolByResourceId().isEmpty());
+
+        // A later pool for the same offer starts with all of the offered resources:
+        MesosResourcePool otherPool = new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE));
+        Assert.assertEquals(2.0, otherPool.getUnreservedMergedPool().get("cpus").getScalar().getValue(), 0.0);
+        Assert.assertEquals(ValueUtils.getValue(ports), otherPool.getUnreservedMergedPool().get("ports"));
+        Assert.assertEquals(1, otherPool.getUnreservedAtomicPool().get("disk").size());
+        Assert.assertEquals(1, otherPool.getDynamicallyReservedPoolByResourceId().size());
+
+        // Freeing resources in one pool doesn't affect the other:
+        otherPool.free(new MesosResource(mountVolume));
+        otherPool.free(new MesosResource(ResourceTestUtils.getUnreservedCpus(1.0)));
+        Assert.assertEquals(2, otherPool.getUnreservedAtomicPool().get("disk").size());
+        Assert.assertEquals(3.0, otherPool.getUnreservedMergedPool().get("cpus").getScalar().getValue(), 0.0);
+        Assert.assertTrue(pool.getUnreservedAtomicPool().isEmpty());
+        Assert.assertEquals(2.0, new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE))
+                .getUnreservedMergedPool().get("cpus").getScalar().getValue(), 0.0);
+    }
+
+    @Test
+    public void testScalarsAreAdjustedAcrossConsumeAndFree() {
+        Resource cpus = ResourceTestUtils.getUnreservedCpus(2.0);
+        Offer offer = OfferTestUtils.getOffer(cpus);
+        MesosResourcePool pool = new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE));
+
+        pool.consumeReservableMerged(cpus.getName(), ValueUtils.getValue(ResourceTestUtils.getUnreservedCpus(1.5)),
+                Constants.ANY_ROLE).get();
+        Assert.assertFalse(pool.consumeReservableMerged(cpus.getName(),
+                ValueUtils.getValue(ResourceTestUtils.getUnreservedCpus(1.0)), Constants.ANY_ROLE).isPresent());
+        Assert.assertEquals(0.5, pool.getUnreservedMergedPool().get("cpus").getScalar().getValue(), 0.0);
+
+        // Freed scalars are available to be consumed again, including resources which weren't in the offer:
+        pool.free(new MesosResource(ResourceTestUtils.getUnreservedCpus(0.5)));
+        pool.free(new MesosResource(ResourceTestUtils.getUnreservedMem(64)));
+        Assert.assertEquals(1.0, pool.getUnreservedMergedPool().get("cpus").getScalar().getValue(), 0.0);
+        Assert.assertEquals(64, pool.getReservableMergedPoolByRole()
+                .get(Constants.ANY_ROLE).get("mem").getScalar().getValue(), 0.0);
+        Assert.assertTrue(pool.consumeReservableMerged("mem",
+                ValueUtils.getValue(ResourceTestUtils.getUnreservedMem(64)), Constants.ANY_ROLE).isPresent());
+        Assert.assertEquals(0.0, pool.getUnreservedMergedPool().get("mem").getScalar().getValue(), 0.0);
+    }
+
+    @Test
+    public void testPoolsForSameOfferWithDifferentRoles() {
+        Resource resource = ResourceTestUtils.getUnreservedCpus(1.0).toBuilder()
+                .setAllocationInfo(Resource.AllocationInfo.newBuilder().setRole("other-role"))
+                .build();
+        Offer offer = OfferTestUtils.getOffer(resource);
+
+        Assert.assertTrue(new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE))
+                .getUnreservedMergedPool().isEmpty());
+        Assert.assertEquals(1, new MesosResourcePool(offer, Optional.of("other-role"))
+                .getUnreservedMergedPool().size());
+        Assert.assertEquals(1, new MesosResourcePool(offer, Optional.empty())
+                .getUnreservedMergedPool().size());
+    }
 }
@@ -82,6 +82,26 @@ public class OfferAccepterTest {
                 anyObject());
     }
 
+    @Test
+    public void testAcceptCoalescedOffer() {
+        Resource resource = ResourceTestUtils.getUnreservedCpus(1.0);
+        Offer offer = OfferTestUtils.getCompleteOffer(resource);
+        Offer otherOffer = offer.toBuilder().setId(OfferID.newBuilder().setValue("other-offer")).build();
+        List<Offer> coalescedOffers = OfferUtils.coalesceByAgent(Arrays.asList(offer, otherOffer));
+        Assert.assertEquals(1, coalescedOffers.size());
+
+        OfferAccepter accepter = new OfferAccepter(Arrays.asList(new TestOperationRecorder()));
+        List<OfferID> acceptedOfferIds = accepter.accept(
+                driver,
+                Arrays.asList(new ReserveOfferRecommendation(
+                        coalescedOffers.get(0), ResourceTestUtils.getUnreservedCpus(2.0))));
+        Assert.assertEquals(Arrays.asList(offer.getId(), otherOffer.getId()), acceptedOfferIds);
+        verify(driver, times(1)).acceptOffers(
+                eq(Arrays.asList(offer.getId(), otherOffer.getId())),
+                anyCollectionOf(Operation.class),
+                anyObject());
+    }
+
     public static class TestOperationRecorder implements OperationRecorder {
         private List<Operation> reserves = new ArrayList<>();
         private List<Operation> unreserves = new ArrayList<>();
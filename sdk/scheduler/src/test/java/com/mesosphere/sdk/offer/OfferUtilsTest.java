@@ -13,6 +13,7 @@ import org.mockito.MockitoAnnotations;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.mockito.Matchers.any;
@@ -80,6 +81,45 @@ public class OfferUtilsTest {
         verify(mockSchedulerDriver).declineOffer(eq(offerIds.get(1)), any());
     }
 
+    @Test
+    public void testCoalesceByAgent() {
+        final List<Protos.Offer> offers = getOffers(SUFFICIENT_CPUS, SUFFICIENT_MEM, SUFFICIENT_DISK);
+        final Protos.Offer otherAgentOffer = Protos.Offer.newBuilder(offers.get(0))
+                .setId(Protos.OfferID.newBuilder().setValue("other-agent-offer"))
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("other-agent"))
+                .build();
+        offers.add(otherAgentOffer);
+
+        final List<Protos.Offer> coalescedOffers = OfferUtils.coalesceByAgent(offers);
+        Assert.assertEquals(2, coalescedOffers.size());
+
+        final Protos.Offer coalescedOffer = coalescedOffers.get(0);
+        Assert.assertEquals(offers.get(0).getId(), coalescedOffer.getId());
+        Assert.assertEquals(
+                offers.get(0).getResourcesCount() + offers.get(1).getResourcesCount(),
+                coalescedOffer.getResourcesCount());
+        Assert.assertEquals(
+                Arrays.asList(offers.get(0).getId(), offers.get(1).getId()),
+                OfferFacts.of(coalescedOffer).getOfferIds());
+        Assert.assertEquals(
+                2 * SUFFICIENT_CPUS,
+                new MesosResourcePool(coalescedOffer, Optional.of(Constants.ANY_ROLE))
+                        .getUnreservedMergedPool().get("cpus").getScalar().getValue(),
+                0.0);
+
+        // An agent with a single offer keeps its original offer:
+        Assert.assertSame(otherAgentOffer, coalescedOffers.get(1));
+        Assert.assertEquals(
+                Arrays.asList(offers.get(0).getId(), offers.get(1).getId(), otherAgentOffer.getId()),
+                OfferUtils.getOriginalOfferIds(coalescedOffers));
+    }
+
+    @Test
+    public void testCoalesceByAgentDistinctAgents() {
+        final List<Protos.Offer> offers = getOffers(SUFFICIENT_CPUS, SUFFICIENT_MEM, SUFFICIENT_DISK).subList(0, 1);
+        Assert.assertSame(offers, OfferUtils.coalesceByAgent(offers));
+    }
+
     private List<Protos.Offer> getOffers(double cpus, double mem, double disk) {
         final ArrayList<Protos.Offer> offers = new ArrayList<>();
         offers.addAll(OfferTestUtils.getOffers(
@@ -0,0 +1,86 @@
+package com.mesosphere.sdk.offer.evaluate;
+
+import com.mesosphere.sdk.scheduler.plan.PodInstanceRequirement;
+import com.mesosphere.sdk.scheduler.plan.PodInstanceRequirementTestUtils;
+import com.mesosphere.sdk.testutils.OfferTestUtils;
+import com.mesosphere.sdk.testutils.ResourceTestUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+import org.apache.mesos.Protos;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tests for {@link AggregateResourceFilter}.
+ */
+public class AggregateResourceFilterTest {
+
+    @Test
+    public void testScalarsAreSummedAcrossRolesAndReservations() {
+        AggregateResourceFilter filter =
+                AggregateResourceFilter.create(PodInstanceRequirementTestUtils.getCpuRequirement(1.0));
+
+        assertShortfall(filter, "cpus", ResourceTestUtils.getUnreservedCpus(0.9));
+        assertPasses(filter, ResourceTestUtils.getUnreservedCpus(1.0));
+        assertPasses(filter,
+                ResourceTestUtils.getUnreservedCpus(0.3),
+                ResourceTestUtils.getUnreservedCpus(0.3, "slave_public"),
+                ResourceTestUtils.getReservedCpus(0.4, TestConstants.RESOURCE_ID));
+        // Rounding errors don't reject offers:
+        assertPasses(filter, ResourceTestUtils.getUnreservedCpus(0.1), ResourceTestUtils.getUnreservedCpus(0.9 - 1e-9));
+    }
+
+    @Test
+    public void testMountVolumesAreCounted() {
+        AggregateResourceFilter filter =
+                AggregateResourceFilter.create(PodInstanceRequirementTestUtils.getMountVolumeRequirement(1.0, 1000));
+
+        // Enough disk in total, but no MOUNT volume:
+        assertShortfall(filter, "mount_volumes",
+                ResourceTestUtils.getUnreservedCpus(1.0), ResourceTestUtils.getUnreservedDisk(5000));
+        assertShortfall(filter, "disk",
+                ResourceTestUtils.getUnreservedCpus(1.0), ResourceTestUtils.getUnreservedMountVolume(500));
+        assertPasses(filter,
+                ResourceTestUtils.getUnreservedCpus(1.0), ResourceTestUtils.getUnreservedMountVolume(2000));
+    }
+
+    @Test
+    public void testHostPortsAreCounted() {
+        Map<String, Integer> envPorts = new HashMap<>();
+        envPorts.put("DYNAMIC_A", 0);
+        envPorts.put("DYNAMIC_B", 0);
+        envPorts.put("STATIC", 8080);
+        AggregateResourceFilter filter =
+                AggregateResourceFilter.create(PodInstanceRequirementTestUtils.getPortRequirement(envPorts));
+
+        assertShortfall(filter, "ports", ResourceTestUtils.getUnreservedPorts(8080, 8081));
+        assertPasses(filter, ResourceTestUtils.getUnreservedPorts(8080, 8082));
+        assertPasses(filter, ResourceTestUtils.getUnreservedPorts(1, 1), ResourceTestUtils.getUnreservedPorts(5, 6));
+    }
+
+    @Test
+    public void testOnlyTasksToLaunchAreCounted() {
+        PodInstanceRequirement requirement = PodInstanceRequirementTestUtils.getCpuRequirement(5.0);
+        requirement = PodInstanceRequirement.newBuilder(requirement.getPodInstance(), Arrays.asList()).build();
+
+        assertPasses(AggregateResourceFilter.create(requirement), ResourceTestUtils.getUnreservedMem(1));
+    }
+
+    private static void assertShortfall(
+            AggregateResourceFilter filter, String expectedResourceName, Protos.Resource... resources) {
+        Optional<AggregateResourceFilter.Shortfall> shortfall =
+                filter.getShortfall(OfferTestUtils.getOffer(Arrays.asList(resources)));
+        Assert.assertTrue(shortfall.isPresent());
+        Assert.assertEquals(shortfall.toString(), expectedResourceName, shortfall.get().getResourceName());
+    }
+
+    private static void assertPasses(AggregateResourceFilter filter, Protos.Resource... resources) {
+        Optional<AggregateResourceFilter.Shortfall> shortfall =
+                filter.getShortfall(OfferTestUtils.getOffer(Arrays.asList(resources)));
+        Assert.assertFalse(shortfall.toString(), shortfall.isPresent());
+    }
+}
@@ -0,0 +1,167 @@
+package com.mesosphere.sdk.offer.evaluate;
+
+import com.mesosphere.sdk.offer.OfferRecommendation;
+import com.mesosphere.sdk.offer.history.OfferOutcomeTracker;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
+import com.mesosphere.sdk.scheduler.Metrics;
+import com.mesosphere.sdk.scheduler.SchedulerConfig;
+import com.mesosphere.sdk.scheduler.plan.PodInstanceRequirementTestUtils;
+import com.mesosphere.sdk.testutils.OfferTestUtils;
+import com.mesosphere.sdk.testutils.ResourceTestUtils;
+import com.mesosphere.sdk.testutils.SchedulerConfigTestUtils;
+import com.mesosphere.sdk.testutils.TaskTestUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+import org.apache.mesos.Protos;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the offer selection policies and the aggregate resource filter in {@link OfferEvaluator}.
+ */
+public class OfferEvaluatorSelectionTest extends OfferEvaluatorTestBase {
+
+    private OfferOutcomeTracker offerOutcomeTracker;
+
+    @Test
+    public void testFirstFitSelectsFirstPassingOffer() throws Exception {
+        useSelectionPolicy(OfferSelectionPolicy.FIRST_FIT);
+        Assert.assertEquals("offer-1", evaluateCpuOffers(0.5, 1.5, 4.0, 1.0));
+        // Evaluation stopped at the first passing offer, after the first offer was skipped:
+        JSONArray outcomes = getOutcomes();
+        Assert.assertEquals(2, outcomes.length());
+        Assert.assertEquals("", outcomes.getJSONObject(0).getString("selection"));
+    }
+
+    @Test
+    public void testBestFitSelectsFullestOffer() throws Exception {
+        useSelectionPolicy(OfferSelectionPolicy.BEST_FIT);
+        Assert.assertEquals("offer-3", evaluateCpuOffers(0.5, 1.5, 4.0, 1.0));
+
+        JSONArray outcomes = getOutcomes();
+        Assert.assertEquals(4, outcomes.length());
+        // Most recent outcomes are listed first:
+        Assert.assertTrue(outcomes.getJSONObject(0).getString("selection").endsWith(": selected"));
+        Assert.assertTrue(outcomes.getJSONObject(1).getString("selection").endsWith(": not selected"));
+        Assert.assertTrue(outcomes.getJSONObject(1).getString("selection").startsWith("BEST_FIT score "));
+    }
+
+    @Test
+    public void testOnlySelectedOfferRunsAllStages() throws Exception {
+        useSelectionPolicy(OfferSelectionPolicy.BEST_FIT);
+        Assert.assertEquals("offer-1", evaluateCpuOffers(4.0, 1.5));
+
+        // Other offers are only scored, without running stages such as launch or TLS:
+        JSONArray outcomes = getOutcomes();
+        Assert.assertEquals(2, outcomes.length());
+        Assert.assertTrue(outcomes.getJSONObject(0).getString("selection").endsWith(": selected"));
+        Assert.assertTrue(outcomes.getJSONObject(0).getString("explanation").contains("LaunchEvaluationStage"));
+        Assert.assertTrue(outcomes.getJSONObject(1).getString("selection").endsWith(": not selected"));
+        Assert.assertFalse(outcomes.getJSONObject(1).getString("explanation").contains("LaunchEvaluationStage"));
+    }
+
+    @Test
+    public void testWorstFitSelectsEmptiestOffer() throws Exception {
+        useSelectionPolicy(OfferSelectionPolicy.WORST_FIT);
+        Assert.assertEquals("offer-2", evaluateCpuOffers(0.5, 1.5, 4.0, 1.0));
+    }
+
+    @Test
+    public void testTiesSelectEarliestOffer() throws Exception {
+        useSelectionPolicy(OfferSelectionPolicy.BEST_FIT);
+        Assert.assertEquals("offer-0", evaluateCpuOffers(2.0, 2.0, 2.0));
+    }
+
+    @Test
+    public void testSpreadByZoneSelectsLeastUsedZone() throws Exception {
+        useSelectionPolicy(OfferSelectionPolicy.SPREAD_BY_ZONE);
+        stateStore.storeTasks(Arrays.asList(
+                getTask(1, "zone-a"), getTask(2, "zone-b"), getTask(3, "zone-a"), getTask(4, "zone-c")));
+
+        List<Protos.Offer> offers = Arrays.asList(
+                getOffer(0, 2.0, "zone-a"), getOffer(1, 2.0, "zone-b"), getOffer(2, 2.0, "zone-c"));
+        List<OfferRecommendation> recommendations =
+                evaluator.evaluate(PodInstanceRequirementTestUtils.getCpuRequirement(1.0, 0), offers);
+        Assert.assertEquals("offer-1", recommendations.get(0).getOffer().getId().getValue());
+    }
+
+    @Test
+    public void testInsufficientOffersAreSkipped() throws Exception {
+        useSelectionPolicy(OfferSelectionPolicy.FIRST_FIT);
+        long cpuSkips = getCount("offers.prefilter.skips.cpus");
+        long passes = getCount("offers.prefilter.passes");
+        List<OfferRecommendation> recommendations = evaluator.evaluate(
+                PodInstanceRequirementTestUtils.getCpuRequirement(1.0),
+                Arrays.asList(OfferTestUtils.getOffer(ResourceTestUtils.getUnreservedMem(1024))));
+        Assert.assertTrue(recommendations.isEmpty());
+
+        JSONObject outcome = getOutcomes().getJSONObject(0);
+        Assert.assertEquals("fail", outcome.getString("outcome"));
+        Assert.assertEquals(
+                "Offer has 0.0 total cpus, while the pod requires at least 1.0", outcome.getString("explanation"));
+
+        Assert.assertEquals(cpuSkips + 1, getCount("offers.prefilter.skips.cpus"));
+        Assert.assertEquals(passes, getCount("offers.prefilter.passes"));
+    }
+
+    private static long getCount(String counterName) {
+        return Metrics.getRegistry().counter(counterName).getCount();
+    }
+
+    private void useSelectionPolicy(OfferSelectionPolicy policy) {
+        SchedulerConfig schedulerConfig = SchedulerConfigTestUtils.getTestSchedulerConfig();
+        when(schedulerConfig.getOfferSelectionPolicy()).thenReturn(policy);
+        offerOutcomeTracker = new OfferOutcomeTracker();
+        evaluator = new OfferEvaluator(
+                stateStore, offerOutcomeTracker, TestConstants.SERVICE_NAME, targetConfig, schedulerConfig, true);
+    }
+
+    /**
+     * Evaluates a pod requiring 1.0 cpus against offers with the provided amounts of cpus, returning the selected offer.
+     */
+    private String evaluateCpuOffers(double... cpus) throws Exception {
+        Protos.Offer[] offers = new Protos.Offer[cpus.length];
+        for (int i = 0; i < cpus.length; ++i) {
+            offers[i] = getOffer(i, cpus[i], null);
+        }
+        List<OfferRecommendation> recommendations =
+                evaluator.evaluate(PodInstanceRequirementTestUtils.getCpuRequirement(1.0), Arrays.asList(offers));
+        Assert.assertFalse(recommendations.isEmpty());
+        return recommendations.get(0).getOffer().getId().getValue();
+    }
+
+    private JSONArray getOutcomes() {
+        return offerOutcomeTracker.toJson().getJSONArray("outcomes");
+    }
+
+    private static Protos.Offer getOffer(int index, double cpus, String zone) {
+        Protos.Offer.Builder offerBuilder = OfferTestUtils.getCompleteOffer(
+                Collections.singletonList(ResourceTestUtils.getUnreservedCpus(cpus))).toBuilder()
+                .setId(Protos.OfferID.newBuilder().setValue("offer-" + index))
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("agent-" + index))
+                .setHostname("host-" + index);
+        if (zone != null) {
+            offerBuilder.getDomainBuilder().getFaultDomainBuilder().getRegionBuilder().setName("region");
+            offerBuilder.getDomainBuilder().getFaultDomainBuilder().getZoneBuilder().setName(zone);
+        }
+        return offerBuilder.build();
+    }
+
+    private static Protos.TaskInfo getTask(int index, String zone) {
+        Protos.TaskInfo.Builder taskBuilder = TaskTestUtils.getTaskInfo(Collections.emptyList()).toBuilder()
+                .setName(String.format("%s-%d-%s", TestConstants.POD_TYPE, index, TestConstants.TASK_NAME));
+        taskBuilder.setLabels(new TaskLabelWriter(taskBuilder)
+                .setType(TestConstants.POD_TYPE)
+                .setIndex(index)
+                .setZone(Protos.DomainInfo.FaultDomain.ZoneInfo.newBuilder().setName(zone).build())
+                .toProto());
+        return taskBuilder.build();
+    }
+}
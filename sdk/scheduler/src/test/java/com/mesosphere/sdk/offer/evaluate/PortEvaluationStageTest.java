@@ -507,4 +507,77 @@ public class PortEvaluationStageTest extends DefaultCapabilitiesTestSuite {
         outcome = portEvaluationStage.evaluate(mesosResourcePool, podInfoBuilder);
         Assert.assertEquals(true, outcome.isPassing());
     }
+
+    @Test
+    public void testDynamicPortIsNeverZero() throws Exception {
+        // Port 0 requests a dynamic port, so it must not be assigned even when the offer includes it.
+        Protos.Offer offer = OfferTestUtils.getOffer(ResourceTestUtils.getUnreservedPorts(0, 5));
+
+        PortSpec portSpec = new PortSpec(
+                getPort(0),
+                TestConstants.ROLE,
+                Constants.ANY_ROLE,
+                TestConstants.PRINCIPAL,
+                "PORT_TEST",
+                "TEST",
+                TestConstants.PORT_VISIBILITY,
+                Collections.emptyList());
+        PodInfoBuilder podInfoBuilder = getPodInfoBuilder(getPodInstanceRequirement(portSpec), true);
+
+        PortEvaluationStage portEvaluationStage = new PortEvaluationStage(portSpec,
+                TestConstants.TASK_NAME,
+                Optional.empty());
+        MesosResourcePool mesosResourcePool = new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE));
+        EvaluationOutcome outcome = portEvaluationStage.evaluate(mesosResourcePool, podInfoBuilder);
+        Assert.assertTrue(outcome.isPassing());
+
+        Protos.TaskInfo.Builder taskBuilder = podInfoBuilder.getTaskBuilder(TestConstants.TASK_NAME);
+        checkDiscoveryInfo(taskBuilder.getDiscovery(), "TEST", 1);
+
+        // An offer of only port 0 has no port which may be assigned:
+        offer = OfferTestUtils.getOffer(ResourceTestUtils.getUnreservedPorts(0, 0));
+        podInfoBuilder = getPodInfoBuilder(getPodInstanceRequirement(portSpec), true);
+        mesosResourcePool = new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE));
+        outcome = portEvaluationStage.evaluate(mesosResourcePool, podInfoBuilder);
+        Assert.assertFalse(outcome.isPassing());
+    }
+
+    @Test
+    public void testDynamicPortsAreClaimedTogether() throws Exception {
+        Protos.Offer offer = OfferTestUtils.getOffer(ResourceTestUtils.getUnreservedPorts(10000, 10005));
+
+        PortSpec firstPortSpec = getHostPortSpec(0, "PORT_FIRST", "first");
+        PortSpec explicitPortSpec = getHostPortSpec(10001, "PORT_EXPLICIT", "explicit");
+        PortSpec secondPortSpec = getHostPortSpec(0, "PORT_SECOND", "second");
+        PodInfoBuilder podInfoBuilder = getPodInfoBuilder(
+                getPodInstanceRequirement(firstPortSpec, explicitPortSpec, secondPortSpec), true);
+        MesosResourcePool mesosResourcePool = new MesosResourcePool(offer, Optional.of(Constants.ANY_ROLE));
+
+        EvaluationOutcome outcome = new PortEvaluationStage(firstPortSpec, TestConstants.TASK_NAME, Optional.empty())
+                .evaluate(mesosResourcePool, podInfoBuilder);
+        Assert.assertTrue(outcome.isPassing());
+        // Ports were claimed for both dynamic ports, skipping the explicit port:
+        Assert.assertEquals("[10002]", podInfoBuilder.getClaimedDynamicPorts().get().toString());
+
+        outcome = new PortEvaluationStage(secondPortSpec, TestConstants.TASK_NAME, Optional.empty())
+                .evaluate(mesosResourcePool, podInfoBuilder);
+        Assert.assertTrue(outcome.isPassing());
+        Assert.assertTrue(podInfoBuilder.getClaimedDynamicPorts().get().isEmpty());
+
+        Protos.TaskInfo.Builder taskBuilder = podInfoBuilder.getTaskBuilder(TestConstants.TASK_NAME);
+        checkDiscoveryInfo(taskBuilder.getDiscovery(), "first", 10000);
+        checkDiscoveryInfo(taskBuilder.getDiscovery(), "second", 10002);
+    }
+
+    private PortSpec getHostPortSpec(int port, String envKey, String portName) {
+        return new PortSpec(
+                getPort(port),
+                TestConstants.ROLE,
+                Constants.ANY_ROLE,
+                TestConstants.PRINCIPAL,
+                envKey,
+                portName,
+                TestConstants.PORT_VISIBILITY,
+                Collections.emptyList());
+    }
 }
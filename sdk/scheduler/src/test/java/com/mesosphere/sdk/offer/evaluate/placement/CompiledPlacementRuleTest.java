@@ -0,0 +1,191 @@
+package com.mesosphere.sdk.offer.evaluate.placement;
+
+import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
+import com.mesosphere.sdk.specification.PodInstance;
+import com.mesosphere.sdk.testutils.OfferTestUtils;
+import com.mesosphere.sdk.testutils.PodTestUtils;
+import com.mesosphere.sdk.testutils.TaskTestUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+import org.apache.mesos.Protos.Attribute;
+import org.apache.mesos.Protos.DomainInfo;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.SlaveID;
+import org.apache.mesos.Protos.TaskInfo;
+import org.apache.mesos.Protos.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for {@link CompiledPlacementRule}, which must produce the same outcomes as the rules it was compiled from.
+ */
+public class CompiledPlacementRuleTest {
+
+    private static final int AGENT_COUNT = 6;
+
+    private static final List<Offer> OFFERS = new ArrayList<>();
+    static {
+        for (int i = 0; i < AGENT_COUNT; ++i) {
+            OFFERS.add(getOffer(i));
+        }
+    }
+
+    private static final List<PodInstance> POD_INSTANCES =
+            Arrays.asList(PodTestUtils.getPodInstance(0), PodTestUtils.getPodInstance(1));
+
+    private static final List<TaskInfo> TASKS =
+            Arrays.asList(getTask(0, 0), getTask(1, 1), getTask(2, 1), getTask(3, 4));
+
+    @Test
+    public void testRandomRulesMatchUncompiled() {
+        Random random = new Random(5678);
+        for (int i = 0; i < 200; ++i) {
+            PlacementRule rule = getRandomRule(random, 4);
+            CompiledPlacementRule compiledRule = CompiledPlacementRule.compile(rule);
+            for (Offer offer : OFFERS) {
+                for (PodInstance podInstance : POD_INSTANCES) {
+                    for (int taskCount = 0; taskCount <= TASKS.size(); taskCount += 2) {
+                        List<TaskInfo> tasks = TASKS.subList(0, taskCount);
+                        // Evaluate the compiled rule twice, to also check the outcomes which were reused:
+                        for (int j = 0; j < 2; ++j) {
+                            Assert.assertEquals(
+                                    rule.toString(),
+                                    rule.filter(offer, podInstance, tasks).toString(),
+                                    compiledRule.filter(offer, podInstance, tasks).toString());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParsedConstraintsMatchUncompiled() throws Exception {
+        PlacementRule rule = MarathonConstraintParser.parse(TestConstants.POD_TYPE,
+                "[[\"hostname\", \"MAX_PER\", \"2\"], [\"rack\", \"LIKE\", \"rack-[0-2]\"], " +
+                "[\"hostname\", \"UNLIKE\", \"host-[4-9]\"], [\"zone\", \"LIKE\", \"zone-.*\"]]");
+        CompiledPlacementRule compiledRule = CompiledPlacementRule.compile(rule);
+        for (Offer offer : OFFERS) {
+            for (PodInstance podInstance : POD_INSTANCES) {
+                Assert.assertEquals(
+                        rule.filter(offer, podInstance, TASKS).toString(),
+                        compiledRule.filter(offer, podInstance, TASKS).toString());
+            }
+        }
+    }
+
+    @Test
+    public void testOfferOnlyRulesAreEvaluatedOncePerOffer() {
+        CountingMatcher matcher = new CountingMatcher();
+        PlacementRule rule = new AndRule(
+                new NotRule(new NotRule(new HostnameRule(matcher))),
+                new MaxPerHostnameRule(1, AnyMatcher.create()));
+        CompiledPlacementRule compiledRule = CompiledPlacementRule.compile(rule);
+        Offer offer = getOffer(0);
+
+        Assert.assertTrue(compiledRule.filter(offer, POD_INSTANCES.get(0), TASKS).isPassing());
+        Assert.assertFalse(compiledRule.filter(offer, POD_INSTANCES.get(1), TASKS).isPassing());
+        // Another compilation of the same rule shares the outcome:
+        Assert.assertTrue(CompiledPlacementRule.compile(rule).filter(offer, POD_INSTANCES.get(0), TASKS).isPassing());
+        Assert.assertEquals(1, matcher.count);
+
+        // A different offer object is evaluated separately, even if it has the same content:
+        compiledRule.filter(getOffer(0), POD_INSTANCES.get(0), TASKS);
+        Assert.assertEquals(2, matcher.count);
+    }
+
+    @Test
+    public void testOtherRulesAreAlwaysEvaluated() {
+        CountingMatcher matcher = new CountingMatcher();
+        PlacementRule rule = new OrRule(
+                new MaxPerHostnameRule(1, matcher),
+                new AttributeRule(RegexMatcher.createAttribute("rack", "rack-0")));
+        CompiledPlacementRule compiledRule = CompiledPlacementRule.compile(rule);
+
+        compiledRule.filter(OFFERS.get(1), POD_INSTANCES.get(0), TASKS);
+        int count = matcher.count;
+        Assert.assertTrue(count > 0);
+        compiledRule.filter(OFFERS.get(1), POD_INSTANCES.get(0), TASKS);
+        Assert.assertEquals(2 * count, matcher.count);
+    }
+
+    private static PlacementRule getRandomRule(Random random, int maxDepth) {
+        int choice = random.nextInt(maxDepth > 0 ? 13 : 9);
+        switch (choice) {
+        case 0:
+            return new AttributeRule(RegexMatcher.createAttribute("rack", "rack-[0-" + random.nextInt(4) + "]"));
+        case 1:
+            return new AttributeRule(ExactMatcher.createAttribute("rack", "rack-" + random.nextInt(4)));
+        case 2:
+            return new HostnameRule(RegexMatcher.create("host-[0-" + random.nextInt(AGENT_COUNT) + "]"));
+        case 3:
+            return random.nextBoolean() ? new ZoneRule(ExactMatcher.create("zone-" + random.nextInt(3)))
+                    : new RegionRule(ExactMatcher.create("region-" + random.nextInt(2)));
+        case 4:
+            return AgentRule.require("agent-" + random.nextInt(AGENT_COUNT));
+        case 5:
+            return new MaxPerHostnameRule(1 + random.nextInt(2), AnyMatcher.create());
+        case 6:
+            return random.nextBoolean() ? TaskTypeRule.avoid(TestConstants.POD_TYPE)
+                    : new RoundRobinByZoneRule(Optional.of(3), null);
+        case 7:
+            return random.nextBoolean() ? TestPlacementUtils.PASS : TestPlacementUtils.FAIL;
+        case 8:
+            return new PassthroughRule();
+        case 9:
+        case 10:
+            List<PlacementRule> rules = new ArrayList<>();
+            int ruleCount = random.nextInt(4);
+            for (int i = 0; i < ruleCount; ++i) {
+                rules.add(getRandomRule(random, maxDepth - 1));
+            }
+            return choice == 9 ? new AndRule(rules) : new OrRule(rules);
+        default:
+            return new NotRule(getRandomRule(random, maxDepth - 1));
+        }
+    }
+
+    private static TaskInfo getTask(int podIndex, int agentIndex) {
+        Offer offer = OFFERS.get(agentIndex);
+        TaskInfo.Builder taskBuilder = TaskTestUtils.getTaskInfo(Collections.emptyList()).toBuilder()
+                .setName(String.format("%s-%d-task", TestConstants.POD_TYPE, podIndex))
+                .setSlaveId(offer.getSlaveId());
+        taskBuilder.setLabels(new TaskLabelWriter(taskBuilder)
+                .setType(TestConstants.POD_TYPE)
+                .setIndex(podIndex)
+                .setHostname(offer)
+                .setZone(offer.getDomain().getFaultDomain().getZone())
+                .toProto());
+        return taskBuilder.build();
+    }
+
+    private static Offer getOffer(int agentIndex) {
+        Attribute.Builder attribute = Attribute.newBuilder()
+                .setName("rack")
+                .setType(Value.Type.TEXT);
+        attribute.getTextBuilder().setValue("rack-" + (agentIndex % 4));
+        DomainInfo.Builder domain = DomainInfo.newBuilder();
+        domain.getFaultDomainBuilder().getRegionBuilder().setName("region-" + (agentIndex % 2));
+        domain.getFaultDomainBuilder().getZoneBuilder().setName("zone-" + (agentIndex % 3));
+        return OfferTestUtils.getEmptyOfferBuilder()
+                .setSlaveId(SlaveID.newBuilder().setValue("agent-" + agentIndex))
+                .setHostname("host-" + agentIndex)
+                .addAttributes(attribute)
+                .setDomain(domain)
+                .build();
+    }
+
+    /**
+     * A {@link StringMatcher} which matches everything, and counts the number of times it's invoked.
+     */
+    private static class CountingMatcher implements StringMatcher {
+        private int count;
+
+        @Override
+        public boolean matches(String value) {
+            ++count;
+            return true;
+        }
+    }
+}
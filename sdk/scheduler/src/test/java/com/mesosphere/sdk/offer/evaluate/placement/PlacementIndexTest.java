@@ -0,0 +1,165 @@
+package com.mesosphere.sdk.offer.evaluate.placement;
+
+import com.mesosphere.sdk.offer.evaluate.EvaluationOutcome;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
+import com.mesosphere.sdk.specification.PodInstance;
+import com.mesosphere.sdk.testutils.OfferTestUtils;
+import com.mesosphere.sdk.testutils.PodTestUtils;
+import com.mesosphere.sdk.testutils.TaskTestUtils;
+import com.mesosphere.sdk.testutils.TestConstants;
+import org.apache.mesos.Protos.Attribute;
+import org.apache.mesos.Protos.DomainInfo;
+import org.apache.mesos.Protos.Offer;
+import org.apache.mesos.Protos.SlaveID;
+import org.apache.mesos.Protos.TaskInfo;
+import org.apache.mesos.Protos.Value;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for {@link PlacementIndex}, which must produce the same placement decisions as examining every task.
+ */
+public class PlacementIndexTest {
+
+    private static final int AGENT_COUNT = 8;
+    private static final int POD_COUNT = 5;
+    private static final String OTHER_POD_TYPE = "other";
+
+    private static final List<Offer> OFFERS = new ArrayList<>();
+    static {
+        for (int i = 0; i < AGENT_COUNT; ++i) {
+            OFFERS.add(getOffer(i));
+        }
+    }
+
+    private static final List<PodInstance> POD_INSTANCES = new ArrayList<>();
+    static {
+        for (int i = 0; i < POD_COUNT; ++i) {
+            POD_INSTANCES.add(PodTestUtils.getPodInstance(i));
+        }
+    }
+
+    private static final List<PlacementRule> RULES = Arrays.asList(
+            new MaxPerHostnameRule(1, AnyMatcher.create()),
+            new MaxPerHostnameRule(2, RegexMatcher.create(TestConstants.POD_TYPE + "-.*")),
+            new MaxPerZoneRule(3, AnyMatcher.create()),
+            new MaxPerRegionRule(6, AnyMatcher.create()),
+            new MaxPerAttributeRule(2, RegexMatcher.createAttribute("rack", ".*"), AnyMatcher.create()),
+            new RoundRobinByHostnameRule(Optional.of(AGENT_COUNT), AnyMatcher.create()),
+            new RoundRobinByHostnameRule(Optional.empty(), RegexMatcher.create(OTHER_POD_TYPE + "-.*")),
+            new RoundRobinByZoneRule(Optional.of(3), null),
+            new RoundRobinByRegionRule(Optional.of(2), null),
+            new RoundRobinByAttributeRule("rack", Optional.empty(), null),
+            TaskTypeRule.avoid(TestConstants.POD_TYPE),
+            TaskTypeRule.avoid(OTHER_POD_TYPE),
+            TaskTypeRule.colocateWith(OTHER_POD_TYPE),
+            new AndRule(new MaxPerZoneRule(2, AnyMatcher.create()), TaskTypeRule.colocateWith(OTHER_POD_TYPE)));
+
+    @Test
+    public void testRandomUpdatesMatchScan() {
+        Random random = new Random(4321);
+        PlacementIndex index = new PlacementIndex();
+        Map<String, TaskInfo> tasks = new TreeMap<>();
+        for (int update = 0; update < 300; ++update) {
+            if (tasks.isEmpty() || random.nextInt(4) != 0) {
+                // Add a task, or relaunch an existing task on another agent:
+                String podType = random.nextBoolean() ? TestConstants.POD_TYPE : OTHER_POD_TYPE;
+                TaskInfo task = getTask(
+                        podType, random.nextInt(POD_COUNT), random.nextInt(2), random.nextInt(AGENT_COUNT));
+                tasks.put(task.getName(), task);
+                index.addTask(task);
+            } else {
+                String taskName = new ArrayList<>(tasks.keySet()).get(random.nextInt(tasks.size()));
+                tasks.remove(taskName);
+                index.removeTask(taskName);
+            }
+
+            if (update % 10 == 0) {
+                assertMatchesScan(index, tasks.values());
+            }
+        }
+        assertMatchesScan(index, tasks.values());
+
+        index.clear();
+        tasks.clear();
+        assertMatchesScan(index, tasks.values());
+    }
+
+    @Test
+    public void testStaleTasksFallBackToScan() {
+        PlacementIndex index = new PlacementIndex();
+        TaskInfo task = getTask(OTHER_POD_TYPE, 0, 0, 0);
+        index.addTask(task);
+        Collection<TaskInfo> staleTasks = index.wrap(Arrays.asList(task));
+        index.removeTask(task.getName());
+
+        PlacementRule rule = TaskTypeRule.avoid(OTHER_POD_TYPE);
+        Assert.assertFalse(rule.filter(OFFERS.get(0), POD_INSTANCES.get(0), staleTasks).isPassing());
+        Assert.assertTrue(rule.filter(
+                OFFERS.get(0), POD_INSTANCES.get(0), index.wrap(Collections.emptyList())).isPassing());
+    }
+
+    @Test
+    public void testEquivalentTasksAreOmittedAndRestored() {
+        PlacementIndex index = new PlacementIndex();
+        TaskInfo task = getTask(TestConstants.POD_TYPE, 0, 0, 0);
+        index.addTask(task);
+        Collection<TaskInfo> tasks = index.wrap(Arrays.asList(task));
+
+        PlacementRule rule = new MaxPerHostnameRule(1, AnyMatcher.create());
+        // The task is a prior version of pod 0, so it's not counted against pod 0:
+        Assert.assertTrue(rule.filter(OFFERS.get(0), POD_INSTANCES.get(0), tasks).isPassing());
+        Assert.assertFalse(rule.filter(OFFERS.get(0), POD_INSTANCES.get(1), tasks).isPassing());
+        Assert.assertTrue(rule.filter(OFFERS.get(0), POD_INSTANCES.get(0), tasks).isPassing());
+    }
+
+    private static void assertMatchesScan(PlacementIndex index, Collection<TaskInfo> tasks) {
+        Collection<TaskInfo> scannedTasks = new ArrayList<>(tasks);
+        Collection<TaskInfo> indexedTasks = index.wrap(new ArrayList<>(tasks));
+        for (PlacementRule rule : RULES) {
+            for (Offer offer : OFFERS) {
+                for (PodInstance podInstance : POD_INSTANCES) {
+                    EvaluationOutcome expected = rule.filter(offer, podInstance, scannedTasks);
+                    EvaluationOutcome actual = rule.filter(offer, podInstance, indexedTasks);
+                    String description = String.format("%s %s %s", rule, offer.getHostname(), podInstance.getName());
+                    Assert.assertEquals(description, expected.isPassing(), actual.isPassing());
+                    Assert.assertEquals(description, expected.toString(), actual.toString());
+                }
+            }
+        }
+    }
+
+    private static TaskInfo getTask(String podType, int podIndex, int taskIndex, int agentIndex) {
+        Offer offer = OFFERS.get(agentIndex);
+        TaskInfo.Builder taskBuilder = TaskTestUtils.getTaskInfo(Collections.emptyList()).toBuilder()
+                .setName(String.format("%s-%d-task%d", podType, podIndex, taskIndex))
+                .setSlaveId(offer.getSlaveId());
+        taskBuilder.setLabels(new TaskLabelWriter(taskBuilder)
+                .setType(podType)
+                .setIndex(podIndex)
+                .setHostname(offer)
+                .setOfferAttributes(offer)
+                .setZone(offer.getDomain().getFaultDomain().getZone())
+                .setRegion(offer.getDomain().getFaultDomain().getRegion())
+                .toProto());
+        return taskBuilder.build();
+    }
+
+    private static Offer getOffer(int agentIndex) {
+        Attribute.Builder attribute = Attribute.newBuilder()
+                .setName("rack")
+                .setType(Value.Type.TEXT);
+        attribute.getTextBuilder().setValue("rack-" + (agentIndex % 4));
+        DomainInfo.Builder domain = DomainInfo.newBuilder();
+        domain.getFaultDomainBuilder().getRegionBuilder().setName("region-" + (agentIndex % 2));
+        domain.getFaultDomainBuilder().getZoneBuilder().setName("zone-" + (agentIndex % 3));
+        return OfferTestUtils.getEmptyOfferBuilder()
+                .setSlaveId(SlaveID.newBuilder().setValue("agent-" + agentIndex))
+                .setHostname("host-" + agentIndex)
+                .addAttributes(attribute)
+                .setDomain(domain)
+                .build();
+    }
+}
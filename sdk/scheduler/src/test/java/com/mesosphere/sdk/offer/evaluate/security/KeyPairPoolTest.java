@@ -0,0 +1,83 @@
+package com.mesosphere.sdk.offer.evaluate.security;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link KeyPairPool}.
+ */
+public class KeyPairPoolTest {
+
+    @Test
+    public void testPoolIsFilledInBackground() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        KeyPairPool pool = new KeyPairPool(generator, 3);
+        for (int i = 0; i < 300 && pool.getAvailableCount() < 3; ++i) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(3, pool.getAvailableCount());
+
+        // Each key pair is only handed out once, whether pooled or generated on demand:
+        Set<KeyPair> keyPairs = new HashSet<>();
+        for (int i = 0; i < 10; ++i) {
+            keyPairs.add(pool.take());
+        }
+        Assert.assertEquals(10, keyPairs.size());
+    }
+
+    @Test
+    public void testDisabledPoolGeneratesOnDemand() throws Exception {
+        CountingKeyPairGenerator generator = new CountingKeyPairGenerator();
+        KeyPairPool pool = new KeyPairPool(generator, 0);
+        Thread.sleep(100);
+        Assert.assertEquals(0, generator.count.get());
+
+        Assert.assertNotNull(pool.take());
+        Assert.assertEquals(0, pool.getAvailableCount());
+        Assert.assertEquals(1, generator.count.get());
+    }
+
+    @Test
+    public void testCloseStopsFilling() throws Exception {
+        CountingKeyPairGenerator generator = new CountingKeyPairGenerator();
+        KeyPairPool pool = new KeyPairPool(generator, 2);
+        for (int i = 0; i < 300 && pool.getAvailableCount() < 2; ++i) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(2, pool.getAvailableCount());
+
+        pool.close();
+        Assert.assertEquals(0, pool.getAvailableCount());
+
+        // The pool isn't refilled, and key pairs are generated on demand:
+        Thread.sleep(500);
+        Assert.assertEquals(0, pool.getAvailableCount());
+        int generatedCount = generator.count.get();
+        Assert.assertNotNull(pool.take());
+        Assert.assertEquals(generatedCount + 1, generator.count.get());
+    }
+
+    private static class CountingKeyPairGenerator extends KeyPairGenerator {
+        private final KeyPairGenerator delegate;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private CountingKeyPairGenerator() throws Exception {
+            super("RSA");
+            delegate = KeyPairGenerator.getInstance("RSA");
+            delegate.initialize(1024);
+        }
+
+        @Override
+        public KeyPair generateKeyPair() {
+            count.incrementAndGet();
+            return delegate.generateKeyPair();
+        }
+    }
+}
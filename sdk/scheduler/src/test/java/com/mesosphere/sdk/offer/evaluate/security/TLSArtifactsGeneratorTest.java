@@ -19,6 +19,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
@@ -26,7 +27,9 @@ import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
@@ -34,7 +37,12 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TLSArtifactsGeneratorTest {
@@ -117,6 +125,130 @@ public class TLSArtifactsGeneratorTest {
         validateEncodedTrustStore(tlsArtifacts.get(TLSArtifact.TRUSTSTORE));
     }
 
+    @Test
+    public void testPrefetchedArtifactsUsed() throws Exception {
+        List<X509Certificate> chain = createValidChain();
+        X509Certificate cert = chain.get(0);
+        when(mockCAClient.sign(Matchers.<byte[]>any())).thenReturn(cert);
+        when(mockCAClient.chainWithRootCert(Matchers.<X509Certificate>any())).thenReturn(chain.subList(1, 2));
+
+        tlsArtifactsGenerator.prefetch(certificateNamesGenerator, 2);
+        // Already pending, so no more are started:
+        tlsArtifactsGenerator.prefetch(certificateNamesGenerator, 1);
+        Map<TLSArtifact, String> first = tlsArtifactsGenerator.generate(certificateNamesGenerator);
+        Map<TLSArtifact, String> second = tlsArtifactsGenerator.generate(certificateNamesGenerator);
+        verify(mockCAClient, times(2)).sign(Matchers.<byte[]>any());
+        Assert.assertEquals(PEMUtils.toPEM(cert), first.get(TLSArtifact.CERTIFICATE));
+        Assert.assertEquals(first.keySet(), second.keySet());
+
+        // Nothing left prefetched, so generated inline:
+        tlsArtifactsGenerator.generate(certificateNamesGenerator);
+        verify(mockCAClient, times(3)).sign(Matchers.<byte[]>any());
+    }
+
+    @Test
+    public void testPrefetchSignsConcurrently() throws Exception {
+        final int taskCount = 3;
+        List<X509Certificate> chain = createValidChain();
+        X509Certificate cert = chain.get(0);
+        CountDownLatch allSigning = new CountDownLatch(taskCount);
+        when(mockCAClient.sign(Matchers.<byte[]>any())).thenAnswer(invocation -> {
+            // Only returns once every task's certificate is being signed at the same time:
+            allSigning.countDown();
+            Assert.assertTrue(allSigning.await(10, TimeUnit.SECONDS));
+            return cert;
+        });
+        when(mockCAClient.chainWithRootCert(Matchers.<X509Certificate>any())).thenReturn(chain.subList(1, 2));
+
+        List<CertificateNamesGenerator> namesGenerators = new ArrayList<>();
+        for (int i = 0; i < taskCount; ++i) {
+            PodInstance podInstance = mock(PodInstance.class);
+            when(podInstance.getName()).thenReturn("pod-" + i);
+            namesGenerators.add(new CertificateNamesGenerator(TestConstants.SERVICE_NAME, mockTaskSpec, podInstance));
+        }
+        for (CertificateNamesGenerator namesGenerator : namesGenerators) {
+            tlsArtifactsGenerator.prefetch(namesGenerator, 1);
+        }
+        for (CertificateNamesGenerator namesGenerator : namesGenerators) {
+            Assert.assertEquals(PEMUtils.toPEM(cert),
+                    tlsArtifactsGenerator.generate(namesGenerator).get(TLSArtifact.CERTIFICATE));
+        }
+        verify(mockCAClient, times(taskCount)).sign(Matchers.<byte[]>any());
+    }
+
+    @Test
+    public void testFailedPrefetchRetried() throws Exception {
+        List<X509Certificate> chain = createValidChain();
+        X509Certificate cert = chain.get(0);
+        when(mockCAClient.sign(Matchers.<byte[]>any()))
+                .thenThrow(new IOException("CA unavailable"))
+                .thenReturn(cert);
+        when(mockCAClient.chainWithRootCert(Matchers.<X509Certificate>any())).thenReturn(chain.subList(1, 2));
+
+        tlsArtifactsGenerator.prefetch(certificateNamesGenerator, 1);
+        Assert.assertEquals(PEMUtils.toPEM(cert),
+                tlsArtifactsGenerator.generate(certificateNamesGenerator).get(TLSArtifact.CERTIFICATE));
+        verify(mockCAClient, times(2)).sign(Matchers.<byte[]>any());
+    }
+
+    @Test
+    public void testStalledPrefetchAbandoned() throws Exception {
+        List<X509Certificate> chain = createValidChain();
+        X509Certificate cert = chain.get(0);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockCAClient.sign(Matchers.<byte[]>any()))
+                .thenAnswer(invocation -> {
+                    // The prefetch stalls until it's cancelled:
+                    release.await();
+                    return cert;
+                })
+                .thenReturn(cert);
+        when(mockCAClient.chainWithRootCert(Matchers.<X509Certificate>any())).thenReturn(chain.subList(1, 2));
+
+        tlsArtifactsGenerator = new TLSArtifactsGenerator(
+                mockCAClient, new KeyPairPool(mockKeyPairGenerator, 0), Duration.ofMillis(100));
+        tlsArtifactsGenerator.prefetch(certificateNamesGenerator, 1);
+        Assert.assertEquals(PEMUtils.toPEM(cert),
+                tlsArtifactsGenerator.generate(certificateNamesGenerator).get(TLSArtifact.CERTIFICATE));
+        verify(mockCAClient, times(2)).sign(Matchers.<byte[]>any());
+        tlsArtifactsGenerator.close();
+    }
+
+    @Test
+    public void testClosedGeneratorGeneratesInline() throws Exception {
+        List<X509Certificate> chain = createValidChain();
+        X509Certificate cert = chain.get(0);
+        when(mockCAClient.sign(Matchers.<byte[]>any())).thenReturn(cert);
+        when(mockCAClient.chainWithRootCert(Matchers.<X509Certificate>any())).thenReturn(chain.subList(1, 2));
+
+        tlsArtifactsGenerator.close();
+        tlsArtifactsGenerator.prefetch(certificateNamesGenerator, 1);
+        verify(mockCAClient, times(0)).sign(Matchers.<byte[]>any());
+        Assert.assertEquals(PEMUtils.toPEM(cert),
+                tlsArtifactsGenerator.generate(certificateNamesGenerator).get(TLSArtifact.CERTIFICATE));
+        verify(mockCAClient, times(1)).sign(Matchers.<byte[]>any());
+    }
+
+    /**
+     * Returns a valid chain of an end-entity certificate followed by the root certificate which issued it.
+     */
+    private static List<X509Certificate> createValidChain() throws Exception {
+        return Arrays.asList(createCertificate("issuer", "subject"), createCertificate("issuer", "issuer"));
+    }
+
+    private static X509Certificate createCertificate(String issuer, String subject) throws Exception {
+        X509CertificateHolder certHolder = new X509v3CertificateBuilder(
+                new X500NameBuilder().addRDN(BCStyle.CN, issuer).build(),
+                new BigInteger("1000"),
+                Date.from(Instant.now()),
+                Date.from(Instant.now().plusSeconds(100000)),
+                new X500NameBuilder().addRDN(BCStyle.CN, subject).build(),
+                SubjectPublicKeyInfo.getInstance(KEYPAIR.getPublic().getEncoded()))
+                .build(new JcaContentSignerBuilder("SHA256withRSA").build(KEYPAIR.getPrivate()));
+        return (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(certHolder.getEncoded()));
+    }
+
     private void validateEncodedKeyStore(String encoded) throws Exception {
         KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
         ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64.getDecoder().decode(encoded));
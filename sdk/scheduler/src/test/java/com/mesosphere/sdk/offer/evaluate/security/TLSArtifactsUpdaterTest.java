@@ -1,8 +1,25 @@
 package com.mesosphere.sdk.offer.evaluate.security;
 
+import com.mesosphere.sdk.dcos.DcosConstants;
+import com.mesosphere.sdk.dcos.DcosHttpExecutor;
 import com.mesosphere.sdk.dcos.clients.SecretsClient;
+import com.mesosphere.sdk.scheduler.Metrics;
 import com.mesosphere.sdk.testutils.TestConstants;
 
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -11,10 +28,17 @@ import org.mockito.MockitoAnnotations;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 /**
  * Tests for {@link TLSArtifactsUpdater}.
@@ -117,6 +141,192 @@ public class TLSArtifactsUpdaterTest {
         verifyNoMoreInteractions(mockSecretsClient);
     }
 
+    @Test
+    public void testSecretNamesCachedAcrossUpdates() throws Exception {
+        StubSecretStore secretStore = new StubSecretStore();
+        TLSArtifactsUpdater updater = getUpdater(secretStore, Duration.ofHours(1));
+        TLSArtifactPaths paths = new TLSArtifactPaths(TestConstants.SERVICE_NAME, "pod-0-task", "sans-hash");
+        long hitsBefore = getCounter("tls.secret_names_cache.hits");
+        long missesBefore = getCounter("tls.secret_names_cache.misses");
+
+        // First update lists the namespace and creates everything:
+        updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        Assert.assertEquals(1, secretStore.listCount);
+        Assert.assertEquals(new TreeSet<>(paths.getAllNames(SPEC_NAME)), secretStore.getNames(TestConstants.SERVICE_NAME));
+
+        // Later updates use the cached names, which include the created secrets:
+        for (int i = 0; i < 5; ++i) {
+            updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        }
+        Assert.assertEquals(1, secretStore.listCount);
+        verify(mockTLSArtifactsGenerator, times(1)).generate(mockCertificateNamesGenerator);
+        Assert.assertEquals(hitsBefore + 5, getCounter("tls.secret_names_cache.hits"));
+        Assert.assertEquals(missesBefore + 1, getCounter("tls.secret_names_cache.misses"));
+    }
+
+    @Test
+    public void testDeletedSecretsReflectedInCache() throws Exception {
+        StubSecretStore secretStore = new StubSecretStore();
+        TLSArtifactPaths paths = new TLSArtifactPaths(TestConstants.SERVICE_NAME, "pod-0-task", "sans-hash");
+        String existingPath = paths.getSecretStorePath(TLSArtifact.CERTIFICATE, SPEC_NAME);
+        secretStore.secrets.put(existingPath, "old-cert");
+        TLSArtifactsUpdater updater = getUpdater(secretStore, Duration.ofHours(1));
+
+        updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        Assert.assertEquals(Collections.singletonList(existingPath), secretStore.deletedPaths);
+        Assert.assertEquals("generated-" + TLSArtifact.CERTIFICATE.name(), secretStore.secrets.get(existingPath));
+
+        updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        Assert.assertEquals(1, secretStore.listCount);
+        Assert.assertEquals(1, secretStore.deletedPaths.size());
+        verify(mockTLSArtifactsGenerator, times(1)).generate(mockCertificateNamesGenerator);
+    }
+
+    @Test
+    public void testExpiredSecretNamesRelisted() throws Exception {
+        StubSecretStore secretStore = new StubSecretStore();
+        TLSArtifactsUpdater updater = getUpdater(secretStore, Duration.ZERO);
+        TLSArtifactPaths paths = new TLSArtifactPaths(TestConstants.SERVICE_NAME, "pod-0-task", "sans-hash");
+
+        updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        Assert.assertEquals(2, secretStore.listCount);
+        verify(mockTLSArtifactsGenerator, times(1)).generate(mockCertificateNamesGenerator);
+    }
+
+    @Test
+    public void testSecretNamesRelistedAfterFailedCreate() throws Exception {
+        StubSecretStore secretStore = new StubSecretStore();
+        TLSArtifactsUpdater updater = getUpdater(secretStore, Duration.ofHours(1));
+        TLSArtifactPaths paths = new TLSArtifactPaths(TestConstants.SERVICE_NAME, "pod-0-task", "sans-hash");
+
+        secretStore.failCreates = true;
+        try {
+            updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+            Assert.fail("Expected create failure");
+        } catch (IOException e) {
+            // expected
+        }
+        secretStore.failCreates = false;
+        updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        Assert.assertEquals(2, secretStore.listCount);
+        Assert.assertEquals(new TreeSet<>(paths.getAllNames(SPEC_NAME)), secretStore.getNames(TestConstants.SERVICE_NAME));
+    }
+
+    @Test
+    public void testPrewarm() throws Exception {
+        StubSecretStore secretStore = new StubSecretStore();
+        TLSArtifactPaths paths = new TLSArtifactPaths(TestConstants.SERVICE_NAME, "pod-0-task", "sans-hash");
+        for (TLSArtifact artifact : TLSArtifact.values()) {
+            secretStore.secrets.put(paths.getSecretStorePath(artifact, SPEC_NAME), "value");
+        }
+        TLSArtifactsUpdater updater = getUpdater(secretStore, Duration.ofHours(1));
+
+        updater.prewarm(Arrays.asList(TestConstants.SERVICE_NAME, "other-namespace"));
+        Assert.assertEquals(2, secretStore.listCount);
+
+        updater.update(paths, mockCertificateNamesGenerator, SPEC_NAME);
+        Assert.assertEquals(2, secretStore.listCount);
+        verifyZeroInteractions(mockTLSArtifactsGenerator);
+    }
+
+    private TLSArtifactsUpdater getUpdater(StubSecretStore secretStore, Duration ttl) throws Exception {
+        Map<TLSArtifact, String> artifacts = new HashMap<>();
+        for (TLSArtifact artifact : TLSArtifact.values()) {
+            artifacts.put(artifact, "generated-" + artifact.name());
+        }
+        when(mockTLSArtifactsGenerator.generate(mockCertificateNamesGenerator)).thenReturn(artifacts);
+        return new TLSArtifactsUpdater(
+                TestConstants.SERVICE_NAME,
+                new SecretsClient(secretStore.getExecutor()),
+                mockTLSArtifactsGenerator,
+                ttl);
+    }
+
+    private static long getCounter(String name) {
+        return Metrics.getRegistry().counter(name).getCount();
+    }
+
+    /**
+     * An in-memory secret store, served via a stub HTTP client in a {@link DcosHttpExecutor}.
+     */
+    private static class StubSecretStore {
+        private final Map<String, String> secrets = new TreeMap<>();
+        private final List<String> deletedPaths = new ArrayList<>();
+        private int listCount = 0;
+        private boolean failCreates = false;
+
+        private DcosHttpExecutor getExecutor() {
+            HttpClientBuilder clientBuilder = mock(HttpClientBuilder.class);
+            when(clientBuilder.build()).thenReturn(new CloseableHttpClient() {
+                @Override
+                protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+                        throws IOException {
+                    return handle(request);
+                }
+
+                @Override
+                public void close() { }
+
+                @Override
+                @SuppressWarnings("deprecation")
+                public org.apache.http.params.HttpParams getParams() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                @SuppressWarnings("deprecation")
+                public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+                    throw new UnsupportedOperationException();
+                }
+            });
+            return new DcosHttpExecutor(clientBuilder);
+        }
+
+        private Set<String> getNames(String namespace) {
+            return secrets.keySet().stream()
+                    .filter(path -> path.startsWith(namespace + "/"))
+                    .map(path -> path.substring(namespace.length() + 1))
+                    .collect(Collectors.toCollection(TreeSet::new));
+        }
+
+        private synchronized CloseableHttpResponse handle(HttpRequest request) throws IOException {
+            String uri = request.getRequestLine().getUri();
+            Assert.assertTrue(uri, uri.startsWith(DcosConstants.DEFAULT_SECRET_STORE_URI));
+            String path = uri.substring(DcosConstants.DEFAULT_SECRET_STORE_URI.length());
+            switch (request.getRequestLine().getMethod()) {
+            case "GET":
+                Assert.assertTrue(path, path.endsWith("?list=true"));
+                ++listCount;
+                JSONObject content = new JSONObject();
+                content.put("array", getNames(path.substring(0, path.length() - "?list=true".length())));
+                return new StubResponse(200, content.toString());
+            case "PUT":
+                if (failCreates) {
+                    return new StubResponse(500, "");
+                }
+                secrets.put(path, new JSONObject(EntityUtils.toString(
+                        ((HttpEntityEnclosingRequest) request).getEntity())).getString("value"));
+                return new StubResponse(201, "");
+            case "DELETE":
+                deletedPaths.add(path);
+                return new StubResponse(secrets.remove(path) == null ? 404 : 204, "");
+            default:
+                return new StubResponse(405, "");
+            }
+        }
+    }
+
+    private static class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+        private StubResponse(int statusCode, String content) {
+            super(HttpVersion.HTTP_1_1, statusCode, "stub");
+            setEntity(new StringEntity(content, ContentType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void close() { }
+    }
+
     private void verifyGeneratedSecretsAdded(SecretsClient mockSecretsClient) throws IOException {
         for (Map.Entry<TLSArtifact, String> entry : GENERATED_ARTIFACTS.entrySet()) {
             verify(mockSecretsClient).create(
@@ -5,8 +5,14 @@ import org.apache.mesos.Protos;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * This class tests the {@link OfferQueue}.
@@ -33,11 +39,11 @@ public class OfferQueueTest {
         OfferQueue offerQueue = new OfferQueue();
         int capacity = offerQueue.getRemainingCapacity();
         for (int i = 0; i < capacity; i++) {
-            Assert.assertTrue(offerQueue.offer(getOffer()));
+            Assert.assertTrue(offerQueue.offer(getOffer(UUID.randomUUID().toString())));
         }
 
         Assert.assertEquals(0, offerQueue.getRemainingCapacity());
-        Assert.assertFalse(offerQueue.offer(getOffer()));
+        Assert.assertFalse(offerQueue.offer(getOffer(UUID.randomUUID().toString())));
     }
 
     @Test
@@ -54,7 +60,7 @@ public class OfferQueueTest {
         OfferQueue offerQueue = new OfferQueue(TEST_CAPACITY);
         int halfCapacity = offerQueue.getRemainingCapacity() / 2;
         for (int i = 0; i < halfCapacity; i++) {
-            offerQueue.offer(getOffer());
+            offerQueue.offer(getOffer(UUID.randomUUID().toString()));
         }
 
         List<Protos.Offer> offers = offerQueue.takeAll();
@@ -67,7 +73,7 @@ public class OfferQueueTest {
         OfferQueue offerQueue = new OfferQueue(TEST_CAPACITY);
         int capacity = offerQueue.getRemainingCapacity();
         for (int i = 0; i < capacity; i++) {
-            offerQueue.offer(getOffer());
+            offerQueue.offer(getOffer(UUID.randomUUID().toString()));
         }
 
         List<Protos.Offer> offers = offerQueue.takeAll();
@@ -119,6 +125,125 @@ public class OfferQueueTest {
         Assert.assertEquals(remainingCapacity + 1, offerQueue.getRemainingCapacity());
     }
 
+    @Test
+    public void testRemoveIsIndependentOfQueueSize() {
+        OfferQueue offerQueue = new OfferQueue(0);
+        for (int i = 0; i < 10000; i++) {
+            offerQueue.offer(getOffer("offer-" + i, "agent-" + (i % 100)));
+        }
+        for (int i = 0; i < 10000; i += 2) {
+            Assert.assertTrue(offerQueue.remove(getOfferId("offer-" + i)));
+        }
+        Assert.assertFalse(offerQueue.remove(getOfferId("offer-0")));
+        Assert.assertEquals(5000, offerQueue.getSize());
+        Assert.assertEquals(50, offerQueue.getOfferIdsByAgentId().size());
+    }
+
+    @Test
+    public void testTakeAllGroupsByAgent() {
+        OfferQueue offerQueue = new OfferQueue(TEST_CAPACITY);
+        offerQueue.offer(getOffer("offer-0", "agent-a"));
+        offerQueue.offer(getOffer("offer-1", "agent-b"));
+        offerQueue.offer(getOffer("offer-2", "agent-a"));
+        offerQueue.offer(getOffer("offer-3", "agent-c"));
+        offerQueue.offer(getOffer("offer-4", "agent-b"));
+
+        Assert.assertEquals(Arrays.asList("offer-0", "offer-2", "offer-1", "offer-4", "offer-3"),
+                getOfferIds(offerQueue.takeAll()));
+        Assert.assertTrue(offerQueue.isEmpty());
+        Assert.assertTrue(offerQueue.getOfferIdsByAgentId().isEmpty());
+    }
+
+    @Test
+    public void testRemoveUpdatesAgentIndex() {
+        OfferQueue offerQueue = new OfferQueue(TEST_CAPACITY);
+        offerQueue.offer(getOffer("offer-0", "agent-a"));
+        offerQueue.offer(getOffer("offer-1", "agent-b"));
+        offerQueue.offer(getOffer("offer-2", "agent-a"));
+
+        Assert.assertTrue(offerQueue.remove(getOfferId("offer-1")));
+        Assert.assertEquals(Collections.singleton("agent-a"), offerQueue.getOfferIdsByAgentId().keySet());
+
+        Collection<Protos.Offer> removed = offerQueue.removeAgent(Protos.SlaveID.newBuilder().setValue("agent-a").build());
+        Assert.assertEquals(Arrays.asList("offer-0", "offer-2"), getOfferIds(removed));
+        Assert.assertTrue(offerQueue.isEmpty());
+        Assert.assertTrue(offerQueue.removeAgent(Protos.SlaveID.newBuilder().setValue("agent-a").build()).isEmpty());
+    }
+
+    @Test
+    public void testDuplicateOfferReplaced() {
+        OfferQueue offerQueue = new OfferQueue(1);
+        Assert.assertTrue(offerQueue.offer(getOffer()));
+        Assert.assertTrue(offerQueue.offer(getOffer()));
+        Assert.assertFalse(offerQueue.put(getOffer()).isPresent());
+        Assert.assertEquals(1, offerQueue.getSize());
+    }
+
+    @Test
+    public void testPutDeclineNewest() {
+        OfferQueue offerQueue = new OfferQueue(2, OfferQueue.OverflowPolicy.DECLINE_NEWEST);
+        Assert.assertFalse(offerQueue.put(getOffer("offer-0", "agent-a")).isPresent());
+        Assert.assertFalse(offerQueue.put(getOffer("offer-1", "agent-b")).isPresent());
+        Assert.assertEquals("offer-2", offerQueue.put(getOffer("offer-2", "agent-c")).get().getId().getValue());
+        Assert.assertEquals(Arrays.asList("offer-0", "offer-1"), getOfferIds(offerQueue.takeAll()));
+    }
+
+    @Test
+    public void testPutDeclineOldest() {
+        OfferQueue offerQueue = new OfferQueue(2, OfferQueue.OverflowPolicy.DECLINE_OLDEST);
+        Assert.assertFalse(offerQueue.put(getOffer("offer-0", "agent-a")).isPresent());
+        Assert.assertFalse(offerQueue.put(getOffer("offer-1", "agent-b")).isPresent());
+        Assert.assertEquals("offer-0", offerQueue.put(getOffer("offer-2", "agent-a")).get().getId().getValue());
+        Assert.assertEquals("offer-1", offerQueue.put(getOffer("offer-3", "agent-c")).get().getId().getValue());
+        Assert.assertEquals(Arrays.asList("offer-2", "offer-3"), getOfferIds(offerQueue.takeAll()));
+
+        // offer() never drops queued offers:
+        offerQueue.offer(getOffer("offer-4", "agent-a"));
+        offerQueue.offer(getOffer("offer-5", "agent-a"));
+        Assert.assertFalse(offerQueue.offer(getOffer("offer-6", "agent-a")));
+        Assert.assertEquals(Arrays.asList("offer-4", "offer-5"), getOfferIds(offerQueue.takeAll()));
+    }
+
+    @Test
+    public void testTakeAllSubSecondWait() {
+        OfferQueue offerQueue = new OfferQueue(TEST_CAPACITY);
+        long startNanos = System.nanoTime();
+        Assert.assertTrue(offerQueue.takeAll(Duration.ofMillis(200)).isEmpty());
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        Assert.assertTrue(String.format("Waited %dms", elapsedMs), elapsedMs >= 200 && elapsedMs < 1000);
+    }
+
+    @Test
+    public void testTakeAllWakesOnOffer() throws InterruptedException {
+        OfferQueue offerQueue = new OfferQueue(TEST_CAPACITY);
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            offerQueue.offer(getOffer());
+        });
+        producer.start();
+        List<Protos.Offer> offers = offerQueue.takeAll(Duration.ofSeconds(30));
+        producer.join();
+        Assert.assertEquals(1, offers.size());
+    }
+
+    private static List<String> getOfferIds(Collection<Protos.Offer> offers) {
+        return offers.stream().map(offer -> offer.getId().getValue()).collect(Collectors.toList());
+    }
+
+    private static Protos.OfferID getOfferId(String id) {
+        return Protos.OfferID.newBuilder().setValue(id).build();
+    }
+
+    private Protos.Offer getOffer(String id, String agentId) {
+        return getOffer(id).toBuilder()
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue(agentId))
+                .build();
+    }
+
     private Protos.Offer getOffer() {
         return getOffer(TestConstants.OFFER_ID.getValue());
     }
@@ -11,6 +11,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
@@ -29,8 +31,10 @@ import com.mesosphere.sdk.scheduler.plan.Step;
 import com.mesosphere.sdk.specification.ServiceSpec;
 import com.mesosphere.sdk.state.ConfigStore;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.StateStoreException;
 import com.mesosphere.sdk.storage.MemPersister;
 import com.mesosphere.sdk.storage.PersisterException;
+import com.mesosphere.sdk.storage.StorageError.Reason;
 import com.mesosphere.sdk.testutils.SchedulerConfigTestUtils;
 import com.mesosphere.sdk.testutils.TestConstants;
 
@@ -90,6 +94,72 @@ public class AbstractSchedulerTest {
         verify(mockSchedulerDriver, never()).declineOffer(any(), any());
     }
 
+    @Test
+    public void testDuplicateOffersIgnored() throws PersisterException, InterruptedException {
+        TestScheduler scheduler = getScheduler(false, true, 0);
+        // Block processing of the first offer so that the duplicate arrives while it's still in progress:
+        scheduler.blockProcessing();
+        Protos.Offer offer = getOffer();
+        scheduler.getMesosScheduler().get().resourceOffers(mockSchedulerDriver, Arrays.asList(offer));
+        scheduler.awaitProcessingStarted();
+        scheduler.getMesosScheduler().get().resourceOffers(mockSchedulerDriver, Arrays.asList(offer, getOffer()));
+        scheduler.unblockProcessing();
+        scheduler.awaitOffersProcessed();
+
+        // The duplicate offer was only processed once:
+        Assert.assertEquals(2, scheduler.processedOfferIds.size());
+        Assert.assertEquals(2, new HashSet<>(scheduler.processedOfferIds).size());
+        verify(mockSchedulerDriver, never()).declineOffer(any(), any());
+    }
+
+    @Test
+    public void testRescindedOfferNotInProgress() throws PersisterException, InterruptedException {
+        TestScheduler scheduler = getScheduler(false, true, 0);
+        scheduler.blockProcessing();
+        scheduler.getMesosScheduler().get().resourceOffers(mockSchedulerDriver, Arrays.asList(getOffer()));
+        scheduler.awaitProcessingStarted();
+
+        // Queued behind the blocked offer, then rescinded before it's processed:
+        Protos.Offer rescindedOffer = getOffer();
+        scheduler.getMesosScheduler().get().resourceOffers(mockSchedulerDriver, Arrays.asList(rescindedOffer));
+        scheduler.getMesosScheduler().get().offerRescinded(mockSchedulerDriver, rescindedOffer.getId());
+        scheduler.unblockProcessing();
+        scheduler.awaitOffersProcessed();
+
+        Assert.assertFalse(scheduler.receivedOfferIds.contains(rescindedOffer.getId().getValue()));
+        Assert.assertEquals(1, scheduler.receivedOfferIds.size());
+    }
+
+    @Test
+    public void testUnusedOffersDeclinedByDeclineStage() throws PersisterException, InterruptedException {
+        TestScheduler scheduler = getScheduler(false, true, 0);
+        scheduler.declineUnusedOffers = true;
+        long declinesBefore = Metrics.getRegistry().timer(Metrics.OFFER_STAGE_DECLINE).getCount();
+        long intakesBefore = Metrics.getRegistry().timer(Metrics.OFFER_STAGE_INTAKE).getCount();
+        long queuedBefore = Metrics.getRegistry().timer(Metrics.OFFER_STAGE_QUEUED).getCount();
+
+        Set<String> sentOfferIds = sendOffers(scheduler, 5, 3);
+        // All declines were sent before the offers were considered processed:
+        verify(mockSchedulerDriver, times(sentOfferIds.size())).declineOffer(any(), any());
+
+        Assert.assertTrue(Metrics.getRegistry().timer(Metrics.OFFER_STAGE_DECLINE).getCount() > declinesBefore);
+        Assert.assertEquals(intakesBefore + 5, Metrics.getRegistry().timer(Metrics.OFFER_STAGE_INTAKE).getCount());
+        Assert.assertEquals(queuedBefore + sentOfferIds.size(),
+                Metrics.getRegistry().timer(Metrics.OFFER_STAGE_QUEUED).getCount());
+    }
+
+    @Test
+    public void testOffersDeclinedWhenStatusFlushFails() throws PersisterException, InterruptedException {
+        stateStore = spy(stateStore);
+        doThrow(new StateStoreException(Reason.STORAGE_ERROR, "test")).when(stateStore).flushStatuses();
+        TestScheduler scheduler = getScheduler(false, true, 0);
+
+        Set<String> sentOfferIds = sendOffers(scheduler, 1, 3);
+        // The offers were declined without being processed:
+        Assert.assertTrue(scheduler.receivedOfferIds.isEmpty());
+        verify(mockSchedulerDriver, times(sentOfferIds.size())).declineOffer(any(), any());
+    }
+
     private Set<String> sendOffers(AbstractScheduler scheduler, int threadCount, int offersPerThread)
             throws InterruptedException {
         // Hammer scheduler with offers, and check that they were all forwarded as expected
@@ -170,6 +240,10 @@ public class AbstractSchedulerTest {
         private final PlanCoordinator mockPlanCoordinator = mock(PlanCoordinator.class);
 
         private final Set<String> receivedOfferIds = new HashSet<>();
+        private final List<String> processedOfferIds = Collections.synchronizedList(new ArrayList<>());
+        private final Semaphore processingStarted = new Semaphore(0);
+        private CountDownLatch processingBlocker = new CountDownLatch(0);
+        private boolean declineUnusedOffers = false;
 
         protected TestScheduler(
                 StateStore stateStore, ConfigStore<ServiceSpec> configStore, SchedulerConfig schedulerConfig) {
@@ -190,9 +264,32 @@ public class AbstractSchedulerTest {
 
         @Override
         protected void processOffers(SchedulerDriver driver, List<Protos.Offer> offers, Collection<Step> steps) {
-            receivedOfferIds.addAll(offers.stream()
+            List<String> offerIds = offers.stream()
                     .map(o -> o.getId().getValue())
-                    .collect(Collectors.toList()));
+                    .collect(Collectors.toList());
+            receivedOfferIds.addAll(offerIds);
+            processedOfferIds.addAll(offerIds);
+            processingStarted.release();
+            try {
+                processingBlocker.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            if (declineUnusedOffers) {
+                declineLong(driver, offers);
+            }
+        }
+
+        private void blockProcessing() {
+            processingBlocker = new CountDownLatch(1);
+        }
+
+        private void awaitProcessingStarted() throws InterruptedException {
+            processingStarted.acquire();
+        }
+
+        private void unblockProcessing() {
+            processingBlocker.countDown();
         }
 
         @Override
@@ -371,7 +371,9 @@ public class DefaultSchedulerTest {
                 .addResources(cpus)
                 .addResources(mem)
                 .build();
+        // Offers for the same agent would be coalesced into a single offer, so each offer is for a different agent.
         Protos.Offer offerB = Protos.Offer.newBuilder(getSufficientOfferForTaskB())
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("agent-b"))
                 .addAllResources(operations.stream()
                         .filter(Protos.Offer.Operation::hasReserve)
                         .flatMap(operation -> operation.getReserve().getResourcesList().stream())
@@ -380,6 +382,7 @@ public class DefaultSchedulerTest {
                 .addResources(mem)
                 .build();
         Protos.Offer offerC = Protos.Offer.newBuilder(getSufficientOfferForTaskB())
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("agent-c"))
                 .addAllResources(operations.stream()
                         .filter(Protos.Offer.Operation::hasReserve)
                         .flatMap(operation -> operation.getReserve().getResourcesList().stream())
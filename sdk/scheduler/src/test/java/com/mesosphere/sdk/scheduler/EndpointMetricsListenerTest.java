@@ -0,0 +1,59 @@
+package com.mesosphere.sdk.scheduler;
+
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.glassfish.jersey.uri.UriTemplate;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link EndpointMetricsListener}.
+ */
+public class EndpointMetricsListenerTest {
+
+    @Test
+    public void testPathTemplate() {
+        // Matched templates are listed from the resource method to the root resource:
+        assertEquals("/v1/pod/{name}/status", EndpointMetricsListener.getPathTemplate(Arrays.asList(
+                new UriTemplate("/{name}/status"), new UriTemplate("/v1/pod"))));
+        assertEquals("/v1/pod", EndpointMetricsListener.getPathTemplate(Arrays.asList(
+                UriTemplate.EMPTY, new UriTemplate("/v1/pod"))));
+        assertEquals("/v1/plans/{planName}", EndpointMetricsListener.getPathTemplate(Arrays.asList(
+                new UriTemplate("plans/{planName}"), new UriTemplate("/v1/"))));
+        assertEquals(EndpointMetricsListener.UNMATCHED_PATH,
+                EndpointMetricsListener.getPathTemplate(Collections.emptyList()));
+    }
+
+    @Test
+    public void testFinishedRequestIsTimed() {
+        String timerName = "api.endpoints.GET./v1/endpoints/{name}";
+        long countBefore = Metrics.getRegistry().timer(timerName).getCount();
+
+        RequestEventListener listener = new EndpointMetricsListener().onRequest(mockEvent(RequestEvent.Type.START));
+        listener.onEvent(mockEvent(RequestEvent.Type.RESOURCE_METHOD_START));
+        assertEquals(countBefore, Metrics.getRegistry().timer(timerName).getCount());
+        listener.onEvent(mockEvent(RequestEvent.Type.FINISHED));
+        assertEquals(countBefore + 1, Metrics.getRegistry().timer(timerName).getCount());
+    }
+
+    private static RequestEvent mockEvent(RequestEvent.Type type) {
+        ContainerRequest request = mock(ContainerRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        ExtendedUriInfo uriInfo = mock(ExtendedUriInfo.class);
+        when(uriInfo.getMatchedTemplates()).thenReturn(Arrays.asList(
+                new UriTemplate("/{name}"), new UriTemplate("/v1/endpoints")));
+        RequestEvent event = mock(RequestEvent.class);
+        when(event.getType()).thenReturn(type);
+        when(event.getContainerRequest()).thenReturn(request);
+        when(event.getUriInfo()).thenReturn(uriInfo);
+        return event;
+    }
+}
@@ -24,6 +24,7 @@ import com.mesosphere.sdk.specification.PodSpec;
 import com.mesosphere.sdk.specification.ServiceSpec;
 import com.mesosphere.sdk.state.GoalStateOverride;
 import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.state.TaskStateIndex;
 import com.mesosphere.sdk.testutils.ResourceTestUtils;
 import com.mesosphere.sdk.testutils.TestConstants;
 
@@ -58,6 +59,7 @@ public class DecommissionPlanFactoryTest {
     @Before
     public void beforeEach() {
         MockitoAnnotations.initMocks(this);
+        when(mockStateStore.getTaskStateIndex()).thenAnswer(invocation -> new TaskStateIndex(mockStateStore));
         Capabilities.overrideCapabilities(mockCapabilities);
 
         tasks = Arrays.asList(
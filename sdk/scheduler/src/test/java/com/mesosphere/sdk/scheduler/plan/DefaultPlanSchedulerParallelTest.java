@@ -0,0 +1,216 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import com.mesosphere.sdk.offer.OfferAccepter;
+import com.mesosphere.sdk.offer.evaluate.OfferEvaluator;
+import com.mesosphere.sdk.offer.evaluate.placement.MaxPerHostnameRule;
+import com.mesosphere.sdk.offer.evaluate.placement.RegexMatcher;
+import com.mesosphere.sdk.offer.history.OfferOutcomeTracker;
+import com.mesosphere.sdk.scheduler.TaskKiller;
+import com.mesosphere.sdk.specification.*;
+import com.mesosphere.sdk.state.ConfigStore;
+import com.mesosphere.sdk.state.PersistentLaunchRecorder;
+import com.mesosphere.sdk.state.StateStore;
+import com.mesosphere.sdk.storage.MemPersister;
+import com.mesosphere.sdk.testutils.*;
+import org.apache.mesos.Protos;
+import org.apache.mesos.SchedulerDriver;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Side-by-side tests comparing the serial and parallel modes of {@link DefaultPlanScheduler}.
+ */
+public class DefaultPlanSchedulerParallelTest extends DefaultCapabilitiesTestSuite {
+
+    private static final PodSpec HELLO_POD = DefaultPodSpec.newBuilder(TestPodFactory.getPodSpec(
+            "hello",
+            TestConstants.RESOURCE_SET_ID + "-hello",
+            "server",
+            "echo hello",
+            TestConstants.SERVICE_USER,
+            4,
+            1.0,
+            256,
+            256))
+            .placementRule(new MaxPerHostnameRule(1, RegexMatcher.create("hello-.*")))
+            .build();
+
+    private static final PodSpec WORLD_POD = TestPodFactory.getPodSpec(
+            "world",
+            TestConstants.RESOURCE_SET_ID + "-world",
+            "server",
+            "echo world",
+            TestConstants.SERVICE_USER,
+            3,
+            0.5,
+            128,
+            128);
+
+    private static final ServiceSpec SERVICE_SPEC = DefaultServiceSpec.newBuilder()
+            .name(TestConstants.SERVICE_NAME)
+            .role(TestConstants.ROLE)
+            .principal(TestConstants.PRINCIPAL)
+            .zookeeperConnection("foo.bar.com")
+            .pods(Arrays.asList(HELLO_POD, WORLD_POD))
+            .build();
+
+    @Test
+    public void testParallelPlacementsMatchSerial() throws Exception {
+        Deployment serial = new Deployment(0);
+        Deployment parallel = new Deployment(4);
+
+        // First cycle: Three offers on each of three hosts, so one hello pod is left without a host. One offer is too
+        // small for anything.
+        List<Protos.Offer> offers = new ArrayList<>();
+        for (int i = 0; i < 9; ++i) {
+            offers.add(getOffer("offer-" + i, "host-" + (i / 3), i == 4 ? 0.2 : 1.6));
+        }
+        List<Protos.OfferID> serialAccepted = serial.resourceOffers(offers);
+        List<Protos.OfferID> parallelAccepted = parallel.resourceOffers(offers);
+        assertEquals(serialAccepted, parallelAccepted);
+        assertFalse(parallelAccepted.contains(offers.get(4).getId()));
+        assertEquals(6, parallelAccepted.size());
+        assertEquals(serial.getPlacements(), parallel.getPlacements());
+        assertEquals(serial.getStepStatuses(), parallel.getStepStatuses());
+        assertEquals(serial.getOutcomes(), parallel.getOutcomes());
+        assertEquals(Arrays.asList("host-0", "host-1", "host-2"), parallel.getHelloHosts());
+
+        // Second cycle: The remaining hello pod may only be placed on the new host, despite it being offered last.
+        offers = Arrays.asList(
+                getOffer("offer-9", "host-1", 1.6),
+                getOffer("offer-10", "host-0", 1.6),
+                getOffer("offer-11", "host-3", 1.6));
+        serialAccepted = serial.resourceOffers(offers);
+        parallelAccepted = parallel.resourceOffers(offers);
+        assertEquals(serialAccepted, parallelAccepted);
+        assertEquals(serial.getPlacements(), parallel.getPlacements());
+        assertEquals(serial.getStepStatuses(), parallel.getStepStatuses());
+        assertEquals(serial.getOutcomes(), parallel.getOutcomes());
+        assertEquals(Arrays.asList("host-0", "host-1", "host-2", "host-3"), parallel.getHelloHosts());
+        parallel.close();
+    }
+
+    @Test
+    public void testParallelWithoutOffers() throws Exception {
+        Deployment serial = new Deployment(0);
+        Deployment parallel = new Deployment(4);
+        assertTrue(serial.resourceOffers(Collections.emptyList()).isEmpty());
+        assertTrue(parallel.resourceOffers(Collections.emptyList()).isEmpty());
+        assertTrue(parallel.getPlacements().isEmpty());
+        assertEquals(serial.getStepStatuses(), parallel.getStepStatuses());
+        parallel.close();
+    }
+
+    @Test
+    public void testStepsAreStartedAsTheyAreCommitted() throws Exception {
+        Deployment parallel = new Deployment(4);
+        parallel.resourceOffers(Arrays.asList(getOffer("offer-0", "host-0", 1.6)));
+
+        // Each step is only started once the steps before it have received their offers:
+        InOrder inOrder = inOrder(parallel.steps.toArray());
+        for (Step step : parallel.steps) {
+            inOrder.verify(step).start();
+            inOrder.verify(step).updateOfferStatus(any());
+        }
+        parallel.close();
+    }
+
+    /**
+     * A separate deployment of {@link #SERVICE_SPEC}, with its own state and steps.
+     */
+    private static class Deployment {
+        private final SchedulerDriver mockSchedulerDriver = mock(SchedulerDriver.class);
+        private final StateStore stateStore;
+        private final OfferOutcomeTracker offerOutcomeTracker = new OfferOutcomeTracker(1000);
+        private final DefaultPlanScheduler planScheduler;
+        private final List<Step> steps;
+
+        private Deployment(int evaluationThreads) throws Exception {
+            stateStore = new StateStore(new MemPersister());
+            stateStore.storeFrameworkId(TestConstants.FRAMEWORK_ID);
+            planScheduler = new DefaultPlanScheduler(
+                    new OfferAccepter(Arrays.asList(new PersistentLaunchRecorder(stateStore, SERVICE_SPEC))),
+                    new OfferEvaluator(
+                            stateStore,
+                            offerOutcomeTracker,
+                            TestConstants.SERVICE_NAME,
+                            UUID.randomUUID(),
+                            SchedulerConfigTestUtils.getTestSchedulerConfig(),
+                            true),
+                    stateStore,
+                    new TaskKiller(mockSchedulerDriver),
+                    evaluationThreads);
+            Plan plan = new DeployPlanFactory(
+                    new DefaultPhaseFactory(new DefaultStepFactory(mock(ConfigStore.class), stateStore)))
+                    .getPlan(SERVICE_SPEC);
+            steps = plan.getChildren().stream()
+                    .flatMap(phase -> phase.getChildren().stream())
+                    .map(Mockito::spy)
+                    .collect(Collectors.toList());
+        }
+
+        private void close() {
+            planScheduler.close();
+        }
+
+        private List<Protos.OfferID> resourceOffers(List<Protos.Offer> offers) {
+            return new ArrayList<>(planScheduler.resourceOffers(mockSchedulerDriver, offers, steps));
+        }
+
+        /**
+         * Returns a mapping of task name to the agent where it was launched.
+         */
+        private Map<String, String> getPlacements() {
+            return stateStore.fetchTasks().stream().collect(Collectors.toMap(
+                    Protos.TaskInfo::getName, taskInfo -> taskInfo.getSlaveId().getValue()));
+        }
+
+        private List<Status> getStepStatuses() {
+            return steps.stream().map(Step::getStatus).collect(Collectors.toList());
+        }
+
+        /**
+         * Returns the pod and result of each recorded offer outcome, oldest first.
+         */
+        private List<String> getOutcomes() {
+            JSONArray outcomes = offerOutcomeTracker.toJson().getJSONArray("outcomes");
+            List<String> result = new ArrayList<>();
+            for (int i = outcomes.length() - 1; i >= 0; --i) {
+                JSONObject outcome = outcomes.getJSONObject(i);
+                result.add(outcome.getString("pod-instance-name") + ": " + outcome.getString("outcome"));
+            }
+            return result;
+        }
+
+        private List<String> getHelloHosts() {
+            return getPlacements().entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith("hello-"))
+                    .map(entry -> entry.getValue().replace("agent-", ""))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Protos.Offer getOffer(String offerId, String hostname, double cpus) {
+        return OfferTestUtils.getCompleteOffer(Arrays.asList(
+                ResourceTestUtils.getUnreservedCpus(cpus),
+                ResourceTestUtils.getUnreservedMem(1024),
+                ResourceTestUtils.getUnreservedDisk(2048)))
+                .toBuilder()
+                .setId(Protos.OfferID.newBuilder().setValue(offerId))
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("agent-" + hostname))
+                .setHostname(hostname)
+                .build();
+    }
+}
@@ -128,6 +128,22 @@ public class DefaultPlanSchedulerTest {
         assertTrue(step.isStarting());
     }
 
+    @Test
+    public void testTLSArtifactsPrefetchedForPendingStepsOnly() throws InvalidRequirementException, IOException {
+        TestOfferStep pendingStep = new TestOfferStep(podInstanceRequirement);
+        pendingStep.setStatus(Status.PENDING);
+        when(mockOfferEvaluator.evaluate(podInstanceRequirement, OFFERS)).thenReturn(new ArrayList<>());
+
+        scheduler.resourceOffers(mockSchedulerDriver, OFFERS, Arrays.asList(pendingStep));
+        verify(mockOfferEvaluator).prefetchTLSArtifacts(podInstanceRequirement);
+
+        // Now prepared, so its artifacts have already been requested:
+        assertTrue(pendingStep.isPrepared());
+        scheduler.resourceOffers(mockSchedulerDriver, OFFERS, Arrays.asList(pendingStep));
+        verify(mockOfferEvaluator, times(1)).prefetchTLSArtifacts(podInstanceRequirement);
+        verify(mockOfferEvaluator, times(2)).evaluate(podInstanceRequirement, OFFERS);
+    }
+
     private static class TestOfferStep extends TestStep {
         private final PodInstanceRequirement podInstanceRequirement;
         private Collection<OfferRecommendation> recommendations;
@@ -148,6 +164,11 @@ public class DefaultPlanSchedulerTest {
             }
         }
 
+        @Override
+        public Optional<PodInstanceRequirement> getPodInstanceRequirement() {
+            return Optional.ofNullable(podInstanceRequirement);
+        }
+
         @Override
         public void updateOfferStatus(Collection<OfferRecommendation> recommendations) {
             super.updateOfferStatus(recommendations);
@@ -3,7 +3,9 @@ package com.mesosphere.sdk.scheduler.plan;
 import com.mesosphere.sdk.offer.CommonIdUtils;
 import com.mesosphere.sdk.offer.LaunchOfferRecommendation;
 import com.mesosphere.sdk.offer.TaskUtils;
+import com.mesosphere.sdk.scheduler.plan.strategy.ParallelStrategy;
 import com.mesosphere.sdk.specification.*;
+import com.mesosphere.sdk.state.ChangeFeed;
 import com.mesosphere.sdk.state.GoalStateOverride;
 import com.mesosphere.sdk.state.StateStore;
 import com.mesosphere.sdk.testutils.OfferTestUtils;
@@ -33,6 +35,7 @@ public class DeploymentStepTest {
     @Mock private PodInstance mockPodInstance;
     @Mock private TaskSpec mockTaskSpec;
     @Mock private StateStore mockStateStore;
+    private ChangeFeed changeFeed;
     private String taskName;
     private Protos.TaskID taskID;
 
@@ -55,6 +58,8 @@ public class DeploymentStepTest {
                 .thenReturn(GoalStateOverride.PAUSED.newStatus(GoalStateOverride.Progress.IN_PROGRESS));
         when(mockStateStore.fetchGoalOverrideStatus(any()))
                 .thenReturn(GoalStateOverride.Status.INACTIVE);
+        changeFeed = new ChangeFeed();
+        when(mockStateStore.getChangeFeed()).thenReturn(changeFeed);
     }
 
     @Test
@@ -137,6 +142,50 @@ public class DeploymentStepTest {
         return new HashSet<>(Arrays.asList(elems));
     }
 
+    @Test
+    public void testStepStatusChangesArePublished() {
+        Step step = getStartingStep();
+        long since = changeFeed.getLatestSequence();
+        testStepTransition(step, Protos.TaskState.TASK_RUNNING, Status.STARTING, Status.COMPLETE);
+
+        List<ChangeFeed.Event> events = changeFeed.getChangesSince(since).getEvents();
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(ChangeFeed.Type.STEP, events.get(0).getType());
+        Assert.assertEquals(TEST_STEP_NAME, events.get(0).getName());
+        Assert.assertEquals(Status.STARTING.toString(), events.get(0).getDetails().get("old_status"));
+        Assert.assertEquals(Status.COMPLETE.toString(), events.get(0).getDetails().get("status"));
+
+        // Updates which leave the step's status unchanged aren't published:
+        since = changeFeed.getLatestSequence();
+        step.update(Protos.TaskStatus.newBuilder().setTaskId(taskID).setState(Protos.TaskState.TASK_RUNNING).build());
+        Assert.assertEquals(Status.COMPLETE, step.getStatus());
+        Assert.assertTrue(changeFeed.getChangesSince(since).getEvents().isEmpty());
+    }
+
+    @Test
+    public void testStatusChangesOutsideOfUpdatesArePublished() {
+        DeploymentStep step = getPendingStep();
+        long since = changeFeed.getLatestSequence();
+
+        step.interrupt();
+        step.proceed();
+        step.updateInitialStatus(Status.COMPLETE);
+        step.restart();
+        step.forceComplete();
+
+        List<String> transitions = new ArrayList<>();
+        for (ChangeFeed.Event event : changeFeed.getChangesSince(since).getEvents()) {
+            Assert.assertEquals(ChangeFeed.Type.STEP, event.getType());
+            Assert.assertEquals(TEST_STEP_NAME, event.getName());
+            transitions.add(event.getDetails().get("old_status") + "->" + event.getDetails().get("status"));
+        }
+        Assert.assertEquals(
+                Arrays.asList(
+                        "PENDING->WAITING", "WAITING->PENDING", "PENDING->COMPLETE", "COMPLETE->PENDING",
+                        "PENDING->COMPLETE"),
+                transitions);
+    }
+
     @Test
     public void testCompleteTerminal() {
         Step step = getStartingStep();
@@ -151,6 +200,49 @@ public class DeploymentStepTest {
         Assert.assertEquals(Status.COMPLETE.toString(), step.getDisplayStatus());
     }
 
+    @Test
+    public void testUpdatesRoutedBySubscribedTaskIds() {
+        Assert.assertTrue(getPendingStep().getSubscribedTaskIds().isEmpty());
+
+        DeploymentStep step = getStartingStep();
+        Assert.assertEquals(Collections.singleton(taskID), step.getSubscribedTaskIds());
+
+        DeploymentStep otherStep = getPendingStep();
+        Plan plan = new DefaultPlan("plan", Arrays.asList(new DefaultPhase(
+                "phase", Arrays.asList(otherStep, step), new ParallelStrategy<>(), Collections.emptyList())));
+        plan.update(Protos.TaskStatus.newBuilder()
+                .setTaskId(taskID)
+                .setState(Protos.TaskState.TASK_RUNNING)
+                .build());
+        Assert.assertEquals(Status.COMPLETE, step.getStatus());
+        Assert.assertEquals(Status.PENDING, otherStep.getStatus());
+    }
+
+    @Test
+    public void testSubscriptionChangesAreNotified() {
+        DeploymentStep step = getPendingStep();
+        List<Collection<Protos.TaskID>> notifiedTaskIds = new ArrayList<>();
+        StatusNotifier.Listener listener = source -> notifiedTaskIds.add(step.getSubscribedTaskIds());
+        step.addStatusListener(listener);
+
+        LaunchOfferRecommendation launchRec = new LaunchOfferRecommendation(
+                OfferTestUtils.getEmptyOfferBuilder().build(),
+                Protos.TaskInfo.newBuilder()
+                        .setTaskId(taskID)
+                        .setName(taskName)
+                        .setSlaveId(TestConstants.AGENT_ID)
+                        .build(),
+                Protos.ExecutorInfo.newBuilder().setExecutorId(
+                        Protos.ExecutorID.newBuilder().setValue("executor")).build(),
+                true,
+                true);
+        step.updateOfferStatus(Arrays.asList(launchRec));
+
+        // The new subscriptions are reported before any resulting status change:
+        Assert.assertFalse(notifiedTaskIds.isEmpty());
+        Assert.assertEquals(Collections.singleton(taskID), notifiedTaskIds.get(0));
+    }
+
     @Test
     public void testErrorRetainedAcrossUpdates() {
         // once an ERROR, always an ERROR
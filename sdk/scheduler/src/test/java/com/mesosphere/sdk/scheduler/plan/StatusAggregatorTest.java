@@ -0,0 +1,275 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import com.mesosphere.sdk.scheduler.plan.strategy.CanaryStrategy;
+import com.mesosphere.sdk.scheduler.plan.strategy.ParallelStrategy;
+import com.mesosphere.sdk.scheduler.plan.strategy.RandomStrategy;
+import com.mesosphere.sdk.scheduler.plan.strategy.SerialStrategy;
+import com.mesosphere.sdk.scheduler.plan.strategy.Strategy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * Tests for the incremental status maintained by {@link StatusAggregator} for {@link DefaultPhase}s and
+ * {@link DefaultPlan}s, which must always match the status computed by {@link ParentElement#getStatus()}.
+ */
+public class StatusAggregatorTest {
+
+    @Test
+    public void testRandomUpdatesMatchReference() {
+        Random random = new Random(1234);
+        for (int plan = 0; plan < 50; ++plan) {
+            List<CountingStep> steps = new ArrayList<>();
+            List<Phase> phases = new ArrayList<>();
+            int phaseCount = 1 + random.nextInt(4);
+            for (int phase = 0; phase < phaseCount; ++phase) {
+                List<Step> phaseSteps = new ArrayList<>();
+                int stepCount = random.nextInt(5);
+                for (int step = 0; step < stepCount; ++step) {
+                    CountingStep countingStep = new CountingStep(String.format("step-%d-%d", phase, step));
+                    steps.add(countingStep);
+                    phaseSteps.add(countingStep);
+                }
+                phases.add(new DefaultPhase(
+                        "phase-" + phase, phaseSteps, getStepStrategy(random, phaseSteps), Collections.emptyList()));
+            }
+            DefaultPlan deployPlan = new DefaultPlan(
+                    "plan", phases, random.nextBoolean() ? new SerialStrategy<>() : new ParallelStrategy<>());
+            assertMatchesReference(deployPlan);
+
+            for (int update = 0; update < 100; ++update) {
+                applyRandomUpdate(random, deployPlan, steps);
+                assertMatchesReference(deployPlan);
+            }
+        }
+    }
+
+    @Test
+    public void testStepChangesArePropagated() {
+        TestStep step0 = new TestStep("step-0", null);
+        TestStep step1 = new TestStep("step-1", null);
+        DefaultPhase phase = new DefaultPhase(
+                "phase", Arrays.asList(step0, step1), new SerialStrategy<>(), Collections.emptyList());
+        DefaultPlan deployPlan = new DefaultPlan("plan", Arrays.asList(phase));
+        Assert.assertEquals(Status.PENDING, deployPlan.getStatus());
+
+        step0.setStatus(Status.COMPLETE);
+        Assert.assertEquals(Status.IN_PROGRESS, phase.getStatus());
+        Assert.assertEquals(Status.IN_PROGRESS, deployPlan.getStatus());
+
+        phase.interrupt();
+        Assert.assertEquals(Status.WAITING, deployPlan.getStatus());
+        phase.proceed();
+        Assert.assertEquals(Status.IN_PROGRESS, deployPlan.getStatus());
+
+        step1.setStatus(Status.COMPLETE);
+        Assert.assertEquals(Status.COMPLETE, phase.getStatus());
+        Assert.assertEquals(Status.COMPLETE, deployPlan.getStatus());
+
+        step0.restart();
+        Assert.assertEquals(Status.IN_PROGRESS, phase.getStatus());
+        Assert.assertEquals(Status.IN_PROGRESS, deployPlan.getStatus());
+        step1.restart();
+        Assert.assertEquals(Status.PENDING, deployPlan.getStatus());
+    }
+
+    @Test
+    public void testUnchangedStatusIsNotRecomputed() {
+        List<CountingStep> steps = Arrays.asList(new CountingStep("step-0"), new CountingStep("step-1"));
+        DefaultPhase phase = new DefaultPhase(
+                "phase", new ArrayList<>(steps), new ParallelStrategy<>(), Collections.emptyList());
+        DefaultPlan deployPlan = new DefaultPlan("plan", Arrays.asList(phase));
+        Assert.assertEquals(Status.PENDING, deployPlan.getStatus());
+
+        steps.forEach(CountingStep::resetCount);
+        for (int i = 0; i < 10; ++i) {
+            Assert.assertEquals(Status.PENDING, deployPlan.getStatus());
+            Assert.assertEquals(Status.PENDING, phase.getStatus());
+        }
+        Assert.assertEquals(0, steps.get(0).getCount());
+        Assert.assertEquals(0, steps.get(1).getCount());
+
+        // Changes are picked up on the next read:
+        steps.get(0).setStatus(Status.COMPLETE);
+        Assert.assertEquals(Status.IN_PROGRESS, deployPlan.getStatus());
+        Assert.assertTrue(steps.get(0).getCount() > 0);
+    }
+
+    @Test
+    public void testNonNotifyingChildrenFallBack() {
+        TestStep step0 = new TestStep("step-0", null);
+        TestStep step1 = new TestStep("step-1", null);
+        List<Step> steps = Arrays.asList(step0, step1);
+        DefaultPhase randomPhase = new DefaultPhase(
+                "phase", steps, new RandomStrategy<>(), Collections.emptyList());
+        Assert.assertFalse(randomPhase.addStatusListener(source -> { }));
+        DefaultPlan deployPlan = new DefaultPlan("plan", Arrays.asList(randomPhase));
+        Assert.assertFalse(deployPlan.addStatusListener(source -> { }));
+
+        Assert.assertEquals(Status.PENDING, deployPlan.getStatus());
+        step0.setStatus(Status.COMPLETE);
+        step1.setStatus(Status.COMPLETE);
+        Assert.assertEquals(Status.COMPLETE, randomPhase.getStatus());
+        Assert.assertEquals(Status.COMPLETE, deployPlan.getStatus());
+    }
+
+    private static Strategy<Step> getStepStrategy(Random random, List<Step> steps) {
+        switch (random.nextInt(4)) {
+        case 0:
+            return new SerialStrategy<>();
+        case 1:
+            return new ParallelStrategy<>();
+        case 2:
+            return new CanaryStrategy(new SerialStrategy<>(), steps);
+        default:
+            return new CanaryStrategy(new ParallelStrategy<>(), 1, steps);
+        }
+    }
+
+    private static void applyRandomUpdate(Random random, Plan plan, List<CountingStep> steps) {
+        int choice = random.nextInt(10);
+        if (choice < 6 && !steps.isEmpty()) {
+            CountingStep step = steps.get(random.nextInt(steps.size()));
+            // Mostly use the statuses which steps take on in practice:
+            Status[] statuses = random.nextInt(10) == 0 ? Status.values() : new Status[] {
+                Status.PENDING, Status.PREPARED, Status.STARTING, Status.STARTED, Status.COMPLETE };
+            step.setStatus(statuses[random.nextInt(statuses.length)]);
+        } else if (choice < 8 && !steps.isEmpty()) {
+            CountingStep step = steps.get(random.nextInt(steps.size()));
+            if (random.nextInt(20) == 0) {
+                step.addError("error");
+            } else if (random.nextBoolean()) {
+                step.interrupt();
+            } else {
+                step.proceed();
+            }
+        } else if (choice < 9) {
+            Phase phase = plan.getChildren().get(random.nextInt(plan.getChildren().size()));
+            if (random.nextBoolean()) {
+                phase.interrupt();
+            } else {
+                phase.proceed();
+            }
+        } else if (random.nextBoolean()) {
+            plan.interrupt();
+        } else {
+            plan.proceed();
+        }
+    }
+
+    private static void assertMatchesReference(Plan plan) {
+        for (Phase phase : plan.getChildren()) {
+            Assert.assertEquals(plan.toString(), new ReferencePhase(phase).getStatus(), phase.getStatus());
+        }
+        Assert.assertEquals(plan.toString(), new ReferencePlan(plan).getStatus(), plan.getStatus());
+    }
+
+    /**
+     * Computes the status of a {@link Phase} via {@link ParentElement#getStatus()}.
+     */
+    private static class ReferencePhase implements Phase {
+        private final Phase phase;
+
+        private ReferencePhase(Phase phase) {
+            this.phase = phase;
+        }
+
+        @Override
+        public List<Step> getChildren() {
+            return phase.getChildren();
+        }
+
+        @Override
+        public Strategy<Step> getStrategy() {
+            return phase.getStrategy();
+        }
+
+        @Override
+        public UUID getId() {
+            return phase.getId();
+        }
+
+        @Override
+        public String getName() {
+            return phase.getName();
+        }
+
+        @Override
+        public List<String> getErrors() {
+            return phase.getErrors();
+        }
+    }
+
+    /**
+     * Computes the status of a {@link Plan} via {@link ParentElement#getStatus()}, from the statuses of its phases.
+     */
+    private static class ReferencePlan implements Plan {
+        private final Plan plan;
+
+        private ReferencePlan(Plan plan) {
+            this.plan = plan;
+        }
+
+        @Override
+        public List<Phase> getChildren() {
+            return plan.getChildren();
+        }
+
+        @Override
+        public Strategy<Phase> getStrategy() {
+            return plan.getStrategy();
+        }
+
+        @Override
+        public UUID getId() {
+            return plan.getId();
+        }
+
+        @Override
+        public String getName() {
+            return plan.getName();
+        }
+
+        @Override
+        public List<String> getErrors() {
+            return plan.getErrors();
+        }
+    }
+
+    /**
+     * A {@link TestStep} which may have errors, and which counts calls to {@link #getStatus()}.
+     */
+    private static class CountingStep extends TestStep {
+        private final List<String> errors = new ArrayList<>();
+        private int count;
+
+        private CountingStep(String name) {
+            super(name, null);
+        }
+
+        private void addError(String error) {
+            errors.add(error);
+            notifyStatusListeners();
+        }
+
+        private int getCount() {
+            return count;
+        }
+
+        private void resetCount() {
+            count = 0;
+        }
+
+        @Override
+        public Status getStatus() {
+            ++count;
+            return super.getStatus();
+        }
+
+        @Override
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.mesosphere.sdk.scheduler.plan;
+
+import com.mesosphere.sdk.offer.CommonIdUtils;
+import com.mesosphere.sdk.scheduler.plan.strategy.ParallelStrategy;
+import com.mesosphere.sdk.scheduler.plan.strategy.SerialStrategy;
+import org.apache.mesos.Protos;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.*;
+
+/**
+ * Tests for the routing of {@link Protos.TaskStatus} updates by {@link TaskStatusRouter} within a {@link DefaultPlan}.
+ */
+public class TaskStatusRouterTest {
+
+    @Test
+    public void testLargePlanOnlyUpdatesSubscribedSteps() {
+        // 5,000 steps across 10 phases, each subscribed to its own task:
+        List<SubscribingStep> steps = new ArrayList<>();
+        List<Phase> phases = new ArrayList<>();
+        for (int phase = 0; phase < 10; ++phase) {
+            List<Step> phaseSteps = new ArrayList<>();
+            for (int step = 0; step < 500; ++step) {
+                SubscribingStep subscribingStep = new SubscribingStep(String.format("pod-%d-%d", phase, step));
+                subscribingStep.subscribe(getTaskId(subscribingStep.getName()));
+                steps.add(subscribingStep);
+                phaseSteps.add(subscribingStep);
+            }
+            phases.add(new DefaultPhase("phase-" + phase, phaseSteps, new SerialStrategy<>(), Collections.emptyList()));
+        }
+        Plan plan = new DefaultPlan("plan", phases);
+
+        for (SubscribingStep step : steps) {
+            plan.update(getStatus(step.getName()));
+        }
+        for (SubscribingStep step : steps) {
+            Assert.assertEquals(step.getName(), 1, step.getUpdateCount());
+        }
+
+        plan.update(getStatus("unknown-task"));
+        Assert.assertEquals(steps.size(), steps.stream().mapToInt(SubscribingStep::getUpdateCount).sum());
+    }
+
+    @Test
+    public void testSubscriptionChangesAreReflected() {
+        SubscribingStep step = new SubscribingStep("step");
+        Plan plan = new DefaultPlan("plan", Arrays.asList(new DefaultPhase(
+                "phase", Arrays.asList(step), new ParallelStrategy<>(), Collections.emptyList())));
+
+        plan.update(getStatus("task-0"));
+        Assert.assertEquals(0, step.getUpdateCount());
+
+        step.subscribe(getTaskId("task-0"));
+        plan.update(getStatus("task-0"));
+        Assert.assertEquals(1, step.getUpdateCount());
+
+        // e.g. relaunched with a new TaskID:
+        step.subscribe(getTaskId("task-1"));
+        plan.update(getStatus("task-0"));
+        Assert.assertEquals(1, step.getUpdateCount());
+        plan.update(getStatus("task-1"));
+        Assert.assertEquals(2, step.getUpdateCount());
+    }
+
+    @Test
+    public void testUnsubscribedElementsReceiveAllUpdates() {
+        Step mockStep = Mockito.mock(DeploymentStep.class);
+        Step otherStep = Mockito.spy(new TestStep("other", null));
+        Phase mockPhase = Mockito.mock(Phase.class);
+        Plan plan = new DefaultPlan("plan", Arrays.asList(
+                new DefaultPhase("phase", Arrays.asList(mockStep, otherStep), new ParallelStrategy<>(),
+                        Collections.emptyList()),
+                mockPhase));
+
+        Protos.TaskStatus status = getStatus("task-0");
+        plan.update(status);
+        Mockito.verify(mockStep).update(status);
+        Mockito.verify(otherStep).update(status);
+        Mockito.verify(mockPhase).update(status);
+    }
+
+    private final Map<String, Protos.TaskID> taskIds = new HashMap<>();
+
+    private Protos.TaskID getTaskId(String taskName) {
+        // Each TaskID is unique, so reuse them across calls:
+        return taskIds.computeIfAbsent(taskName, CommonIdUtils::toTaskId);
+    }
+
+    private Protos.TaskStatus getStatus(String taskName) {
+        return Protos.TaskStatus.newBuilder()
+                .setTaskId(getTaskId(taskName))
+                .setState(Protos.TaskState.TASK_RUNNING)
+                .build();
+    }
+
+    /**
+     * A {@link TestStep} which subscribes to a single task, and counts the updates it receives for that task.
+     */
+    private static class SubscribingStep extends TestStep implements TaskStatusSubscriber {
+        private Collection<Protos.TaskID> taskIds = Collections.emptyList();
+        private int updateCount;
+
+        private SubscribingStep(String name) {
+            super(name, null);
+        }
+
+        private void subscribe(Protos.TaskID taskId) {
+            taskIds = Collections.singletonList(taskId);
+            notifyStatusListeners();
+        }
+
+        private int getUpdateCount() {
+            return updateCount;
+        }
+
+        @Override
+        public Collection<Protos.TaskID> getSubscribedTaskIds() {
+            return taskIds;
+        }
+
+        @Override
+        public void update(Protos.TaskStatus status) {
+            Assert.assertTrue(taskIds.contains(status.getTaskId()));
+            ++updateCount;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.google.common.collect.Iterables;
+import com.mesosphere.sdk.config.ConfigurationComparator;
 import com.mesosphere.sdk.config.SerializationUtils;
 import com.mesosphere.sdk.config.validate.PodSpecsCannotUseUnsupportedFeatures;
 import com.mesosphere.sdk.dcos.Capabilities;
@@ -21,6 +22,7 @@ import com.mesosphere.sdk.storage.Persister;
 import com.mesosphere.sdk.storage.StorageError.Reason;
 import com.mesosphere.sdk.testutils.SchedulerConfigTestUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.mesos.Protos;
 import org.junit.Assert;
 import org.junit.Before;
@@ -716,4 +718,85 @@ public class DefaultServiceSpecTest {
         Assert.assertEquals(
                 GoalState.FINISHED, SerializationUtils.fromString("\"FINISHED\"", GoalState.class, objectMapper));
     }
+
+    @Test
+    public void testFingerprintEqualityMatchesComparator() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        List<ServiceSpec> serviceSpecs = new ArrayList<>();
+        List<ServiceSpec> copies = new ArrayList<>();
+        for (String fileName : Arrays.asList(
+                "valid-minimal.yml",
+                "valid-simple.yml",
+                "valid-envkey-ports.yml",
+                "valid-multiple-ports.yml",
+                "valid-minimal-volume.yml",
+                "valid-secrets.yml",
+                "valid-network.yml",
+                "valid-finished.yml")) {
+            File file = new File(classLoader.getResource(fileName).getFile());
+            DefaultServiceSpec serviceSpec = DefaultServiceSpec.newGenerator(file, SCHEDULER_CONFIG).build();
+            serviceSpecs.add(serviceSpec);
+            // A separately generated copy, and a copy which went through serialization:
+            copies.add(DefaultServiceSpec.newGenerator(file, SCHEDULER_CONFIG).build());
+            copies.add(DefaultServiceSpec.getConfigurationFactory(serviceSpec).parse(serviceSpec.getBytes()));
+            // A copy with a different pod count:
+            PodSpec pod = serviceSpec.getPods().get(0);
+            copies.add(DefaultServiceSpec.newBuilder(serviceSpec)
+                    .pods(Arrays.asList(DefaultPodSpec.newBuilder(pod).count(pod.getCount() + 1).build()))
+                    .build());
+        }
+
+        ConfigurationComparator<ServiceSpec> comparator = DefaultServiceSpec.getComparatorInstance();
+        int equalCount = 0;
+        for (ServiceSpec serviceSpec : serviceSpecs) {
+            for (ServiceSpec copy : copies) {
+                boolean expected = EqualsBuilder.reflectionEquals(serviceSpec, copy);
+                Assert.assertEquals(expected, serviceSpec.getFingerprint().equals(copy.getFingerprint()));
+                Assert.assertEquals(expected, comparator.equals(serviceSpec, copy));
+                equalCount += expected ? 1 : 0;
+
+                for (PodSpec pod : serviceSpec.getPods()) {
+                    for (PodSpec copyPod : copy.getPods()) {
+                        Assert.assertEquals(pod.equals(copyPod), pod.getFingerprint().equals(copyPod.getFingerprint()));
+                        for (TaskSpec task : pod.getTasks()) {
+                            for (TaskSpec copyTask : copyPod.getTasks()) {
+                                if (task.getFingerprint().equals(copyTask.getFingerprint())) {
+                                    Assert.assertEquals(task, copyTask);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        Assert.assertEquals(2 * serviceSpecs.size(), equalCount);
+    }
+
+    @Test
+    public void testFingerprintIsCanonical() throws Exception {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("b", Arrays.asList(1, 2));
+        first.put("a", "x");
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("a", "x");
+        second.put("b", Arrays.asList(1, 2));
+        Assert.assertEquals(SerializationUtils.toFingerprint(first), SerializationUtils.toFingerprint(second));
+        Assert.assertEquals(64, SerializationUtils.toFingerprint(first).length());
+
+        second.put("b", Arrays.asList(2, 1));
+        Assert.assertNotEquals(SerializationUtils.toFingerprint(first), SerializationUtils.toFingerprint(second));
+
+        // Set elements are sorted, unlike list elements:
+        first.put("b", new LinkedHashSet<>(Arrays.asList("x", "y")));
+        second.put("b", new LinkedHashSet<>(Arrays.asList("y", "x")));
+        Assert.assertEquals(SerializationUtils.toFingerprint(first), SerializationUtils.toFingerprint(second));
+
+        // The fingerprint isn't included in the spec's own serialized form:
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("valid-minimal.yml").getFile());
+        DefaultServiceSpec serviceSpec = DefaultServiceSpec.newGenerator(file, SCHEDULER_CONFIG).build();
+        String fingerprint = serviceSpec.getFingerprint();
+        Assert.assertFalse(serviceSpec.toJsonString().contains("fingerprint"));
+        Assert.assertFalse(serviceSpec.toJsonString().contains(fingerprint));
+    }
 }
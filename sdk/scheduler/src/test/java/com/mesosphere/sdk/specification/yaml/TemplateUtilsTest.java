@@ -131,6 +131,81 @@ public class TemplateUtilsTest {
         Assert.assertFalse(renderedYaml.contains("ENABLED"));
     }
 
+    @Test
+    public void testMissingValuesReportedOnEachRenderOfCachedTemplate() {
+        String template = "hello {{first}} and {{second}}";
+        Map<String, String> env = new HashMap<>();
+        for (int i = 0; i < 3; ++i) {
+            List<MissingValue> missing = new ArrayList<>();
+            Assert.assertEquals("hello  and ", TemplateUtils.renderMustache("testTemplate", template, env, missing));
+            Assert.assertEquals("[first@L1, second@L1]", missing.toString());
+        }
+
+        env.put("first", "a");
+        List<MissingValue> missing = new ArrayList<>();
+        Assert.assertEquals("hello a and ", TemplateUtils.renderMustache("testTemplate", template, env, missing));
+        Assert.assertEquals("[second@L1]", missing.toString());
+
+        env.put("second", "b");
+        Assert.assertEquals("hello a and b", TemplateUtils.renderMustacheThrowIfMissing("testTemplate", template, env));
+
+        missing = new ArrayList<>();
+        Assert.assertEquals("hello  and ",
+                TemplateUtils.renderMustache("testTemplate", template, Collections.emptyMap(), missing));
+        Assert.assertEquals("[first@L1, second@L1]", missing.toString());
+    }
+
+    @Test
+    public void testMissingValueReportedOncePerLine() {
+        String template = "{{repeated}} and {{repeated}}\n{{#flag}}{{repeated}}{{/flag}} and {{other}}";
+        for (int i = 0; i < 2; ++i) {
+            List<MissingValue> missing = new ArrayList<>();
+            Assert.assertEquals(" and \n and ", TemplateUtils.renderMustache(
+                    "testTemplate", template, Collections.singletonMap("flag", "true"), missing));
+            Assert.assertEquals("[repeated@L1, repeated@L2, other@L2]", missing.toString());
+        }
+    }
+
+    @Test
+    public void testCompiledTemplateIsReused() {
+        String template = "reused {{value}}";
+        TemplateUtils.renderMustacheThrowIfMissing("testTemplate", template, Collections.singletonMap("value", "a"));
+        long hitCount = TemplateUtils.getCompiledTemplateStats().hitCount();
+        long missCount = TemplateUtils.getCompiledTemplateStats().missCount();
+
+        Assert.assertEquals("reused b", TemplateUtils.renderMustacheThrowIfMissing(
+                "testTemplate", template, Collections.singletonMap("value", "b")));
+        Assert.assertEquals(hitCount + 1, TemplateUtils.getCompiledTemplateStats().hitCount());
+        Assert.assertEquals(missCount, TemplateUtils.getCompiledTemplateStats().missCount());
+
+        // The same content with a different name is compiled separately, so that errors refer to the right template:
+        TemplateUtils.renderMustacheThrowIfMissing("otherTemplate", template, Collections.singletonMap("value", "c"));
+        Assert.assertEquals(missCount + 1, TemplateUtils.getCompiledTemplateStats().missCount());
+    }
+
+    @Test
+    public void testCachedTemplateMatchesFreshlyCompiledTemplate() throws IOException {
+        String filename = "test-render-inverted.yml";
+        String yaml = getYamlContent(filename);
+        List<Map<String, String>> envs = new ArrayList<>();
+        envs.add(Collections.singletonMap("ENABLED", "true"));
+        envs.add(Collections.singletonMap("ENABLED", "false"));
+        envs.add(Collections.singletonMap("ENABLED", ""));
+        envs.add(Collections.singletonMap("ENABLED", "other"));
+        envs.add(Collections.emptyMap());
+
+        for (int i = 0; i < 20; ++i) {
+            Map<String, String> env = envs.get(i % envs.size());
+            List<MissingValue> cachedMissing = new ArrayList<>();
+            String cached = TemplateUtils.renderMustache(filename, yaml, env, cachedMissing);
+            // A unique name results in a new compilation:
+            List<MissingValue> freshMissing = new ArrayList<>();
+            String fresh = TemplateUtils.renderMustache(filename + "-" + i, yaml, env, freshMissing);
+            Assert.assertEquals(fresh, cached);
+            Assert.assertEquals(freshMissing.toString(), cachedMissing.toString());
+        }
+    }
+
     private String getYamlContent(String fileName) throws IOException {
         File file = new File(getClass().getClassLoader().getResource(fileName).getFile());
         return FileUtils.readFileToString(file);
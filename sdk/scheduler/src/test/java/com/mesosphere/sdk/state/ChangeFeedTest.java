@@ -0,0 +1,122 @@
+package com.mesosphere.sdk.state;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ChangeFeed}.
+ */
+public class ChangeFeedTest {
+
+    @Test
+    public void testEventsFollowingCursor() {
+        ChangeFeed feed = new ChangeFeed(10);
+        assertEquals(0, feed.getLatestSequence());
+        assertTrue(feed.getChangesSince(0).getEvents().isEmpty());
+
+        publish(feed, "a", "b", "c");
+        ChangeFeed.Changes changes = feed.getChangesSince(1);
+        assertEquals(3, changes.getLatestSequence());
+        assertFalse(changes.isTruncated());
+        assertEquals(Arrays.asList("b", "c"), getNames(changes));
+        assertTrue(feed.getChangesSince(3).getEvents().isEmpty());
+
+        JSONObject json = new JSONObject(changes.toJson());
+        assertEquals(3, json.getLong("version"));
+        assertEquals(2, json.getJSONArray("events").length());
+        JSONObject event = json.getJSONArray("events").getJSONObject(0);
+        assertEquals(2, event.getLong("sequence"));
+        assertEquals("task-status", event.getString("type"));
+        assertEquals("b", event.getString("name"));
+        assertEquals("TASK_RUNNING", event.getJSONObject("details").getString("state"));
+    }
+
+    @Test
+    public void testCursorsOutsideBufferAreTruncated() {
+        ChangeFeed feed = new ChangeFeed(3);
+        publish(feed, "a", "b", "c", "d", "e");
+
+        // The oldest retained event immediately follows the cursor:
+        ChangeFeed.Changes changes = feed.getChangesSince(2);
+        assertFalse(changes.isTruncated());
+        assertEquals(Arrays.asList("c", "d", "e"), getNames(changes));
+
+        // Event 2 is no longer retained:
+        changes = feed.getChangesSince(1);
+        assertTrue(changes.isTruncated());
+        assertEquals(Arrays.asList("c", "d", "e"), getNames(changes));
+
+        // A cursor from before a restart is ahead of the feed:
+        changes = feed.getChangesSince(100);
+        assertTrue(changes.isTruncated());
+        assertEquals(5, changes.getLatestSequence());
+    }
+
+    @Test
+    public void testCursorsFromOtherFeedsAreTruncated() {
+        ChangeFeed feed = new ChangeFeed();
+        ChangeFeed previousFeed = new ChangeFeed();
+        publish(feed, "a", "b");
+        publish(previousFeed, "a");
+
+        String cursor = feed.getChangesSince(1).getCursor();
+        assertEquals(2, feed.getSequence(cursor));
+        assertEquals(1, feed.getSequence(cursor.substring(0, cursor.lastIndexOf(':') + 1) + "1"));
+
+        // The sequence numbers match, but the epochs don't:
+        String previousCursor = previousFeed.getChangesSince(0).getCursor();
+        assertEquals(-1, feed.getSequence(previousCursor));
+        ChangeFeed.Changes changes = feed.getChangesSince(feed.getSequence(previousCursor));
+        assertTrue(changes.isTruncated());
+        assertEquals(Arrays.asList("a", "b"), getNames(changes));
+
+        assertEquals(-1, feed.getSequence("1"));
+        assertEquals(-1, feed.getSequence(cursor + "x"));
+    }
+
+    @Test
+    public void testWatchersAreNotifiedOnce() {
+        ChangeFeed feed = new ChangeFeed();
+        publish(feed, "a");
+        List<ChangeFeed.Changes> notified = new ArrayList<>();
+
+        // Changes are already available:
+        assertTrue(feed.watch(0, notified::add).isPresent());
+        assertEquals(0, feed.getWatcherCount());
+
+        ChangeFeed.Watcher watcher1 = notified::add;
+        ChangeFeed.Watcher watcher2 = notified::add;
+        ChangeFeed.Watcher timedOutWatcher = notified::add;
+        assertFalse(feed.watch(1, watcher1).isPresent());
+        assertFalse(feed.watch(1, watcher2).isPresent());
+        assertFalse(feed.watch(1, timedOutWatcher).isPresent());
+        assertTrue(feed.unwatch(timedOutWatcher));
+        assertEquals(2, feed.getWatcherCount());
+
+        publish(feed, "b");
+        assertEquals(2, notified.size());
+        // Watchers with the same cursor share the same changes:
+        assertSame(notified.get(0), notified.get(1));
+        assertEquals(Arrays.asList("b"), getNames(notified.get(0)));
+        assertEquals(0, feed.getWatcherCount());
+
+        publish(feed, "c");
+        assertEquals(2, notified.size());
+        assertFalse(feed.unwatch(watcher1));
+    }
+
+    private static void publish(ChangeFeed feed, String... names) {
+        for (String name : names) {
+            feed.publish(ChangeFeed.Type.TASK_STATUS, name, Collections.singletonMap("state", "TASK_RUNNING"));
+        }
+    }
+
+    private static List<String> getNames(ChangeFeed.Changes changes) {
+        return changes.getEvents().stream().map(ChangeFeed.Event::getName).collect(Collectors.toList());
+    }
+}
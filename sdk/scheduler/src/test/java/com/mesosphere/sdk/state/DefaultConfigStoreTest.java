@@ -9,7 +9,10 @@ import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -47,6 +50,39 @@ public class DefaultConfigStoreTest {
         assertNotEquals(0, persister.get("Configurations/" + id.toString()).length);
     }
 
+    @Test
+    public void testStoreConfigDigest() throws Exception {
+        UUID id = store.store(testConfig);
+        String digest = ConfigStore.getDigest(testConfig.getBytes());
+        assertEquals(64, digest.length());
+        assertEquals(digest, new String(persister.get("Configurations/" + id + "/Digest"), StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList(id), store.list());
+
+        UUID duplicateId = store.store(new StringConfiguration("test-config"));
+        UUID otherId = store.store(new StringConfiguration("other-config"));
+        Map<UUID, String> digests = store.fetchDigests(Arrays.asList(id, duplicateId, otherId, UUID.randomUUID()));
+        assertEquals(3, digests.size());
+        assertEquals(digest, digests.get(duplicateId));
+        assertNotEquals(digest, digests.get(otherId));
+
+        store.clear(id);
+        assertFalse(store.fetchDigests(Collections.singletonList(id)).containsKey(id));
+    }
+
+    @Test
+    public void testFetchDigestsOfConfigsWithoutDigest() throws Exception {
+        // Configs stored by older versions only have the config content:
+        UUID id = UUID.randomUUID();
+        persister.set("Configurations/" + id, testConfig.getBytes());
+
+        // Reload the store to avoid any cached digests:
+        store = new ConfigStore<StringConfiguration>(new StringConfiguration.Factory(), persister);
+        String digest = store.fetchDigests(Collections.singletonList(id)).get(id);
+        assertEquals(ConfigStore.getDigest(testConfig.getBytes()), digest);
+        assertEquals(digest, new String(persister.get("Configurations/" + id + "/Digest"), StandardCharsets.UTF_8));
+        assertEquals(testConfig, store.fetch(id));
+    }
+
     @Test
     public void testStoreFetchConfig() throws Exception {
         UUID testId = store.store(testConfig);
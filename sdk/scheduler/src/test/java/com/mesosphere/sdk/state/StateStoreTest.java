@@ -6,13 +6,19 @@ import org.apache.mesos.Protos;
 import com.mesosphere.sdk.offer.CommonIdUtils;
 import com.mesosphere.sdk.storage.MemPersister;
 import com.mesosphere.sdk.storage.Persister;
+import com.mesosphere.sdk.storage.PersisterException;
 import com.mesosphere.sdk.storage.PersisterUtils;
+import com.mesosphere.sdk.storage.StorageError.Reason;
 
 import org.junit.*;
+import org.mockito.Mockito;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.*;
 
 /**
@@ -226,6 +232,18 @@ public class StateStoreTest {
         assertEquals(status, statuses.iterator().next());
     }
 
+    @Test
+    public void testStoreStatusReturnsReplacedStatus() throws Exception {
+        Protos.TaskInfo task = StateStoreUtilsTest.createTask(TestConstants.TASK_NAME);
+        store.storeTasks(Arrays.asList(task));
+
+        Protos.TaskStatus status = TASK_STATUS.toBuilder().setTaskId(task.getTaskId()).build();
+        assertFalse(store.storeStatus(TestConstants.TASK_NAME, status).isPresent());
+
+        Protos.TaskStatus nextStatus = status.toBuilder().setState(Protos.TaskState.TASK_FAILED).build();
+        assertEquals(status, store.storeStatus(TestConstants.TASK_NAME, nextStatus).get());
+    }
+
     @Test
     public void testFetchMissingStatus() throws Exception {
         assertTrue(!store.fetchStatus(TestConstants.TASK_NAME).isPresent());
@@ -524,6 +542,179 @@ public class StateStoreTest {
         store.storeStatus(TestConstants.TASK_NAME, status);
     }
 
+    // group commit
+
+    @Test
+    public void testGroupCommitCoalescesStatuses() throws Exception {
+        Persister spyPersister = Mockito.spy(new MemPersister());
+        // Long window: Only commit when explicitly flushed
+        StateStore groupStore = new StateStore(spyPersister, Duration.ofHours(1));
+        Protos.TaskInfo task1 = StateStoreUtilsTest.createTask("task1");
+        Protos.TaskInfo task2 = StateStoreUtilsTest.createTask("task2");
+        groupStore.storeTasks(Arrays.asList(task1, task2));
+
+        Protos.TaskStatus status1Running = createStatus(task1, Protos.TaskState.TASK_RUNNING);
+        Protos.TaskStatus status1Finished = createStatus(task1, Protos.TaskState.TASK_FINISHED);
+        Protos.TaskStatus status2Running = createStatus(task2, Protos.TaskState.TASK_RUNNING);
+        groupStore.storeStatus("task1", status1Running);
+        groupStore.storeStatus("task2", status2Running);
+        groupStore.storeStatus("task1", status1Finished);
+
+        // Queued statuses are visible to readers of the state store, but haven't been written yet:
+        assertEquals(status1Finished, groupStore.fetchStatus("task1").get());
+        assertEquals(new HashSet<>(Arrays.asList(status1Finished, status2Running)),
+                new HashSet<>(groupStore.fetchStatuses()));
+        assertNull(getPersistedStatus(spyPersister, "task1"));
+        assertNull(getPersistedStatus(spyPersister, "task2"));
+
+        // Only the latest status for each task is written, in a single transaction:
+        groupStore.flushStatuses();
+        assertEquals(status1Finished, getPersistedStatus(spyPersister, "task1"));
+        assertEquals(status2Running, getPersistedStatus(spyPersister, "task2"));
+        Mockito.verify(spyPersister, Mockito.times(2)).setMany(Mockito.any());
+        Mockito.verify(spyPersister, Mockito.never()).set(Mockito.eq("Tasks/task1/TaskStatus"), Mockito.any());
+
+        // Nothing left to write:
+        groupStore.flushStatuses();
+        Mockito.verify(spyPersister, Mockito.times(2)).setMany(Mockito.any());
+    }
+
+    @Test
+    public void testGroupCommitAfterWindow() throws Exception {
+        StateStore groupStore = new StateStore(persister, Duration.ofMillis(10));
+        Protos.TaskInfo task = StateStoreUtilsTest.createTask(TestConstants.TASK_NAME);
+        groupStore.storeTasks(Arrays.asList(task));
+        Protos.TaskStatus status = createStatus(task, Protos.TaskState.TASK_RUNNING);
+        groupStore.storeStatus(TestConstants.TASK_NAME, status);
+
+        await().atMost(10, TimeUnit.SECONDS).until(
+                () -> getPersistedStatus(persister, TestConstants.TASK_NAME) != null);
+        assertEquals(status, getPersistedStatus(persister, TestConstants.TASK_NAME));
+    }
+
+    @Test
+    public void testCloseCommitsPendingStatuses() throws Exception {
+        StateStore groupStore = new StateStore(persister, Duration.ofHours(1));
+        Protos.TaskInfo task1 = StateStoreUtilsTest.createTask("task1");
+        Protos.TaskInfo task2 = StateStoreUtilsTest.createTask("task2");
+        groupStore.storeTasks(Arrays.asList(task1, task2));
+
+        Protos.TaskStatus status1 = createStatus(task1, Protos.TaskState.TASK_RUNNING);
+        groupStore.storeStatus("task1", status1);
+        groupStore.close();
+        assertEquals(status1, getPersistedStatus(persister, "task1"));
+
+        // Statuses stored after closing remain queued until they're flushed:
+        Protos.TaskStatus status2 = createStatus(task2, Protos.TaskState.TASK_RUNNING);
+        groupStore.storeStatus("task2", status2);
+        assertEquals(status2, groupStore.fetchStatus("task2").get());
+        assertNull(getPersistedStatus(persister, "task2"));
+        groupStore.flushStatuses();
+        assertEquals(status2, getPersistedStatus(persister, "task2"));
+    }
+
+    @Test
+    public void testGroupCommitOrderedWithTaskWrites() throws Exception {
+        StateStore groupStore = new StateStore(persister, Duration.ofHours(1));
+        Protos.TaskInfo task1 = StateStoreUtilsTest.createTask("task1");
+        Protos.TaskInfo task2 = StateStoreUtilsTest.createTask("task2");
+        groupStore.storeTasks(Arrays.asList(task1, task2));
+
+        // Pending status is committed along with later TaskInfo writes:
+        Protos.TaskStatus status1 = createStatus(task1, Protos.TaskState.TASK_RUNNING);
+        groupStore.storeStatus("task1", status1);
+        groupStore.storeTasks(Arrays.asList(task2));
+        assertEquals(status1, getPersistedStatus(persister, "task1"));
+
+        // Pending status is discarded when its task is cleared, rather than being written afterwards:
+        groupStore.storeStatus("task2", createStatus(task2, Protos.TaskState.TASK_RUNNING));
+        groupStore.clearTask("task2");
+        assertFalse(groupStore.fetchStatus("task2").isPresent());
+        groupStore.flushStatuses();
+        assertEquals(Collections.singleton("task1"), persister.getChildren("Tasks"));
+    }
+
+    @Test
+    public void testVersionIncrementsOnEveryWrite() throws Exception {
+        StateStore groupStore = new StateStore(persister, Duration.ofHours(1));
+        Protos.TaskInfo task = StateStoreUtilsTest.createTask(TestConstants.TASK_NAME);
+        long version = groupStore.getVersion();
+
+        groupStore.storeTasks(Arrays.asList(task));
+        assertEquals(++version, groupStore.getVersion());
+        // Queued statuses are visible to readers, so they increment the version before being committed:
+        groupStore.storeStatus(TestConstants.TASK_NAME, createStatus(task, Protos.TaskState.TASK_RUNNING));
+        assertEquals(++version, groupStore.getVersion());
+        groupStore.flushStatuses();
+        assertEquals(version, groupStore.getVersion());
+        groupStore.storeProperty("key", new byte[1]);
+        assertEquals(++version, groupStore.getVersion());
+        groupStore.clearProperty("key");
+        assertEquals(++version, groupStore.getVersion());
+        groupStore.storeFrameworkId(FRAMEWORK_ID);
+        assertEquals(++version, groupStore.getVersion());
+        groupStore.clearTask(TestConstants.TASK_NAME);
+        assertEquals(++version, groupStore.getVersion());
+        groupStore.invalidateCachedState();
+        assertEquals(++version, groupStore.getVersion());
+
+        // Reads leave the version unchanged:
+        groupStore.fetchTasks();
+        groupStore.fetchFrameworkId();
+        assertEquals(version, groupStore.getVersion());
+
+    }
+
+    @Test
+    public void testStoredStatusesArePublished() throws Exception {
+        Protos.TaskInfo task = StateStoreUtilsTest.createTask(TestConstants.TASK_NAME);
+        store.storeTasks(Arrays.asList(task));
+        store.storeStatus(TestConstants.TASK_NAME, createStatus(task, Protos.TaskState.TASK_RUNNING));
+
+        List<ChangeFeed.Event> events = store.getChangeFeed().getChangesSince(0).getEvents();
+        assertEquals(1, events.size());
+        assertEquals(ChangeFeed.Type.TASK_STATUS, events.get(0).getType());
+        assertEquals(TestConstants.TASK_NAME, events.get(0).getName());
+        assertEquals("TASK_RUNNING", events.get(0).getDetails().get("state"));
+        assertEquals(task.getTaskId().getValue(), events.get(0).getDetails().get("task_id"));
+
+        // Rejected statuses aren't published:
+        try {
+            store.storeStatus(TestConstants.TASK_NAME, createStatus(
+                    StateStoreUtilsTest.createTask("other"), Protos.TaskState.TASK_RUNNING));
+            fail("Expected unknown TaskID to be rejected");
+        } catch (StateStoreException e) {
+            assertEquals(1, store.getChangeFeed().getLatestSequence());
+        }
+    }
+
+    @Test
+    public void testVersionIncrementsOnFailedWrite() throws Exception {
+        Persister spyPersister = Mockito.spy(new MemPersister());
+        StateStore failingStore = new StateStore(spyPersister);
+        Mockito.doThrow(new PersisterException(Reason.STORAGE_ERROR, "failed"))
+                .when(spyPersister).set(Mockito.anyString(), Mockito.any());
+        long version = failingStore.getVersion();
+
+        // The write may have been partially applied, so the version is incremented regardless:
+        try {
+            failingStore.storeProperty("key", new byte[1]);
+            fail("Expected storage failure");
+        } catch (StateStoreException e) {
+            assertEquals(version + 1, failingStore.getVersion());
+        }
+    }
+
+    private static Protos.TaskStatus getPersistedStatus(Persister persister, String taskName) throws Exception {
+        byte[] bytes = persister.getMany(Arrays.asList(StateStore.getTaskStatusPath(taskName)))
+                .get(StateStore.getTaskStatusPath(taskName));
+        return bytes == null ? null : Protos.TaskStatus.parseFrom(bytes);
+    }
+
+    private static Protos.TaskStatus createStatus(Protos.TaskInfo taskInfo, Protos.TaskState state) {
+        return TASK_STATUS.toBuilder().setTaskId(taskInfo.getTaskId()).setState(state).build();
+    }
+
     private static Collection<Protos.TaskInfo> createTasks(String... taskNames) {
         List<Protos.TaskInfo> taskInfos = new ArrayList<>();
         for (String taskName : taskNames) {
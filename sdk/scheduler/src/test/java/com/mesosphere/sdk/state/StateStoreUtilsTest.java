@@ -18,6 +18,7 @@ import org.junit.Test;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.empty;
@@ -84,7 +85,7 @@ public class StateStoreUtilsTest {
     public void testMismatchInTaskNameReturnsNoTaskStatusAsProperty() {
         final Protos.TaskInfo taskInfo = newTaskInfo("test-task");
         final Protos.TaskStatus taskStatus = newTaskStatus(taskInfo, Protos.TaskState.TASK_UNKNOWN);
-        StateStoreUtils.storeTaskStatusAsProperty(stateStore, "test-task", taskStatus);
+        StateStoreUtils.storeTaskStatusAsProperty(stateStore, "test-task", taskStatus, Optional.empty());
         assertThat(StateStoreUtils.getTaskStatusFromProperty(stateStore, "not-test-task").isPresent(), is(false));
     }
 
@@ -92,11 +93,41 @@ public class StateStoreUtilsTest {
     public void testTaskStatusAsPropertyIsSetAndReturned() {
         final Protos.TaskInfo taskInfo = newTaskInfo("test-task");
         final Protos.TaskStatus taskStatus = newTaskStatus(taskInfo, Protos.TaskState.TASK_UNKNOWN);
-        StateStoreUtils.storeTaskStatusAsProperty(stateStore, "test-task", taskStatus);
+        StateStoreUtils.storeTaskStatusAsProperty(stateStore, "test-task", taskStatus, Optional.empty());
 
         assertThat(StateStoreUtils.getTaskStatusFromProperty(stateStore, "test-task").get(), is(taskStatus));
     }
 
+    @SuppressWarnings("PMD.AvoidUsingHardCodedIP")
+    @Test
+    public void testTaskStatusAsPropertyPublishesIpAddresses() {
+        final Protos.TaskInfo taskInfo = newTaskInfo("test-task");
+        final Protos.TaskStatus.Builder taskStatusBuilder =
+                newTaskStatus(taskInfo, Protos.TaskState.TASK_RUNNING).toBuilder();
+        taskStatusBuilder.getContainerStatusBuilder().addNetworkInfosBuilder()
+                .addIpAddresses(Protos.NetworkInfo.IPAddress.newBuilder().setIpAddress("10.0.0.1"))
+                .addIpAddresses(Protos.NetworkInfo.IPAddress.newBuilder().setIpAddress("10.0.0.2"));
+        Protos.TaskStatus runningStatus = taskStatusBuilder.build();
+        StateStoreUtils.storeTaskStatusAsProperty(stateStore, "test-task", runningStatus, Optional.empty());
+
+        ChangeFeed.Event event = stateStore.getChangeFeed().getChangesSince(0).getEvents().get(0);
+        assertThat(event.getType(), is(ChangeFeed.Type.ENDPOINT));
+        assertThat(event.getName(), is("test-task"));
+        assertThat(event.getDetails().get("ip_addresses"), is("10.0.0.1,10.0.0.2"));
+
+        // Statuses which leave the IP addresses unchanged aren't published:
+        long since = stateStore.getChangeFeed().getLatestSequence();
+        Protos.TaskStatus killingStatus = taskStatusBuilder.setState(Protos.TaskState.TASK_KILLING).build();
+        StateStoreUtils.storeTaskStatusAsProperty(stateStore, "test-task", killingStatus, Optional.of(runningStatus));
+        assertThat(stateStore.getChangeFeed().getChangesSince(since).getEvents().size(), is(0));
+
+        taskStatusBuilder.getContainerStatusBuilder().clearNetworkInfos();
+        StateStoreUtils.storeTaskStatusAsProperty(
+                stateStore, "test-task", taskStatusBuilder.build(), Optional.of(killingStatus));
+        event = stateStore.getChangeFeed().getChangesSince(since).getEvents().get(0);
+        assertThat(event.getDetails().get("ip_addresses"), is(""));
+    }
+
     @Test
     public void testStateStoreWithSingleStateReturnsTaskInfo() {
         // Create task info
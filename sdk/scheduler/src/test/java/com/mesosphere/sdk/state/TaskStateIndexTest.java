@@ -0,0 +1,252 @@
+package com.mesosphere.sdk.state;
+
+import com.mesosphere.sdk.offer.CommonIdUtils;
+import com.mesosphere.sdk.offer.evaluate.placement.PlacementRule;
+import com.mesosphere.sdk.offer.evaluate.placement.TaskTypeRule;
+import com.mesosphere.sdk.offer.taskdata.TaskLabelWriter;
+import com.mesosphere.sdk.specification.PodInstance;
+import com.mesosphere.sdk.storage.MemPersister;
+import com.mesosphere.sdk.storage.Persister;
+import com.mesosphere.sdk.testutils.OfferTestUtils;
+import com.mesosphere.sdk.testutils.PodTestUtils;
+import com.mesosphere.sdk.testutils.ResourceTestUtils;
+
+import org.apache.mesos.Protos;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TaskStateIndex}, as maintained by a {@link StateStore}.
+ */
+public class TaskStateIndexTest {
+
+    private Persister persister;
+    private StateStore store;
+    private TaskStateIndex index;
+
+    @Before
+    public void beforeEach() throws Exception {
+        persister = Mockito.spy(new MemPersister());
+        store = new StateStore(persister);
+        index = store.getTaskStateIndex();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertTrue(index.getTasks().isEmpty());
+        assertFalse(index.getTask("pod-0-task").isPresent());
+        assertFalse(index.getStatus("pod-0-task").isPresent());
+        assertEquals(GoalStateOverride.Status.INACTIVE, index.getGoalOverrideStatus("pod-0-task"));
+        assertTrue(index.getTasksByPodType("pod").isEmpty());
+        assertTrue(index.getResourceIds().isEmpty());
+    }
+
+    @Test
+    public void testLookups() throws Exception {
+        Protos.TaskInfo a0 = createTask("a", 0, "server", "agent-1", "res-a0");
+        Protos.TaskInfo a1 = createTask("a", 1, "server", "agent-2", "res-a1");
+        Protos.TaskInfo a1Sidecar = createTask("a", 1, "sidecar", "agent-2", "res-a1-sidecar");
+        Protos.TaskInfo b0 = createTask("b", 0, "server", "agent-1", "res-b0");
+        Protos.TaskInfo unlabeled = StateStoreUtilsTest.createTask("unlabeled");
+        store.storeTasks(Arrays.asList(a0, a1, a1Sidecar, b0, unlabeled));
+
+        assertEquals(getNames(store.fetchTasks()), getNames(index.getTasks()));
+        assertEquals(a1Sidecar, index.getTask(a1Sidecar.getName()).get());
+
+        assertEquals(getNames(a0, a1, a1Sidecar), getNames(index.getTasksByPodType("a")));
+        assertEquals(getNames(b0), getNames(index.getTasksByPodType("b")));
+        assertTrue(index.getTasksByPodType("c").isEmpty());
+
+        assertEquals(getNames(a1, a1Sidecar), getNames(index.getTasksByPodInstance("a-1")));
+        assertEquals(getNames(a0), getNames(index.getTasksByPodInstance("a-0")));
+        assertTrue(index.getTasksByPodInstance("a-2").isEmpty());
+
+        assertEquals(getNames(a0, b0), getNames(index.getTasksByAgentId("agent-1")));
+        assertEquals(getNames(a1, a1Sidecar), getNames(index.getTasksByAgentId("agent-2")));
+        assertEquals(getNames(unlabeled), getNames(index.getTasksByAgentId("ignored")));
+
+        assertEquals(a1Sidecar, index.getTaskByResourceId("res-a1-sidecar").get());
+        assertFalse(index.getTaskByResourceId("res-c0").isPresent());
+        assertEquals(
+                new HashSet<>(Arrays.asList("res-a0", "res-a1", "res-a1-sidecar", "res-b0")),
+                index.getResourceIds());
+
+        assertEquals(b0, index.getTaskByTaskId(b0.getTaskId()).get());
+        assertFalse(index.getTaskByTaskId(CommonIdUtils.toTaskId("b-0-server")).isPresent());
+    }
+
+    @Test
+    public void testTasksAreOnlyLoadedOnce() throws Exception {
+        store.storeTasks(Arrays.asList(
+                createTask("a", 0, "server", "agent-1", "res-a0"),
+                createTask("a", 1, "server", "agent-2", "res-a1")));
+        index.getTasks();
+        Mockito.reset(persister);
+
+        for (int i = 0; i < 5; ++i) {
+            assertEquals(2, index.getTasks().size());
+            assertEquals(1, index.getTasksByPodInstance("a-1").size());
+            assertTrue(index.getTask("a-0-server").isPresent());
+        }
+        Mockito.verifyZeroInteractions(persister);
+
+        // Only the updated task is refetched:
+        store.storeTasks(Arrays.asList(createTask("a", 0, "server", "agent-3", "res-a0")));
+        Mockito.reset(persister);
+        assertEquals(getNames(index.getTasksByPodType("a")), getNames(index.getTasks()));
+        Mockito.verify(persister, Mockito.times(1)).get(StateStore.getTaskInfoPath("a-0-server"));
+        Mockito.verifyNoMoreInteractions(persister);
+    }
+
+    @Test
+    public void testTaskUpdatesAreReflected() throws Exception {
+        Protos.TaskInfo a0 = createTask("a", 0, "server", "agent-1", "res-a0");
+        store.storeTasks(Arrays.asList(a0));
+        assertEquals(getNames(a0), getNames(index.getTasksByAgentId("agent-1")));
+
+        // Relaunch on a different agent with a new resource:
+        Protos.TaskInfo relaunchedA0 = createTask("a", 0, "server", "agent-2", "res-a0-new");
+        store.storeTasks(Arrays.asList(relaunchedA0));
+        assertTrue(index.getTasksByAgentId("agent-1").isEmpty());
+        assertEquals(getNames(a0), getNames(index.getTasksByAgentId("agent-2")));
+        assertFalse(index.getTaskByResourceId("res-a0").isPresent());
+        assertEquals(relaunchedA0, index.getTaskByResourceId("res-a0-new").get());
+        assertEquals(relaunchedA0, index.getTask(a0.getName()).get());
+
+        store.clearTask(a0.getName());
+        assertTrue(index.getTasks().isEmpty());
+        assertTrue(index.getTasksByPodType("a").isEmpty());
+        assertTrue(index.getTasksByAgentId("agent-2").isEmpty());
+        assertTrue(index.getResourceIds().isEmpty());
+        assertFalse(index.getTask(a0.getName()).isPresent());
+    }
+
+    @Test
+    public void testRemovalLeavesKeysClaimedByOtherTasks() throws Exception {
+        Protos.TaskInfo a0 = createTask("a", 0, "server", "agent-1", "res-shared");
+        store.storeTasks(Arrays.asList(a0));
+        assertEquals(a0, index.getTaskByResourceId("res-shared").get());
+
+        // Another task has taken over the resource before the original task is removed:
+        Protos.TaskInfo b0 = createTask("b", 0, "server", "agent-1", "res-shared");
+        store.storeTasks(Arrays.asList(b0));
+        store.clearTask(a0.getName());
+        assertEquals(b0, index.getTaskByResourceId("res-shared").get());
+        assertEquals(getNames(b0), getNames(index.getTasksByAgentId("agent-1")));
+        assertTrue(index.getTasksByPodType("a").isEmpty());
+        assertEquals(getNames(b0), getNames(index.getTasksByPodType("b")));
+    }
+
+    @Test
+    public void testStatusAndOverrideUpdatesAreReflected() throws Exception {
+        Protos.TaskInfo a0 = createTask("a", 0, "server", "agent-1", "res-a0");
+        store.storeTasks(Arrays.asList(a0));
+        assertFalse(index.getStatus(a0.getName()).isPresent());
+        assertEquals(GoalStateOverride.Status.INACTIVE, index.getGoalOverrideStatus(a0.getName()));
+
+        store.storeStatus(a0.getName(), createStatus(a0, Protos.TaskState.TASK_RUNNING));
+        assertEquals(Protos.TaskState.TASK_RUNNING, index.getStatus(a0.getName()).get().getState());
+        store.storeStatus(a0.getName(), createStatus(a0, Protos.TaskState.TASK_FAILED));
+        assertEquals(Protos.TaskState.TASK_FAILED, index.getStatus(a0.getName()).get().getState());
+
+        GoalStateOverride.Status pausing = GoalStateOverride.PAUSED.newStatus(GoalStateOverride.Progress.PENDING);
+        store.storeGoalOverrideStatus(a0.getName(), pausing);
+        assertEquals(pausing, index.getGoalOverrideStatus(a0.getName()));
+
+        store.clearTask(a0.getName());
+        assertFalse(index.getStatus(a0.getName()).isPresent());
+        assertEquals(GoalStateOverride.Status.INACTIVE, index.getGoalOverrideStatus(a0.getName()));
+    }
+
+    @Test
+    public void testGroupCommittedStatusesAreReflected() throws Exception {
+        store = new StateStore(persister, Duration.ofHours(1));
+        index = store.getTaskStateIndex();
+        Protos.TaskInfo a0 = createTask("a", 0, "server", "agent-1", "res-a0");
+        store.storeTasks(Arrays.asList(a0));
+        assertFalse(index.getStatus(a0.getName()).isPresent());
+
+        // Queued but not yet committed:
+        store.storeStatus(a0.getName(), createStatus(a0, Protos.TaskState.TASK_RUNNING));
+        assertEquals(Protos.TaskState.TASK_RUNNING, index.getStatus(a0.getName()).get().getState());
+        store.flushStatuses();
+        assertEquals(Protos.TaskState.TASK_RUNNING, index.getStatus(a0.getName()).get().getState());
+    }
+
+    @Test
+    public void testClearAllData() throws Exception {
+        Protos.TaskInfo a0 = createTask("a", 0, "server", "agent-1", "res-a0");
+        store.storeTasks(Arrays.asList(a0));
+        store.storeStatus(a0.getName(), createStatus(a0, Protos.TaskState.TASK_RUNNING));
+        assertEquals(1, index.getTasks().size());
+        assertTrue(index.getStatus(a0.getName()).isPresent());
+
+        store.clearAllData();
+        assertTrue(index.getTasks().isEmpty());
+        assertTrue(index.getTasksByPodType("a").isEmpty());
+        assertFalse(index.getStatus(a0.getName()).isPresent());
+    }
+
+    @Test
+    public void testPlacementIndexUpdatesAreReflected() throws Exception {
+        PlacementRule rule = TaskTypeRule.avoid("a");
+        PodInstance podInstance = PodTestUtils.getPodInstance(0);
+        Protos.Offer offer = OfferTestUtils.getEmptyOfferBuilder()
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue("agent-1"))
+                .build();
+        Protos.TaskInfo a0 = createTask("a", 0, "server", "agent-1", "res-a0");
+        store.storeTasks(Arrays.asList(a0));
+        Collection<Protos.TaskInfo> tasks = index.getTasksWithPlacementIndex();
+        assertEquals(index.getTasks(), new ArrayList<>(tasks));
+        assertFalse(rule.filter(offer, podInstance, tasks).isPassing());
+
+        // Relaunch on a different agent:
+        store.storeTasks(Arrays.asList(createTask("a", 0, "server", "agent-2", "res-a0")));
+        assertTrue(rule.filter(offer, podInstance, index.getTasksWithPlacementIndex()).isPassing());
+        // Tasks which were retrieved before the update are still evaluated as they were:
+        assertFalse(rule.filter(offer, podInstance, tasks).isPassing());
+
+        store.storeTasks(Arrays.asList(createTask("a", 1, "server", "agent-1", "res-a1")));
+        assertFalse(rule.filter(offer, podInstance, index.getTasksWithPlacementIndex()).isPassing());
+        store.clearAllData();
+        assertTrue(rule.filter(offer, podInstance, index.getTasksWithPlacementIndex()).isPassing());
+    }
+
+    @Test
+    public void testExternalIndexMatchesOwnIndex() throws Exception {
+        store.storeTasks(Arrays.asList(
+                createTask("a", 0, "server", "agent-1", "res-a0"),
+                createTask("b", 0, "server", "agent-1", "res-b0")));
+        assertEquals(index.getTasks(), new TaskStateIndex(store).getTasks());
+        assertEquals(index.getTasksByAgentId("agent-1"), new TaskStateIndex(store).getTasksByAgentId("agent-1"));
+    }
+
+    private static Protos.TaskInfo createTask(
+            String podType, int podIndex, String taskName, String agentId, String resourceId) {
+        String name = String.format("%s-%d-%s", podType, podIndex, taskName);
+        Protos.TaskInfo.Builder builder = StateStoreUtilsTest.createTask(name).toBuilder()
+                .setSlaveId(Protos.SlaveID.newBuilder().setValue(agentId))
+                .addResources(ResourceTestUtils.getReservedCpus(1.0, resourceId));
+        builder.setLabels(new TaskLabelWriter(builder).setType(podType).setIndex(podIndex).toProto());
+        return builder.build();
+    }
+
+    private static Protos.TaskStatus createStatus(Protos.TaskInfo taskInfo, Protos.TaskState state) {
+        return Protos.TaskStatus.newBuilder().setTaskId(taskInfo.getTaskId()).setState(state).build();
+    }
+
+    private static List<String> getNames(Protos.TaskInfo... taskInfos) {
+        return getNames(Arrays.asList(taskInfos));
+    }
+
+    private static List<String> getNames(Collection<Protos.TaskInfo> taskInfos) {
+        return taskInfos.stream().map(Protos.TaskInfo::getName).sorted().collect(Collectors.toList());
+    }
+}
@@ -83,6 +83,15 @@ public class MemPersisterTest {
         assertTrue(persister.getChildren("/").isEmpty());
     }
 
+    @Test
+    public void testSetNull() throws PersisterException {
+        persister.set(KEY, null);
+        assertNull(persister.get(KEY));
+        persister.setMany(Collections.singletonMap(KEY, null));
+        assertNull(persister.get(KEY));
+        assertEquals(Collections.singleton(KEY), persister.getChildren(""));
+    }
+
     @Test(expected = PersisterException.class)
     public void testDeleteMissing() throws PersisterException {
         persister.recursiveDelete(KEY);
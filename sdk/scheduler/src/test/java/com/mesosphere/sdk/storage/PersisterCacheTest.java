@@ -45,6 +45,11 @@ public class PersisterCacheTest {
         MockitoAnnotations.initMocks(this);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testWatchRequiresWatchablePersister() throws PersisterException {
+        new PersisterCache(persister, PersisterCache.RefreshMode.WATCH);
+    }
+
     @Test
     public void testInitEmpty() throws PersisterException {
         cache = new PersisterCache(persister);
@@ -274,6 +279,116 @@ public class PersisterCacheTest {
         cache.recursiveDelete(KEY2);
     }
 
+    @Test
+    public void testWatchDropsEventsPredatingLocalWrite() throws PersisterException {
+        WatchedPersister watchedPersister = new WatchedPersister();
+        cache = new PersisterCache(watchedPersister, PersisterCache.RefreshMode.WATCH);
+        assertTrue(PersisterUtils.getAllKeys(cache).isEmpty());
+
+        cache.set(KEY, VAL);
+        long firstVersion = watchedPersister.getVersioned(KEY).getVersion();
+        cache.set(KEY, VAL2);
+        long secondVersion = watchedPersister.getVersioned(KEY).getVersion();
+
+        // The watch reports the first write after the second write has been made:
+        watchedPersister.listener.onSet("/" + KEY, VAL, firstVersion);
+        assertArrayEquals(VAL2, cache.get(KEY));
+        watchedPersister.listener.onSet("/" + KEY, VAL2, secondVersion);
+        assertArrayEquals(VAL2, cache.get(KEY));
+        // Reported again, e.g. following a reconnect:
+        watchedPersister.listener.onSet("/" + KEY, VAL, firstVersion);
+        assertArrayEquals(VAL2, cache.get(KEY));
+
+        // Changes made by other parties after the local write are still applied:
+        watchedPersister.set(KEY, VAL);
+        watchedPersister.listener.onSet("/" + KEY, VAL, watchedPersister.getVersioned(KEY).getVersion());
+        assertArrayEquals(VAL, cache.get(KEY));
+    }
+
+    @Test
+    public void testWatchDropsEventsPredatingLocalDelete() throws PersisterException {
+        WatchedPersister watchedPersister = new WatchedPersister();
+        cache = new PersisterCache(watchedPersister, PersisterCache.RefreshMode.WATCH);
+        assertTrue(PersisterUtils.getAllKeys(cache).isEmpty());
+
+        cache.set(KEY, VAL);
+        long setVersion = watchedPersister.getVersioned(KEY).getVersion();
+        cache.recursiveDelete(KEY);
+
+        // The watch reports the set after the delete has been made:
+        watchedPersister.listener.onSet("/" + KEY, VAL, setVersion);
+        assertTrue(PersisterUtils.getAllKeys(cache).isEmpty());
+        // Reported again ahead of the delete, e.g. following a reconnect:
+        watchedPersister.listener.onSet("/" + KEY, VAL, setVersion);
+        assertTrue(PersisterUtils.getAllKeys(cache).isEmpty());
+        watchedPersister.listener.onDelete("/" + KEY, setVersion);
+        assertTrue(PersisterUtils.getAllKeys(cache).isEmpty());
+
+        // A change made by another party after the local delete is still applied:
+        watchedPersister.set(KEY, VAL2);
+        watchedPersister.listener.onSet("/" + KEY, VAL2, watchedPersister.getVersioned(KEY).getVersion());
+        assertArrayEquals(VAL2, cache.get(KEY));
+    }
+
+    @Test
+    public void testWatchAppliesChangeFollowingLocalWrite() throws PersisterException {
+        WatchedPersister watchedPersister = new WatchedPersister();
+        cache = new PersisterCache(watchedPersister, PersisterCache.RefreshMode.WATCH);
+        assertTrue(PersisterUtils.getAllKeys(cache).isEmpty());
+
+        cache.set(KEY, VAL);
+        // Another party overwrites the value before the watch has reported the local write, and the watch then only
+        // reports the latest value:
+        watchedPersister.set(KEY, VAL2);
+        watchedPersister.listener.onSet("/" + KEY, VAL2, watchedPersister.getVersioned(KEY).getVersion());
+        assertArrayEquals(VAL2, cache.get(KEY));
+    }
+
+    @Test
+    public void testWatchDropsConflictingEventWhenWrittenAgainDuringRead() throws PersisterException {
+        WatchedPersister watchedPersister = new WatchedPersister();
+        cache = new PersisterCache(watchedPersister, PersisterCache.RefreshMode.WATCH);
+
+        byte[] val3 = "someval3".getBytes(StandardCharsets.UTF_8);
+        cache.set(KEY, VAL);
+        watchedPersister.set(KEY, VAL2);
+        long version = watchedPersister.getVersioned(KEY).getVersion();
+        // The cache writes again after the current value has been read, but before it has been applied:
+        watchedPersister.afterGetVersioned = () -> {
+            watchedPersister.afterGetVersioned = () -> { };
+            try {
+                cache.set(KEY, val3);
+            } catch (PersisterException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        watchedPersister.listener.onSet("/" + KEY, VAL2, version);
+        assertArrayEquals(val3, cache.get(KEY));
+    }
+
+    @Test
+    public void testWatchNotifiesListenersOfExternalChanges() throws PersisterException {
+        WatchedPersister watchedPersister = new WatchedPersister();
+        cache = new PersisterCache(watchedPersister, PersisterCache.RefreshMode.WATCH);
+        List<String> notifications = new ArrayList<>();
+        cache.addChangeListener(() -> notifications.add("changed"));
+
+        // The cache's own writes aren't reported:
+        cache.set(KEY, VAL);
+        watchedPersister.listener.onSet("/" + KEY, VAL, watchedPersister.getVersioned(KEY).getVersion());
+        assertTrue(notifications.isEmpty());
+
+        watchedPersister.set(KEY2, VAL2);
+        watchedPersister.listener.onSet("/" + KEY2, VAL2, watchedPersister.getVersioned(KEY2).getVersion());
+        assertEquals(1, notifications.size());
+
+        long version = watchedPersister.getVersioned(KEY2).getVersion();
+        watchedPersister.recursiveDelete(KEY2);
+        watchedPersister.listener.onDelete("/" + KEY2, version);
+        assertEquals(2, notifications.size());
+        assertEquals(KEY_SET, PersisterUtils.getAllKeys(cache));
+    }
+
     @Test
     public void testMultithreadedSetGetDelete() throws InterruptedException {
         Collection<Runnable> threads = new ArrayList<>();
@@ -330,4 +445,49 @@ public class PersisterCacheTest {
         }
         assertTrue(errors.toString(), errors.isEmpty());
     }
+
+    /**
+     * A {@link MemPersister} whose watch delivers its initial content, and then leaves the test to deliver any changes
+     * via {@link #listener}. Each write is assigned the next version.
+     */
+    private static class WatchedPersister extends MemPersister implements WatchablePersister {
+        private final Map<String, Long> versions = new HashMap<>();
+        private long lastVersion = 0;
+        private Listener listener;
+        private Runnable afterGetVersioned = () -> { };
+
+        @Override
+        public void set(String path, byte[] bytes) throws PersisterException {
+            super.set(path, bytes);
+            versions.put(trimPath(path), ++lastVersion);
+        }
+
+        @Override
+        public void recursiveDelete(String path) throws PersisterException {
+            super.recursiveDelete(path);
+            versions.remove(trimPath(path));
+            ++lastVersion;
+        }
+
+        @Override
+        public Watch watch(Listener listener) throws PersisterException {
+            this.listener = listener;
+            for (Map.Entry<String, byte[]> entry : PersisterUtils.getAllData(this).entrySet()) {
+                listener.onSet(entry.getKey(), entry.getValue(), versions.get(trimPath(entry.getKey())));
+            }
+            listener.onInitialized();
+            return () -> this.listener = null;
+        }
+
+        @Override
+        public VersionedData getVersioned(String path) throws PersisterException {
+            VersionedData data = new VersionedData(get(path), versions.get(trimPath(path)));
+            afterGetVersioned.run();
+            return data;
+        }
+
+        private static String trimPath(String path) {
+            return path.startsWith(PersisterUtils.PATH_DELIM_STR) ? path.substring(1) : path;
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package com.mesosphere.sdk.testutils;
 
+import com.mesosphere.sdk.offer.evaluate.OfferSelectionPolicy;
+import com.mesosphere.sdk.queue.OfferQueue;
 import com.mesosphere.sdk.scheduler.SchedulerConfig;
 
 import java.time.Duration;
@@ -22,6 +24,10 @@ public class SchedulerConfigTestUtils {
         when(schedulerConfig.getDcosSpace()).thenReturn("/");
         when(schedulerConfig.getSecretsNamespace(TestConstants.SERVICE_NAME)).thenReturn(TestConstants.SERVICE_NAME);
         when(schedulerConfig.getApiServerInitTimeout()).thenReturn(Duration.ofSeconds(10));
+        when(schedulerConfig.getStatusGroupCommitWindow()).thenReturn(Duration.ZERO);
+        when(schedulerConfig.getOfferQueueCapacity()).thenReturn(100);
+        when(schedulerConfig.getOfferQueueOverflowPolicy()).thenReturn(OfferQueue.OverflowPolicy.DECLINE_NEWEST);
+        when(schedulerConfig.getOfferSelectionPolicy()).thenReturn(OfferSelectionPolicy.FIRST_FIT);
         return schedulerConfig;
     }
 }